@@ -0,0 +1,78 @@
+package ucar.ma2;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sum a float(time, y, x) Array by the different ways of walking it: an IndexIterator, Index.set() in nested loops,
+ * and an IndexIterator over a strided section and a transposed view, where the index can't be computed incrementally.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexIterationBenchmark {
+
+  @Param({"100", "500"})
+  public int nx;
+
+  private static final int NTIME = 24;
+  private Array data, strided, transposed;
+
+  @Setup(Level.Trial)
+  public void setup() throws InvalidRangeException {
+    data = Array.factory(DataType.FLOAT, new int[]{NTIME, nx, nx});
+    IndexIterator ii = data.getIndexIterator();
+    int count = 0;
+    while (ii.hasNext())
+      ii.setFloatNext(count++ % 1000);
+    strided = data.section(new Section(String.format("0:23:2,0:%d:3,1:%d:2", nx - 1, nx - 1)).getRanges());
+    transposed = data.transpose(1, 2);
+  }
+
+  @Benchmark
+  public double indexIterator() {
+    double sum = 0.0;
+    IndexIterator ii = data.getIndexIterator();
+    while (ii.hasNext())
+      sum += ii.getFloatNext();
+    return sum;
+  }
+
+  @Benchmark
+  public double indexSet() {
+    double sum = 0.0;
+    Index ima = data.getIndex();
+    for (int t = 0; t < NTIME; t++)
+      for (int j = 0; j < nx; j++)
+        for (int i = 0; i < nx; i++)
+          sum += data.getFloat(ima.set(t, j, i));
+    return sum;
+  }
+
+  @Benchmark
+  public double stridedSection() {
+    double sum = 0.0;
+    IndexIterator ii = strided.getIndexIterator();
+    while (ii.hasNext())
+      sum += ii.getFloatNext();
+    return sum;
+  }
+
+  @Benchmark
+  public double transposedView() {
+    double sum = 0.0;
+    IndexIterator ii = transposed.getIndexIterator();
+    while (ii.hasNext())
+      sum += ii.getFloatNext();
+    return sum;
+  }
+
+  @Benchmark
+  public Object copyStridedSection() {
+    return strided.copy().getStorage();
+  }
+}
@@ -0,0 +1,74 @@
+package ucar.ma2;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Section arithmetic done for every read: parsing a section spec, filling it against the variable shape,
+ * intersecting it with a chunk, composing, compacting, and walking it with Section.Iterator.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SectionBenchmark {
+  private static final String SPEC = "2:20:2,10:300:3,:";
+  private static final int[] SHAPE = {24, 721, 1440};
+
+  private Section want, chunk, view, small;
+  private int[] index = new int[3];
+
+  @Setup(Level.Trial)
+  public void setup() throws InvalidRangeException {
+    want = Section.fill(new Section(SPEC), SHAPE);
+    chunk = new Section(new int[]{4, 100, 0}, new int[]{8, 200, 1440});
+    view = new Section(new int[]{0, 50, 50}, new int[]{12, 200, 200});
+    small = new Section(new int[]{0, 0, 0}, new int[]{4, 30, 40});
+  }
+
+  @Benchmark
+  public Section parse() throws InvalidRangeException {
+    return new Section(SPEC);
+  }
+
+  @Benchmark
+  public Section fill() throws InvalidRangeException {
+    return Section.fill(new Section(SPEC), SHAPE);
+  }
+
+  @Benchmark
+  public Section intersect() throws InvalidRangeException {
+    return want.intersect(chunk);
+  }
+
+  @Benchmark
+  public boolean intersects() throws InvalidRangeException {
+    return want.intersects(chunk);
+  }
+
+  @Benchmark
+  public Section compose() throws InvalidRangeException {
+    return view.compose(small);
+  }
+
+  @Benchmark
+  public Section compact() throws InvalidRangeException {
+    return want.compact();
+  }
+
+  @Benchmark
+  public long computeSize() {
+    return want.computeSize();
+  }
+
+  @Benchmark
+  public void iterate(Blackhole bh) {
+    Section.Iterator iter = small.getIterator(SHAPE);
+    while (iter.hasNext())
+      bh.consume(iter.next(index));
+  }
+}
@@ -0,0 +1,125 @@
+package ucar.nc2.bench;
+
+import ucar.ma2.*;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Files used by the benchmarks, made when a benchmark starts so nothing needs to be downloaded.
+ *
+ * @since 10/18/2026
+ */
+public class Fixtures {
+
+  /**
+   * Make a temporary file that is deleted when the JVM exits.
+   *
+   * @param prefix file name prefix
+   * @param suffix file name suffix
+   * @return new, empty file
+   * @throws IOException on error
+   */
+  static public File makeTempFile(String prefix, String suffix) throws IOException {
+    File file = Files.createTempFile(prefix, suffix).toFile();
+    file.deleteOnExit();
+    return file;
+  }
+
+  /**
+   * Write a netCDF-3 file with record and non-record variables:
+   * <pre>
+   *   float temperature(time=UNLIMITED, y, x)
+   *   short elevation(y, x)
+   *   double time(time)
+   *   float y(y), x(x)
+   * </pre>
+   *
+   * @param file  write to this file
+   * @param ntime number of records
+   * @param ny    size of y dimension
+   * @param nx    size of x dimension
+   * @throws IOException on write error
+   */
+  static public void writeNetcdf3(File file, int ntime, int ny, int nx) throws IOException {
+    try (NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, file.getPath())) {
+      writer.setFill(false);
+      writer.addUnlimitedDimension("time");
+      writer.addDimension(null, "y", ny);
+      writer.addDimension(null, "x", nx);
+      writer.addGlobalAttribute("title", "benchmark fixture");
+
+      Variable time = writer.addVariable(null, "time", DataType.DOUBLE, "time");
+      writer.addVariableAttribute("time", "units", "hours since 2000-01-01");
+      Variable y = writer.addVariable(null, "y", DataType.FLOAT, "y");
+      Variable x = writer.addVariable(null, "x", DataType.FLOAT, "x");
+      Variable elevation = writer.addVariable(null, "elevation", DataType.SHORT, "y x");
+      writer.addVariableAttribute("elevation", "units", "m");
+      Variable temperature = writer.addVariable(null, "temperature", DataType.FLOAT, "time y x");
+      writer.addVariableAttribute("temperature", "units", "K");
+      writer.create();
+
+      writer.write(y, Array.makeArray(DataType.FLOAT, ny, 0.0, 1.0));
+      writer.write(x, Array.makeArray(DataType.FLOAT, nx, 0.0, 1.0));
+
+      ArrayShort.D2 elev = new ArrayShort.D2(ny, nx, false);
+      for (int j = 0; j < ny; j++)
+        for (int i = 0; i < nx; i++)
+          elev.set(j, i, (short) ((j * 7 + i * 13) % 4000));
+      writer.write(elevation, elev);
+
+      ArrayDouble.D1 times = new ArrayDouble.D1(1);
+      ArrayFloat.D3 record = new ArrayFloat.D3(1, ny, nx);
+      int[] origin = new int[3];
+      for (int t = 0; t < ntime; t++) {
+        times.set(0, t);
+        writer.write(time, new int[]{t}, times);
+        for (int j = 0; j < ny; j++)
+          for (int i = 0; i < nx; i++)
+            record.set(0, j, i, 250.0f + t + (float) Math.sin(j * 0.05) * 20 + (float) Math.cos(i * 0.05) * 10);
+        origin[0] = t;
+        writer.write(temperature, origin, record);
+      }
+
+    } catch (InvalidRangeException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Write an HDF5 file with the same float(time, y, x) values stored three ways:
+   * <pre>
+   *   contiguous
+   *   chunked   (chunks of 1 x ny/4 x nx/4, no filter)
+   *   deflated  (same chunks, deflate level 4)
+   * </pre>
+   *
+   * @param file  write to this file
+   * @param ntime size of time dimension
+   * @param ny    size of y dimension
+   * @param nx    size of x dimension
+   * @return the values, in row-major order
+   * @throws IOException on write error
+   */
+  static public float[] writeHdf5(File file, int ntime, int ny, int nx) throws IOException {
+    float[] data = new float[ntime * ny * nx];
+    int count = 0;
+    for (int t = 0; t < ntime; t++)
+      for (int j = 0; j < ny; j++)
+        for (int i = 0; i < nx; i++)
+          data[count++] = 250.0f + t + (float) Math.sin(j * 0.05) * 20 + (float) Math.cos(i * 0.05) * 10;
+
+    int[] shape = {ntime, ny, nx};
+    int[] chunk = {1, Math.max(1, ny / 4), Math.max(1, nx / 4)};
+    SimpleHdf5Writer writer = new SimpleHdf5Writer();
+    writer.addFloatDataset("contiguous", shape, data);
+    writer.addFloatDataset("chunked", shape, data, chunk, 0);
+    writer.addFloatDataset("deflated", shape, data, chunk, 4);
+    writer.write(file);
+    return data;
+  }
+
+}
@@ -0,0 +1,430 @@
+package ucar.nc2.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a small HDF5 file with float datasets in the root group, so the benchmarks dont need the HDF5 C library.
+ * Uses the oldest file format structures: superblock version 0, version 1 object headers, and a symbol table for the
+ * root group. Datasets are stored contiguously, or chunked with an optional deflate filter.
+ * Only what H5header needs to read the file back is written; this is not a general purpose writer.
+ *
+ * @since 10/18/2026
+ */
+public class SimpleHdf5Writer {
+  private static final byte[] SIGNATURE = {(byte) 0x89, 'H', 'D', 'F', '\r', '\n', 0x1a, '\n'};
+  private static final long UNDEFINED = -1;
+
+  private static class Dataset {
+    String name;
+    int[] shape;
+    float[] data;
+    int[] chunk; // null means contiguous
+    int deflateLevel;
+  }
+
+  private final List<Dataset> datasets = new ArrayList<>();
+
+  /**
+   * Add a float dataset stored contiguously.
+   *
+   * @param name  dataset name
+   * @param shape dataset shape
+   * @param data  values in row-major order
+   */
+  public void addFloatDataset(String name, int[] shape, float[] data) {
+    addFloatDataset(name, shape, data, null, 0);
+  }
+
+  /**
+   * Add a float dataset.
+   *
+   * @param name         dataset name
+   * @param shape        dataset shape
+   * @param data         values in row-major order
+   * @param chunk        chunk shape, or null for contiguous storage
+   * @param deflateLevel 1-9 to deflate each chunk, 0 for no filter. Ignored for contiguous storage.
+   */
+  public void addFloatDataset(String name, int[] shape, float[] data, int[] chunk, int deflateLevel) {
+    long size = 1;
+    for (int len : shape) size *= len;
+    if (size != data.length)
+      throw new IllegalArgumentException("data has " + data.length + " values, shape needs " + size);
+    if (chunk != null && chunk.length != shape.length)
+      throw new IllegalArgumentException("chunk rank must equal dataset rank");
+
+    Dataset ds = new Dataset();
+    ds.name = name;
+    ds.shape = shape.clone();
+    ds.data = data;
+    ds.chunk = (chunk == null) ? null : chunk.clone();
+    ds.deflateLevel = deflateLevel;
+    datasets.add(ds);
+  }
+
+  /**
+   * Write the file.
+   *
+   * @param file write to this file, overwriting it
+   * @throws IOException on write error
+   */
+  public void write(File file) throws IOException {
+    try (OutputStream out = new FileOutputStream(file)) {
+      Buffer buff = encode();
+      out.write(buff.bb.array(), 0, buff.bb.position());
+    }
+  }
+
+  private Buffer encode() {
+    Buffer buff = new Buffer();
+
+    // superblock version 0
+    buff.put(SIGNATURE);
+    buff.putByte(0); // superblock
+    buff.putByte(0); // free space storage
+    buff.putByte(0); // root group symbol table entry
+    buff.putByte(0);
+    buff.putByte(0); // shared header message
+    buff.putByte(8); // size of offsets
+    buff.putByte(8); // size of lengths
+    buff.putByte(0);
+    buff.putShort(4); // group leaf node K
+    buff.putShort(16); // group internal node K
+    buff.putInt(0); // file consistency flags
+    buff.putLong(0); // base address
+    buff.putLong(UNDEFINED); // free space info
+    int eofPos = buff.putPlaceholder();
+    buff.putLong(UNDEFINED); // driver info block
+
+    // root group symbol table entry, caching the btree and heap addresses
+    buff.putLong(0); // name offset
+    int rootHeaderPos = buff.putPlaceholder();
+    buff.putInt(1); // cache type
+    buff.putInt(0);
+    int rootBtreeCachePos = buff.putPlaceholder();
+    int rootHeapCachePos = buff.putPlaceholder();
+
+    // root group object header, with just the symbol table message
+    buff.patch(rootHeaderPos, buff.position());
+    writeObjectHeaderPrefix(buff, 1, 8 + 16);
+    buff.putMessageHeader(0x11, 16);
+    int rootBtreePos = buff.putPlaceholder();
+    int rootHeapPos = buff.putPlaceholder();
+
+    // local heap holding the dataset names; offset 0 is the empty string
+    byte[][] names = new byte[datasets.size()][];
+    int[] nameOffsets = new int[datasets.size()];
+    int heapSize = 8;
+    for (int i = 0; i < datasets.size(); i++) {
+      names[i] = datasets.get(i).name.getBytes(StandardCharsets.UTF_8);
+      nameOffsets[i] = heapSize;
+      heapSize += pad8(names[i].length + 1);
+    }
+    long heapAddress = buff.position();
+    buff.put("HEAP".getBytes(StandardCharsets.US_ASCII));
+    buff.putByte(0);
+    buff.putByte(0);
+    buff.putByte(0);
+    buff.putByte(0);
+    buff.putLong(heapSize);
+    buff.putLong(UNDEFINED); // no free list
+    buff.putLong(buff.position() + 8);
+    buff.put(new byte[8]);
+    for (byte[] name : names) {
+      buff.put(name);
+      buff.put(new byte[pad8(name.length + 1) - name.length]);
+    }
+    buff.patch(rootHeapPos, heapAddress);
+    buff.patch(rootHeapCachePos, heapAddress);
+
+    // group btree with a single leaf pointing to a single symbol table node
+    long btreeAddress = buff.position();
+    buff.put("TREE".getBytes(StandardCharsets.US_ASCII));
+    buff.putByte(0); // group node
+    buff.putByte(0); // leaf
+    buff.putShort(1);
+    buff.putLong(UNDEFINED);
+    buff.putLong(UNDEFINED);
+    buff.putLong(0);
+    buff.putLong(buff.position() + 16);
+    buff.putLong(datasets.isEmpty() ? 0 : nameOffsets[nameOffsets.length - 1]);
+    buff.patch(rootBtreePos, btreeAddress);
+    buff.patch(rootBtreeCachePos, btreeAddress);
+
+    buff.put("SNOD".getBytes(StandardCharsets.US_ASCII));
+    buff.putByte(1);
+    buff.putByte(0);
+    buff.putShort(datasets.size());
+    int[] entryHeaderPos = new int[datasets.size()];
+    for (int i = 0; i < datasets.size(); i++) {
+      buff.putLong(nameOffsets[i]);
+      entryHeaderPos[i] = buff.putPlaceholder();
+      buff.putInt(0); // nothing cached
+      buff.putInt(0);
+      buff.put(new byte[16]);
+    }
+
+    for (int i = 0; i < datasets.size(); i++) {
+      buff.alignTo8(); // the previous dataset may end anywhere
+      buff.patch(entryHeaderPos[i], buff.position());
+      writeDataset(buff, datasets.get(i));
+    }
+
+    buff.patch(eofPos, buff.position());
+    return buff;
+  }
+
+  private void writeDataset(Buffer buff, Dataset ds) {
+    int rank = ds.shape.length;
+    boolean isChunked = ds.chunk != null;
+    boolean isDeflated = isChunked && ds.deflateLevel > 0;
+
+    int dataspaceSize = 8 + 8 * rank;
+    int datatypeSize = 8 + 12;
+    int layoutSize = isChunked ? 3 + 8 + 4 * (rank + 1) : 2 + 8 + 8;
+    int filterSize = 8 + 16;
+    int nmess = isDeflated ? 4 : 3;
+    int headerSize = 8 + pad8(dataspaceSize) + 8 + pad8(datatypeSize) + 8 + pad8(layoutSize) + (isDeflated ? 8 + filterSize : 0);
+    writeObjectHeaderPrefix(buff, nmess, headerSize);
+
+    buff.putMessageHeader(0x1, pad8(dataspaceSize));
+    buff.putByte(1);
+    buff.putByte(rank);
+    buff.putByte(0); // no max dimensions
+    buff.put(new byte[5]);
+    for (int len : ds.shape) buff.putLong(len);
+
+    buff.putMessageHeader(0x3, pad8(datatypeSize));
+    buff.putByte(0x11); // version 1, floating point class
+    buff.putByte(0x20); // little endian, implied mantissa msb
+    buff.putByte(31); // sign bit location
+    buff.putByte(0);
+    buff.putInt(4);
+    buff.putShort(0); // bit offset
+    buff.putShort(32); // precision
+    buff.putByte(23); // exponent location
+    buff.putByte(8); // exponent size
+    buff.putByte(0); // mantissa location
+    buff.putByte(23); // mantissa size
+    buff.putInt(127); // exponent bias
+    buff.alignTo8();
+
+    buff.putMessageHeader(0x8, pad8(layoutSize));
+    buff.putByte(3);
+    int dataPos;
+    if (isChunked) {
+      buff.putByte(2);
+      buff.putByte(rank + 1);
+      dataPos = buff.putPlaceholder();
+      for (int len : ds.chunk) buff.putInt(len);
+      buff.putInt(4);
+    } else {
+      buff.putByte(1);
+      dataPos = buff.putPlaceholder();
+      buff.putLong(4L * ds.data.length);
+    }
+    buff.alignTo8();
+
+    if (isDeflated) {
+      buff.putMessageHeader(0xB, filterSize);
+      buff.putByte(1);
+      buff.putByte(1); // number of filters
+      buff.put(new byte[6]);
+      buff.putShort(1); // deflate
+      buff.putShort(0); // no name
+      buff.putShort(0); // flags
+      buff.putShort(1); // one client value
+      buff.putInt(ds.deflateLevel);
+      buff.putInt(0); // pad odd number of values
+    }
+
+    buff.patch(dataPos, buff.position());
+    if (isChunked)
+      writeChunks(buff, ds);
+    else
+      for (float val : ds.data) buff.putFloat(val);
+  }
+
+  // a single leaf node of the chunk btree, followed by the chunks
+  private void writeChunks(Buffer buff, Dataset ds) {
+    int rank = ds.shape.length;
+    int[] nchunks = new int[rank];
+    int total = 1;
+    for (int d = 0; d < rank; d++) {
+      nchunks[d] = (ds.shape[d] + ds.chunk[d] - 1) / ds.chunk[d];
+      total *= nchunks[d];
+    }
+    if (total > Short.MAX_VALUE)
+      throw new IllegalArgumentException("too many chunks " + total);
+
+    List<int[]> origins = new ArrayList<>();
+    List<byte[]> chunks = new ArrayList<>();
+    int[] counter = new int[rank];
+    for (int c = 0; c < total; c++) {
+      int[] origin = new int[rank];
+      for (int d = 0; d < rank; d++) origin[d] = counter[d] * ds.chunk[d];
+      origins.add(origin);
+      chunks.add(encodeChunk(ds, origin));
+      for (int d = rank - 1; d >= 0; d--) { // row-major order
+        if (++counter[d] < nchunks[d]) break;
+        counter[d] = 0;
+      }
+    }
+
+    buff.put("TREE".getBytes(StandardCharsets.US_ASCII));
+    buff.putByte(1); // raw data chunks
+    buff.putByte(0); // leaf
+    buff.putShort(total);
+    buff.putLong(UNDEFINED);
+    buff.putLong(UNDEFINED);
+    int[] addressPos = new int[total];
+    for (int c = 0; c < total; c++) {
+      buff.putInt(chunks.get(c).length);
+      buff.putInt(0); // filter mask
+      for (int d = 0; d < rank; d++) buff.putLong(origins.get(c)[d]);
+      buff.putLong(0);
+      addressPos[c] = buff.putPlaceholder();
+    }
+    buff.putInt(0); // final key is the end of the dataset
+    buff.putInt(0);
+    for (int d = 0; d < rank; d++) buff.putLong(ds.shape[d]);
+    buff.putLong(0);
+
+    for (int c = 0; c < total; c++) {
+      buff.patch(addressPos[c], buff.position());
+      buff.put(chunks.get(c));
+    }
+  }
+
+  // the whole chunk is stored even where it extends past the edge of the dataset
+  private byte[] encodeChunk(Dataset ds, int[] origin) {
+    int rank = ds.shape.length;
+    int chunkSize = 1;
+    for (int len : ds.chunk) chunkSize *= len;
+    ByteBuffer bb = ByteBuffer.allocate(4 * chunkSize).order(ByteOrder.LITTLE_ENDIAN);
+
+    int[] idx = new int[rank];
+    for (int i = 0; i < chunkSize; i++) {
+      int pos = 0;
+      boolean inside = true;
+      for (int d = 0; d < rank; d++) {
+        int coord = origin[d] + idx[d];
+        if (coord >= ds.shape[d]) inside = false;
+        pos = pos * ds.shape[d] + coord;
+      }
+      bb.putFloat(inside ? ds.data[pos] : 0.0f);
+      for (int d = rank - 1; d >= 0; d--) {
+        if (++idx[d] < ds.chunk[d]) break;
+        idx[d] = 0;
+      }
+    }
+    if (ds.deflateLevel <= 0) return bb.array();
+
+    Deflater deflater = new Deflater(ds.deflateLevel);
+    try {
+      deflater.setInput(bb.array());
+      deflater.finish();
+      byte[] result = new byte[bb.capacity() + 64];
+      int n = 0;
+      while (!deflater.finished()) {
+        if (n == result.length) result = Arrays.copyOf(result, 2 * result.length);
+        n += deflater.deflate(result, n, result.length - n);
+      }
+      return Arrays.copyOf(result, n);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private void writeObjectHeaderPrefix(Buffer buff, int nmess, int headerSize) {
+    buff.putByte(1);
+    buff.putByte(0);
+    buff.putShort(nmess);
+    buff.putInt(1); // reference count
+    buff.putInt(headerSize);
+    buff.putInt(0); // messages are aligned on 8 bytes
+  }
+
+  private static int pad8(int n) {
+    return (n + 7) & ~7;
+  }
+
+  // growable little endian buffer, with placeholders for addresses that are not known yet
+  private static class Buffer {
+    ByteBuffer bb = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    int position() {
+      return bb.position();
+    }
+
+    void ensure(int n) {
+      if (bb.remaining() >= n) return;
+      ByteBuffer bigger = ByteBuffer.allocate(Math.max(2 * bb.capacity(), bb.position() + n)).order(ByteOrder.LITTLE_ENDIAN);
+      bb.flip();
+      bigger.put(bb);
+      bb = bigger;
+    }
+
+    void put(byte[] b) {
+      ensure(b.length);
+      bb.put(b);
+    }
+
+    void putByte(int b) {
+      ensure(1);
+      bb.put((byte) b);
+    }
+
+    void putShort(int s) {
+      ensure(2);
+      bb.putShort((short) s);
+    }
+
+    void putInt(int i) {
+      ensure(4);
+      bb.putInt(i);
+    }
+
+    void putLong(long l) {
+      ensure(8);
+      bb.putLong(l);
+    }
+
+    void putFloat(float f) {
+      ensure(4);
+      bb.putFloat(f);
+    }
+
+    int putPlaceholder() {
+      int pos = bb.position();
+      putLong(UNDEFINED);
+      return pos;
+    }
+
+    void patch(int pos, long value) {
+      bb.putLong(pos, value);
+    }
+
+    void putMessageHeader(int type, int size) {
+      putShort(type);
+      putShort(size);
+      putByte(0); // flags
+      put(new byte[3]);
+    }
+
+    void alignTo8() {
+      int pad = pad8(bb.position()) - bb.position();
+      put(new byte[pad]);
+    }
+  }
+
+}
@@ -0,0 +1,81 @@
+package ucar.nc2.dataset;
+
+import org.openjdk.jmh.annotations.*;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.IndexIterator;
+import ucar.nc2.Attribute;
+import ucar.nc2.Dimension;
+import ucar.nc2.constants.CDM;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unpack a short(time, y, x) variable with scale_factor, add_offset, _FillValue and valid_min to float,
+ * with the IndexIterator loop (as before), the loops over the java arrays, and the loops split over threads.
+ * About 2% of the values are missing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScaleOffsetBenchmark {
+
+  @Param({"100", "1000"})
+  public int nx;
+
+  @Param({"SHORT", "BYTE"})
+  public String type;
+
+  private static final int NTIME = 10;
+  private EnhanceScaleMissingImpl impl;
+  private Array packed;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    DataType dataType = DataType.valueOf(type);
+    NetcdfDataset ncd = new NetcdfDataset();
+    ncd.addDimension(null, new Dimension("time", NTIME));
+    ncd.addDimension(null, new Dimension("y", nx));
+    ncd.addDimension(null, new Dimension("x", nx));
+    VariableDS vds = new VariableDS(ncd, null, null, "packed", dataType, "time y x", null, null);
+    vds.addAttribute(new Attribute(CDM.SCALE_FACTOR, 0.01f));
+    vds.addAttribute(new Attribute(CDM.ADD_OFFSET, 273.15f));
+    vds.addAttribute(new Attribute(CDM.FILL_VALUE, Array.factory(dataType, new int[]{1}, dataType == DataType.BYTE ? new byte[]{-1} : new short[]{-1})));
+    vds.addAttribute(new Attribute("valid_min", Array.factory(dataType, new int[]{1}, dataType == DataType.BYTE ? new byte[]{-100} : new short[]{-30000})));
+    impl = new EnhanceScaleMissingImpl(vds, true, true, true, true);
+
+    packed = Array.factory(dataType, new int[]{NTIME, nx, nx});
+    Random random = new Random(42);
+    IndexIterator ii = packed.getIndexIterator();
+    while (ii.hasNext())
+      ii.setIntNext(random.nextInt(100) < 2 ? -1 : random.nextInt(20000));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    NetcdfDataset.setParallelConvertSize(0);
+  }
+
+  @Benchmark
+  public Array iterator() {
+    Array out = Array.factory(DataType.FLOAT, packed.getShape());
+    impl.convertScaleOffsetIterator(packed, out);
+    return out;
+  }
+
+  @Benchmark
+  public Array kernel() {
+    NetcdfDataset.setParallelConvertSize(0);
+    return impl.convertScaleOffsetMissing(packed);
+  }
+
+  @Benchmark
+  public Array kernelParallel() {
+    NetcdfDataset.setParallelConvertSize(100 * 1000);
+    return impl.convertScaleOffsetMissing(packed);
+  }
+}
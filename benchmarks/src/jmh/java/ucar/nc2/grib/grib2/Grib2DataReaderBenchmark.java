@@ -0,0 +1,244 @@
+package ucar.nc2.grib.grib2;
+
+import org.openjdk.jmh.annotations.*;
+import ucar.unidata.io.InMemoryRandomAccessFile;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode a GRIB-2 data section with Grib2DataReader2, for each of the grid point data representation templates
+ * we can encode here: 0 (simple packing), 2 (complex packing) and 3 (complex packing with first order spatial differencing).
+ * The field is a smooth global grid with one decimal digit, packed into sections 5 and 7 when the benchmark starts,
+ * and the decoded values are checked against it.
+ * Template 40 (JPEG 2000) is not included because there is no JPEG 2000 encoder to make the fixture.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Grib2DataReaderBenchmark {
+  private static final int GROUP_LENGTH = 16; // complex packing uses groups of this many points
+  private static final int DECIMAL_SCALE = 1;
+
+  @Param({"0", "2", "3"})
+  public int template;
+
+  @Param({"360", "1440"})
+  public int nx;
+
+  private int npoints;
+  private RandomAccessFile raf;
+  private Grib2Drs drs;
+  private int dataLength;
+  private final Grib2SectionBitMap noBitmap = new Grib2SectionBitMap(0, 255); // bit map does not apply
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    int ny = nx / 2;
+    npoints = nx * ny;
+    int[] scaled = new int[npoints];
+    float[] expected = new float[npoints];
+    float dd = (float) Math.pow(10, DECIMAL_SCALE);
+    for (int j = 0; j < ny; j++) {
+      for (int i = 0; i < nx; i++) {
+        int idx = j * nx + i;
+        scaled[idx] = (int) Math.round(dd * (280 + 20 * Math.sin(j * 0.03) + 10 * Math.cos(i * 0.02)));
+        expected[idx] = scaled[idx] / dd;
+      }
+    }
+
+    // section 5 template octets 12 on, then section 7
+    ByteArrayOutputStream drsBytes = new ByteArrayOutputStream();
+    ByteArrayOutputStream dataBytes = new ByteArrayOutputStream();
+    encode(scaled, drsBytes, dataBytes);
+    byte[] sec5 = drsBytes.toByteArray();
+    byte[] sec7 = dataBytes.toByteArray();
+    dataLength = sec7.length;
+
+    byte[] all = new byte[sec5.length + sec7.length];
+    System.arraycopy(sec5, 0, all, 0, sec5.length);
+    System.arraycopy(sec7, 0, all, sec5.length, sec7.length);
+    raf = new InMemoryRandomAccessFile("Grib2DataReaderBenchmark", all);
+    raf.order(RandomAccessFile.BIG_ENDIAN);
+    raf.seek(0);
+    drs = Grib2Drs.factory(template, raf);
+
+    float[] data = decode();
+    if (!Arrays.equals(expected, data))
+      throw new IllegalStateException("template " + template + " decoded values are wrong");
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    raf.close();
+  }
+
+  @Benchmark
+  public float[] decode() throws IOException {
+    long sec7Start = raf.length() - dataLength;
+    Grib2DataReader2 reader = new Grib2DataReader2(template, npoints, npoints, 0, nx, sec7Start, dataLength);
+    return reader.getData(raf, noBitmap, drs);
+  }
+
+  //////////////////////////////////////////////////////////////////////
+  // encoders, just enough for a field with no missing values
+
+  private void encode(int[] scaled, ByteArrayOutputStream drsOut, ByteArrayOutputStream dataOut) {
+    int min = Integer.MAX_VALUE;
+    for (int v : scaled) min = Math.min(min, v);
+    int[] x = new int[scaled.length];
+    for (int i = 0; i < x.length; i++) x[i] = scaled[i] - min;
+
+    BitWriter bits = new BitWriter();
+    int nbits;
+    switch (template) {
+      case 0:
+        nbits = bitsNeeded(max(x, 0, x.length));
+        for (int v : x) bits.write(v, nbits);
+        writeType0(drsOut, min, nbits);
+        break;
+
+      case 2:
+        nbits = writeGroups(x, bits);
+        writeType0(drsOut, min, nbits);
+        writeType2(drsOut, x.length, bits);
+        break;
+
+      case 3:
+        // first order differences, offset by their minimum so they are positive. The first value is stored separately.
+        int[] diff = new int[x.length];
+        int minDiff = Integer.MAX_VALUE;
+        for (int i = 1; i < x.length; i++) minDiff = Math.min(minDiff, x[i] - x[i - 1]);
+        for (int i = 1; i < x.length; i++) diff[i] = x[i] - x[i - 1] - minDiff;
+        bits.writeSigned(x[0], 32);
+        bits.writeSigned(minDiff, 32);
+        bits.pad();
+        nbits = writeGroups(diff, bits);
+        writeType0(drsOut, min, nbits);
+        writeType2(drsOut, x.length, bits);
+        drsOut.write(1); // order of spatial differencing
+        drsOut.write(4); // octets for the extra descriptors
+        break;
+
+      default:
+        throw new IllegalArgumentException("template " + template);
+    }
+
+    byte[] packed = bits.toByteArray();
+    writeInt(dataOut, 5 + packed.length);
+    dataOut.write(7);
+    dataOut.write(packed, 0, packed.length);
+  }
+
+  private int ngroups, groupWidthBits;
+
+  // group reference values, group widths, then the packed values, each padded to an octet
+  private int writeGroups(int[] x, BitWriter bits) {
+    ngroups = (x.length + GROUP_LENGTH - 1) / GROUP_LENGTH;
+    int[] refs = new int[ngroups];
+    int[] widths = new int[ngroups];
+    for (int g = 0; g < ngroups; g++) {
+      int start = g * GROUP_LENGTH;
+      int end = Math.min(start + GROUP_LENGTH, x.length);
+      int gmin = Integer.MAX_VALUE;
+      for (int i = start; i < end; i++) gmin = Math.min(gmin, x[i]);
+      refs[g] = gmin;
+      widths[g] = bitsNeeded(max(x, start, end) - gmin);
+    }
+
+    int refBits = bitsNeeded(max(refs, 0, ngroups));
+    groupWidthBits = bitsNeeded(max(widths, 0, ngroups));
+    for (int ref : refs) bits.write(ref, refBits);
+    bits.pad();
+    for (int width : widths) bits.write(width, groupWidthBits);
+    bits.pad();
+    for (int g = 0; g < ngroups; g++) {
+      int start = g * GROUP_LENGTH;
+      int end = Math.min(start + GROUP_LENGTH, x.length);
+      for (int i = start; i < end; i++) bits.write(x[i] - refs[g], widths[g]);
+    }
+    return refBits;
+  }
+
+  private void writeType0(ByteArrayOutputStream out, int reference, int nbits) {
+    writeInt(out, Float.floatToIntBits((float) reference));
+    writeShort(out, 0); // binary scale factor
+    writeShort(out, DECIMAL_SCALE);
+    out.write(nbits);
+    out.write(0); // original values were floating point
+  }
+
+  private void writeType2(ByteArrayOutputStream out, int npoints, BitWriter bits) {
+    out.write(1); // general group splitting
+    out.write(0); // no missing values
+    writeInt(out, 0);
+    writeInt(out, 0);
+    writeInt(out, ngroups);
+    out.write(0); // reference for group widths
+    out.write(groupWidthBits);
+    writeInt(out, GROUP_LENGTH); // reference for group lengths
+    out.write(1); // length increment
+    int last = npoints - (ngroups - 1) * GROUP_LENGTH;
+    writeInt(out, last);
+    out.write(0); // all groups but the last have the reference length
+  }
+
+  private static void writeInt(ByteArrayOutputStream out, int v) {
+    out.write(v >>> 24);
+    out.write(v >>> 16);
+    out.write(v >>> 8);
+    out.write(v);
+  }
+
+  private static void writeShort(ByteArrayOutputStream out, int v) {
+    out.write(v >>> 8);
+    out.write(v);
+  }
+
+  private static int max(int[] vals, int start, int end) {
+    int result = 0;
+    for (int i = start; i < end; i++) result = Math.max(result, vals[i]);
+    return result;
+  }
+
+  private static int bitsNeeded(int v) {
+    return 32 - Integer.numberOfLeadingZeros(v);
+  }
+
+  private static class BitWriter {
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private int current, nbits;
+
+    void write(long value, int width) {
+      for (int b = width - 1; b >= 0; b--) {
+        current = (current << 1) | (int) ((value >>> b) & 1);
+        if (++nbits == 8) {
+          out.write(current);
+          current = 0;
+          nbits = 0;
+        }
+      }
+    }
+
+    // GRIB stores signed numbers as a sign bit and a magnitude
+    void writeSigned(int value, int width) {
+      write(value < 0 ? 1 : 0, 1);
+      write(Math.abs(value), width - 1);
+    }
+
+    void pad() {
+      if (nbits > 0) write(0, 8 - nbits);
+    }
+
+    byte[] toByteArray() {
+      pad();
+      return out.toByteArray();
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package ucar.nc2.iosp.hdf5;
+
+import org.openjdk.jmh.annotations.*;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.nc2.bench.Fixtures;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read a synthetic HDF5 file through H5iosp, with the same values stored contiguously, in chunks, and in deflated chunks.
+ * The file is written by {@link ucar.nc2.bench.SimpleHdf5Writer} and checked when it is opened.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class H5iospReadBenchmark {
+
+  @Param({"contiguous", "chunked", "deflated"})
+  public String storage;
+
+  @Param({"100", "400"})
+  public int nx;
+
+  private File file;
+  private NetcdfFile ncfile;
+  private Variable var;
+  private Section strided, timeStep;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException, InvalidRangeException {
+    file = Fixtures.makeTempFile("H5iospReadBenchmark", ".h5");
+    float[] expected = Fixtures.writeHdf5(file, 24, nx, nx);
+    ncfile = NetcdfFile.open(file.getPath());
+    var = ncfile.findVariable(storage);
+    if (var == null)
+      throw new IllegalStateException("no variable " + storage + " in " + file);
+    var.setCaching(false);
+
+    float[] values = (float[]) var.read().get1DJavaArray(DataType.FLOAT);
+    if (!Arrays.equals(expected, values))
+      throw new IllegalStateException("values read back from " + storage + " are wrong");
+
+    strided = new Section(String.format("0:23:2,0:%d:3,1:%d:2", nx - 1, nx - 1));
+    timeStep = Section.fill(new Section("12,:,:"), var.getShape());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    ncfile.close();
+    file.delete();
+  }
+
+  @Benchmark
+  public Array readAll() throws IOException {
+    return var.read();
+  }
+
+  @Benchmark
+  public Array readStridedSection() throws IOException, InvalidRangeException {
+    return var.read(strided);
+  }
+
+  @Benchmark
+  public Array readOneTimeStep() throws IOException, InvalidRangeException {
+    return var.read(timeStep);
+  }
+}
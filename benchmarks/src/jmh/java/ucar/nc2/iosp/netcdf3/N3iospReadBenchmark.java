@@ -0,0 +1,74 @@
+package ucar.nc2.iosp.netcdf3;
+
+import org.openjdk.jmh.annotations.*;
+import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.nc2.bench.Fixtures;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read a synthetic netCDF-3 file through N3iosp: a whole record variable, a strided subset of it
+ * (one LayoutRegularSegmented chunk per row), one time step, and a non-record variable.
+ * The file is small enough to stay in the OS page cache, so this measures the iosp and layout code, not disk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class N3iospReadBenchmark {
+
+  @Param({"100", "500"})
+  public int nx;
+
+  private File file;
+  private NetcdfFile ncfile;
+  private Variable temperature, elevation;
+  private Section strided, timeStep;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException, InvalidRangeException {
+    file = Fixtures.makeTempFile("N3iospReadBenchmark", ".nc");
+    Fixtures.writeNetcdf3(file, 24, nx, nx);
+    ncfile = NetcdfFile.open(file.getPath());
+    temperature = ncfile.findVariable("temperature");
+    elevation = ncfile.findVariable("elevation");
+    strided = new Section(String.format("0:23:2,0:%d:3,1:%d:2", nx - 1, nx - 1));
+    timeStep = Section.fill(new Section("12,:,:"), temperature.getShape());
+    temperature.setCaching(false); // else small variables are read once and kept in memory
+    elevation.setCaching(false);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    ncfile.close();
+    file.delete();
+  }
+
+  @Benchmark
+  public Array readRecordVariable() throws IOException {
+    return temperature.read();
+  }
+
+  @Benchmark
+  public Array readStridedSection() throws IOException, InvalidRangeException {
+    return temperature.read(strided);
+  }
+
+  @Benchmark
+  public Array readOneTimeStep() throws IOException, InvalidRangeException {
+    return temperature.read(timeStep);
+  }
+
+  @Benchmark
+  public Array readNonRecordVariable() throws IOException {
+    return elevation.read();
+  }
+}
@@ -0,0 +1,89 @@
+package ucar.nc2.ncml;
+
+import org.openjdk.jmh.annotations.*;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Find the nested datasets of an outer dimension aggregation needed for a read, by asking each one (as before)
+ * and with OuterDimensionIndex. The nested datasets have 1 to 8 times each. Requests are one time, a run of
+ * times spanning a few datasets, and a strided range over the whole aggregation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OuterDimensionIndexBenchmark {
+
+  @Param({"1000", "10000", "100000"})
+  public int nfiles;
+
+  @Param({"single", "run", "strided"})
+  public String request;
+
+  private int[] starts;
+  private OuterDimensionIndex<Integer> index;
+  private Range[] wants;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void setup() throws InvalidRangeException {
+    Random random = new Random(42);
+    List<Integer> datasets = new ArrayList<>(nfiles);
+    starts = new int[nfiles + 1];
+    for (int i = 0; i < nfiles; i++) {
+      datasets.add(i);
+      starts[i + 1] = starts[i] + 1 + random.nextInt(8);
+    }
+    index = new OuterDimensionIndex<>(datasets, starts);
+
+    int total = starts[nfiles];
+    wants = new Range[1024];
+    for (int i = 0; i < wants.length; i++) {
+      int first = random.nextInt(total);
+      switch (request) {
+        case "single":
+          wants[i] = new Range(first, first);
+          break;
+        case "run":
+          wants[i] = new Range(first, Math.min(total - 1, first + 20));
+          break;
+        default:
+          wants[i] = new Range(first % 100, total - 1, total / 100);
+      }
+    }
+  }
+
+  private Range nextRange() {
+    return wants[next++ & (wants.length - 1)];
+  }
+
+  @Benchmark
+  public int scan() throws InvalidRangeException {
+    Range want = nextRange();
+    int count = 0;
+    for (int i = 0; i < nfiles; i++) {
+      if (OuterDimensionIndex.nestedJoinRange(want, starts[i], starts[i + 1]) != null)
+        count++;
+    }
+    return count;
+  }
+
+  @Benchmark
+  public int index() throws InvalidRangeException {
+    Range want = nextRange();
+    int count = 0;
+    for (int i : index.findNeeded(want)) {
+      if (OuterDimensionIndex.nestedJoinRange(want, starts[i], starts[i + 1]) != null)
+        count++;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,88 @@
+package ucar.nc2.stream;
+
+import org.openjdk.jmh.annotations.*;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.nc2.bench.Fixtures;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode a synthetic netCDF-3 file as ncstream, the way cdmremote sends it: the header, and the data of one variable
+ * with and without compression, as a version 2 data message (sendData) and as a version 3 DataCol message (sendData2).
+ * sendData2 does not compress, so its two results should be about the same. The output is counted and thrown away.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NcStreamWriterBenchmark {
+
+  @Param({"none", "deflate"})
+  public String compression;
+
+  @Param({"100", "500"})
+  public int nx;
+
+  private File file;
+  private NetcdfFile ncfile;
+  private NcStreamWriter writer;
+  private NcStreamCompression compress;
+  private Variable temperature;
+  private Section section;
+  private final CountingOutputStream out = new CountingOutputStream();
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    file = Fixtures.makeTempFile("NcStreamWriterBenchmark", ".nc");
+    Fixtures.writeNetcdf3(file, 24, nx, nx);
+    ncfile = NetcdfFile.open(file.getPath());
+    writer = new NcStreamWriter(ncfile, file.getPath());
+    compress = compression.equals("deflate") ? NcStreamCompression.deflate() : NcStreamCompression.none();
+    temperature = ncfile.findVariable("temperature");
+    temperature.setCaching(false);
+    section = temperature.getShapeAsSection();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    ncfile.close();
+    file.delete();
+  }
+
+  @Benchmark
+  public long sendHeader() throws IOException {
+    return writer.sendHeader(out);
+  }
+
+  @Benchmark
+  public long sendData() throws IOException, InvalidRangeException {
+    return writer.sendData(temperature, section, out, compress);
+  }
+
+  @Benchmark
+  public long sendData2() throws IOException, InvalidRangeException {
+    return writer.sendData2(temperature, section, out, compress);
+  }
+
+  private static class CountingOutputStream extends OutputStream {
+    long count;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+}
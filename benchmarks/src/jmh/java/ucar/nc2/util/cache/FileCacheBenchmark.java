@@ -0,0 +1,104 @@
+package ucar.nc2.util.cache;
+
+import org.openjdk.jmh.annotations.*;
+import ucar.nc2.dataset.DatasetUrl;
+import ucar.nc2.util.CancelTask;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many threads acquiring and releasing files, comparing the FileCacheIF implementations.
+ * The files are in-memory objects, so this measures the cache's own overhead and contention, not opening files.
+ * With nfiles below the cache's limits nearly every acquire is a hit; above them, files are
+ * evicted and opened again, which exercises the cleanup.
+ * FileCacheGuava hands the same object to all threads and never evicts on release, so it is only a lower bound.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class FileCacheBenchmark {
+
+  @Param({"FileCache", "FileCacheStriped", "FileCacheARC", "FileCacheGuava"})
+  public String impl;
+
+  @Param({"50", "1000"})
+  public int nfiles;
+
+  private FileCacheIF cache;
+  private DatasetUrl[] urls;
+  private final FileFactory factory = (location, buffer_size, cancelTask, iospMessage) -> new MemoryFile(location.trueurl);
+
+  @Setup(Level.Trial)
+  public void setup() {
+    int min = 100, soft = 200, hard = 300;
+    switch (impl) {
+      case "FileCache": cache = new FileCache("bench", min, soft, hard, 0); break;
+      case "FileCacheStriped": cache = new FileCacheStriped("bench", min, soft, hard, 0); break;
+      case "FileCacheARC": cache = new FileCacheARC("bench", min, soft, hard, 0); break;
+      case "FileCacheGuava": cache = new FileCacheGuava("bench", soft); break;
+      default: throw new IllegalArgumentException(impl);
+    }
+
+    urls = new DatasetUrl[nfiles];
+    for (int i = 0; i < nfiles; i++)
+      urls[i] = new DatasetUrl(null, "file" + i);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    cache.clearCache(true);
+    FileCache.shutdown();
+    FileCacheStriped.shutdown();
+  }
+
+  @Benchmark
+  public FileCacheable acquireRelease() throws IOException {
+    DatasetUrl durl = urls[ThreadLocalRandom.current().nextInt(nfiles)];
+    FileCacheable fc = cache.acquire(factory, durl);
+    fc.close();
+    return fc;
+  }
+
+  private static class MemoryFile implements FileCacheable {
+    private final String location;
+    private FileCacheIF fileCache;
+
+    MemoryFile(String location) {
+      this.location = location;
+    }
+
+    @Override
+    public String getLocation() {
+      return location;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+      if (fileCache != null) fileCache.release(this);
+    }
+
+    @Override
+    public long getLastModified() {
+      return 0;
+    }
+
+    @Override
+    public synchronized void setFileCache(FileCacheIF fileCache) {
+      this.fileCache = fileCache;
+    }
+
+    @Override
+    public void release() throws IOException {
+    }
+
+    @Override
+    public void reacquire() throws IOException {
+    }
+  }
+}
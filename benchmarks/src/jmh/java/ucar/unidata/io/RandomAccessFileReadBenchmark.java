@@ -0,0 +1,83 @@
+package ucar.unidata.io;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the bulk array reads in RandomAccessFile with reading one element at a time,
+ * which is what the array reads used to do.
+ * The file is small enough to stay in the OS page cache, so this measures decoding, not disk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RandomAccessFileReadBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  public int nelems;
+
+  @Param({"BIG_ENDIAN", "LITTLE_ENDIAN"})
+  public String order;
+
+  private File tempFile;
+  private RandomAccessFile raf;
+  private float[] floats;
+  private double[] doubles;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    tempFile = Files.createTempFile("RandomAccessFileReadBenchmark", ".bin").toFile();
+    byte[] data = new byte[8 * nelems];
+    for (int i = 0; i < data.length; i++)
+      data[i] = (byte) (i * 31);
+    Files.write(tempFile.toPath(), data);
+
+    raf = new RandomAccessFile(tempFile.getPath(), "r");
+    raf.order(order.equals("BIG_ENDIAN") ? RandomAccessFile.BIG_ENDIAN : RandomAccessFile.LITTLE_ENDIAN);
+    floats = new float[nelems];
+    doubles = new double[nelems];
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    raf.close();
+    tempFile.delete();
+  }
+
+  @Benchmark
+  public float[] readFloatBulk() throws IOException {
+    raf.seek(0);
+    raf.readFloat(floats, 0, nelems);
+    return floats;
+  }
+
+  @Benchmark
+  public float[] readFloatPerElement() throws IOException {
+    raf.seek(0);
+    for (int i = 0; i < nelems; i++)
+      floats[i] = raf.readFloat();
+    return floats;
+  }
+
+  @Benchmark
+  public double[] readDoubleBulk() throws IOException {
+    raf.seek(0);
+    raf.readDouble(doubles, 0, nelems);
+    return doubles;
+  }
+
+  @Benchmark
+  public double[] readDoublePerElement() throws IOException {
+    raf.seek(0);
+    for (int i = 0; i < nelems; i++)
+      doubles[i] = raf.readDouble();
+    return doubles;
+  }
+}
@@ -319,6 +319,10 @@ public abstract class Array {
     }
 
     Object src = arraySrc.get1DJavaArray(arraySrc.getDataType()); // ensure canonical order
+    if (arrayDst instanceof ArrayDirect) { // no java array to copy into
+      ((ArrayDirect) arrayDst).copyFromJavaArray(src, srcPos, dstPos, len);
+      return;
+    }
     Object dst = arrayDst.getStorage();
     System.arraycopy(src, srcPos, dst, dstPos, len);
   }
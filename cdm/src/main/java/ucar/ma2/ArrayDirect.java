@@ -0,0 +1,916 @@
+/*
+ * Copyright 1998-2014 University Corporation for Atmospheric Research/Unidata
+ *
+ *   Portions of this software were developed by the Unidata Program at the
+ *   University Corporation for Atmospheric Research.
+ *
+ *   Access and use of this software shall impose the following obligations
+ *   and understandings on the user. The user is granted the right, without
+ *   any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *   this software, and any derivative works thereof, and its supporting
+ *   documentation for any purpose whatsoever, provided that this entire
+ *   notice appears in all copies of the software, derivative works and
+ *   supporting documentation.  Further, UCAR requests that the user credit
+ *   UCAR/Unidata in any publications that result from the use of this
+ *   software or in any product that includes this software. The names UCAR
+ *   and/or Unidata, however, may not be used in any advertising or publicity
+ *   to endorse or promote any products or commercial entity unless specific
+ *   written permission is obtained from UCAR/Unidata. The user also
+ *   understands that UCAR/Unidata is not obligated to provide the user with
+ *   any support, consulting, training or assistance of any kind with regard
+ *   to the use, operation and performance of this software nor to provide
+ *   the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *   THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *   IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *   WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *   DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *   INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *   FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *   NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *   WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.ma2;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An Array of numbers kept outside the java heap, in direct ByteBuffers, in a given byte order.
+ * The memory is split into segments of 1 GB, so the array may have more than 2^31 elements:
+ * use getSize(), the long element methods (eg getFloat(long)) and getIndexLong() for those.
+ * Arrays with more than 2^31 elements cannot make views (section, slice, transpose, etc) or IndexIterators,
+ * except for slice(0, i), which is contiguous.
+ * <p/>
+ * The bytes can be read directly from a FileChannel, and written directly to a WritableByteChannel,
+ * see readFully() and writeTo(). Only numeric types are allowed.
+ * <p/>
+ * The memory is freed when the Array is garbage collected, or right away by close(), after which any access
+ * to this Array or to its views throws IllegalStateException. Each access counts itself as a user of the memory
+ * while it runs, and a close() during an access frees the memory when the last access ends,
+ * so other threads still reading or writing the Array never touch freed memory.
+ * <p/>
+ * There is no java array: getStorage() returns a copy of the values, see copyToHeap().
+ *
+ * @since 10/18/2026
+ */
+public class ArrayDirect extends Array implements AutoCloseable {
+  static private final int KIND_BYTE = 0, KIND_SHORT = 1, KIND_INT = 2, KIND_LONG = 3, KIND_FLOAT = 4, KIND_DOUBLE = 5;
+  static private final int transferSize = 64 * 1024; // for copies through the java heap
+
+  static int segmentShift = 30; // segments of 1 GB; tests use smaller ones
+
+  static private final LongAdder totalAllocated = new LongAdder();
+  static private final LongAdder totalReleased = new LongAdder();
+
+  /**
+   * Create a big endian ArrayDirect, with all values 0.
+   *
+   * @param dataType a numeric type
+   * @param shape    the shape of the Array
+   * @return a new ArrayDirect
+   */
+  static public ArrayDirect factory(DataType dataType, int[] shape) {
+    return factory(dataType, shape, ByteOrder.BIG_ENDIAN);
+  }
+
+  /**
+   * Create an ArrayDirect, with all values 0.
+   *
+   * @param dataType a numeric type
+   * @param shape    the shape of the Array
+   * @param order    byte order of the values in memory
+   * @return a new ArrayDirect
+   * @throws IllegalArgumentException if dataType is not numeric
+   */
+  static public ArrayDirect factory(DataType dataType, int[] shape, ByteOrder order) {
+    kindOf(dataType);
+    long nbytes = Index.computeSize(shape) * dataType.getSize();
+    return new ArrayDirect(dataType, shape, new Memory(nbytes, segmentShift, order), 0);
+  }
+
+  /**
+   * Total bytes of off-heap memory allocated by ArrayDirect, for debugging and tests.
+   *
+   * @return bytes allocated since startup
+   */
+  static public long getTotalAllocated() {
+    return totalAllocated.sum();
+  }
+
+  /**
+   * Total bytes of off-heap memory freed by ArrayDirect.close(). Memory freed by the garbage collector isnt counted.
+   *
+   * @return bytes freed since startup
+   */
+  static public long getTotalReleased() {
+    return totalReleased.sum();
+  }
+
+  static private int kindOf(DataType dataType) {
+    switch (dataType) {
+      case BYTE:
+      case UBYTE:
+        return KIND_BYTE;
+      case SHORT:
+      case USHORT:
+        return KIND_SHORT;
+      case INT:
+      case UINT:
+        return KIND_INT;
+      case LONG:
+      case ULONG:
+        return KIND_LONG;
+      case FLOAT:
+        return KIND_FLOAT;
+      case DOUBLE:
+        return KIND_DOUBLE;
+      default:
+        throw new IllegalArgumentException("ArrayDirect must have a numeric type, not " + dataType);
+    }
+  }
+
+  // the memory shared by an Array and its views
+  static private class Memory {
+    final long nbytes;
+    final int shift;
+    final ByteOrder order;
+    private volatile ByteBuffer[] segments; // null when closed
+    private final AtomicInteger users = new AtomicInteger(); // accesses in progress
+    private ByteBuffer[] toFree; // closed but not yet freed; guarded by this
+
+    Memory(long nbytes, int shift, ByteOrder order) {
+      this.nbytes = nbytes;
+      this.shift = shift;
+      this.order = order;
+      long segmentSize = 1L << shift;
+      ByteBuffer[] segs = new ByteBuffer[(int) ((nbytes + segmentSize - 1) >>> shift)];
+      for (int s = 0; s < segs.length; s++) {
+        int size = (int) Math.min(segmentSize, nbytes - s * segmentSize);
+        segs[s] = ByteBuffer.allocateDirect(size).order(order);
+      }
+      segments = segs;
+      totalAllocated.add(nbytes);
+    }
+
+    // start an access; the memory is not freed until the matching release()
+    ByteBuffer[] acquire() {
+      users.incrementAndGet();
+      ByteBuffer[] result = segments;
+      if (result == null) {
+        release();
+        throw new IllegalStateException("ArrayDirect has been closed");
+      }
+      return result;
+    }
+
+    // end an access; the last one after a close() frees the memory
+    void release() {
+      if (users.decrementAndGet() == 0 && segments == null)
+        freeIfUnused();
+    }
+
+    boolean isClosed() {
+      return segments == null;
+    }
+
+    // no new accesses, free now if none are in progress
+    void close() {
+      synchronized (this) {
+        if (segments == null) return;
+        toFree = segments;
+        segments = null;
+      }
+      freeIfUnused();
+    }
+
+    private synchronized void freeIfUnused() {
+      if (toFree == null || users.get() != 0) return;
+      for (ByteBuffer bb : toFree)
+        free(bb);
+      toFree = null;
+      totalReleased.add(nbytes);
+    }
+  }
+
+  // free a direct ByteBuffer now, rather than when its garbage collected
+  // uses Unsafe.invokeCleaner() in java 9+, DirectBuffer.cleaner().clean() in java 8
+  static private final Object unsafe;
+  static private final Method invokeCleaner;
+
+  static {
+    Object u = null;
+    Method m = null;
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      m = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+      Field f = unsafeClass.getDeclaredField("theUnsafe");
+      f.setAccessible(true);
+      u = f.get(null);
+    } catch (Exception e) {
+      m = null; // java 8
+    }
+    unsafe = u;
+    invokeCleaner = m;
+  }
+
+  static private void free(ByteBuffer bb) {
+    try {
+      if (invokeCleaner != null) {
+        invokeCleaner.invoke(unsafe, bb);
+      } else {
+        Method cleanerMethod = bb.getClass().getMethod("cleaner");
+        cleanerMethod.setAccessible(true);
+        Object cleaner = cleanerMethod.invoke(bb);
+        if (cleaner != null)
+          cleaner.getClass().getMethod("clean").invoke(cleaner);
+      }
+    } catch (Exception e) {
+      // leave it to the garbage collector
+    }
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////
+
+  private final Memory memory;
+  private final long base; // position in memory of element 0, in elements
+  private final int kind, elemSize;
+  private final int shift;
+  private final long mask;
+  private final boolean big; // more than 2^31 elements
+  private final IndexLong indexLong;
+
+  private ArrayDirect(DataType dataType, int[] shape, Memory memory, long base) {
+    super(dataType, shape);
+    this.memory = memory;
+    this.base = base;
+    this.kind = kindOf(dataType);
+    this.elemSize = dataType.getSize();
+    this.shift = memory.shift;
+    this.mask = (1L << shift) - 1;
+    this.big = indexCalc.getSize() > Integer.MAX_VALUE;
+    this.indexLong = new IndexLong(shape);
+  }
+
+  // a view
+  private ArrayDirect(DataType dataType, Index index, Memory memory, long base) {
+    super(dataType, index);
+    this.memory = memory;
+    this.base = base;
+    this.kind = kindOf(dataType);
+    this.elemSize = dataType.getSize();
+    this.shift = memory.shift;
+    this.mask = (1L << shift) - 1;
+    this.big = false;
+    this.indexLong = new IndexLong(index.getShape());
+  }
+
+  /**
+   * Free the memory now, or as soon as the accesses in progress in other threads end.
+   * This also closes all views of this Array, and the Array it is a view of. Does nothing if already closed.
+   */
+  @Override
+  public void close() {
+    memory.close();
+  }
+
+  public boolean isClosed() {
+    return memory.isClosed();
+  }
+
+  /**
+   * Get the byte order of the values in memory.
+   *
+   * @return ByteOrder.BIG_ENDIAN or ByteOrder.LITTLE_ENDIAN
+   */
+  public ByteOrder getByteOrder() {
+    return memory.order;
+  }
+
+  /**
+   * Get an IndexLong for the shape of this Array, to find the element of an index when there are more than 2^31 elements.
+   * For a contiguous Array, the element of a counter is getIndexLong().element(counter).
+   *
+   * @return IndexLong for this shape
+   */
+  public IndexLong getIndexLong() {
+    return indexLong;
+  }
+
+  /**
+   * If the elements are in canonical order in memory, starting at element 0.
+   * True for Arrays from factory() and slice(0, i); views such as sections usually arent.
+   *
+   * @return true if contiguous
+   */
+  public boolean isContiguous() {
+    return big || indexCalc.isFastIterator();
+  }
+
+  @Override
+  public Class getElementType() {
+    return dataType.getPrimitiveClassType();
+  }
+
+  /**
+   * A copy of the values in a java array of getElementType(), in canonical order, same as copyToHeap().getStorage().
+   * Since its a copy, changing it does not change this Array.
+   * Array.arraycopy() and reshapeNoCopy(), which write through or share the storage, dont use it.
+   *
+   * @throws UnsupportedOperationException if there are more than 2^31 elements
+   */
+  @Override
+  public Object getStorage() {
+    return copyToHeap().getStorage();
+  }
+
+  /**
+   * Reshape a contiguous Array without copying, the result shares this Array's memory.
+   * If not contiguous, the result is a copy, as for reshape().
+   */
+  @Override
+  public Array reshapeNoCopy(int[] shape) {
+    if (!isContiguous())
+      return reshape(shape);
+    ArrayDirect result = new ArrayDirect(dataType, shape, memory, base);
+    if (result.getSize() != getSize())
+      throw new IllegalArgumentException("reshape arrays must have same total size");
+    return result;
+  }
+
+  @Override
+  protected Array createView(Index index) {
+    if (big)
+      throw new UnsupportedOperationException("ArrayDirect with more than 2^31 elements cant make views except slice(0, i)");
+    return new ArrayDirect(dataType, index, memory, base);
+  }
+
+  /**
+   * slice(0, i) of a contiguous Array returns a contiguous view, and is allowed for an Array with more than 2^31 elements.
+   * Otherwise the same as Array.slice().
+   */
+  @Override
+  public Array slice(int dim, int value) {
+    if (dim == 0 && isContiguous()) {
+      int[] shape = getShape();
+      if (value < 0 || value >= shape[0])
+        throw new ArrayIndexOutOfBoundsException("slice " + value + " not in [0, " + shape[0] + ")");
+      int[] sliceShape = new int[shape.length - 1];
+      System.arraycopy(shape, 1, sliceShape, 0, sliceShape.length);
+      return new ArrayDirect(dataType, sliceShape, memory, base + value * indexLong.getStride(0));
+    }
+    return super.slice(dim, value);
+  }
+
+  @Override
+  public IndexIterator getIndexIterator() {
+    if (big)
+      throw new UnsupportedOperationException("ArrayDirect with more than 2^31 elements cant make IndexIterators");
+    return super.getIndexIterator();
+  }
+
+  /**
+   * Copy to a new ArrayDirect, in canonical order, with the same byte order.
+   *
+   * @return the new ArrayDirect
+   */
+  @Override
+  public Array copy() {
+    ArrayDirect result = factory(dataType, getShape(), memory.order);
+    if (isContiguous()) {
+      ByteBuffer[] segs = memory.acquire();
+      try {
+        List<ByteBuffer> to = result.slices(result.memory.acquire(), 0, getSize());
+        int t = 0;
+        for (ByteBuffer from : slices(segs, 0, getSize())) {
+          while (from.hasRemaining()) {
+            if (!to.get(t).hasRemaining()) t++;
+            ByteBuffer dst = to.get(t);
+            ByteBuffer src = from.duplicate();
+            src.limit(src.position() + Math.min(src.remaining(), dst.remaining()));
+            dst.put(src);
+            from.position(src.position());
+          }
+        }
+        result.memory.release();
+      } finally {
+        memory.release();
+      }
+    } else {
+      MAMath.copy(result, this);
+    }
+    return result;
+  }
+
+  /**
+   * Copy to an Array on the java heap of the same type, eg ArrayFloat, in canonical order.
+   *
+   * @return the new Array
+   * @throws UnsupportedOperationException if there are more than 2^31 elements
+   */
+  public Array copyToHeap() {
+    if (big)
+      throw new UnsupportedOperationException("ArrayDirect with more than 2^31 elements cant be copied to the heap");
+    Array result = Array.factory(dataType, getShape());
+    if (!isContiguous()) {
+      MAMath.copy(result, this);
+      return result;
+    }
+
+    int dest = 0;
+    ByteBuffer[] segs = memory.acquire();
+    try {
+      for (ByteBuffer slice : slices(segs, 0, getSize())) {
+        int n = slice.remaining() / elemSize;
+        switch (kind) {
+          case KIND_BYTE:
+            slice.get((byte[]) result.getStorage(), dest, n);
+            break;
+          case KIND_SHORT:
+            slice.asShortBuffer().get((short[]) result.getStorage(), dest, n);
+            break;
+          case KIND_INT:
+            slice.asIntBuffer().get((int[]) result.getStorage(), dest, n);
+            break;
+          case KIND_LONG:
+            slice.asLongBuffer().get((long[]) result.getStorage(), dest, n);
+            break;
+          case KIND_FLOAT:
+            slice.asFloatBuffer().get((float[]) result.getStorage(), dest, n);
+            break;
+          case KIND_DOUBLE:
+            slice.asDoubleBuffer().get((double[]) result.getStorage(), dest, n);
+            break;
+        }
+        dest += n;
+      }
+    } finally {
+      memory.release();
+    }
+    return result;
+  }
+
+  @Override
+  public Object get1DJavaArray(DataType wantType) {
+    if (wantType == dataType)
+      return copyToHeap().getStorage();
+    Array result = Array.factory(wantType, getShape());
+    MAMath.copy(result, this);
+    return result.getStorage();
+  }
+
+  @Override
+  public Object copyTo1DJavaArray() {
+    return copyToHeap().getStorage();
+  }
+
+  /**
+   * The values in a ByteBuffer on the java heap, big endian, in canonical order.
+   */
+  @Override
+  public ByteBuffer getDataAsByteBuffer() {
+    return getDataAsByteBuffer(null);
+  }
+
+  /**
+   * The values in a ByteBuffer on the java heap, in canonical order.
+   *
+   * @param order byte order of the result; if null, big endian
+   */
+  @Override
+  public ByteBuffer getDataAsByteBuffer(ByteOrder order) {
+    if (big)
+      throw new UnsupportedOperationException("ArrayDirect with more than 2^31 elements cant be copied to the heap");
+    if (order == null) order = ByteOrder.BIG_ENDIAN;
+    ByteBuffer bb = ByteBuffer.allocate((int) (getSize() * elemSize)).order(order);
+    if (isContiguous() && order.equals(memory.order)) {
+      ByteBuffer[] segs = memory.acquire();
+      try {
+        for (ByteBuffer slice : slices(segs, 0, getSize()))
+          bb.put(slice);
+      } finally {
+        memory.release();
+      }
+    } else {
+      IndexIterator ii = getIndexIterator();
+      while (ii.hasNext()) {
+        switch (kind) {
+          case KIND_BYTE: bb.put(ii.getByteNext()); break;
+          case KIND_SHORT: bb.putShort(ii.getShortNext()); break;
+          case KIND_INT: bb.putInt(ii.getIntNext()); break;
+          case KIND_LONG: bb.putLong(ii.getLongNext()); break;
+          case KIND_FLOAT: bb.putFloat(ii.getFloatNext()); break;
+          case KIND_DOUBLE: bb.putDouble(ii.getDoubleNext()); break;
+        }
+      }
+    }
+    bb.flip();
+    return bb;
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////
+  // bulk transfers of the bytes in memory order; elem is the position in memory, as for getDouble(long elem)
+
+  // copy nelems values from a java array of getElementType(), used by Array.arraycopy()
+  void copyFromJavaArray(Object javaArray, int srcPos, long elem, int nelems) {
+    ByteBuffer[] segs = memory.acquire();
+    try {
+      for (ByteBuffer slice : slices(segs, elem, nelems)) {
+        int n = slice.remaining() / elemSize;
+        switch (kind) {
+          case KIND_BYTE:
+            slice.put((byte[]) javaArray, srcPos, n);
+            break;
+          case KIND_SHORT:
+            slice.asShortBuffer().put((short[]) javaArray, srcPos, n);
+            break;
+          case KIND_INT:
+            slice.asIntBuffer().put((int[]) javaArray, srcPos, n);
+            break;
+          case KIND_LONG:
+            slice.asLongBuffer().put((long[]) javaArray, srcPos, n);
+            break;
+          case KIND_FLOAT:
+            slice.asFloatBuffer().put((float[]) javaArray, srcPos, n);
+            break;
+          case KIND_DOUBLE:
+            slice.asDoubleBuffer().put((double[]) javaArray, srcPos, n);
+            break;
+        }
+        srcPos += n;
+      }
+    } finally {
+      memory.release();
+    }
+  }
+
+  /**
+   * Read values from a FileChannel, with positional reads, without copying through the java heap.
+   * The bytes must be in this Array's byte order.
+   *
+   * @param channel read from here
+   * @param filePos starting at this position in the file
+   * @param elem    first element to read into
+   * @param nelems  number of elements to read
+   * @throws IOException on read error, or EOFException if the file ends first
+   */
+  public void readFully(FileChannel channel, long filePos, long elem, long nelems) throws IOException {
+    ByteBuffer[] segs = memory.acquire();
+    try {
+      for (ByteBuffer slice : slices(segs, elem, nelems)) {
+        while (slice.hasRemaining()) {
+          int n = channel.read(slice, filePos);
+          if (n < 0)
+            throw new EOFException("reading " + slice.remaining() + " bytes at " + filePos);
+          filePos += n;
+        }
+      }
+    } finally {
+      memory.release();
+    }
+  }
+
+  /**
+   * Read values from a DataInput, eg a ucar.unidata.io.RandomAccessFile, through a small buffer on the heap.
+   * The bytes must be in this Array's byte order.
+   *
+   * @param in     read from here, at its current position
+   * @param elem   first element to read into
+   * @param nelems number of elements to read
+   * @throws IOException on read error
+   */
+  public void readFully(DataInput in, long elem, long nelems) throws IOException {
+    byte[] buffer = null;
+    ByteBuffer[] segs = memory.acquire();
+    try {
+      for (ByteBuffer slice : slices(segs, elem, nelems)) {
+        if (buffer == null) buffer = new byte[Math.min(transferSize, slice.remaining())];
+        while (slice.hasRemaining()) {
+          int n = Math.min(buffer.length, slice.remaining());
+          in.readFully(buffer, 0, n);
+          slice.put(buffer, 0, n);
+        }
+      }
+    } finally {
+      memory.release();
+    }
+  }
+
+  /**
+   * Write values to a channel, without copying through the java heap. The bytes are in this Array's byte order.
+   *
+   * @param channel write to here
+   * @param elem    first element to write
+   * @param nelems  number of elements to write
+   * @return number of bytes written
+   * @throws IOException on write error
+   */
+  public long writeTo(WritableByteChannel channel, long elem, long nelems) throws IOException {
+    long count = 0;
+    ByteBuffer[] segs = memory.acquire();
+    try {
+      for (ByteBuffer slice : slices(segs, elem, nelems)) {
+        while (slice.hasRemaining())
+          count += channel.write(slice);
+      }
+    } finally {
+      memory.release();
+    }
+    return count;
+  }
+
+  /**
+   * Write values to a DataOutput, eg a DataOutputStream or ucar.unidata.io.RandomAccessFile, through a small buffer on the heap.
+   * The bytes are in this Array's byte order.
+   *
+   * @param out    write to here, at its current position
+   * @param elem   first element to write
+   * @param nelems number of elements to write
+   * @return number of bytes written
+   * @throws IOException on write error
+   */
+  public long writeTo(DataOutput out, long elem, long nelems) throws IOException {
+    long count = 0;
+    byte[] buffer = null;
+    ByteBuffer[] segs = memory.acquire();
+    try {
+      for (ByteBuffer slice : slices(segs, elem, nelems)) {
+        if (buffer == null) buffer = new byte[Math.min(transferSize, slice.remaining())];
+        while (slice.hasRemaining()) {
+          int n = Math.min(buffer.length, slice.remaining());
+          slice.get(buffer, 0, n);
+          out.write(buffer, 0, n);
+          count += n;
+        }
+      }
+    } finally {
+      memory.release();
+    }
+    return count;
+  }
+
+  // the memory of elements [elem, elem + nelems), one ByteBuffer for each segment it spans
+  // segs from memory.acquire(), the slices may only be used until the matching memory.release()
+  private List<ByteBuffer> slices(ByteBuffer[] segs, long elem, long nelems) {
+    long start = (base + elem) * elemSize;
+    long end = start + nelems * elemSize;
+    if (elem < 0 || nelems < 0 || end > memory.nbytes)
+      throw new ArrayIndexOutOfBoundsException("elements [" + elem + ", " + (elem + nelems) + ") not in this Array");
+
+    List<ByteBuffer> result = new ArrayList<>(1);
+    while (start < end) {
+      ByteBuffer seg = segs[(int) (start >>> shift)];
+      int pos = (int) (start & mask);
+      int len = (int) Math.min(end - start, seg.capacity() - pos);
+      ByteBuffer slice = seg.duplicate();
+      slice.limit(pos + len);
+      slice.position(pos);
+      result.add(slice.slice().order(memory.order));
+      start += len;
+    }
+    return result;
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////
+  // element access
+
+  // each access acquires the memory, so a close() in another thread cant free it underneath
+
+  // integer values are widened as the unsigned value if unsigned
+  private long getRaw(long elem) {
+    long pos = (base + elem) * elemSize;
+    ByteBuffer[] segs = memory.acquire();
+    try {
+      ByteBuffer seg = segs[(int) (pos >>> shift)];
+      int off = (int) (pos & mask);
+      switch (kind) {
+        case KIND_BYTE: {
+          byte val = seg.get(off);
+          return isUnsigned() ? DataType.unsignedByteToShort(val) : val;
+        }
+        case KIND_SHORT: {
+          short val = seg.getShort(off);
+          return isUnsigned() ? DataType.unsignedShortToInt(val) : val;
+        }
+        case KIND_INT: {
+          int val = seg.getInt(off);
+          return isUnsigned() ? DataType.unsignedIntToLong(val) : val;
+        }
+        default:
+          return seg.getLong(off);
+      }
+    } finally {
+      memory.release();
+    }
+  }
+
+  private void setRaw(long elem, long value) {
+    long pos = (base + elem) * elemSize;
+    ByteBuffer[] segs = memory.acquire();
+    try {
+      ByteBuffer seg = segs[(int) (pos >>> shift)];
+      int off = (int) (pos & mask);
+      switch (kind) {
+        case KIND_BYTE: seg.put(off, (byte) value); break;
+        case KIND_SHORT: seg.putShort(off, (short) value); break;
+        case KIND_INT: seg.putInt(off, (int) value); break;
+        default: seg.putLong(off, value); break;
+      }
+    } finally {
+      memory.release();
+    }
+  }
+
+  public double getDouble(long elem) {
+    if (kind != KIND_DOUBLE && kind != KIND_FLOAT)
+      return (double) getRaw(elem);
+    long pos = (base + elem) * elemSize;
+    ByteBuffer[] segs = memory.acquire();
+    try {
+      ByteBuffer seg = segs[(int) (pos >>> shift)];
+      int off = (int) (pos & mask);
+      return (kind == KIND_DOUBLE) ? seg.getDouble(off) : seg.getFloat(off);
+    } finally {
+      memory.release();
+    }
+  }
+
+  public void setDouble(long elem, double value) {
+    if (kind != KIND_DOUBLE && kind != KIND_FLOAT) {
+      setRaw(elem, (long) value);
+      return;
+    }
+    long pos = (base + elem) * elemSize;
+    ByteBuffer[] segs = memory.acquire();
+    try {
+      ByteBuffer seg = segs[(int) (pos >>> shift)];
+      int off = (int) (pos & mask);
+      if (kind == KIND_DOUBLE)
+        seg.putDouble(off, value);
+      else
+        seg.putFloat(off, (float) value);
+    } finally {
+      memory.release();
+    }
+  }
+
+  public float getFloat(long elem) {
+    return (float) getDouble(elem);
+  }
+
+  public void setFloat(long elem, float value) {
+    setDouble(elem, value);
+  }
+
+  public long getLong(long elem) {
+    if (kind == KIND_FLOAT || kind == KIND_DOUBLE)
+      return (long) getDouble(elem);
+    return getRaw(elem);
+  }
+
+  public void setLong(long elem, long value) {
+    if (kind == KIND_FLOAT || kind == KIND_DOUBLE)
+      setDouble(elem, (double) value);
+    else
+      setRaw(elem, value);
+  }
+
+  public int getInt(long elem) {
+    if (kind == KIND_FLOAT || kind == KIND_DOUBLE)
+      return (int) getDouble(elem);
+    return (int) getRaw(elem);
+  }
+
+  public void setInt(long elem, int value) {
+    setLong(elem, value);
+  }
+
+  public short getShort(long elem) {
+    if (kind == KIND_FLOAT || kind == KIND_DOUBLE)
+      return (short) getDouble(elem);
+    return (short) getRaw(elem);
+  }
+
+  public void setShort(long elem, short value) {
+    setLong(elem, value);
+  }
+
+  public byte getByte(long elem) {
+    if (kind == KIND_FLOAT || kind == KIND_DOUBLE)
+      return (byte) getDouble(elem);
+    return (byte) getRaw(elem);
+  }
+
+  public void setByte(long elem, byte value) {
+    setLong(elem, value);
+  }
+
+  public char getChar(long elem) {
+    if (kind == KIND_FLOAT || kind == KIND_DOUBLE)
+      return (char) getDouble(elem);
+    return (char) getRaw(elem);
+  }
+
+  public void setChar(long elem, char value) {
+    setLong(elem, value);
+  }
+
+  public Object getObject(long elem) {
+    switch (kind) {
+      case KIND_BYTE: return getByte(elem);
+      case KIND_SHORT: return getShort(elem);
+      case KIND_INT: return getInt(elem);
+      case KIND_LONG: return getLong(elem);
+      case KIND_FLOAT: return getFloat(elem);
+      default: return getDouble(elem);
+    }
+  }
+
+  public void setObject(long elem, Object value) {
+    if (kind == KIND_FLOAT || kind == KIND_DOUBLE)
+      setDouble(elem, ((Number) value).doubleValue());
+    else
+      setLong(elem, ((Number) value).longValue());
+  }
+
+  // int element versions, used by the IndexIterators
+
+  public double getDouble(int elem) { return getDouble((long) elem); }
+  public void setDouble(int elem, double value) { setDouble((long) elem, value); }
+  public float getFloat(int elem) { return getFloat((long) elem); }
+  public void setFloat(int elem, float value) { setFloat((long) elem, value); }
+  public long getLong(int elem) { return getLong((long) elem); }
+  public void setLong(int elem, long value) { setLong((long) elem, value); }
+  public int getInt(int elem) { return getInt((long) elem); }
+  public void setInt(int elem, int value) { setInt((long) elem, value); }
+  public short getShort(int elem) { return getShort((long) elem); }
+  public void setShort(int elem, short value) { setShort((long) elem, value); }
+  public byte getByte(int elem) { return getByte((long) elem); }
+  public void setByte(int elem, byte value) { setByte((long) elem, value); }
+  public char getChar(int elem) { return getChar((long) elem); }
+  public void setChar(int elem, char value) { setChar((long) elem, value); }
+  public boolean getBoolean(int elem) { throw new ForbiddenConversionException(); }
+  public void setBoolean(int elem, boolean value) { throw new ForbiddenConversionException(); }
+  public Object getObject(int elem) { return getObject((long) elem); }
+  public void setObject(int elem, Object value) { setObject((long) elem, value); }
+
+  // Index versions
+
+  private long elem(Index ima) {
+    return big ? indexLong.element(ima.getCurrentCounter()) : ima.currentElement();
+  }
+
+  public double getDouble(Index i) { return getDouble(elem(i)); }
+  public void setDouble(Index i, double value) { setDouble(elem(i), value); }
+  public float getFloat(Index i) { return getFloat(elem(i)); }
+  public void setFloat(Index i, float value) { setFloat(elem(i), value); }
+  public long getLong(Index i) { return getLong(elem(i)); }
+  public void setLong(Index i, long value) { setLong(elem(i), value); }
+  public int getInt(Index i) { return getInt(elem(i)); }
+  public void setInt(Index i, int value) { setInt(elem(i), value); }
+  public short getShort(Index i) { return getShort(elem(i)); }
+  public void setShort(Index i, short value) { setShort(elem(i), value); }
+  public byte getByte(Index i) { return getByte(elem(i)); }
+  public void setByte(Index i, byte value) { setByte(elem(i), value); }
+  public char getChar(Index i) { return getChar(elem(i)); }
+  public void setChar(Index i, char value) { setChar(elem(i), value); }
+  public boolean getBoolean(Index i) { throw new ForbiddenConversionException(); }
+  public void setBoolean(Index i, boolean value) { throw new ForbiddenConversionException(); }
+  public Object getObject(Index i) { return getObject(elem(i)); }
+  public void setObject(Index i, Object value) { setObject(elem(i), value); }
+
+  // used by Array.factory and copyToNDJavaArray
+  protected void copyFrom1DJavaArray(IndexIterator iter, Object javaArray) {
+    Array from = Array.factory(dataType, new int[]{java.lang.reflect.Array.getLength(javaArray)}, javaArray);
+    IndexIterator fromIter = from.getIndexIterator();
+    while (fromIter.hasNext()) {
+      if (kind == KIND_FLOAT || kind == KIND_DOUBLE)
+        iter.setDoubleNext(fromIter.getDoubleNext());
+      else
+        iter.setLongNext(fromIter.getLongNext());
+    }
+  }
+
+  protected void copyTo1DJavaArray(IndexIterator iter, Object javaArray) {
+    Array to = Array.factory(dataType, new int[]{java.lang.reflect.Array.getLength(javaArray)}, javaArray);
+    IndexIterator toIter = to.getIndexIterator();
+    while (toIter.hasNext()) {
+      if (kind == KIND_FLOAT || kind == KIND_DOUBLE)
+        toIter.setDoubleNext(iter.getDoubleNext());
+      else
+        toIter.setLongNext(iter.getLongNext());
+    }
+  }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 1998-2014 University Corporation for Atmospheric Research/Unidata
+ *
+ *   Portions of this software were developed by the Unidata Program at the
+ *   University Corporation for Atmospheric Research.
+ *
+ *   Access and use of this software shall impose the following obligations
+ *   and understandings on the user. The user is granted the right, without
+ *   any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *   this software, and any derivative works thereof, and its supporting
+ *   documentation for any purpose whatsoever, provided that this entire
+ *   notice appears in all copies of the software, derivative works and
+ *   supporting documentation.  Further, UCAR requests that the user credit
+ *   UCAR/Unidata in any publications that result from the use of this
+ *   software or in any product that includes this software. The names UCAR
+ *   and/or Unidata, however, may not be used in any advertising or publicity
+ *   to endorse or promote any products or commercial entity unless specific
+ *   written permission is obtained from UCAR/Unidata. The user also
+ *   understands that UCAR/Unidata is not obligated to provide the user with
+ *   any support, consulting, training or assistance of any kind with regard
+ *   to the use, operation and performance of this software nor to provide
+ *   the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *   THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *   IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *   WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *   DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *   INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *   FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *   NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *   WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.ma2;
+
+import java.util.Arrays;
+
+/**
+ * Element positions in canonical (row-major) order, computed with long arithmetic,
+ * so arrays may have more than 2^31 elements. Used by ArrayDirect.
+ * Unlike Index, there are no sections, flips or permutations: an element's position is its offset from the first element.
+ *
+ * @since 10/18/2026
+ */
+public class IndexLong {
+  private final int[] shape;
+  private final long[] stride;
+  private final long size;
+
+  /**
+   * Constructor.
+   *
+   * @param shape length of each dimension, slowest varying first
+   */
+  public IndexLong(int[] shape) {
+    this.shape = shape.clone();
+    this.stride = new long[shape.length];
+    long product = 1;
+    for (int dim = shape.length - 1; dim >= 0; dim--) {
+      if (shape[dim] < 0)
+        throw new IllegalArgumentException("IndexLong does not allow vlen dimensions");
+      stride[dim] = product;
+      product *= shape[dim];
+    }
+    this.size = product;
+  }
+
+  public int getRank() {
+    return shape.length;
+  }
+
+  public int[] getShape() {
+    return shape.clone();
+  }
+
+  /**
+   * Get the total number of elements.
+   *
+   * @return product of the shape
+   */
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * Get the number of elements between consecutive indices of a dimension.
+   *
+   * @param dim which dimension
+   * @return the stride of dim
+   */
+  public long getStride(int dim) {
+    return stride[dim];
+  }
+
+  /**
+   * Get the position of an element.
+   *
+   * @param counter index in each dimension
+   * @return position of the element in canonical order
+   * @throws ArrayIndexOutOfBoundsException if counter is outside the shape
+   */
+  public long element(int... counter) {
+    if (counter.length != shape.length)
+      throw new ArrayIndexOutOfBoundsException("counter has rank " + counter.length + ", not " + shape.length);
+    long elem = 0;
+    for (int dim = 0; dim < shape.length; dim++) {
+      if (counter[dim] < 0 || counter[dim] >= shape[dim])
+        throw new ArrayIndexOutOfBoundsException("counter[" + dim + "]= " + counter[dim] + " not in [0, " + shape[dim] + ")");
+      elem += counter[dim] * stride[dim];
+    }
+    return elem;
+  }
+
+  /**
+   * Get the index of an element in each dimension; inverse of element().
+   *
+   * @param elem position of the element in canonical order
+   * @return index in each dimension
+   * @throws ArrayIndexOutOfBoundsException if elem is not in [0, getSize())
+   */
+  public int[] counter(long elem) {
+    if (elem < 0 || elem >= size)
+      throw new ArrayIndexOutOfBoundsException("element " + elem + " not in [0, " + size + ")");
+    int[] counter = new int[shape.length];
+    for (int dim = 0; dim < shape.length; dim++) {
+      counter[dim] = (int) (elem / stride[dim]);
+      elem -= counter[dim] * stride[dim];
+    }
+    return counter;
+  }
+
+  @Override
+  public String toString() {
+    return "IndexLong" + Arrays.toString(shape);
+  }
+}
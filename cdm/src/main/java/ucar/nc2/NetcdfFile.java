@@ -54,6 +54,7 @@ import java.util.Formatter;
 import java.util.List;
 import java.util.ServiceLoader;
 import java.util.StringTokenizer;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -69,6 +70,7 @@ import ucar.nc2.constants.CDM;
 import ucar.nc2.iosp.AbstractIOServiceProvider;
 import ucar.nc2.iosp.IOServiceProvider;
 import ucar.nc2.iosp.IospHelper;
+import ucar.nc2.iosp.IospSignature;
 import ucar.nc2.iosp.netcdf3.N3header;
 import ucar.nc2.iosp.netcdf3.N3iosp;
 import ucar.nc2.iosp.netcdf3.SPFactory;
@@ -79,6 +81,7 @@ import ucar.nc2.util.EscapeStrings;
 import ucar.nc2.util.IO;
 import ucar.nc2.util.Indent;
 import ucar.nc2.util.rc.RC;
+import ucar.unidata.io.CompressedRandomAccessFile;
 import ucar.unidata.io.InMemoryRandomAccessFile;
 import ucar.unidata.io.UncompressInputStream;
 import ucar.unidata.io.bzip2.CBZip2InputStream;
@@ -129,6 +132,24 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
   static public final String IOSP_MESSAGE_REMOVE_RECORD_STRUCTURE = "RemoveRecordStructure";
   static public final String IOSP_MESSAGE_RANDOM_ACCESS_FILE = "RandomAccessFile";
 
+  /**
+   * Read-only mode where one open file can be read by several threads at the same time, for IOSPs that support it
+   * (currently netCDF-3 and HDF5/netCDF-4), and only for local files opened read-only.
+   * Data is read with positional FileChannel reads, each read with its own buffer, instead of through the shared file pointer.
+   * Send as the iospMessage to NetcdfFile.open(), or to sendIospMessage(), which returns Boolean.TRUE if the mode is on.
+   * Opening, closing, sync() and Structure iteration are still not thread-safe.
+   */
+  static public final String IOSP_MESSAGE_CONCURRENT_READS = "ConcurrentReads";
+
+  /**
+   * Numeric data is read into ucar.ma2.ArrayDirect, whose memory is outside the java heap, for IOSPs that support it
+   * (currently netCDF-3). Large chunks of local files are read straight into it with FileChannel reads.
+   * Send as the iospMessage to NetcdfFile.open(), or to sendIospMessage(), which returns Boolean.TRUE if the mode is on.
+   * Callers should close() the arrays they read when done with them; the memory is otherwise released by the garbage collector.
+   * Best used with Variable.setCaching(false), since cached data is copied on each read.
+   */
+  static public final String IOSP_MESSAGE_OFF_HEAP_ARRAYS = "OffHeapArrays";
+
   static private org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(NetcdfFile.class);
 
   static private int default_buffersize = 8092;
@@ -138,6 +159,11 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
   static boolean loadWarnings = false;
 
   static private boolean userLoads = false;
+  static private boolean compressedRandomAccess = false;
+
+  // time spent finding the iosp for a file
+  static private final LongAdder detectCount = new LongAdder(), detectNanos = new LongAdder(), detectUnknown = new LongAdder();
+  static private final LongAdder validFileCalls = new LongAdder(), signatureSkips = new LongAdder();
 
   // IOSPs are loaded by reflection
   static {
@@ -410,6 +436,60 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
       return false;
   }
 
+  /**
+   * Number of files that open() has found an IOServiceProvider for, or failed to.
+   * @return number of files
+   */
+  static public long getIospDetectCount() {
+    return detectCount.sum();
+  }
+
+  /**
+   * Time that open() has spent finding the IOServiceProvider for a file.
+   * @return total nanoseconds
+   */
+  static public long getIospDetectNanos() {
+    return detectNanos.sum();
+  }
+
+  /**
+   * Number of calls to IOServiceProvider.isValidFile() made while finding the IOServiceProvider for a file.
+   * @return number of calls
+   */
+  static public long getIsValidFileCalls() {
+    return validFileCalls.sum();
+  }
+
+  /**
+   * Number of calls to IOServiceProvider.isValidFile() skipped because the file didnt match its signatures.
+   * @return number of calls skipped
+   */
+  static public long getSignatureSkips() {
+    return signatureSkips.sum();
+  }
+
+  static public void showIospDetectStats(Formatter f) {
+    long count = getIospDetectCount();
+    f.format("IOSP detection: files= %d unknown= %d total= %d msecs avg= %.3f msecs isValidFile calls= %d skipped by signature= %d%n",
+            count, detectUnknown.sum(), getIospDetectNanos() / 1000 / 1000,
+            (count == 0) ? 0.0 : getIospDetectNanos() / 1.0e6 / count, getIsValidFileCalls(), getSignatureSkips());
+  }
+
+  /**
+   * Read .gz, .gzip and .bz2 files in place with a CompressedRandomAccessFile, instead of uncompressing them
+   * into the DiskCache before opening. The CompressedRandomAccessFile index goes where the uncompressed file would.
+   * A file that has already been uncompressed into the DiskCache is still read from there.
+   *
+   * @param b true to read compressed files in place, default false
+   */
+  static public void setCompressedRandomAccess(boolean b) {
+    compressedRandomAccess = b;
+  }
+
+  static public boolean getCompressedRandomAccess() {
+    return compressedRandomAccess;
+  }
+
   /**
    * debugging
    *
@@ -490,6 +570,8 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
    *                    <li>local netcdf-4 filename (with a file: prefix or no prefix)
    *                    <li>local hdf-5 filename (with a file: prefix or no prefix)
    *                    <li>local iosp filename (with a file: prefix or no prefix)
+   *                    <li>any of the local files with an mmap: prefix, to read it through a memory mapped, read-only
+   *                    {@link ucar.unidata.io.MMapRandomAccessFile}, eg "mmap:/data/big.nc" or "mmap:file:/data/big.nc"
    *                    </ol>  http://thredds.ucar.edu/thredds/fileServer/grib/NCEP/GFS/Alaska_191km/files/GFS_Alaska_191km_20130416_0600.grib1
    *                    If file ends with ".Z", ".zip", ".gzip", ".gz", or ".bz2", it will uncompress/unzip and write to new file without the suffix,
    *                    then use the uncompressed file. It will look for the uncompressed file before it does any of that. Generally it prefers to
@@ -532,20 +614,45 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
   }
 
   private static boolean canOpen(ucar.unidata.io.RandomAccessFile raf) throws IOException {
-    if (N3header.isValidFile(raf)) {
-      return true;
-    } else {
-      for (IOServiceProvider iosp : ServiceLoader.load(IOServiceProvider.class)) {
-        log.info("ServiceLoader IOServiceProvider {}", iosp.getClass().getName());        if (iosp.isValidFile(raf)) {
-          return true;
-        }
+    return N3header.isValidFile(raf) || (findServiceProvider(raf) != null);
+  }
+
+  /*
+   * Find the IOServiceProvider for a file that isnt netCDF-3, or null if there is none.
+   * IOServiceProviders whose signatures dont match the start of the file are skipped.
+   * Registered providers override the ones found by the ServiceLoader.
+   * Returns the instance used for isValidFile(), make a new one to open the file.
+   */
+  static private IOServiceProvider findServiceProvider(ucar.unidata.io.RandomAccessFile raf) throws IOException {
+    byte[] header = IospSignature.readHeader(raf);
+    IOServiceProvider result = null;
+
+    // look for dynamically loaded IOSPs
+    for (IOServiceProvider currentSpi : ServiceLoader.load(IOServiceProvider.class)) {
+      if (isValidFile(currentSpi, raf, header)) {
+        result = currentSpi;
+        break;
       }
-      for (IOServiceProvider registeredSpi : registeredProviders) {
-        if (registeredSpi.isValidFile(raf))
-          return true;
+    }
+
+    // look for registered providers
+    for (IOServiceProvider registeredSpi : registeredProviders) {
+      if (isValidFile(registeredSpi, raf, header)) {
+        result = registeredSpi;
+        break;
       }
     }
-    return false;
+    return result;
+  }
+
+  static private boolean isValidFile(IOServiceProvider spi, ucar.unidata.io.RandomAccessFile raf, byte[] header) throws IOException {
+    if (!IospSignature.couldBeValid(spi, header)) {
+      signatureSkips.increment();
+      return false;
+    }
+    if (debugSPI) log.info(" try iosp = {}", spi.getClass().getName());
+    validFileCalls.increment();
+    return spi.isValidFile(raf);
   }
 
   /**
@@ -631,6 +738,10 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
       raf = new InMemoryRandomAccessFile(uriString, contents);
 
     } else {
+      boolean mmap = uriString.startsWith("mmap:");  // local file, memory mapped
+      if (mmap)
+        uriString = uriString.substring(5);
+
       // get rid of crappy microsnot \ replace with happy /
       uriString = StringUtil2.replace(uriString, '\\', "/");
 
@@ -639,6 +750,11 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
         uriString = StringUtil2.unescape(uriString.substring(5));  // 11/10/2010 from erussell@ngs.org
       }
 
+      if (compressedRandomAccess && !mmap && CompressedRandomAccessFile.isCompressed(uriString)) {
+        raf = openCompressed(uriString, buffer_size);
+        if (raf != null) return raf;
+      }
+
       String uncompressedFileName = null;
       try {
         uncompressedFileName = makeUncompressed(uriString);
@@ -649,19 +765,38 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
 
       if (uncompressedFileName != null) {
         // open uncompressed file as a RandomAccessFile.
-        raf = ucar.unidata.io.RandomAccessFile.acquire(uncompressedFileName, buffer_size);
-        //raf = new ucar.unidata.io.MMapRandomAccessFile(uncompressedFileName, "r");
+        raf = mmap ? ucar.unidata.io.RandomAccessFile.acquireMapped(uncompressedFileName) :
+                ucar.unidata.io.RandomAccessFile.acquire(uncompressedFileName, buffer_size);
 
       } else {
         // normal case - not compressed
-        raf = ucar.unidata.io.RandomAccessFile.acquire(uriString, buffer_size);
-        //raf = new ucar.unidata.io.MMapRandomAccessFile(uriString, "r");
+        raf = mmap ? ucar.unidata.io.RandomAccessFile.acquireMapped(uriString) :
+                ucar.unidata.io.RandomAccessFile.acquire(uriString, buffer_size);
       }
     }
 
     return raf;
   }
 
+  // return null if already uncompressed into the DiskCache, or if it cant be read in place
+  static private ucar.unidata.io.RandomAccessFile openCompressed(String filename, int buffer_size) {
+    String uncompressedFilename = filename.substring(0, filename.lastIndexOf('.'));
+    File uncompressedFile = DiskCache.getFileStandardPolicy(uncompressedFilename);
+    if (uncompressedFile.exists() && uncompressedFile.length() > 0) return null;
+    if (!new File(filename).exists()) return null;
+
+    try {
+      File indexFile = DiskCache.getFileStandardPolicy(filename + CompressedRandomAccessFile.INDEX_SUFFIX);
+      ucar.unidata.io.RandomAccessFile raf = CompressedRandomAccessFile.open(filename, indexFile, buffer_size);
+      if (debugCompress) log.info("opened compressed {} in place, index {}", filename, indexFile);
+      return raf;
+
+    } catch (IOException e) {
+      log.warn("Failed to read {} in place, err= {}; uncompress it instead.", filename, e.getMessage());
+      return null;
+    }
+  }
+
   static private String makeUncompressed(String filename) throws Exception {
     // see if its a compressed file
     int pos = filename.lastIndexOf('.');
@@ -860,6 +995,7 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
 
     IOServiceProvider spi = null;
     if (debugSPI) log.info("NetcdfFile try to open = {}", location);
+    long start = System.nanoTime();
 
     // avoid opening file more than once, so pass around the raf.
     if (N3header.isValidFile(raf)) {
@@ -869,42 +1005,24 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
       // spi = new ucar.nc2.iosp.hdf5.H5iosp();
 
     } else {
-
-      // look for dynamically loaded IOSPs
-      for (IOServiceProvider currentSpi : ServiceLoader.load(IOServiceProvider.class)) {
-        if (currentSpi.isValidFile(raf)) {
-          Class c = currentSpi.getClass();
-          try {
-            spi = (IOServiceProvider) c.newInstance();
-          } catch (InstantiationException e) {
-            throw new IOException("IOServiceProvider " + c.getName() + "must have no-arg constructor."); // shouldnt happen
-          } catch (IllegalAccessException e) {
-            throw new IOException("IOServiceProvider " + c.getName() + " IllegalAccessException: " + e.getMessage()); // shouldnt happen
-          }
-          break;
-        }
-      }
-
-      // look for registered providers
-      for (IOServiceProvider registeredSpi : registeredProviders) {
-        if (debugSPI) log.info(" try iosp = {}", registeredSpi.getClass().getName());
-
-        if (registeredSpi.isValidFile(raf)) {
-          // need a new instance for thread safety
-          Class c = registeredSpi.getClass();
-          try {
-            spi = (IOServiceProvider) c.newInstance();
-          } catch (InstantiationException e) {
-            throw new IOException("IOServiceProvider " + c.getName() + "must have no-arg constructor."); // shouldnt happen
-          } catch (IllegalAccessException e) {
-            throw new IOException("IOServiceProvider " + c.getName() + " IllegalAccessException: " + e.getMessage()); // shouldnt happen
-          }
-          break;
+      IOServiceProvider validSpi = findServiceProvider(raf);
+      if (validSpi != null) {
+        // need a new instance for thread safety
+        Class c = validSpi.getClass();
+        try {
+          spi = (IOServiceProvider) c.newInstance();
+        } catch (InstantiationException e) {
+          throw new IOException("IOServiceProvider " + c.getName() + "must have no-arg constructor."); // shouldnt happen
+        } catch (IllegalAccessException e) {
+          throw new IOException("IOServiceProvider " + c.getName() + " IllegalAccessException: " + e.getMessage()); // shouldnt happen
         }
       }
     }
 
+    detectCount.increment();
+    detectNanos.add(System.nanoTime() - start);
     if (spi == null) {
+      detectUnknown.increment();
       raf.close();
       throw new IOException("Cant read " + location + ": not a valid CDM file.");
     }
@@ -1881,6 +1999,10 @@ public class NetcdfFile implements ucar.nc2.util.cache.FileCacheable, Closeable
    *                Special:<ul>
    *                <li>NetcdfFile.IOSP_MESSAGE_ADD_RECORD_STRUCTURE : tells Netcdf-3 files to make record (unlimited) variables into a structure.
    *                return true if it has a Nectdf-3 record structure
+   *                <li>NetcdfFile.IOSP_MESSAGE_CONCURRENT_READS : let several threads read data at the same time.
+   *                return true if the IOSP supports it for this file
+   *                <li>NetcdfFile.IOSP_MESSAGE_OFF_HEAP_ARRAYS : read numeric data into ArrayDirect.
+   *                return true if the IOSP supports it
    *                </ul>
    * @return iosp specific return, may be null
    */
@@ -38,6 +38,7 @@ import ucar.nc2.iosp.IOServiceProviderWriter;
 import ucar.nc2.iosp.hdf5.H5header;
 import ucar.nc2.iosp.netcdf3.N3header;
 import ucar.nc2.iosp.netcdf3.N3iosp;
+import ucar.nc2.iosp.netcdf3.N3outputStreamIosp;
 import ucar.nc2.iosp.netcdf3.N3raf;
 import ucar.nc2.write.Nc4Chunking;
 
@@ -45,6 +46,7 @@ import javax.annotation.Nonnull;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.util.*;
@@ -150,6 +152,19 @@ public class NetcdfFileWriter implements Closeable {
     return new NetcdfFileWriter(version, location, false, chunker);
   }
 
+  /**
+   * Create a new netcdf-3 file that is written to a stream as it is made, eg an HTTP response, instead of to disk.
+   * The variables must all be written whole, and no record dimension or large file format is allowed.
+   * See N3outputStreamIosp.
+   *
+   * @param out      write the file to this stream, which is flushed but not closed by close()
+   * @param location name of the file, only used as the location of the NetcdfFile
+   * @return new NetcdfFileWriter
+   */
+  static public NetcdfFileWriter createNewStream(OutputStream out, String location) {
+    return new NetcdfFileWriter(location, new N3outputStreamIosp(out));
+  }
+
   ////////////////////////////////////////////////////////////////////////////////
   private final String location;
   private IOServiceProviderWriter spiw;
@@ -237,6 +252,16 @@ public class NetcdfFileWriter implements Closeable {
       defineMode = true;
   }
 
+  // a new netcdf-3 file written by the given iosp
+  private NetcdfFileWriter(String location, IOServiceProviderWriter spiw) {
+    this.version = Version.netcdf3;
+    this.location = location;
+    this.spiw = spiw;
+    this.isNewFile = true;
+    this.ncfile = new NetcdfFile(spiw, location);  // package private
+    this.defineMode = true;
+  }
+
   /**
    * Set the fill flag: call before calling create() or doing any data writing. Only used by netcdf-3 (?).
    * If true, the data is first written with fill values.
@@ -1627,7 +1627,7 @@ public class Variable extends CDMNode implements VariableIF, ProxyReader, Attrib
    * Public by accident.
    */
   static protected class Cache {
-    public Array data;
+    public volatile Array data; // volatile for concurrent reads
     public boolean isCaching = false;
     public boolean cachingSet = false;
 
@@ -165,7 +165,7 @@ public class DatasetUrl {
       //  - we have file://<path> or file:<path>; we need to see if
       //    the extension can help, otherwise, start defaulting.
       //  - we have a simple url: e.g. http://... ; contact the server
-      if (leadprotocol.equals("file")) {
+      if (leadprotocol.equals("file") || leadprotocol.equals("mmap")) {  // mmap: is a memory mapped local file
         svctype = decodePathExtension(trueurl); // look at the path extension
       } else {
         svctype = disambiguateHttp(trueurl);
@@ -41,6 +41,7 @@ import ucar.nc2.iosp.netcdf3.N3iosp;
 import ucar.nc2.util.Misc;
 
 import java.util.EnumSet;
+import java.util.stream.IntStream;
 
 /**
  * Implementation of EnhanceScaleMissing for missing data, unsigned, and scale/offset packed data.
@@ -663,6 +664,13 @@ class EnhanceScaleMissingImpl implements EnhanceScaleMissing {
     if (debugRead) System.out.println("convertScaleOffset ");
 
     Array out = Array.factory(convertedDataType, in.getShape());
+    if (!convertScaleOffsetFast(in, out))
+      convertScaleOffsetIterator(in, out);
+    return out;
+  }
+
+  // any data type and layout
+  void convertScaleOffsetIterator(Array in, Array out) {
     IndexIterator iterIn = in.getIndexIterator();
     IndexIterator iterOut = out.getIndexIterator();
 
@@ -679,8 +687,6 @@ class EnhanceScaleMissingImpl implements EnhanceScaleMissing {
         iterOut.setDoubleNext(checkMissing && isMissing_(val) ? Double.NaN : val);
       }
     }
-
-    return out;
   }
 
   private void convertScaleOffsetUnsignedByte(IndexIterator iterIn, IndexIterator iterOut) {
@@ -710,6 +716,142 @@ class EnhanceScaleMissingImpl implements EnhanceScaleMissing {
     }
   }
 
+  //////////////////////////////////////////////////////////////////////////////
+  // byte, short and int data unpacked to float or double, looping directly over the java arrays
+  // so that the JIT can vectorize the scale and offset. Missing values are found in a second pass over each block.
+
+  static private final int BLOCK_SIZE = 4096; // block of the output that stays in cache between the two passes
+
+  boolean convertScaleOffsetFast(Array in, Array out) {
+    Class inType = in.getElementType();
+    if (inType != byte.class && inType != short.class && inType != int.class)
+      return false;
+    if (convertedDataType != DataType.FLOAT && convertedDataType != DataType.DOUBLE)
+      return false;
+
+    Object inStorage = in.get1DJavaArray(in.getDataType()); // copies only if not contiguous
+    Object outStorage = out.getStorage();
+    boolean unsigned = isUnsigned || in.isUnsigned();
+    boolean checkMissing = useNaNs && hasMissing();
+    int n = (int) in.getSize();
+    boolean[] missingTable = checkMissing ? makeMissingTable(inType, unsigned, n) : null;
+
+    int parallelSize = NetcdfDataset.parallelConvertSize;
+    if (parallelSize > 0 && n >= parallelSize) {
+      int nblocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+      IntStream.range(0, nblocks).parallel().forEach(b ->
+              convertRange(inStorage, outStorage, unsigned, checkMissing, missingTable, b * BLOCK_SIZE, Math.min(n, (b + 1) * BLOCK_SIZE)));
+    } else {
+      for (int start = 0; start < n; start += BLOCK_SIZE)
+        convertRange(inStorage, outStorage, unsigned, checkMissing, missingTable, start, Math.min(n, start + BLOCK_SIZE));
+    }
+    return true;
+  }
+
+  // isMissing_() of every byte value, or of every short value if there are enough of them
+  private boolean[] makeMissingTable(Class inType, boolean unsigned, int n) {
+    int size;
+    if (inType == byte.class) size = 256;
+    else if (inType == short.class && n >= 65536) size = 65536;
+    else return null;
+
+    boolean[] table = new boolean[size];
+    for (int k = 0; k < size; k++) {
+      long raw = unsigned ? k : (size == 256 ? (byte) k : (short) k);
+      table[k] = isMissing_(scale * raw + offset);
+    }
+    return table;
+  }
+
+  private void convertRange(Object in, Object out, boolean unsigned, boolean checkMissing, boolean[] missingTable, int start, int end) {
+    float[] outf = (out instanceof float[]) ? (float[]) out : null;
+    double[] outd = (out instanceof double[]) ? (double[]) out : null;
+
+    if (in instanceof byte[]) {
+      byte[] inb = (byte[]) in;
+      if (outf != null) scaleOffset(inb, outf, unsigned, start, end);
+      else scaleOffset(inb, outd, unsigned, start, end);
+      if (checkMissing) {
+        for (int i = start; i < end; i++)
+          if (missingTable[inb[i] & 0xff]) setNaN(outf, outd, i);
+      }
+
+    } else if (in instanceof short[]) {
+      short[] ins = (short[]) in;
+      if (outf != null) scaleOffset(ins, outf, unsigned, start, end);
+      else scaleOffset(ins, outd, unsigned, start, end);
+      if (checkMissing) {
+        for (int i = start; i < end; i++) {
+          boolean missing = (missingTable != null) ? missingTable[ins[i] & 0xffff] :
+                  isMissing_(scale * (unsigned ? ins[i] & 0xffff : ins[i]) + offset);
+          if (missing) setNaN(outf, outd, i);
+        }
+      }
+
+    } else {
+      int[] ini = (int[]) in;
+      if (outf != null) scaleOffset(ini, outf, unsigned, start, end);
+      else scaleOffset(ini, outd, unsigned, start, end);
+      if (checkMissing) {
+        for (int i = start; i < end; i++)
+          if (isMissing_(scale * (unsigned ? ini[i] & 0xffffffffL : ini[i]) + offset)) setNaN(outf, outd, i);
+      }
+    }
+  }
+
+  private static void setNaN(float[] outf, double[] outd, int i) {
+    if (outf != null) outf[i] = Float.NaN;
+    else outd[i] = Double.NaN;
+  }
+
+  private void scaleOffset(byte[] in, float[] out, boolean unsigned, int start, int end) {
+    double scale = this.scale, offset = this.offset;
+    if (unsigned)
+      for (int i = start; i < end; i++) out[i] = (float) (scale * (in[i] & 0xff) + offset);
+    else
+      for (int i = start; i < end; i++) out[i] = (float) (scale * in[i] + offset);
+  }
+
+  private void scaleOffset(byte[] in, double[] out, boolean unsigned, int start, int end) {
+    double scale = this.scale, offset = this.offset;
+    if (unsigned)
+      for (int i = start; i < end; i++) out[i] = scale * (in[i] & 0xff) + offset;
+    else
+      for (int i = start; i < end; i++) out[i] = scale * in[i] + offset;
+  }
+
+  private void scaleOffset(short[] in, float[] out, boolean unsigned, int start, int end) {
+    double scale = this.scale, offset = this.offset;
+    if (unsigned)
+      for (int i = start; i < end; i++) out[i] = (float) (scale * (in[i] & 0xffff) + offset);
+    else
+      for (int i = start; i < end; i++) out[i] = (float) (scale * in[i] + offset);
+  }
+
+  private void scaleOffset(short[] in, double[] out, boolean unsigned, int start, int end) {
+    double scale = this.scale, offset = this.offset;
+    if (unsigned)
+      for (int i = start; i < end; i++) out[i] = scale * (in[i] & 0xffff) + offset;
+    else
+      for (int i = start; i < end; i++) out[i] = scale * in[i] + offset;
+  }
+
+  private void scaleOffset(int[] in, float[] out, boolean unsigned, int start, int end) {
+    double scale = this.scale, offset = this.offset;
+    if (unsigned)
+      for (int i = start; i < end; i++) out[i] = (float) (scale * (in[i] & 0xffffffffL) + offset);
+    else
+      for (int i = start; i < end; i++) out[i] = (float) (scale * in[i] + offset);
+  }
+
+  private void scaleOffset(int[] in, double[] out, boolean unsigned, int start, int end) {
+    double scale = this.scale, offset = this.offset;
+    if (unsigned)
+      for (int i = start; i < end; i++) out[i] = scale * (in[i] & 0xffffffffL) + offset;
+    else
+      for (int i = start; i < end; i++) out[i] = scale * in[i] + offset;
+  }
+
   /**
    * Translate missing data to NaNs. Data must be DOUBLE or FLOAT
    *
@@ -47,6 +47,8 @@ import ucar.nc2.stream.CdmRemote;
 import ucar.nc2.util.CancelTask;
 import ucar.nc2.util.CancelTaskImpl;
 import ucar.nc2.util.cache.FileCache;
+import ucar.nc2.util.cache.FileCacheIF;
+import ucar.nc2.util.cache.FileCacheStriped;
 import ucar.nc2.util.cache.FileFactory;
 
 import java.io.IOException;
@@ -259,10 +261,30 @@ public class NetcdfDataset extends ucar.nc2.NetcdfFile {
     return missingDataIsMissing;
   }
 
+  static protected int parallelConvertSize = 0;
+
+  /**
+   * Set the number of elements above which packed data is unpacked by several threads of the common ForkJoinPool.
+   *
+   * @param nelems minimum number of elements, 0 means always use the calling thread (default)
+   */
+  static public void setParallelConvertSize(int nelems) {
+    parallelConvertSize = nelems;
+  }
+
+  /**
+   * Get the number of elements above which packed data is unpacked by several threads.
+   *
+   * @return minimum number of elements, 0 if unpacking is never split
+   */
+  static public int getParallelConvertSize() {
+    return parallelConvertSize;
+  }
+
   ////////////////////////////////////////////////////////////////////////////////////
   // NetcdfFile caching
 
-  static private ucar.nc2.util.cache.FileCache netcdfFileCache = null;
+  static private ucar.nc2.util.cache.FileCacheIF netcdfFileCache = null;
   static private ucar.nc2.util.cache.FileFactory defaultNetcdfFileFactory = new MyNetcdfFileFactory();
 
   // no state, so a singleton is ok
@@ -300,6 +322,17 @@ public class NetcdfDataset extends ucar.nc2.NetcdfFile {
                                                         hardLimit, period);
   }
 
+  /**
+   * Use this FileCacheIF for file caching, eg a FileCacheStriped. call this before calling acquireFile().
+   * When application terminates, call NetcdfDataset.shutdown().
+   *
+   * @param fileCache use this cache; if null, disable caching.
+   */
+  static public synchronized void setNetcdfFileCache(ucar.nc2.util.cache.FileCacheIF fileCache) {
+    disableNetcdfFileCache();
+    netcdfFileCache = fileCache;
+  }
+
   static public synchronized void disableNetcdfFileCache() {
     if (null != netcdfFileCache) netcdfFileCache.disable();
     netcdfFileCache = null;
@@ -312,6 +345,7 @@ public class NetcdfDataset extends ucar.nc2.NetcdfFile {
   static public synchronized void shutdown() {
     disableNetcdfFileCache();
     FileCache.shutdown();
+    FileCacheStriped.shutdown();
   }
 
   /**
@@ -657,7 +691,7 @@ public class NetcdfDataset extends ucar.nc2.NetcdfFile {
    * @return NetcdfFile object
    * @throws java.io.IOException on read error
    *
-  static private NetcdfFile openOrAcquireFile(FileCache cache, FileFactory factory, Object hashKey, String orgLocation,
+  static private NetcdfFile openOrAcquireFile(FileCacheIF cache, FileFactory factory, Object hashKey, String orgLocation,
                                               int buffer_size, ucar.nc2.util.CancelTask cancelTask, Object spiObject) throws IOException {
 
     if (orgLocation == null)
@@ -668,7 +702,7 @@ public class NetcdfDataset extends ucar.nc2.NetcdfFile {
     return openOrAcquireFile(cache, factory, hashKey, durl, buffer_size, cancelTask, spiObject);
   } */
 
-  static private NetcdfFile openOrAcquireFile(FileCache cache, FileFactory factory, Object hashKey, DatasetUrl durl,
+  static private NetcdfFile openOrAcquireFile(FileCacheIF cache, FileFactory factory, Object hashKey, DatasetUrl durl,
                                               int buffer_size, ucar.nc2.util.CancelTask cancelTask, Object spiObject) throws IOException {
 
     if (durl.serviceType != null) {
@@ -722,7 +756,7 @@ public class NetcdfDataset extends ucar.nc2.NetcdfFile {
    */
   static private final String DAP4_PATH = "dap4.cdm.nc2";
 
-  static private NetcdfFile acquireDODS(FileCache cache, FileFactory factory, Object hashKey,
+  static private NetcdfFile acquireDODS(FileCacheIF cache, FileFactory factory, Object hashKey,
                                         String location, int buffer_size, ucar.nc2.util.CancelTask cancelTask, Object spiObject) throws IOException {
     if (cache == null) {
       return openDodsByReflection(location, cancelTask);
@@ -732,7 +766,7 @@ public class NetcdfDataset extends ucar.nc2.NetcdfFile {
     return (NetcdfFile) cache.acquire(factory, hashKey, new DatasetUrl(ServiceType.OPENDAP, location), buffer_size, cancelTask, spiObject);
   }
 
-  static private NetcdfFile acquireDap4(FileCache cache,
+  static private NetcdfFile acquireDap4(FileCacheIF cache,
                                         FileFactory factory,
                                         Object hashKey,
                                         String location,
@@ -826,7 +860,7 @@ public class NetcdfDataset extends ucar.nc2.NetcdfFile {
 
   ////////////////////////////////////////////////////////////////////////////////////
 
-  static private NetcdfFile acquireNcml(FileCache cache, FileFactory factory, Object hashKey,
+  static private NetcdfFile acquireNcml(FileCacheIF cache, FileFactory factory, Object hashKey,
                                         String location, int buffer_size, ucar.nc2.util.CancelTask cancelTask, Object spiObject) throws IOException {
     if (cache == null) return NcMLReader.readNcML(location, cancelTask);
 
@@ -840,7 +874,7 @@ public class NetcdfDataset extends ucar.nc2.NetcdfFile {
     }
   }
 
-  static private NetcdfFile acquireCdmRemote(FileCache cache, FileFactory factory, Object hashKey,
+  static private NetcdfFile acquireCdmRemote(FileCacheIF cache, FileFactory factory, Object hashKey,
                                              String location, int buffer_size, ucar.nc2.util.CancelTask cancelTask, Object spiObject) throws IOException {
     if (cache == null) return new CdmRemote(location);
 
@@ -37,6 +37,7 @@ import java.util.List;
 
 import ucar.nc2.VariableSimpleIF;
 import ucar.nc2.ft.point.StationFeature;
+import ucar.nc2.ft.point.StationHelper;
 import ucar.nc2.time.CalendarDateRange;
 import ucar.unidata.geoloc.LatLonRect;
 
@@ -52,6 +53,33 @@ public interface StationTimeSeriesFeatureCollection extends PointFeatureCC, Iter
   List<StationFeature> getStationFeatures( ucar.unidata.geoloc.LatLonRect boundingBox) throws IOException;
 
   StationFeature findStationFeature(String name);
+
+  /**
+   * Find the station closest to a point, by great circle distance.
+   * The default scans getStationFeatures(); implementations with a spatial index should override.
+   *
+   * @param pt the point
+   * @return the closest station, or null if there are none with a location
+   * @throws IOException on read error
+   */
+  default StationFeature findClosestStationFeature(ucar.unidata.geoloc.LatLonPoint pt) throws IOException {
+    List<StationFeature> closest = findClosestStationFeatures(pt, 1);
+    return closest.isEmpty() ? null : closest.get(0);
+  }
+
+  /**
+   * Find the k stations closest to a point, by great circle distance.
+   * The default scans getStationFeatures(); implementations with a spatial index should override.
+   *
+   * @param pt the point
+   * @param k  number of stations wanted
+   * @return the k closest stations, or all if there are fewer, closest first
+   * @throws IOException on read error
+   */
+  default List<StationFeature> findClosestStationFeatures(ucar.unidata.geoloc.LatLonPoint pt, int k) throws IOException {
+    return StationHelper.findClosestStations(getStationFeatures(), pt, k);
+  }
+
   StationTimeSeriesFeature getStationTimeSeriesFeature(StationFeature s) throws IOException;
 
   // subsetting
@@ -32,12 +32,15 @@
  */
 package ucar.nc2.ft.point;
 
+import ucar.unidata.geoloc.LatLonPoint;
 import ucar.unidata.geoloc.LatLonPointImpl;
 import ucar.unidata.geoloc.LatLonRect;
 import ucar.unidata.geoloc.Station;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,12 +48,14 @@ import java.util.Map;
 /**
  * Helper class for Station Collections.
  * This assumes that calling getData( Station s) is cheap, ie that theres no cheaper filtering to do.
+ * Bounding box and closest station queries use a StationIndex, built on first use.
  * @author caron
  * @since Feb 5, 2008
  */
 public class StationHelper {
   private List<StationFeature> stations;
   private Map<String, StationFeature> stationHash;
+  private volatile StationIndex index;
   private static final boolean debug = false;
 
   public StationHelper() {
@@ -61,11 +66,26 @@ public class StationHelper {
   public void addStation( StationFeature s) {
     stations.add(s);
     stationHash.put(s.getName(), s);
+    index = null;
+  }
+
+  // Double-check idiom for lazy initialization of instance fields. See Effective Java 2nd Ed, p. 283.
+  private StationIndex getIndex() {
+    StationIndex result = index;
+    if (result == null) {
+      synchronized (this) {
+        result = index;
+        if (result == null)
+          index = result = new StationIndex(stations);
+      }
+    }
+    return result;
   }
 
   public void setStations( List<StationFeature> nstations) {
     stations = new ArrayList<>();
     stationHash = new HashMap<>();
+    index = null;
     for (StationFeature s : nstations)
       addStation(s);
   }
@@ -112,27 +132,67 @@ public class StationHelper {
 
   public List<Station> getStations(LatLonRect boundingBox) throws IOException {
     if (boundingBox == null) return getStations();
-    
-    LatLonPointImpl latlonPt = new LatLonPointImpl();
-    List<Station> result = new ArrayList<>();
-    for (StationFeature s : stations) {
-      latlonPt.set(s.getLatitude(), s.getLongitude());
-      if (boundingBox.contains(latlonPt))
-        result.add(s);
-    }
-    return result;
+    return new ArrayList<>(getIndex().findStations(boundingBox));
   }
 
   public List<StationFeature> getStationFeatures(LatLonRect boundingBox) throws IOException {
     if (boundingBox == null) return stations;
+    return getIndex().findStations(boundingBox);
+  }
 
-    LatLonPointImpl latlonPt = new LatLonPointImpl();
-    List<StationFeature> result = new ArrayList<>();
-    for (StationFeature s : stations) {
-      latlonPt.set(s.getLatitude(), s.getLongitude());
-      if (boundingBox.contains(latlonPt))
-        result.add(s);
+  /**
+   * Find the station closest to a point, by great circle distance.
+   *
+   * @param pt the point
+   * @return the closest station, or null if no station has a location
+   */
+  public StationFeature findClosestStation(LatLonPoint pt) {
+    return getIndex().findClosestStation(pt.getLatitude(), pt.getLongitude());
+  }
+
+  /**
+   * Find the k stations closest to a point, by great circle distance.
+   *
+   * @param pt the point
+   * @param k  number of stations wanted
+   * @return the k closest stations, or all if there are fewer, closest first
+   */
+  public List<StationFeature> findClosestStations(LatLonPoint pt, int k) {
+    return getIndex().findClosestStations(pt.getLatitude(), pt.getLongitude(), k);
+  }
+
+  /**
+   * Find the k stations of a list closest to a point, by great circle distance, with a scan of the list.
+   * For collections that dont have a StationHelper; findClosestStations(pt, k) uses the index instead.
+   *
+   * @param stations the stations to search
+   * @param pt       the point
+   * @param k        number of stations wanted
+   * @return the k closest stations that have a location, or all if there are fewer, closest first
+   */
+  static public List<StationFeature> findClosestStations(List<StationFeature> stations, LatLonPoint pt, int k) {
+    List<StationFeature> located = new ArrayList<>(stations.size());
+    for (StationFeature s : stations)
+      if (!Double.isNaN(s.getLatitude()) && !Double.isNaN(s.getLongitude())) located.add(s);
+
+    // compare the haversine sin^2(d/2), which increases with the great circle distance d
+    double qlat = pt.getLatitude(), qlon = pt.getLongitude();
+    double cosQ = Math.cos(Math.toRadians(qlat));
+    double[] dist = new double[located.size()];
+    Integer[] order = new Integer[located.size()];
+    for (int i = 0; i < located.size(); i++) {
+      StationFeature s = located.get(i);
+      double sinLat = Math.sin(Math.toRadians(s.getLatitude() - qlat) / 2);
+      double sinLon = Math.sin(Math.toRadians(s.getLongitude() - qlon) / 2);
+      dist[i] = sinLat * sinLat + cosQ * Math.cos(Math.toRadians(s.getLatitude())) * sinLon * sinLon;
+      order[i] = i;
     }
+    Arrays.sort(order, Comparator.comparingDouble(i -> dist[i])); // stable, so ties stay in list order
+
+    int n = Math.max(0, Math.min(k, order.length));
+    List<StationFeature> result = new ArrayList<>(n);
+    for (int i = 0; i < n; i++)
+      result.add(located.get(order[i]));
     return result;
   }
 
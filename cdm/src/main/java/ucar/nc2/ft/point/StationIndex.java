@@ -0,0 +1,339 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.ft.point;
+
+import ucar.unidata.geoloc.LatLonPointImpl;
+import ucar.unidata.geoloc.LatLonRect;
+
+import java.util.*;
+
+/**
+ * A k-d tree over the station locations, for bounding box, nearest and k-nearest station queries.
+ * Built once and never changed, so it may be shared by threads.
+ * <p/>
+ * The tree is packed into arrays: each subtree is a contiguous range, with its splitting station in the middle,
+ * splitting on latitude and longitude in turn. Locations are normalized as in LatLonPointImpl, so bounding boxes
+ * find exactly the stations whose LatLonPointImpl the LatLonRect contains.
+ * Nearest means the shortest great circle distance, which wraps across the date line and over the poles.
+ * Stations with a missing (NaN) latitude or longitude are kept after the tree, and are never nearest;
+ * bounding boxes check them one by one, since LatLonRect.contains() may still be true for them.
+ *
+ * @since 10/18/2026
+ */
+class StationIndex {
+  private final int ntree; // number of stations in the tree; those with a missing location follow
+  private final StationFeature[] stations; // in tree order
+  private final int[] position;  // position of each station in the original list, in tree order
+  private final double[] lat, lon;  // degrees, in tree order
+  private final double[] cosLat;
+
+  /**
+   * Constructor.
+   *
+   * @param list the stations
+   */
+  StationIndex(List<StationFeature> list) {
+    double[] lats = new double[list.size()];
+    double[] lons = new double[list.size()];
+    int[] perm = new int[list.size()];
+    int n = 0;
+    for (int i = 0; i < list.size(); i++) {
+      StationFeature s = list.get(i);
+      lats[i] = LatLonPointImpl.latNormal(s.getLatitude());
+      lons[i] = LatLonPointImpl.lonNormal(s.getLongitude());
+      if (!Double.isNaN(lats[i]) && !Double.isNaN(lons[i]))
+        perm[n++] = i;
+    }
+    ntree = n;
+    for (int i = 0; i < list.size(); i++) {
+      if (Double.isNaN(lats[i]) || Double.isNaN(lons[i]))
+        perm[n++] = i;
+    }
+
+    build(perm, lats, lons, 0, ntree, 0);
+
+    stations = new StationFeature[n];
+    position = new int[n];
+    lat = new double[n];
+    lon = new double[n];
+    cosLat = new double[n];
+    for (int k = 0; k < n; k++) {
+      int i = perm[k];
+      stations[k] = list.get(i);
+      position[k] = i;
+      lat[k] = lats[i];
+      lon[k] = lons[i];
+      cosLat[k] = Math.cos(Math.toRadians(lats[i]));
+    }
+  }
+
+  // even depths split on latitude, odd on longitude
+  static private void build(int[] perm, double[] lats, double[] lons, int lo, int hi, int depth) {
+    if (hi - lo < 2) return;
+    int mid = (lo + hi) >>> 1;
+    select(perm, (depth % 2 == 0) ? lats : lons, lo, hi - 1, mid);
+    build(perm, lats, lons, lo, mid, depth + 1);
+    build(perm, lats, lons, mid + 1, hi, depth + 1);
+  }
+
+  // partially sort perm[lo..hi] (inclusive) so that perm[k] has the kth smallest key, with no larger keys before it
+  // and no smaller keys after it
+  static private void select(int[] perm, double[] key, int lo, int hi, int k) {
+    while (lo < hi) {
+      double pivot = key[perm[(lo + hi) >>> 1]];
+      int i = lo, j = hi;
+      while (i <= j) {
+        while (key[perm[i]] < pivot) i++;
+        while (key[perm[j]] > pivot) j--;
+        if (i <= j) {
+          int tmp = perm[i];
+          perm[i++] = perm[j];
+          perm[j--] = tmp;
+        }
+      }
+      if (k <= j) hi = j;
+      else if (k >= i) lo = i;
+      else return;
+    }
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////
+  // bounding box
+
+  /**
+   * Find the stations inside a bounding box.
+   *
+   * @param bb the bounding box
+   * @return the stations inside bb, in the order of the original list
+   */
+  List<StationFeature> findStations(LatLonRect bb) {
+    double eps = 1.0e-6; // looser than contains(), which is checked at the end
+    double latMin = bb.getLowerLeftPoint().getLatitude() - eps;
+    double latMax = bb.getUpperRightPoint().getLatitude() + eps;
+    double lonMin = bb.getLowerLeftPoint().getLongitude() - eps;
+    double lonMax = bb.getUpperRightPoint().getLongitude() + eps;
+
+    List<Integer> found = new ArrayList<>();
+    if (bb.getWidth() >= 360.0) {
+      findStations(0, ntree, 0, latMin, latMax, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, found);
+    } else if (bb.crossDateline()) {
+      findStations(0, ntree, 0, latMin, latMax, lonMin, Double.POSITIVE_INFINITY, found);
+      findStations(0, ntree, 0, latMin, latMax, Double.NEGATIVE_INFINITY, lonMax, found);
+    } else {
+      findStations(0, ntree, 0, latMin, latMax, lonMin, lonMax, found);
+    }
+    for (int k = ntree; k < stations.length; k++)
+      found.add(k);
+
+    found.sort((a, b) -> Integer.compare(position[a], position[b]));
+    List<StationFeature> result = new ArrayList<>(found.size());
+    int last = -1;
+    for (int k : found) {
+      if (k == last) continue; // found in both halves of a box across the date line
+      last = k;
+      if (bb.contains(lat[k], lon[k]))
+        result.add(stations[k]);
+    }
+    return result;
+  }
+
+  private void findStations(int lo, int hi, int depth, double latMin, double latMax, double lonMin, double lonMax,
+                            List<Integer> found) {
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (lat[mid] >= latMin && lat[mid] <= latMax && lon[mid] >= lonMin && lon[mid] <= lonMax)
+        found.add(mid);
+
+      double key = (depth % 2 == 0) ? lat[mid] : lon[mid];
+      double min = (depth % 2 == 0) ? latMin : lonMin;
+      double max = (depth % 2 == 0) ? latMax : lonMax;
+      depth++;
+      boolean left = (min <= key), right = (key <= max);
+      if (left && right) {
+        findStations(lo, mid, depth, latMin, latMax, lonMin, lonMax, found);
+        lo = mid + 1;
+      } else if (left) {
+        hi = mid;
+      } else if (right) {
+        lo = mid + 1;
+      } else {
+        return;
+      }
+    }
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////
+  // nearest
+
+  /**
+   * Find the station closest to a point.
+   *
+   * @param latitude  of the point
+   * @param longitude of the point
+   * @return the closest station, or null if the index is empty. Of equally close stations, the first in the original list.
+   */
+  StationFeature findClosestStation(double latitude, double longitude) {
+    List<StationFeature> result = findClosestStations(latitude, longitude, 1);
+    return result.isEmpty() ? null : result.get(0);
+  }
+
+  /**
+   * Find the k stations closest to a point.
+   *
+   * @param latitude  of the point
+   * @param longitude of the point
+   * @param k         number of stations wanted
+   * @return the k closest stations, or all if there are fewer, closest first
+   */
+  List<StationFeature> findClosestStations(double latitude, double longitude, int k) {
+    if (k <= 0 || ntree == 0) return new ArrayList<>();
+    Nearest nearest = new Nearest(latitude, longitude, k);
+    nearest.search(0, ntree, 0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    return nearest.result();
+  }
+
+  // A search for the k closest stations.
+  // Distances are compared as the haversine sin^2(d/2), which increases with the great circle distance d.
+  private class Nearest {
+    private final double qlat, qlon, cosQ;
+    private final int k;
+    private final PriorityQueue<Candidate> best; // the k closest so far, the farthest at the head
+
+    Nearest(double qlat, double qlon, int k) {
+      this.qlat = qlat;
+      this.qlon = qlon;
+      this.cosQ = Math.cos(Math.toRadians(qlat));
+      this.k = k;
+      this.best = new PriorityQueue<>(k, Collections.reverseOrder());
+    }
+
+    private double haversine(int s) {
+      double sinLat = Math.sin(Math.toRadians(lat[s] - qlat) / 2);
+      double sinLon = Math.sin(Math.toRadians(lon[s] - qlon) / 2);
+      return sinLat * sinLat + cosQ * cosLat[s] * sinLon * sinLon;
+    }
+
+    private void offer(int s) {
+      Candidate c = new Candidate(s, haversine(s));
+      if (best.size() < k) {
+        best.add(c);
+      } else if (c.compareTo(best.peek()) < 0) {
+        best.poll();
+        best.add(c);
+      }
+    }
+
+    // the cell [latLo, latHi] x [lonLo, lonHi] holds the stations lo to hi
+    void search(int lo, int hi, int depth, double latLo, double latHi, double lonLo, double lonHi) {
+      if (lo >= hi) return;
+      if (best.size() == k && lowerBound(latLo, latHi, lonLo, lonHi) > best.peek().dist)
+        return; // nothing in this cell can be closer
+
+      int mid = (lo + hi) >>> 1;
+      offer(mid);
+      if (depth % 2 == 0) {
+        double split = lat[mid];
+        if (qlat < split) {
+          search(lo, mid, depth + 1, latLo, split, lonLo, lonHi);
+          search(mid + 1, hi, depth + 1, split, latHi, lonLo, lonHi);
+        } else {
+          search(mid + 1, hi, depth + 1, split, latHi, lonLo, lonHi);
+          search(lo, mid, depth + 1, latLo, split, lonLo, lonHi);
+        }
+      } else {
+        double split = lon[mid];
+        if (LatLonPointImpl.lonNormal(qlon, split) < split) {
+          search(lo, mid, depth + 1, latLo, latHi, lonLo, split);
+          search(mid + 1, hi, depth + 1, latLo, latHi, split, lonHi);
+        } else {
+          search(mid + 1, hi, depth + 1, latLo, latHi, split, lonHi);
+          search(lo, mid, depth + 1, latLo, latHi, lonLo, split);
+        }
+      }
+    }
+
+    // haversine of a distance no larger than that of any point in the cell
+    private double lowerBound(double latLo, double latHi, double lonLo, double lonHi) {
+      double dlat = (qlat < latLo) ? latLo - qlat : (qlat > latHi) ? qlat - latHi : 0.0;
+      double d = Math.toRadians(dlat);
+      double dlon = lonGap(lonLo, lonHi);
+      if (dlon > 0) {
+        // the closest a point can be with this difference in longitude, at any latitude
+        double dmin = (dlon >= 90.0) ? Math.toRadians(90.0 - Math.abs(qlat)) : Math.asin(cosQ * Math.sin(Math.toRadians(dlon)));
+        d = Math.max(d, dmin);
+      }
+      d = Math.max(0.0, d - 1.0e-12); // allow for rounding
+      double sin = Math.sin(d / 2);
+      return sin * sin;
+    }
+
+    // the smallest difference in longitude, either way round, between the point and [lonLo, lonHi]
+    private double lonGap(double lonLo, double lonHi) {
+      double span = lonHi - lonLo;
+      if (span >= 360.0) return 0.0; // includes infinite bounds
+      if (mod360(qlon - lonLo) <= span) return 0.0;
+      return Math.min(mod360(lonLo - qlon), mod360(qlon - lonHi));
+    }
+
+    List<StationFeature> result() {
+      List<Candidate> found = new ArrayList<>(best);
+      Collections.sort(found);
+      List<StationFeature> result = new ArrayList<>(found.size());
+      for (Candidate c : found)
+        result.add(stations[c.s]);
+      return result;
+    }
+  }
+
+  private class Candidate implements Comparable<Candidate> {
+    final int s;
+    final double dist;
+
+    Candidate(int s, double dist) {
+      this.s = s;
+      this.dist = dist;
+    }
+
+    // closer first, then by position in the original list
+    @Override
+    public int compareTo(Candidate o) {
+      int result = Double.compare(dist, o.dist);
+      return (result != 0) ? result : Integer.compare(position[s], position[o.s]);
+    }
+  }
+
+  static private double mod360(double lon) {
+    return lon - 360.0 * Math.floor(lon / 360.0);
+  }
+}
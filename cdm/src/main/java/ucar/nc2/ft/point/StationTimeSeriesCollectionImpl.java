@@ -111,6 +111,16 @@ public abstract class StationTimeSeriesCollectionImpl extends PointFeatureCCImpl
     return getStationHelper().getStation(name);
   }
 
+  @Override
+  public StationFeature findClosestStationFeature(ucar.unidata.geoloc.LatLonPoint pt) {
+    return getStationHelper().findClosestStation(pt);
+  }
+
+  @Override
+  public List<StationFeature> findClosestStationFeatures(ucar.unidata.geoloc.LatLonPoint pt, int k) {
+    return getStationHelper().findClosestStations(pt, k);
+  }
+
   @Override
   public StationTimeSeriesFeature getStationTimeSeriesFeature(StationFeature s) {
     return (StationTimeSeriesFeature) s; // LOOK
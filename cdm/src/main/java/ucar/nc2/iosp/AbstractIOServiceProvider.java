@@ -34,6 +34,7 @@
 package ucar.nc2.iosp;
 
 import ucar.ma2.Array;
+import ucar.ma2.ArrayDirect;
 import ucar.ma2.InvalidRangeException;
 import ucar.ma2.Section;
 import ucar.ma2.StructureDataIterator;
@@ -41,6 +42,7 @@ import ucar.nc2.NetcdfFile;
 import ucar.nc2.ParsedSectionSpec;
 import ucar.nc2.Structure;
 import ucar.nc2.util.CancelTask;
+import ucar.unidata.io.PositionalRandomAccessFile;
 import ucar.unidata.io.RandomAccessFile;
 import ucar.unidata.util.Format;
 
@@ -79,6 +81,7 @@ public abstract class AbstractIOServiceProvider implements IOServiceProvider {
   protected String location;
   protected int rafOrder = RandomAccessFile.BIG_ENDIAN;
   protected NetcdfFile ncfile;
+  private volatile boolean concurrentReads;
 
   @Override
   public void open( RandomAccessFile raf, NetcdfFile ncfile, CancelTask cancelTask ) throws IOException {
@@ -107,6 +110,36 @@ public abstract class AbstractIOServiceProvider implements IOServiceProvider {
     this.raf.order(rafOrder);
   }
 
+  /**
+   * Let several threads read data at the same time, see NetcdfFile.IOSP_MESSAGE_CONCURRENT_READS.
+   * Only possible when raf is a local file opened read-only.
+   * Subclasses that allow this must read data through getDataFile(), and must not change shared state while reading.
+   *
+   * @return true if concurrent reads are now enabled
+   */
+  protected boolean enableConcurrentReads() {
+    concurrentReads = PositionalRandomAccessFile.canWrap(raf);
+    return concurrentReads;
+  }
+
+  protected boolean isConcurrentReads() {
+    return concurrentReads;
+  }
+
+  /**
+   * The file to read data from, called once for each read.
+   * In concurrent read mode, this is a new PositionalRandomAccessFile on raf, with its own buffer and file pointer.
+   * Otherwise it is raf itself.
+   *
+   * @return the file to read data from
+   */
+  protected RandomAccessFile getDataFile() {
+    RandomAccessFile raf = this.raf;
+    if (!concurrentReads || !PositionalRandomAccessFile.canWrap(raf)) // eg released
+      return raf;
+    return new PositionalRandomAccessFile(raf, raf.getBufferSize());
+  }
+
   // default implementation, reads into an Array, then writes to WritableByteChannel
   // subclasses should override if possible
   // LOOK DataOutputStream uses big-endian
@@ -115,21 +148,33 @@ public abstract class AbstractIOServiceProvider implements IOServiceProvider {
           throws java.io.IOException, ucar.ma2.InvalidRangeException {
 
     Array data = readData(v2, section);
-    return IospHelper.copyToByteChannel(data,  channel);
+    try {
+      return IospHelper.copyToByteChannel(data,  channel);
+    } finally {
+      if (data instanceof ArrayDirect) ((ArrayDirect) data).close(); // nobody else sees it
+    }
   }
 
   public long readToOutputStream(ucar.nc2.Variable v2, Section section, OutputStream out)
           throws java.io.IOException, ucar.ma2.InvalidRangeException {
 
     Array data = readData(v2, section);
-    return IospHelper.copyToOutputStream(data,  out);
+    try {
+      return IospHelper.copyToOutputStream(data,  out);
+    } finally {
+      if (data instanceof ArrayDirect) ((ArrayDirect) data).close(); // nobody else sees it
+    }
   }
 
   public long streamToByteChannel(ucar.nc2.Variable v2, Section section, WritableByteChannel channel)
       throws java.io.IOException, ucar.ma2.InvalidRangeException {
 
     Array data = readData(v2, section);
-    return IospHelper.copyToByteChannel(data,  channel);
+    try {
+      return IospHelper.copyToByteChannel(data,  channel);
+    } finally {
+      if (data instanceof ArrayDirect) ((ArrayDirect) data).close(); // nobody else sees it
+    }
   }
 
   @Override
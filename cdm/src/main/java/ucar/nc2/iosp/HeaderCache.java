@@ -0,0 +1,235 @@
+/*
+ * Copyright 1998-2014 University Corporation for Atmospheric Research/Unidata
+ *
+ *   Portions of this software were developed by the Unidata Program at the
+ *   University Corporation for Atmospheric Research.
+ *
+ *   Access and use of this software shall impose the following obligations
+ *   and understandings on the user. The user is granted the right, without
+ *   any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *   this software, and any derivative works thereof, and its supporting
+ *   documentation for any purpose whatsoever, provided that this entire
+ *   notice appears in all copies of the software, derivative works and
+ *   supporting documentation.  Further, UCAR requests that the user credit
+ *   UCAR/Unidata in any publications that result from the use of this
+ *   software or in any product that includes this software. The names UCAR
+ *   and/or Unidata, however, may not be used in any advertising or publicity
+ *   to endorse or promote any products or commercial entity unless specific
+ *   written permission is obtained from UCAR/Unidata. The user also
+ *   understands that UCAR/Unidata is not obligated to provide the user with
+ *   any support, consulting, training or assistance of any kind with regard
+ *   to the use, operation and performance of this software nor to provide
+ *   the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *   THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *   IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *   WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *   DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *   INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *   FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *   NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *   WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.iosp;
+
+import ucar.nc2.util.DiskCache2;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.io.RegionRandomAccessFile;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Formatter;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An on-disk cache of the bytes that an IOSP reads while parsing a file header.
+ * The next time the file is opened, the header is parsed from the saved bytes instead of the file,
+ * so there are no scattered reads of object headers, heaps and btrees, which is most of the cost of opening
+ * a large HDF5 file on slow or networked disks.
+ * <p/>
+ * A cache file is keyed by the file location, and is only used if the file's last modified time and length
+ * are the same as when it was written. Only local files opened read-only are cached.
+ * <p/>
+ * Usage by an IOSP:
+ * <pre>
+ *   HeaderCache hc = HeaderCache.open(raf);   // null if the cache is not enabled
+ *   RandomAccessFile headerRaf = (hc == null) ? raf : hc.getRandomAccessFile();
+ *   ... parse the header using headerRaf
+ *   if (hc != null) hc.finish();
+ * </pre>
+ * Enable with HeaderCache.setDiskCache2(). Default is off.
+ *
+ * @since 10/18/2026
+ */
+public class HeaderCache {
+  static private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(HeaderCache.class);
+  static private final int MAGIC = 0x48445243; // "HDRC"
+  static private final int VERSION = 1;
+  static private final String SUFFIX = ".hdrc";
+  static private final int bufferSize = 4096;  // header reads are small and scattered
+
+  static private DiskCache2 diskCache;
+  static private final LongAdder hits = new LongAdder();
+  static private final LongAdder misses = new LongAdder();
+  static private final LongAdder writes = new LongAdder();
+
+  /**
+   * Enable the header cache, writing the cache files into the given DiskCache2.
+   * The cache files must always go into the cache directory, never next to the data files,
+   * so dc must have setAlwaysUseCache(true). It is not changed here, since it may be shared.
+   *
+   * @param dc put cache files here; null disables the cache
+   * @throws IllegalArgumentException if dc is not set to always use the cache
+   */
+  static public synchronized void setDiskCache2(DiskCache2 dc) {
+    if (dc != null && !dc.isAlwaysUseCache())
+      throw new IllegalArgumentException("HeaderCache needs a DiskCache2 with alwaysUseCache = true");
+    diskCache = dc;
+  }
+
+  static public synchronized DiskCache2 getDiskCache2() {
+    return diskCache;
+  }
+
+  /**
+   * Start parsing the header of a file.
+   *
+   * @param raf the open file
+   * @return a HeaderCache to parse the header through, or null if the cache is not enabled or raf cannot be cached
+   * @throws IOException on read error
+   */
+  static public HeaderCache open(RandomAccessFile raf) throws IOException {
+    DiskCache2 dc = getDiskCache2();
+    if (dc == null || !RegionRandomAccessFile.canWrap(raf)) return null;
+
+    String location = raf.getLocation();
+    File cacheFile = dc.getCacheFile(location + SUFFIX);
+    if (cacheFile == null) return null;
+
+    long lastModified = raf.getLastModified();
+    long length = raf.length();
+    NavigableMap<Long, byte[]> regions = readCacheFile(cacheFile, location, lastModified, length);
+    if (regions != null) {
+      hits.increment();
+    } else {
+      misses.increment();
+      regions = new TreeMap<>();
+    }
+    return new HeaderCache(cacheFile, location, lastModified, length, new RegionRandomAccessFile(raf, regions, bufferSize));
+  }
+
+  static public long getHits() {
+    return hits.sum();
+  }
+
+  static public long getMisses() {
+    return misses.sum();
+  }
+
+  static public long getWrites() {
+    return writes.sum();
+  }
+
+  static public void showStats(Formatter f) {
+    f.format("HeaderCache dir=%s hits= %d misses= %d writes= %d%n",
+            (diskCache == null) ? null : diskCache.getRootDirectory(), getHits(), getMisses(), getWrites());
+  }
+
+  // return null if the cache file doesnt exist, or is not for this version of the file
+  static private NavigableMap<Long, byte[]> readCacheFile(File cacheFile, String location, long lastModified, long length) {
+    if (!cacheFile.exists()) return null;
+
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+      if (!in.readUTF().equals(location) || in.readLong() != lastModified || in.readLong() != length) return null;
+
+      NavigableMap<Long, byte[]> regions = new TreeMap<>();
+      int n = in.readInt();
+      for (int i = 0; i < n; i++) {
+        long pos = in.readLong();
+        byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        regions.put(pos, b);
+      }
+      return regions;
+
+    } catch (IOException ioe) {
+      logger.warn("HeaderCache: failed to read " + cacheFile.getPath(), ioe);
+      return null;
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////////
+
+  private final File cacheFile;
+  private final String location;
+  private final long lastModified, length;
+  private final RegionRandomAccessFile raf;
+
+  private HeaderCache(File cacheFile, String location, long lastModified, long length, RegionRandomAccessFile raf) {
+    this.cacheFile = cacheFile;
+    this.location = location;
+    this.lastModified = lastModified;
+    this.length = length;
+    this.raf = raf;
+  }
+
+  /**
+   * Parse the header by reading from this file. Reads come from the cache if possible, else from the original file.
+   *
+   * @return file to parse the header from
+   */
+  public RandomAccessFile getRandomAccessFile() {
+    return raf;
+  }
+
+  /**
+   * Call when the header has been successfully parsed. If anything was read from the original file,
+   * the cache file is (re)written. getRandomAccessFile() is closed, so the IOSP and the objects it made while
+   * parsing must read from the original file after this.
+   */
+  public void finish() {
+    raf.close();
+    if (raf.getNumberOfMisses() == 0) return; // all came from the cache
+
+    File tmp = null;
+    try {
+      File dir = cacheFile.getParentFile();
+      tmp = File.createTempFile(cacheFile.getName(), ".tmp", dir);
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(location);
+        out.writeLong(lastModified);
+        out.writeLong(length);
+
+        NavigableMap<Long, byte[]> regions = raf.getMergedRegions();
+        out.writeInt(regions.size());
+        for (Map.Entry<Long, byte[]> entry : regions.entrySet()) {
+          out.writeLong(entry.getKey());
+          out.writeInt(entry.getValue().length);
+          out.write(entry.getValue());
+        }
+      }
+
+      // readers in other threads see the old or the new file, never a partial one
+      try {
+        Files.move(tmp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      writes.increment();
+
+    } catch (IOException ioe) {
+      logger.warn("HeaderCache: failed to write " + cacheFile.getPath(), ioe);
+      if (tmp != null && tmp.exists() && !tmp.delete())
+        logger.warn("HeaderCache: failed to delete " + tmp.getPath());
+    }
+  }
+
+}
@@ -41,6 +41,7 @@ import ucar.nc2.Structure;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.channels.WritableByteChannel;
+import java.util.List;
 
 /**
  * This is the service provider interface for the low-level I/O access classes (read only).
@@ -51,7 +52,8 @@ import java.nio.channels.WritableByteChannel;
  * <ol>
  * <li> the file is opened as a ucar.unidata.io.RandomAccessFile;</li>
  * <li> the file is handed to the isValidFile() method of each registered
- * IOServiceProvider class (until one returns true, which means it can read the file).</li>
+ * IOServiceProvider class (until one returns true, which means it can read the file).
+ * Classes whose getSignatures() dont match the start of the file are skipped.</li>
  * <li> the open() method on the resulting IOServiceProvider class is handed the file.</li>
  *
  * @see ucar.nc2.NetcdfFile#registerIOProvider(Class) ;
@@ -216,4 +218,13 @@ public interface IOServiceProvider {
    */
   String getFileTypeDescription();
 
+  /**
+   * The magic bytes that this IOServiceProvider's files start with, so NetcdfFile can skip isValidFile() for files
+   * that cant match. isValidFile() must return false for a file that matches none of them.
+   * @return signatures, or null if isValidFile() must always be called.
+   */
+  default List<IospSignature> getSignatures() {
+    return null;
+  }
+
 }
\ No newline at end of file
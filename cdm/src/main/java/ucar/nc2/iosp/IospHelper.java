@@ -33,6 +33,7 @@
 package ucar.nc2.iosp;
 
 import ucar.nc2.constants.CDM;
+import ucar.unidata.io.PositionalRandomAccessFile;
 import ucar.unidata.io.RandomAccessFile;
 import ucar.unidata.io.PositioningDataInputStream;
 import ucar.ma2.*;
@@ -43,6 +44,7 @@ import ucar.nc2.stream.NcStream;
 
 import java.io.OutputStream;
 import java.nio.*;
+import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.channels.Channels;
 import java.io.DataOutputStream;
@@ -59,6 +61,7 @@ import java.util.ArrayList;
  */
 public class IospHelper {
   static private boolean showLayoutTypes = false;
+  static private boolean showReadPlans = false;
 
   /**
    * Read data subset from RandomAccessFile, create primitive array of size Layout.getTotalNelems.
@@ -102,6 +105,16 @@ public class IospHelper {
   static public Object readData(RandomAccessFile raf, Layout layout, DataType dataType, Object arr, int byteOrder, boolean convertChar) throws java.io.IOException {
     if (showLayoutTypes) System.out.println("***RAF LayoutType=" + layout.getClass().getName());
 
+    // merge nearby chunks into fewer reads
+    if (ReadPlanner.getMaxGap() >= 0 &&
+            (dataType.isNumeric() || dataType.isEnum() || dataType == DataType.CHAR || dataType == DataType.STRUCTURE)) {
+      ReadPlanner planner = new ReadPlanner(raf, dataType, layout.getElemSize());
+      planner.read(layout, arr, byteOrder);
+      if (showReadPlans) System.out.println(planner);
+      if (convertChar && dataType == DataType.CHAR) return convertByteToChar((byte[]) arr);
+      else return arr;
+    }
+
     if (dataType.getPrimitiveClassType() == byte.class || dataType == DataType.CHAR) {
       byte[] pa = (byte[]) arr;
       while (layout.hasNext()) {
@@ -178,6 +191,61 @@ public class IospHelper {
     throw new IllegalStateException("unknown type= " + dataType);
   }
 
+  /**
+   * Read data subset from RandomAccessFile into a new ArrayDirect, whose memory is outside the java heap.
+   * Reading is controlled by the Layout object.
+   * For a read-only local file, chunks at least as large as the file's buffer are read with positional FileChannel reads
+   * straight into the ArrayDirect; smaller chunks go through the file's buffer.
+   * The caller owns the result, and should close() it when done.
+   *
+   * @param raf       read from here.
+   * @param layout    handles skipping around in the file.
+   * @param dataType  dataType of the variable, must be numeric
+   * @param shape     shape of the result, with Layout.getTotalNelems elements
+   * @param byteOrder if equal to RandomAccessFile.ORDER_XXXX, set the byte order just before reading
+   * @return ArrayDirect with data read in, in the byte order of the file
+   * @throws java.io.IOException on read error
+   */
+  static public ArrayDirect readDataDirect(RandomAccessFile raf, Layout layout, DataType dataType, int[] shape, int byteOrder) throws java.io.IOException {
+    if (showLayoutTypes) System.out.println("***RAF direct LayoutType=" + layout.getClass().getName());
+
+    raf.order(byteOrder);
+    ArrayDirect result = ArrayDirect.factory(dataType, shape, raf.getByteOrder());
+    try {
+      FileChannel channel = PositionalRandomAccessFile.getFileChannel(raf);
+      int elemSize = dataType.getSize();
+      while (layout.hasNext()) {
+        Layout.Chunk chunk = layout.next();
+        if (channel != null && (long) chunk.getNelems() * elemSize >= raf.getBufferSize()) {
+          result.readFully(channel, chunk.getSrcPos(), chunk.getDestElem(), chunk.getNelems());
+        } else {
+          raf.seek(chunk.getSrcPos());
+          result.readFully(raf, chunk.getDestElem(), chunk.getNelems());
+        }
+      }
+      return result;
+
+    } catch (IOException | RuntimeException e) {
+      result.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Can the bytes of an Array be written as they are, for a variable of the given type in a big endian file?
+   * True for a contiguous, big endian ArrayDirect with the same primitive type, which can be written with ArrayDirect.writeTo().
+   *
+   * @param data     the data to write
+   * @param dataType dataType of the variable
+   * @return true if data is an ArrayDirect that needs no conversion
+   */
+  static public boolean canWriteDirect(Array data, DataType dataType) {
+    if (!(data instanceof ArrayDirect)) return false;
+    ArrayDirect direct = (ArrayDirect) data;
+    return direct.isContiguous() && direct.getByteOrder() == ByteOrder.BIG_ENDIAN &&
+            direct.getElementType() == dataType.getPrimitiveClassType();
+  }
+
   /**
    * Read data subset from PositioningDataInputStream, create primitive array of size Layout.getTotalNelems.
    * Reading is controlled by the Layout object.
@@ -404,6 +472,9 @@ public class IospHelper {
    * @throws java.io.IOException on write error
    */
   public static long copyToByteChannel(Array data, WritableByteChannel channel) throws java.io.IOException {
+    if (canWriteDirect(data, data.getDataType())) // no copy through the java heap
+      return ((ArrayDirect) data).writeTo(channel, 0, data.getSize());
+
     Class classType = data.getElementType();
 
     /* if (data instanceof ArrayStructure) { // use NcStream encoding
@@ -504,6 +575,9 @@ public class IospHelper {
     else
       dataOut = new DataOutputStream(out);
 
+    if (canWriteDirect(data, data.getDataType()))
+      return ((ArrayDirect) data).writeTo(dataOut, 0, data.getSize());
+
     /* if (data instanceof ArrayStructure) { // use NcStream encoding
       return NcStream.encodeArrayStructure((ArrayStructure) data, null, dataOut);
     } */
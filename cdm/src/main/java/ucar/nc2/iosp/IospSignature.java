@@ -0,0 +1,143 @@
+/*
+ * Copyright 1998-2014 University Corporation for Atmospheric Research/Unidata
+ *
+ *   Portions of this software were developed by the Unidata Program at the
+ *   University Corporation for Atmospheric Research.
+ *
+ *   Access and use of this software shall impose the following obligations
+ *   and understandings on the user. The user is granted the right, without
+ *   any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *   this software, and any derivative works thereof, and its supporting
+ *   documentation for any purpose whatsoever, provided that this entire
+ *   notice appears in all copies of the software, derivative works and
+ *   supporting documentation.  Further, UCAR requests that the user credit
+ *   UCAR/Unidata in any publications that result from the use of this
+ *   software or in any product that includes this software. The names UCAR
+ *   and/or Unidata, however, may not be used in any advertising or publicity
+ *   to endorse or promote any products or commercial entity unless specific
+ *   written permission is obtained from UCAR/Unidata. The user also
+ *   understands that UCAR/Unidata is not obligated to provide the user with
+ *   any support, consulting, training or assistance of any kind with regard
+ *   to the use, operation and performance of this software nor to provide
+ *   the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *   THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *   IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *   WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *   DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *   INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *   FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *   NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *   WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.iosp;
+
+import ucar.nc2.constants.CDM;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Magic bytes at a fixed offset from the start of a file.
+ * An IOServiceProvider lists the signatures its files may start with in getSignatures(). A file that matches none of them
+ * is not given to its isValidFile(), so a signature must be a necessary condition for isValidFile() to return true.
+ * Signatures must lie within the first HEADER_SIZE bytes of the file.
+ *
+ * @since 10/18/2026
+ */
+public final class IospSignature {
+  /** Number of bytes at the start of the file that signatures are matched against. */
+  static public final int HEADER_SIZE = 1024;
+
+  /**
+   * Read the bytes at the start of the file, to match signatures against.
+   *
+   * @param raf the file
+   * @return the first HEADER_SIZE bytes, or fewer if the file is shorter
+   * @throws IOException on read error
+   */
+  static public byte[] readHeader(RandomAccessFile raf) throws IOException {
+    int size = (int) Math.min(HEADER_SIZE, raf.length());
+    byte[] header = new byte[size];
+    raf.seek(0);
+    raf.readFully(header);
+    return header;
+  }
+
+  /**
+   * Could the iosp read the file with this header? True if the iosp has no signatures, or one of them matches.
+   *
+   * @param iosp   the IOServiceProvider
+   * @param header from readHeader()
+   * @return false if the iosp's isValidFile() would return false
+   */
+  static public boolean couldBeValid(IOServiceProvider iosp, byte[] header) {
+    List<IospSignature> signatures = iosp.getSignatures();
+    if (signatures == null) return true;
+    for (IospSignature signature : signatures)
+      if (signature.matches(header))
+        return true;
+    return false;
+  }
+
+  ////////////////////////////////////////////////////////////////
+
+  private final int offset;
+  private final byte[] magic;
+
+  /**
+   * Constructor.
+   *
+   * @param offset byte offset from the start of the file
+   * @param magic  the bytes that must be there
+   */
+  public IospSignature(int offset, byte[] magic) {
+    if (offset < 0 || magic.length == 0 || offset + magic.length > HEADER_SIZE)
+      throw new IllegalArgumentException("signature must be within the first " + HEADER_SIZE + " bytes");
+    this.offset = offset;
+    this.magic = magic.clone();
+  }
+
+  /**
+   * Constructor for a signature of ASCII characters.
+   *
+   * @param offset byte offset from the start of the file
+   * @param magic  the characters that must be there
+   */
+  public IospSignature(int offset, String magic) {
+    this(offset, magic.getBytes(CDM.utf8Charset));
+  }
+
+  public int getOffset() {
+    return offset;
+  }
+
+  public byte[] getMagic() {
+    return magic.clone();
+  }
+
+  /**
+   * Does the header have this signature?
+   *
+   * @param header the start of the file, from readHeader()
+   * @return true if the magic bytes are at offset
+   */
+  public boolean matches(byte[] header) {
+    if (offset + magic.length > header.length) return false;
+    for (int i = 0; i < magic.length; i++)
+      if (header[offset + i] != magic[i]) return false;
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(offset).append(':');
+    for (byte b : magic) {
+      if (b >= 0x20 && b < 0x7f) sb.append((char) b);
+      else sb.append(String.format("\\x%02x", b & 0xff));
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright 1998-2014 University Corporation for Atmospheric Research/Unidata
+ *
+ *   Portions of this software were developed by the Unidata Program at the
+ *   University Corporation for Atmospheric Research.
+ *
+ *   Access and use of this software shall impose the following obligations
+ *   and understandings on the user. The user is granted the right, without
+ *   any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *   this software, and any derivative works thereof, and its supporting
+ *   documentation for any purpose whatsoever, provided that this entire
+ *   notice appears in all copies of the software, derivative works and
+ *   supporting documentation.  Further, UCAR requests that the user credit
+ *   UCAR/Unidata in any publications that result from the use of this
+ *   software or in any product that includes this software. The names UCAR
+ *   and/or Unidata, however, may not be used in any advertising or publicity
+ *   to endorse or promote any products or commercial entity unless specific
+ *   written permission is obtained from UCAR/Unidata. The user also
+ *   understands that UCAR/Unidata is not obligated to provide the user with
+ *   any support, consulting, training or assistance of any kind with regard
+ *   to the use, operation and performance of this software nor to provide
+ *   the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *   THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *   IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *   WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *   DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *   INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *   FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *   NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *   WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.iosp;
+
+import ucar.ma2.DataType;
+import ucar.unidata.io.PositionalRandomAccessFile;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads the chunks of a Layout with fewer, larger reads, used by IospHelper.readData() when turned on with setMaxGap().
+ * The chunks are gathered in batches. Chunks that follow each other in the file, with gaps of at most maxGap bytes,
+ * are merged into one read of at most maxReadSize bytes into a scratch buffer, then copied into the destination array.
+ * A chunk that isnt merged with any other is read directly into the destination array.
+ * <p/>
+ * If an Executor is set and the file is a local file, the reads of a large batch are done in parallel,
+ * each task with its own PositionalRandomAccessFile.
+ *
+ * @since 10/18/2026
+ */
+public class ReadPlanner {
+  static private final int maxBatch = 64 * 1024;           // chunks gathered at a time
+  static private final int minParallelBytes = 1000 * 1000; // dont bother with a task for less than this
+
+  static private int maxGap = -1; // off
+  static private int maxReadSize = 256 * 1000;
+  static private Executor executor = null;
+
+  static private final LongAdder totalRequests = new LongAdder();
+  static private final LongAdder totalChunks = new LongAdder();
+  static private final LongAdder totalReads = new LongAdder();
+  static private final LongAdder totalBytesWanted = new LongAdder();
+  static private final LongAdder totalBytesRead = new LongAdder();
+
+  /**
+   * Merge chunks that are separated in the file by at most this many bytes.
+   * 0 merges only adjacent chunks; if < 0, IospHelper reads each chunk separately, without a ReadPlanner.
+   *
+   * @param gap maximum gap in bytes, eg 4 KB; default -1, off.
+   */
+  static public synchronized void setMaxGap(int gap) {
+    maxGap = gap;
+  }
+
+  static public synchronized int getMaxGap() {
+    return maxGap;
+  }
+
+  /**
+   * Dont merge chunks into reads larger than this.
+   *
+   * @param size maximum read size in bytes, default 256 KB.
+   */
+  static public synchronized void setMaxReadSize(int size) {
+    maxReadSize = size;
+  }
+
+  static public synchronized int getMaxReadSize() {
+    return maxReadSize;
+  }
+
+  /**
+   * Do the reads of a request in parallel, using the given Executor, for local files.
+   * The caller owns the Executor, eg a fixed thread pool, and is responsible for shutting it down.
+   * The request thread waits for the tasks, so dont read from tasks running in the same Executor.
+   *
+   * @param exec use this Executor; if null, all reads are done by the request thread (default).
+   */
+  static public synchronized void setExecutor(Executor exec) {
+    executor = exec;
+  }
+
+  static public synchronized Executor getExecutor() {
+    return executor;
+  }
+
+  static public long getTotalChunks() {
+    return totalChunks.sum();
+  }
+
+  static public long getTotalReads() {
+    return totalReads.sum();
+  }
+
+  static public void showStats(Formatter f) {
+    long requests = totalRequests.sum();
+    long chunks = totalChunks.sum();
+    long reads = totalReads.sum();
+    long wanted = totalBytesWanted.sum();
+    long read = totalBytesRead.sum();
+    f.format("ReadPlanner maxGap= %d maxReadSize= %d parallel= %s%n", getMaxGap(), getMaxReadSize(), getExecutor() != null);
+    f.format("  requests= %d chunks= %d reads= %d (%.1f chunks/read)%n", requests, chunks, reads, reads == 0 ? 0.0 : (double) chunks / reads);
+    f.format("  bytes wanted= %d read= %d (%.1f%% in gaps)%n", wanted, read, read == 0 ? 0.0 : 100.0 * (read - wanted) / read);
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////
+
+  private final RandomAccessFile raf;
+  private final int elemSize;
+  private final int gap, readSize;
+  private final Executor exec;
+
+  // the current batch of chunks, and the runs of chunks that are read together
+  private long[] srcPos = new long[16];
+  private long[] destElem = new long[16];
+  private int[] nelems = new int[16];
+  private int n;
+  private int[] runStart = new int[16]; // index of first chunk in each run; run r is [runStart[r], runStart[r+1])
+  private int nruns;
+
+  // for this request
+  private int nchunks, nreads;
+  private long bytesWanted, bytesRead;
+
+  /**
+   * Constructor.
+   *
+   * @param raf      read from here, in its current byte order
+   * @param dataType the type of the destination array; for STRUCTURE the array is a byte[] of records
+   * @param recSize  size of one element in bytes, only used for STRUCTURE
+   */
+  public ReadPlanner(RandomAccessFile raf, DataType dataType, int recSize) {
+    this.raf = raf;
+    this.elemSize = (dataType == DataType.STRUCTURE) ? recSize : dataType.getSize();
+    synchronized (ReadPlanner.class) {
+      this.gap = Math.max(maxGap, 0);
+      this.readSize = maxReadSize;
+      this.exec = executor;
+    }
+  }
+
+  /**
+   * Read all the chunks of the layout into arr.
+   *
+   * @param layout   the chunks to read
+   * @param arr      primitive array of the dataType, with Layout.getTotalNelems() elements
+   * @param byteOrder if equal to RandomAccessFile.ORDER_XXXX, set the byte order just before reading
+   * @throws IOException on read error
+   */
+  public void read(Layout layout, Object arr, int byteOrder) throws IOException {
+    totalRequests.increment();
+    while (layout.hasNext()) {
+      Layout.Chunk chunk = layout.next();
+      if (chunk == null || chunk.getNelems() == 0) continue;
+      add(chunk);
+      if (n == maxBatch) {
+        raf.order(byteOrder); // reading the layout may change it (eg HDF5 btree)
+        readBatch(arr);
+      }
+    }
+    raf.order(byteOrder);
+    readBatch(arr);
+  }
+
+  public int getNumberOfChunks() {
+    return nchunks;
+  }
+
+  public int getNumberOfReads() {
+    return nreads;
+  }
+
+  public long getBytesWanted() {
+    return bytesWanted;
+  }
+
+  public long getBytesRead() {
+    return bytesRead;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ReadPlanner %s: chunks= %d reads= %d bytes wanted= %d read= %d",
+            raf.getLocation(), nchunks, nreads, bytesWanted, bytesRead);
+  }
+
+  private void add(Layout.Chunk chunk) {
+    if (n == srcPos.length) {
+      int size = Math.min(2 * n, maxBatch);
+      srcPos = Arrays.copyOf(srcPos, size);
+      destElem = Arrays.copyOf(destElem, size);
+      nelems = Arrays.copyOf(nelems, size);
+    }
+    srcPos[n] = chunk.getSrcPos();
+    destElem[n] = chunk.getDestElem();
+    nelems[n] = chunk.getNelems();
+    n++;
+  }
+
+  private long end(int k) {
+    return srcPos[k] + (long) nelems[k] * elemSize;
+  }
+
+  // split the batch into runs, then read them
+  private void readBatch(Object arr) throws IOException {
+    if (n == 0) return;
+
+    nruns = 0;
+    long start = 0, end = 0, wanted = 0;
+    for (int k = 0; k < n; k++) {
+      boolean merge = (k > 0) && srcPos[k] >= end && srcPos[k] - end <= gap && end(k) - start <= readSize;
+      if (!merge) {
+        if (nruns == runStart.length - 1)
+          runStart = Arrays.copyOf(runStart, 2 * runStart.length);
+        runStart[nruns++] = k;
+        start = srcPos[k];
+      }
+      end = end(k);
+      wanted += (long) nelems[k] * elemSize;
+    }
+    runStart[nruns] = n;
+
+    long batchBytes = 0;
+    for (int r = 0; r < nruns; r++)
+      batchBytes += end(runStart[r + 1] - 1) - srcPos[runStart[r]];
+    nchunks += n;
+    nreads += nruns;
+    bytesWanted += wanted;
+    bytesRead += batchBytes;
+    totalChunks.add(n);
+    totalReads.add(nruns);
+    totalBytesWanted.add(wanted);
+    totalBytesRead.add(batchBytes);
+
+    boolean local = PositionalRandomAccessFile.canWrap(raf) || (raf instanceof PositionalRandomAccessFile);
+    if (exec != null && nruns > 1 && batchBytes >= 2 * minParallelBytes && local)
+      readParallel(arr);
+    else
+      readRuns(raf, arr, 0, nruns);
+    n = 0;
+  }
+
+  // tasks of consecutive runs of at least minParallelBytes each
+  private void readParallel(Object arr) throws IOException {
+    List<CompletableFuture<Void>> tasks = new ArrayList<>();
+    int first = 0;
+    long taskBytes = 0;
+    for (int r = 0; r < nruns; r++) {
+      taskBytes += end(runStart[r + 1] - 1) - srcPos[runStart[r]];
+      if (taskBytes >= minParallelBytes || r == nruns - 1) {
+        final int from = first, to = r + 1;
+        tasks.add(CompletableFuture.runAsync(() -> {
+          try {
+            readRuns(PositionalRandomAccessFile.makeView(raf), arr, from, to);
+          } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+          }
+        }, exec));
+        first = r + 1;
+        taskBytes = 0;
+      }
+    }
+
+    for (CompletableFuture<Void> task : tasks) {
+      try {
+        task.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof UncheckedIOException)
+          throw ((UncheckedIOException) e.getCause()).getCause();
+        throw e;
+      }
+    }
+  }
+
+  private void readRuns(RandomAccessFile file, Object arr, int fromRun, int toRun) throws IOException {
+    byte[] scratch = null;
+    for (int r = fromRun; r < toRun; r++) {
+      int first = runStart[r], last = runStart[r + 1] - 1;
+      if (first == last) {
+        readDirect(file, first, arr);
+        continue;
+      }
+
+      int len = (int) (end(last) - srcPos[first]);
+      if (scratch == null || scratch.length < len)
+        scratch = new byte[len];
+      file.seek(srcPos[first]);
+      file.readFully(scratch, 0, len);
+      ByteBuffer bb = ByteBuffer.wrap(scratch).order(file.getByteOrder());
+      copy(bb, first, last, arr);
+    }
+  }
+
+  private void readDirect(RandomAccessFile file, int k, Object arr) throws IOException {
+    file.seek(srcPos[k]);
+    int dest = (int) destElem[k];
+    if (arr instanceof byte[])
+      file.readFully((byte[]) arr, dest * elemSize, nelems[k] * elemSize);
+    else if (arr instanceof short[])
+      file.readShort((short[]) arr, dest, nelems[k]);
+    else if (arr instanceof int[])
+      file.readInt((int[]) arr, dest, nelems[k]);
+    else if (arr instanceof float[])
+      file.readFloat((float[]) arr, dest, nelems[k]);
+    else if (arr instanceof double[])
+      file.readDouble((double[]) arr, dest, nelems[k]);
+    else if (arr instanceof long[])
+      file.readLong((long[]) arr, dest, nelems[k]);
+    else
+      throw new IllegalStateException("unknown array type= " + arr.getClass().getName());
+  }
+
+  // copy chunks first to last of a run from bb, which starts at srcPos[first]
+  private void copy(ByteBuffer bb, int first, int last, Object arr) {
+    long base = srcPos[first];
+    if (arr instanceof byte[]) {
+      for (int k = first; k <= last; k++)
+        System.arraycopy(bb.array(), (int) (srcPos[k] - base), arr, (int) destElem[k] * elemSize, nelems[k] * elemSize);
+
+    } else if (arr instanceof short[]) {
+      short[] pa = (short[]) arr;
+      for (int k = first; k <= last; k++) {
+        int offset = (int) (srcPos[k] - base), dest = (int) destElem[k];
+        for (int i = 0; i < nelems[k]; i++)
+          pa[dest + i] = bb.getShort(offset + 2 * i);
+      }
+
+    } else if (arr instanceof int[]) {
+      int[] pa = (int[]) arr;
+      for (int k = first; k <= last; k++) {
+        int offset = (int) (srcPos[k] - base), dest = (int) destElem[k];
+        for (int i = 0; i < nelems[k]; i++)
+          pa[dest + i] = bb.getInt(offset + 4 * i);
+      }
+
+    } else if (arr instanceof float[]) {
+      float[] pa = (float[]) arr;
+      for (int k = first; k <= last; k++) {
+        int offset = (int) (srcPos[k] - base), dest = (int) destElem[k];
+        for (int i = 0; i < nelems[k]; i++)
+          pa[dest + i] = bb.getFloat(offset + 4 * i);
+      }
+
+    } else if (arr instanceof double[]) {
+      double[] pa = (double[]) arr;
+      for (int k = first; k <= last; k++) {
+        int offset = (int) (srcPos[k] - base), dest = (int) destElem[k];
+        for (int i = 0; i < nelems[k]; i++)
+          pa[dest + i] = bb.getDouble(offset + 8 * i);
+      }
+
+    } else if (arr instanceof long[]) {
+      long[] pa = (long[]) arr;
+      for (int k = first; k <= last; k++) {
+        int offset = (int) (srcPos[k] - base), dest = (int) destElem[k];
+        for (int i = 0; i < nelems[k]; i++)
+          pa[dest + i] = bb.getLong(offset + 8 * i);
+      }
+
+    } else {
+      throw new IllegalStateException("unknown array type= " + arr.getClass().getName());
+    }
+  }
+
+}
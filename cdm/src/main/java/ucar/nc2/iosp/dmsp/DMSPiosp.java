@@ -36,6 +36,7 @@ package ucar.nc2.iosp.dmsp;
 import ucar.nc2.*;
 import ucar.nc2.constants.CDM;
 import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.iosp.IospSignature;
 import ucar.nc2.constants.AxisType;
 import ucar.nc2.constants._Coordinate;
 import ucar.nc2.util.CancelTask;
@@ -88,6 +89,14 @@ public class DMSPiosp extends AbstractIOServiceProvider {
     return (localHeader.isValidFile(raf));
   }
 
+  private static final List<IospSignature> signatures =
+          Collections.singletonList(new IospSignature(0, DMSPHeader.HeaderInfoTitle.FILE_ID.toString()));
+
+  @Override
+  public List<IospSignature> getSignatures() {
+    return signatures;
+  }
+
   public String getFileTypeId() {
     return "DMSP";
   }
@@ -35,6 +35,7 @@ package ucar.nc2.iosp.dorade;
 import ucar.ma2.*;
 import ucar.nc2.*;
 import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.iosp.IospSignature;
 import ucar.atd.dorade.*;
 
 
@@ -55,6 +56,13 @@ public class Doradeiosp extends AbstractIOServiceProvider {
     return Doradeheader.isValidFile(raf);
   }
 
+  private static final List<IospSignature> signatures = Collections.singletonList(new IospSignature(0, "SSWB"));
+
+  @Override
+  public List<IospSignature> getSignatures() {
+    return signatures;
+  }
+
   public String getFileTypeId() {
     return "DORADE";
   }
@@ -47,6 +47,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.util.Collections;
 import java.util.List;
 import java.nio.ByteBuffer;
 
@@ -64,6 +65,13 @@ public class H4iosp extends AbstractIOServiceProvider {
     return H4header.isValidFile(raf);
   }
 
+  private static final List<IospSignature> signatures = Collections.singletonList(new IospSignature(0, NCheader.H4HEAD));
+
+  @Override
+  public List<IospSignature> getSignatures() {
+    return signatures;
+  }
+
     public String getFileTypeId() {
       if (header.isEos()) return "HDF4-EOS";
       return DataFormatType.HDF4.getDescription();
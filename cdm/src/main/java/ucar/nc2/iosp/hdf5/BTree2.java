@@ -35,7 +35,6 @@ package ucar.nc2.iosp.hdf5;
 
 import ucar.nc2.constants.CDM;
 import ucar.nc2.util.Misc;
-import ucar.unidata.io.RandomAccessFile;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -73,35 +72,33 @@ public class BTree2 {
 
   private String owner;
   private H5header h5;
-  private RandomAccessFile raf;
 
   List<Entry2> entryList = new ArrayList<>();
 
   BTree2(H5header h5, String owner, long address) throws IOException {
     this.h5 = h5;
-    this.raf = h5.raf;
     this.owner = owner;
 
-    raf.seek(h5.getFileOffset(address));
+    h5.raf.seek(h5.getFileOffset(address));
 
     // header
     byte[] heapname = new byte[4];
-    raf.readFully(heapname);
+    h5.raf.readFully(heapname);
     String magic = new String(heapname, CDM.utf8Charset);
     if (!magic.equals("BTHD"))
       throw new IllegalStateException(magic + " should equal BTHD");
 
-    byte version = raf.readByte();
-    btreeType = raf.readByte();
-    nodeSize = raf.readInt();
-    recordSize = raf.readShort();
-    short treeDepth = raf.readShort();
-    byte split = raf.readByte();
-    byte merge = raf.readByte();
+    byte version = h5.raf.readByte();
+    btreeType = h5.raf.readByte();
+    nodeSize = h5.raf.readInt();
+    recordSize = h5.raf.readShort();
+    short treeDepth = h5.raf.readShort();
+    byte split = h5.raf.readByte();
+    byte merge = h5.raf.readByte();
     long rootNodeAddress = h5.readOffset();
-    short numRecordsRootNode = raf.readShort();
+    short numRecordsRootNode = h5.raf.readShort();
     long totalRecords = h5.readLength(); // total in entire btree
-    int checksum = raf.readInt();
+    int checksum = h5.raf.readInt();
 
     if (debugBtree2) {
       debugOut.printf("BTree2 (%s) version=%d type=%d treeDepth=%d nodeSize=%d recordSize=%d numRecordsRootNode=%d totalRecords=%d rootNodeAddress=%d%n",
@@ -137,19 +134,19 @@ public class BTree2 {
 
     InternalNode(long address, short nrecords, short recordSize, int depth) throws IOException {
       this.depth = depth;
-      raf.seek(h5.getFileOffset(address));
+      h5.raf.seek(h5.getFileOffset(address));
 
-      if (debugPos) debugOut.println("--Btree2 InternalNode position=" + raf.getFilePointer());
+      if (debugPos) debugOut.println("--Btree2 InternalNode position=" + h5.raf.getFilePointer());
 
       // header
       byte[] sig = new byte[4];
-      raf.readFully(sig);
+      h5.raf.readFully(sig);
       String magic = new String(sig, CDM.utf8Charset);
       if (!magic.equals("BTIN"))
         throw new IllegalStateException(magic + " should equal BTIN");
 
-      byte version = raf.readByte();
-      byte nodeType = raf.readByte();
+      byte version = h5.raf.readByte();
+      byte nodeType = h5.raf.readByte();
       if (nodeType != btreeType)
         throw new IllegalStateException();
 
@@ -177,7 +174,7 @@ public class BTree2 {
       }
 
       // skip
-      raf.readInt();
+      h5.raf.readInt();
     }
 
     void recurse() throws IOException {
@@ -200,19 +197,19 @@ public class BTree2 {
     Entry2[] entries;
 
     LeafNode(long address, short nrecords) throws IOException {
-      raf.seek(h5.getFileOffset(address));
+      h5.raf.seek(h5.getFileOffset(address));
 
-      if (debugPos) debugOut.println("--Btree2 InternalNode position=" + raf.getFilePointer());
+      if (debugPos) debugOut.println("--Btree2 InternalNode position=" + h5.raf.getFilePointer());
 
       // header
       byte[] sig = new byte[4];
-      raf.readFully(sig);
+      h5.raf.readFully(sig);
       String magic = new String(sig, CDM.utf8Charset);
       if (!magic.equals("BTLF"))
         throw new IllegalStateException(magic + " should equal BTLF");
 
-      byte version = raf.readByte();
-      byte nodeType = raf.readByte();
+      byte version = h5.raf.readByte();
+      byte nodeType = h5.raf.readByte();
       if (nodeType != btreeType)
         throw new IllegalStateException();
 
@@ -226,7 +223,7 @@ public class BTree2 {
       }
 
       // skip
-      raf.readInt();
+      h5.raf.readInt();
     }
 
     void addEntries(List<Entry2> list) {
@@ -277,7 +274,7 @@ public class BTree2 {
     Record2() throws IOException {
       hugeObjectAddress = h5.readOffset();
       hugeObjectLength = h5.readLength();
-      filterMask = raf.readInt();
+      filterMask = h5.raf.readInt();
       hugeObjectSize = h5.readLength();
       hugeObjectID = h5.readLength();
     }
@@ -299,7 +296,7 @@ public class BTree2 {
     Record4() throws IOException {
       hugeObjectAddress = h5.readOffset();
       hugeObjectLength = h5.readLength();
-      filterMask = raf.readInt();
+      filterMask = h5.raf.readInt();
       hugeObjectSize = h5.readLength();
     }
   }
@@ -309,8 +306,8 @@ public class BTree2 {
     byte[] heapId = new byte[7];
 
     Record5() throws IOException {
-      nameHash = raf.readInt();
-      raf.readFully(heapId);
+      nameHash = h5.raf.readInt();
+      h5.raf.readFully(heapId);
 
       if (debugBtree2)
         debugOut.println("  record5 nameHash=" + nameHash + " heapId=" + Misc.showBytes(heapId));
@@ -322,8 +319,8 @@ public class BTree2 {
     byte[] heapId = new byte[7];
 
     Record6() throws IOException {
-      creationOrder = raf.readLong();
-      raf.readFully(heapId);
+      creationOrder = h5.raf.readLong();
+      h5.raf.readFully(heapId);
       if (debugBtree2)
         debugOut.println("  record6 creationOrder=" + creationOrder + " heapId=" + Misc.showBytes(heapId));
     }
@@ -335,9 +332,9 @@ public class BTree2 {
     byte[] id = new byte[8];
 
     Record70() throws IOException {
-      location = raf.readByte();
-      refCount = raf.readInt();
-      raf.readFully(id);
+      location = h5.raf.readByte();
+      refCount = h5.raf.readInt();
+      h5.raf.readFully(id);
     }
   }
 
@@ -347,10 +344,10 @@ public class BTree2 {
     long address;
 
     Record71() throws IOException {
-      location = raf.readByte();
-      raf.readByte(); // skip a byte
-      messtype = raf.readByte();
-      index = raf.readShort();
+      location = h5.raf.readByte();
+      h5.raf.readByte(); // skip a byte
+      messtype = h5.raf.readByte();
+      index = h5.raf.readShort();
       address = h5.readOffset();
     }
   }
@@ -361,10 +358,10 @@ public class BTree2 {
     byte[] heapId = new byte[8];
 
     Record8() throws IOException {
-      raf.readFully(heapId);
-      flags = raf.readByte();
-      creationOrder = raf.readInt();
-      nameHash = raf.readInt();
+      h5.raf.readFully(heapId);
+      flags = h5.raf.readByte();
+      creationOrder = h5.raf.readInt();
+      nameHash = h5.raf.readInt();
       if (debugBtree2)
         debugOut.println("  record8 creationOrder=" + creationOrder + " heapId=" + Misc.showBytes(heapId));
     }
@@ -376,9 +373,9 @@ public class BTree2 {
     byte[] heapId = new byte[8];
 
     Record9() throws IOException {
-      raf.readFully(heapId);
-      flags = raf.readByte();
-      creationOrder = raf.readInt();
+      h5.raf.readFully(heapId);
+      flags = h5.raf.readByte();
+      creationOrder = h5.raf.readInt();
     }
   }
 
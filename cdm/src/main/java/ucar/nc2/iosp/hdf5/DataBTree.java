@@ -33,6 +33,7 @@
 
 package ucar.nc2.iosp.hdf5;
 
+import ucar.ma2.Range;
 import ucar.ma2.Section;
 import ucar.nc2.Variable;
 import ucar.nc2.iosp.LayoutTiled;
@@ -41,7 +42,9 @@ import ucar.unidata.io.RandomAccessFile;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * This holds the chunked data storage.
@@ -54,6 +57,9 @@ import java.util.List;
  * In other words, each child pointer out of a B-tree node has a left key and a right key.
  * The pointers out of internal nodes point to sub-trees while the pointers out of leaf nodes point to symbol nodes and
  * raw data chunks. Aside from that difference, internal nodes and leaf nodes are identical.
+ * <p>
+ * The first time the chunks are iterated over, all of the leaf entries are read into a ChunkIndex, which is kept
+ * and used for all subsequent reads of the variable, so the btree is only read once.
  *
  * @see "http://www.hdfgroup.org/HDF5/doc/H5.format.html#Btrees"
  * @author caron
@@ -64,6 +70,7 @@ public class DataBTree {
   private static final boolean debugDataChunk = false;
   private static final boolean debugChunkOrder = false;
   private static java.io.PrintStream debugOut = System.out;
+  static boolean useChunkIndex = true; // turn off for testing
 
   private final H5header h5;
   private final MemTracker memTracker;
@@ -71,6 +78,10 @@ public class DataBTree {
   private final long rootNodeAddress;
   private final Tiling tiling;
   private final int ndimStorage, wantType;
+  private final int[] varShape, storageSize;
+
+  private ChunkIndex chunkIndex; // lazily built
+  private boolean chunkIndexDone;
 
   private Variable owner;
 
@@ -79,6 +90,8 @@ public class DataBTree {
     this.rootNodeAddress = rootNodeAddress;
     this.tiling = new Tiling(varShape, storageSize);
     this.ndimStorage = storageSize.length;
+    this.varShape = varShape;
+    this.storageSize = storageSize;
     this.memTracker = memTracker;
 
     wantType = 1;
@@ -117,6 +130,7 @@ public class DataBTree {
   // used by H5tiledLayout, when there are no filters
   class DataChunkIteratorNoFilter implements LayoutTiled.DataChunkIterator {
     private Node root;
+    private ChunkIndex.Iterator indexIter;
     private int nChunkDim;
 
     /**
@@ -128,17 +142,23 @@ public class DataBTree {
      */
     DataChunkIteratorNoFilter(Section want, int nChunkDim) throws IOException {
       this.nChunkDim = nChunkDim;
-      root = new Node(rootNodeAddress, -1); // should we cache the nodes ???
+      ChunkIndex index = getChunkIndex();
+      if (index != null) {
+        indexIter = index.iterator(want);
+        return;
+      }
+      root = new Node(rootNodeAddress, -1);
       int[] wantOrigin = (want != null) ? want.getOrigin() : null;
       root.first(wantOrigin);
     }
 
     public boolean hasNext() {
+      if (indexIter != null) return indexIter.hasNext();
       return root.hasNext(); //  && !node.greaterThan(wantOrigin);
     }
 
     public LayoutTiled.DataChunk next() throws IOException {
-      DataChunk dc = root.next();
+      DataChunk dc = (indexIter != null) ? indexIter.next() : root.next();
       int[] offset = dc.offset;
       if (offset.length > nChunkDim) { // may have to eliminate last offset
         offset = new int[nChunkDim];
@@ -155,29 +175,275 @@ public class DataBTree {
   // used by H5tiledLayoutBB, when there are filters
   class DataChunkIterator {
     private Node root;
+    private ChunkIndex.Iterator indexIter;
     private int[] wantOrigin;
 
     /**
      * Constructor
      *
-     * @param want skip any nodes that are before this section
+     * @param want skip any nodes that are before this section; if null, return all
      * @throws IOException on error
      */
     DataChunkIterator(Section want) throws IOException {
-      root = new Node(rootNodeAddress, -1); // should we cache the nodes ???
+      ChunkIndex index = getChunkIndex();
+      if (index != null) {
+        indexIter = index.iterator(want);
+        return;
+      }
+      root = new Node(rootNodeAddress, -1);
       wantOrigin = (want != null) ? want.getOrigin() : null;
       root.first(wantOrigin);
     }
 
     public boolean hasNext() {
+      if (indexIter != null) return indexIter.hasNext();
       return root.hasNext(); //  && !node.greaterThan(wantOrigin);
     }
 
     public DataChunk next() throws IOException {
+      if (indexIter != null) return indexIter.next();
       return root.next();
     }
   }
 
+  // if true, iterating over the chunks doesnt read the file
+  boolean hasChunkIndex() throws IOException {
+    return getChunkIndex() != null;
+  }
+
+  // read the btree the first time its needed. null if the chunks cant be indexed, then we read the btree each time.
+  private synchronized ChunkIndex getChunkIndex() throws IOException {
+    if (!useChunkIndex) return null;
+    if (!chunkIndexDone) {
+      chunkIndex = makeChunkIndex();
+      chunkIndexDone = true;
+    }
+    return chunkIndex;
+  }
+
+  private ChunkIndex makeChunkIndex() throws IOException {
+    int rank = ndimStorage;
+    List<DataChunk> chunks = new ArrayList<>();
+    Node root = new Node(rootNodeAddress, -1);
+    root.first(null);
+    while (root.hasNext())
+      chunks.add(root.next());
+
+    // chunk offsets must be on tile boundaries
+    int[] ntiles = new int[rank];
+    for (int i = 0; i < rank; i++) {
+      int tileSize = storageSize[i];
+      ntiles[i] = (i < varShape.length) ? (varShape[i] + tileSize - 1) / tileSize : 1;
+    }
+    for (DataChunk dc : chunks) {
+      if (dc.offset.length != rank) return null;
+      for (int i = 0; i < rank; i++) {
+        if (dc.offset[i] % storageSize[i] != 0) return null;
+        ntiles[i] = Math.max(ntiles[i], dc.offset[i] / storageSize[i] + 1);
+      }
+    }
+
+    long[] stride = new long[rank];
+    long strider = 1;
+    for (int i = rank - 1; i >= 0; i--) {
+      stride[i] = strider;
+      if (strider > Long.MAX_VALUE / Math.max(ntiles[i], 1)) return null;
+      strider *= ntiles[i];
+    }
+
+    return new ChunkIndex(chunks, storageSize, ntiles, stride);
+  }
+
+  /**
+   * All of the chunks in the btree, held in memory in a few arrays.
+   * The tiles are numbered in row-major order, which is the btree order, so a tile can be found by binary search.
+   * An iterator over a Section only looks at the tiles that intersect it.
+   */
+  class ChunkIndex {
+    private final int rank;         // same as ndimStorage
+    private final int[] tileSize;   // storageSize
+    private final int[] ntiles;     // number of tiles in each dimension
+    private final long[] stride;    // for computing tile number
+    private final long[] tileno;    // tile number of each chunk, increasing
+    private final long[] filePos;
+    private final int[] size;
+    private final int[] filterMask;
+
+    private ChunkIndex(List<DataChunk> chunks, int[] tileSize, int[] ntiles, long[] stride) {
+      this.rank = tileSize.length;
+      this.tileSize = tileSize;
+      this.ntiles = ntiles;
+      this.stride = stride;
+
+      int n = chunks.size();
+      tileno = new long[n];
+      filePos = new long[n];
+      size = new int[n];
+      filterMask = new int[n];
+      for (int k = 0; k < n; k++) {
+        DataChunk dc = chunks.get(k);
+        long tile = 0;
+        for (int i = 0; i < rank; i++)
+          tile += stride[i] * (dc.offset[i] / tileSize[i]);
+        tileno[k] = tile;
+        filePos[k] = dc.filePos;
+        size[k] = dc.size;
+        filterMask[k] = dc.filterMask;
+      }
+
+      // btree order should already be tile order
+      for (int k = 1; k < n; k++) {
+        if (tileno[k] <= tileno[k - 1]) {
+          sort();
+          break;
+        }
+      }
+    }
+
+    private void sort() {
+      int n = tileno.length;
+      Integer[] perm = new Integer[n];
+      for (int k = 0; k < n; k++) perm[k] = k;
+      long[] tilenoOrg = tileno.clone();
+      Arrays.sort(perm, (a, b) -> Long.compare(tilenoOrg[a], tilenoOrg[b]));
+
+      long[] filePosOrg = filePos.clone();
+      int[] sizeOrg = size.clone();
+      int[] filterMaskOrg = filterMask.clone();
+      for (int k = 0; k < n; k++) {
+        tileno[k] = tilenoOrg[perm[k]];
+        filePos[k] = filePosOrg[perm[k]];
+        size[k] = sizeOrg[perm[k]];
+        filterMask[k] = filterMaskOrg[perm[k]];
+      }
+    }
+
+    int getNumberOfChunks() {
+      return tileno.length;
+    }
+
+    private DataChunk makeChunk(int k) {
+      int[] offset = new int[rank];
+      for (int i = 0; i < rank; i++)
+        offset[i] = (int) ((tileno[k] / stride[i]) % ntiles[i]) * tileSize[i];
+      return new DataChunk(size[k], filterMask[k], offset, filePos[k]);
+    }
+
+    // the tiles in dimension dim that contain at least one element of want
+    private int[] findTiles(Section want, int dim) {
+      Range r = (want == null || dim >= want.getRank()) ? null : want.getRange(dim);
+      if (r == null || r == Range.VLEN || r == Range.EMPTY) {
+        int[] all = new int[ntiles[dim]];
+        for (int t = 0; t < all.length; t++) all[t] = t;
+        return (r == Range.EMPTY) ? new int[0] : all;
+      }
+
+      int chunk = tileSize[dim];
+      int first = r.first(), last = r.last(), step = r.stride();
+      int[] tiles = new int[Math.min(ntiles[dim], last / chunk + 1) - Math.min(ntiles[dim], first / chunk)];
+      int count = 0;
+      for (int t = first / chunk; t <= last / chunk && t < ntiles[dim]; t++) {
+        int start = t * chunk;
+        int elem = (start <= first) ? first : first + ((start - first + step - 1) / step) * step; // first wanted elem >= start
+        if (elem <= last && elem < start + chunk)
+          tiles[count++] = t;
+      }
+      return Arrays.copyOf(tiles, count);
+    }
+
+    Iterator iterator(Section want) {
+      return new Iterator(want);
+    }
+
+    /**
+     * Iterate over the chunks that intersect the want section, in btree order.
+     * Enumerates the wanted tiles and looks them up, or if there are more wanted tiles than chunks, scans the chunks.
+     */
+    class Iterator {
+      private final int[][] wantTiles;
+      private final boolean[][] isWanted; // only when scanning
+      private final int[] counter;        // only when enumerating
+      private boolean done;
+      private int scan;                   // only when scanning
+      private int nextChunk = -1;
+
+      Iterator(Section want) {
+        wantTiles = new int[rank][];
+        long nwant = 1;
+        for (int i = 0; i < rank; i++) {
+          wantTiles[i] = findTiles(want, i);
+          nwant = (nwant > Long.MAX_VALUE / Math.max(wantTiles[i].length, 1)) ? Long.MAX_VALUE : nwant * wantTiles[i].length;
+          if (wantTiles[i].length == 0) done = true;
+        }
+
+        if (nwant <= tileno.length) {
+          isWanted = null;
+          counter = new int[rank];
+        } else {
+          counter = null;
+          isWanted = new boolean[rank][];
+          for (int i = 0; i < rank; i++) {
+            isWanted[i] = new boolean[ntiles[i]];
+            for (int t : wantTiles[i]) isWanted[i][t] = true;
+          }
+        }
+        advance();
+      }
+
+      private void advance() {
+        nextChunk = -1;
+        if (isWanted != null) {
+          for (; scan < tileno.length; scan++) {
+            if (isWantedChunk(scan)) {
+              nextChunk = scan++;
+              return;
+            }
+          }
+          return;
+        }
+
+        while (!done) {
+          long tile = 0;
+          for (int i = 0; i < rank; i++)
+            tile += stride[i] * wantTiles[i][counter[i]];
+          increment();
+          int k = Arrays.binarySearch(tileno, tile);
+          if (k >= 0) {
+            nextChunk = k;
+            return;
+          }
+        }
+      }
+
+      private boolean isWantedChunk(int k) {
+        for (int i = 0; i < rank; i++) {
+          if (!isWanted[i][(int) ((tileno[k] / stride[i]) % ntiles[i])]) return false;
+        }
+        return true;
+      }
+
+      // odometer over wantTiles
+      private void increment() {
+        for (int i = rank - 1; i >= 0; i--) {
+          if (++counter[i] < wantTiles[i].length) return;
+          counter[i] = 0;
+        }
+        done = true;
+      }
+
+      boolean hasNext() {
+        return nextChunk >= 0;
+      }
+
+      DataChunk next() {
+        if (nextChunk < 0) throw new NoSuchElementException();
+        DataChunk result = makeChunk(nextChunk);
+        advance();
+        return result;
+      }
+    }
+  }
+
   // Btree nodes
   class Node {
     private long address;
@@ -347,6 +613,13 @@ public class DataBTree {
     int[] offset;   // offset index of this chunk, reletive to entire array
     long filePos;   // filePos of a single raw data chunk, already shifted by the offset if needed
 
+    DataChunk(int size, int filterMask, int[] offset, long filePos) {
+      this.size = size;
+      this.filterMask = filterMask;
+      this.offset = offset;
+      this.filePos = filePos;
+    }
+
     DataChunk(int ndim, boolean last) throws IOException {
       this.size = h5.raf.readInt();
       this.filterMask = h5.raf.readInt();
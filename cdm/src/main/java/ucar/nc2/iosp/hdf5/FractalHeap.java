@@ -101,7 +101,6 @@ Where startingBlockSize is from the header, ie the same for all indirect blocks.
   static boolean debugDetail, debugFractalHeap, debugPos;
 
   private final H5header h5;
-  private final RandomAccessFile raf;
 
   int version;
   short heapIdLen;
@@ -131,25 +130,24 @@ Where startingBlockSize is from the header, ie the same for all indirect blocks.
 
   FractalHeap(H5header h5, String forWho, long address, MemTracker memTracker) throws IOException {
     this.h5 = h5;
-    this.raf = h5.raf;
 
     // header information is in le byte order
-    raf.order(RandomAccessFile.LITTLE_ENDIAN);
-    raf.seek(h5.getFileOffset(address));
+    h5.raf.order(RandomAccessFile.LITTLE_ENDIAN);
+    h5.raf.seek(h5.getFileOffset(address));
 
-    if (debugDetail) debugOut.println("-- readFractalHeap position=" + raf.getFilePointer());
+    if (debugDetail) debugOut.println("-- readFractalHeap position=" + h5.raf.getFilePointer());
 
     // header
-    String magic = raf.readString(4);
+    String magic = h5.raf.readString(4);
     if (!magic.equals("FRHP"))
       throw new IllegalStateException(magic + " should equal FRHP");
 
-    version = raf.readByte();
-    heapIdLen = raf.readShort(); // bytes
-    ioFilterLen = raf.readShort();  // bytes
-    flags = raf.readByte();
+    version = h5.raf.readByte();
+    heapIdLen = h5.raf.readShort(); // bytes
+    ioFilterLen = h5.raf.readShort();  // bytes
+    flags = h5.raf.readByte();
 
-    maxSizeOfObjects = raf.readInt(); // greater than this are huge objects
+    maxSizeOfObjects = h5.raf.readInt(); // greater than this are huge objects
     nextHugeObjectId = h5.readLength(); // next id to use for a huge object
     btreeAddressHugeObjects = h5.readOffset(); // v2 btee to track huge objects
     freeSpace = h5.readLength();  // total free space in managed direct blocks
@@ -163,24 +161,24 @@ Where startingBlockSize is from the header, ie the same for all indirect blocks.
     sizeTinyObjects = h5.readLength(); // total size of tiny objects packed in heap Ids (in bytes)
     nTinyObjects = h5.readLength(); // number of tiny objects packed in heap Ids
 
-    tableWidth = raf.readShort(); // number of columns in the doubling table for managed blocks, must be power of 2
+    tableWidth = h5.raf.readShort(); // number of columns in the doubling table for managed blocks, must be power of 2
     startingBlockSize = h5.readLength(); // starting direct block size in bytes, must be power of 2
     maxDirectBlockSize = h5.readLength(); // maximum direct block size in bytes, must be power of 2
-    maxHeapSize = raf.readShort(); // log2 of the maximum size of heap's linear address space, in bytes
-    startingNumRows = raf.readShort(); // starting number of rows of the root indirect block, 0 = maximum needed
+    maxHeapSize = h5.raf.readShort(); // log2 of the maximum size of heap's linear address space, in bytes
+    startingNumRows = h5.raf.readShort(); // starting number of rows of the root indirect block, 0 = maximum needed
     rootBlockAddress = h5.readOffset(); // This is the address of the root block for the heap.
                                         // It can be the undefined address if there is no data in the heap.
                                         // It either points to a direct block (if the Current # of Rows in the Root Indirect Block value is 0), or an indirect block.
-    currentNumRows = raf.readShort(); // current number of rows of the root indirect block, 0 = direct block
+    currentNumRows = h5.raf.readShort(); // current number of rows of the root indirect block, 0 = direct block
 
     boolean hasFilters = (ioFilterLen > 0);
     if (hasFilters) {
       sizeFilteredRootDirectBlock = h5.readLength();
-      ioFilterMask = raf.readInt();
+      ioFilterMask = h5.raf.readInt();
       ioFilterInfo = new byte[ioFilterLen];
-      raf.readFully(ioFilterInfo);
+      h5.raf.readFully(ioFilterInfo);
     }
-    int checksum = raf.readInt();
+    int checksum = h5.raf.readInt();
 
     if (debugDetail || debugFractalHeap) {
       debugOut.println("FractalHeap for " + forWho + " version=" + version + " heapIdLen=" + heapIdLen + " ioFilterLen=" + ioFilterLen + " flags= " + flags);
@@ -191,10 +189,10 @@ Where startingBlockSize is from the header, ie the same for all indirect blocks.
       debugOut.println(" DoublingTable: tableWidth=" + tableWidth + " startingBlockSize=" + startingBlockSize);
       debugOut.println(" rootBlockAddress=" + rootBlockAddress + " startingNumRows=" + startingNumRows + " currentNumRows=" + currentNumRows);
     }
-    if (debugPos) debugOut.println("    *now at position=" + raf.getFilePointer());
+    if (debugPos) debugOut.println("    *now at position=" + h5.raf.getFilePointer());
 
-    long pos = raf.getFilePointer();
-    if (debugDetail) debugOut.println("-- end FractalHeap position=" + raf.getFilePointer());
+    long pos = h5.raf.getFilePointer();
+    if (debugDetail) debugOut.println("-- end FractalHeap position=" + h5.raf.getFilePointer());
     int hsize = 8 + 2 * h5.sizeLengths + h5.sizeOffsets;
     if (memTracker != null) memTracker.add("Group FractalHeap (" + forWho + ")", address, pos);
 
@@ -468,14 +466,14 @@ Where startingBlockSize is from the header, ie the same for all indirect blocks.
   }
 
   void readIndirectBlock(IndirectBlock iblock, long pos, long heapAddress, boolean hasFilter) throws IOException {
-    raf.seek(pos);
+    h5.raf.seek(pos);
 
     // header
-    String magic = raf.readString(4);
+    String magic = h5.raf.readString(4);
     if (!magic.equals("FHIB"))
       throw new IllegalStateException(magic + " should equal FHIB");
 
-    byte version = raf.readByte();
+    byte version = h5.raf.readByte();
     long heapHeaderAddress = h5.readOffset();
     if (heapAddress != heapHeaderAddress)
       throw new IllegalStateException();
@@ -488,7 +486,7 @@ Where startingBlockSize is from the header, ie the same for all indirect blocks.
       debugOut.println(" -- FH IndirectBlock version=" + version + " blockOffset= " + blockOffset);
     }
 
-    long npos = raf.getFilePointer();
+    long npos = h5.raf.getFilePointer();
     if (debugPos) debugOut.println("    *now at position=" + npos);
 
     // child direct blocks
@@ -505,7 +503,7 @@ Where startingBlockSize is from the header, ie the same for all indirect blocks.
         directBlock.address = h5.readOffset();  // This field is the address of the child direct block. The size of the [uncompressed] direct block can be computed by its offset in the heap's linear address space.
         if (hasFilter) {
           directBlock.sizeFilteredDirectBlock = h5.readLength();
-          directBlock.filterMask = raf.readInt();
+          directBlock.filterMask = h5.raf.readInt();
         }
         if (debugDetail || debugFractalHeap)
           debugOut.println("  DirectChild " + i + " address= " + directBlock.address);
@@ -536,14 +534,14 @@ Where startingBlockSize is from the header, ie the same for all indirect blocks.
 
   void readDirectBlock(long pos, long heapAddress, DataBlock dblock) throws IOException {
     if (pos < 0) return; // means its empty
-    raf.seek(pos);
+    h5.raf.seek(pos);
 
     // header
-    String magic = raf.readString(4);
+    String magic = h5.raf.readString(4);
     if (!magic.equals("FHDB"))
       throw new IllegalStateException(magic + " should equal FHDB");
 
-    byte version = raf.readByte();
+    byte version = h5.raf.readByte();
     long heapHeaderAddress = h5.readOffset(); // This is the address for the fractal heap header that this block belongs to. This field is principally used for file integrity checking.
     if (heapAddress != heapHeaderAddress)
       throw new IllegalStateException();
@@ -554,7 +552,7 @@ Where startingBlockSize is from the header, ie the same for all indirect blocks.
     int nbytes = maxHeapSize / 8;
     if (maxHeapSize % 8 != 0) nbytes++;
     dblock.offset = h5.readVariableSizeUnsigned(nbytes); // This is the offset of the block within the fractal heap's address space (in bytes).
-    dblock.dataPos = pos; // raf.getFilePointer();  // offsets are from the start of the block
+    dblock.dataPos = pos; // h5.raf.getFilePointer();  // offsets are from the start of the block
 
     dblock.extraBytes += nbytes;
     if ((flags & 2) != 0) dblock.extraBytes += 4; // ?? size of checksum
@@ -38,6 +38,7 @@ import ucar.ma2.*;
 import ucar.nc2.constants.CDM;
 import ucar.nc2.iosp.netcdf3.N3iosp;
 import ucar.nc2.time.CalendarDate;
+import ucar.nc2.util.cache.DecodedDataCache;
 import ucar.unidata.io.RandomAccessFile;
 import ucar.nc2.iosp.*;
 import ucar.nc2.iosp.hdf4.HdfEos;
@@ -48,6 +49,7 @@ import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Formatter;
+import java.util.concurrent.Executor;
 
 /**
  * HDF5 I/O
@@ -115,10 +117,68 @@ public class H5iosp extends AbstractIOServiceProvider {
     useHdfEos = val;
   }
 
+  //////////////////////////////////////////////////////////////////////////////////
+  // cache of decompressed chunks, shared by all H5iosp
+
+  static private DecodedDataCache<byte[]> chunkCache = null;
+
+  /**
+   * Enable caching of decompressed (filtered) chunks, shared by all open HDF5 files.
+   *
+   * @param maxBytes maximum total size of the decompressed chunks in the cache; if <= 0, disable the cache.
+   */
+  static public synchronized void initChunkCache(long maxBytes) {
+    disableChunkCache();
+    if (maxBytes > 0)
+      chunkCache = new DecodedDataCache<>("H5ChunkCache", maxBytes, data -> data.length);
+  }
+
+  static public synchronized void disableChunkCache() {
+    if (null != chunkCache) chunkCache.clearCache();
+    chunkCache = null;
+  }
+
+  /**
+   * Get the cache of decompressed chunks.
+   *
+   * @return the cache, or null if not enabled
+   */
+  static public synchronized DecodedDataCache<byte[]> getChunkCache() {
+    return chunkCache;
+  }
+
+  //////////////////////////////////////////////////////////////////////////////////
+  // parallel decompression of filtered chunks, shared by all H5iosp
+
+  static private Executor chunkExecutor = null;
+  static private int chunkReadAhead;
+
+  /**
+   * Undo the filters (inflate, shuffle ..) of chunked data in parallel, using the given Executor.
+   * The raw chunks are still read in order by the reading thread, which keeps at most readAhead chunks in flight.
+   * The caller owns the Executor, eg a fixed thread pool, and is responsible for shutting it down.
+   *
+   * @param exec use this Executor; if null, chunks are decompressed serially by the reading thread (default).
+   * @param readAhead maximum number of chunks in flight for one read, typically twice the number of threads.
+   */
+  static public synchronized void setChunkExecutor(Executor exec, int readAhead) {
+    chunkExecutor = exec;
+    chunkReadAhead = readAhead;
+  }
+
+  static public synchronized Executor getChunkExecutor() {
+    return chunkExecutor;
+  }
+
+  static private synchronized int getChunkReadAhead() {
+    return chunkReadAhead;
+  }
+
   //////////////////////////////////////////////////////////////////////////////////
 
   //private RandomAccessFile raf;
   private H5header headerParser;
+  private final Object headerLock = new Object(); // only used for concurrent reads
   private boolean isEos;
   boolean includeOriginalAttributes = false;
 
@@ -127,8 +187,13 @@ public class H5iosp extends AbstractIOServiceProvider {
 
   public void open(RandomAccessFile raf, ucar.nc2.NetcdfFile ncfile, ucar.nc2.util.CancelTask cancelTask) throws IOException {
     super.open(raf, ncfile, cancelTask);
-    headerParser = new H5header(this.raf, ncfile, this);
+    HeaderCache headerCache = HeaderCache.open(this.raf);
+    headerParser = new H5header((headerCache == null) ? this.raf : headerCache.getRandomAccessFile(), ncfile, this);
     headerParser.read(null);
+    if (headerCache != null) {
+      headerCache.finish();
+      headerParser.raf = this.raf;
+    }
 
     // check if its an HDF5-EOS file
     Group eosInfo = ncfile.getRootGroup().findGroup(HdfEos.HDF5_GROUP);
@@ -142,11 +207,28 @@ public class H5iosp extends AbstractIOServiceProvider {
   public Array readData(ucar.nc2.Variable v2, Section section) throws IOException, InvalidRangeException {
     H5header.Vinfo vinfo = (H5header.Vinfo) v2.getSPobject();
     if (debugRead) System.out.printf("%s read %s%n", v2.getFullName(), section);
-    return readData(v2, vinfo.dataPos, section);
+    if (!isConcurrentReads())
+      return readData(v2, vinfo.dataPos, section, raf);
+
+    // concurrent reads: anything that reads the header (btree nodes, global heap) takes turns on raf
+    synchronized (headerLock) {
+      if (!isConcurrentReadable(v2, vinfo))
+        return readData(v2, vinfo.dataPos, section, raf);
+    }
+    return readData(v2, vinfo.dataPos, section, getDataFile());
+  }
+
+  // true if the data can be read without reading the header, once the chunk index is made
+  private boolean isConcurrentReadable(ucar.nc2.Variable v2, H5header.Vinfo vinfo) throws IOException {
+    if (vinfo.typeInfo.isVlen || vinfo.typeInfo.isVString || vinfo.typeInfo.hdfType == 7) // global heap, references
+      return false;
+    if (v2.getDataType() == DataType.STRING || v2.getDataType() == DataType.STRUCTURE)
+      return false;
+    return !vinfo.isChunked || vinfo.btree.hasChunkIndex();
   }
 
   // all the work is here, so can be called recursively
-  private Array readData(ucar.nc2.Variable v2, long dataPos, Section wantSection) throws IOException, InvalidRangeException {
+  private Array readData(ucar.nc2.Variable v2, long dataPos, Section wantSection, RandomAccessFile dataFile) throws IOException, InvalidRangeException {
     H5header.Vinfo vinfo = (H5header.Vinfo) v2.getSPobject();
     DataType dataType = v2.getDataType();
     Object data;
@@ -163,7 +245,8 @@ public class H5iosp extends AbstractIOServiceProvider {
       if (debugFilter) System.out.println("read variable filtered " + v2.getFullName() + " vinfo = " + vinfo);
       assert vinfo.isChunked;
       ByteOrder bo = (vinfo.typeInfo.endian == 0) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
-      layout = new H5tiledLayoutBB(v2, wantSection, raf, vinfo.mfp.getFilters(), bo);
+      layout = new H5tiledLayoutBB(v2, wantSection, dataFile, vinfo.mfp.getFilters(), bo, getChunkCache(),
+              getChunkExecutor(), getChunkReadAhead());
       if (vinfo.typeInfo.isVString) {
         data = readFilteredStringData((LayoutBB) layout);
       } else{
@@ -204,7 +287,7 @@ public class H5iosp extends AbstractIOServiceProvider {
       } else {
         layout = new LayoutRegular(dataPos, elemSize, v2.getShape(), wantSection);
       }
-      data = readData(vinfo, v2, layout, readDtype, wantSection.getShape(), fillValue, endian);
+      data = readData(vinfo, v2, layout, readDtype, wantSection.getShape(), fillValue, endian, dataFile);
     }
 
     if (data instanceof Array)
@@ -239,18 +322,19 @@ public class H5iosp extends AbstractIOServiceProvider {
    * @param dataType  dataType of the data to read
    * @param shape     the shape of the output
    * @param fillValue fill value as a wrapped primitive
+   * @param dataFile  read data from this file
    * @return primitive array or Array with data read in
    * @throws java.io.IOException            if read error
    * @throws ucar.ma2.InvalidRangeException if invalid section
    */
   private Object readData(H5header.Vinfo vinfo, Variable v, Layout layout, DataType dataType, int[] shape,
-                          Object fillValue, int endian) throws java.io.IOException, InvalidRangeException {
+                          Object fillValue, int endian, RandomAccessFile dataFile) throws java.io.IOException, InvalidRangeException {
 
     H5header.TypeInfo typeInfo = vinfo.typeInfo;
 
     // special processing
     if (typeInfo.hdfType == 2) { // time
-      Object data = IospHelper.readDataFill(raf, layout, dataType, fillValue, endian, true);
+      Object data = IospHelper.readDataFill(dataFile, layout, dataType, fillValue, endian, true);
       Array timeArray = Array.factory(dataType, shape, data);
 
       // now transform into an ISO Date String
@@ -264,7 +348,7 @@ public class H5iosp extends AbstractIOServiceProvider {
     }
 
     if (typeInfo.hdfType == 8) { // enum
-      Object data = IospHelper.readDataFill(raf, layout, dataType, fillValue, endian);
+      Object data = IospHelper.readDataFill(dataFile, layout, dataType, fillValue, endian);
       return Array.factory(dataType, shape, data);
     }
 
@@ -334,8 +418,8 @@ public class H5iosp extends AbstractIOServiceProvider {
         if (debugStructure)
           System.out.println(" readStructure " + v.getFullName() + " chunk= " + chunk + " index.getElemSize= " + layout.getElemSize());
         // copy bytes directly into the underlying byte[] LOOK : assumes contiguous layout ??
-        raf.seek(chunk.getSrcPos());
-        raf.readFully(byteArray, (int) chunk.getDestElem() * recsize, chunk.getNelems() * recsize);
+        dataFile.seek(chunk.getSrcPos());
+        dataFile.readFully(byteArray, (int) chunk.getDestElem() * recsize, chunk.getNelems() * recsize);
       }
 
       // place data into an ArrayStructureBB
@@ -343,7 +427,7 @@ public class H5iosp extends AbstractIOServiceProvider {
     }
 
     // normal case
-    return readDataPrimitive(layout, dataType, shape, fillValue, endian, true);
+    return readDataPrimitive(dataFile, layout, dataType, shape, fillValue, endian, true);
   }
 
   Array convertReference(Array refArray) throws java.io.IOException {
@@ -524,6 +608,11 @@ public class H5iosp extends AbstractIOServiceProvider {
    * @throws ucar.ma2.InvalidRangeException if invalid section
    */
   Object readDataPrimitive(Layout layout, DataType dataType, int[] shape, Object fillValue, int endian, boolean convertChar) throws java.io.IOException, InvalidRangeException {
+    return readDataPrimitive(raf, layout, dataType, shape, fillValue, endian, convertChar);
+  }
+
+  private Object readDataPrimitive(RandomAccessFile dataFile, Layout layout, DataType dataType, int[] shape, Object fillValue,
+                                   int endian, boolean convertChar) throws java.io.IOException, InvalidRangeException {
 
     if (dataType == DataType.STRING) {
       int size = (int) layout.getTotalNelems();
@@ -550,8 +639,8 @@ public class H5iosp extends AbstractIOServiceProvider {
         int recsize = layout.getElemSize();
         for (int i = 0; i < chunk.getNelems(); i++) {
           byte[] pa = new byte[recsize];
-          raf.seek(chunk.getSrcPos() + i * recsize);
-          raf.readFully(pa, 0, recsize);
+          dataFile.seek(chunk.getSrcPos() + i * recsize);
+          dataFile.readFully(pa, 0, recsize);
           opArray.setObject(count++, ByteBuffer.wrap(pa));
         }
       }
@@ -559,7 +648,7 @@ public class H5iosp extends AbstractIOServiceProvider {
     }
 
     // normal case
-    return IospHelper.readDataFill(raf, layout, dataType, fillValue, endian, convertChar);
+    return IospHelper.readDataFill(dataFile, layout, dataType, fillValue, endian, convertChar);
   }
 
   // old way
@@ -570,7 +659,7 @@ public class H5iosp extends AbstractIOServiceProvider {
     for (Variable v2 : s.getVariables()) {
       H5header.Vinfo vinfo = (H5header.Vinfo) v2.getSPobject();
       if (debug) System.out.println(" readStructureMember " + v2.getFullName() + " vinfo = " + vinfo);
-      Array dataArray = readData(v2, dataPos + vinfo.dataPos, v2.getShapeAsSection());
+      Array dataArray = readData(v2, dataPos + vinfo.dataPos, v2.getShapeAsSection(), raf);
       sdata.setMemberData(v2.getShortName(), dataArray);
     }
 
@@ -624,6 +713,9 @@ public class H5iosp extends AbstractIOServiceProvider {
 
   @Override
   public Object sendIospMessage(Object message) {
+    if (message == NetcdfFile.IOSP_MESSAGE_CONCURRENT_READS)
+      return enableConcurrentReads();
+
     if (message.toString().equals(IOSP_MESSAGE_INCLUDE_ORIGINAL_ATTRIBUTES)) {
       includeOriginalAttributes = true;
       return null;
@@ -40,7 +40,9 @@ import ucar.ma2.Section;
 import ucar.nc2.Variable;
 import ucar.nc2.iosp.LayoutBB;
 import ucar.nc2.iosp.LayoutBBTiled;
+import ucar.nc2.util.ExecutorHelper;
 import ucar.nc2.util.IO;
+import ucar.nc2.util.cache.DecodedDataCache;
 import ucar.unidata.io.RandomAccessFile;
 
 import java.io.ByteArrayInputStream;
@@ -48,12 +50,19 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  * Iterator to read/write subsets of an array.
  * This calculates byte offsets for HD5 chunked datasets.
  * Assumes that the data is stored in chunks, indexed by a Btree.
  * for filtered data
+ * <p>
+ * If an Executor is given, the filters (inflate, shuffle ..) of the chunks that intersect the wanted section are undone
+ * in parallel. The raw bytes are still read in order on the calling thread, since the RandomAccessFile is not thread
+ * safe, and at most readAhead chunks are in flight at once.
  *
  * @author caron
  */
@@ -63,7 +72,11 @@ class H5tiledLayoutBB implements LayoutBB {
   private RandomAccessFile raf;
   private H5header.Filter[] filters;
   private ByteOrder byteOrder;
-                                                                                                     
+  private DecodedDataCache<byte[]> chunkCache; // may be null
+  private long lastModified;
+  private Executor executor; // may be null
+  private int readAhead;
+
   private Section want;
   private int[] chunkSize; // from the StorageLayout message (exclude the elemSize)
   private int elemSize; // last dimension of the StorageLayout message
@@ -79,10 +92,15 @@ class H5tiledLayoutBB implements LayoutBB {
    * @param wantSection the wanted section of data, contains a List of Range objects. must be complete
    * @param raf the RandomAccessFile
    * @param filters set of filters that have been applied to the data
+   * @param byteOrder byte order of the data
+   * @param chunkCache cache of decompressed chunks, may be null
+   * @param executor undo the filters on this Executor, may be null
+   * @param readAhead maximum number of chunks in flight, when executor is not null
    * @throws InvalidRangeException if section invalid for this variable
    * @throws java.io.IOException   on io error
    */
-  H5tiledLayoutBB(Variable v2, Section wantSection, RandomAccessFile raf, H5header.Filter[] filters, ByteOrder byteOrder) throws InvalidRangeException, IOException {
+  H5tiledLayoutBB(Variable v2, Section wantSection, RandomAccessFile raf, H5header.Filter[] filters, ByteOrder byteOrder,
+                  DecodedDataCache<byte[]> chunkCache, Executor executor, int readAhead) throws InvalidRangeException, IOException {
     wantSection = Section.fill(wantSection, v2.getShape());
 
     H5header.Vinfo vinfo = (H5header.Vinfo) v2.getSPobject();
@@ -92,6 +110,12 @@ class H5tiledLayoutBB implements LayoutBB {
     this.raf = raf;
     this.filters = filters;
     this.byteOrder = byteOrder;
+    this.chunkCache = chunkCache;
+    this.executor = executor;
+    this.readAhead = Math.max(readAhead, 1);
+    if (chunkCache != null) {
+      this.lastModified = raf.getLastModified();
+    }
 
     // we have to translate the want section into the same rank as the storageSize, in order to be able to call
     // Section.intersect(). It appears that storageSize (actually msl.chunkSize) may have an extra dimension, reletive
@@ -110,7 +134,7 @@ class H5tiledLayoutBB implements LayoutBB {
 
     // create the data chunk iterator
     DataBTree.DataChunkIterator iter = vinfo.btree.getDataChunkIteratorFilter(this.want);
-    DataChunkIterator dcIter = new DataChunkIterator(iter);
+    LayoutBBTiled.DataChunkIterator dcIter = (executor == null) ? new DataChunkIterator(iter) : new ParallelDataChunkIterator(iter);
     delegate = new LayoutBBTiled(dcIter, chunkSize, elemSize, this.want);
     
     if (debug) System.out.println(" H5tiledLayout: " + this);
@@ -161,11 +185,53 @@ class H5tiledLayoutBB implements LayoutBB {
     }
   }
 
+  // reads ahead the chunks that intersect want, and starts undoing their filters on the executor
+  private class ParallelDataChunkIterator implements LayoutBBTiled.DataChunkIterator {
+    DataBTree.DataChunkIterator delegate;
+    ArrayDeque<DataChunk> pending = new ArrayDeque<>();
+    long nelemsToQueue; // number of wanted elements not yet in a queued chunk
+
+    ParallelDataChunkIterator(DataBTree.DataChunkIterator delegate) {
+      this.delegate = delegate;
+      this.nelemsToQueue = want.computeSize();
+    }
+
+    private void fill() throws IOException {
+      while (pending.size() < readAhead && nelemsToQueue > 0 && delegate.hasNext()) {
+        DataChunk chunk = new DataChunk(delegate.next());
+        try {
+          Section dataSection = new Section(chunk.getOffset(), chunkSize);
+          if (!dataSection.intersects(want)) continue;
+          nelemsToQueue -= dataSection.intersect(want).computeSize();
+        } catch (InvalidRangeException e) {
+          throw new IllegalStateException(e);
+        }
+        chunk.start();
+        pending.add(chunk);
+      }
+    }
+
+    public boolean hasNext() {
+      try {
+        fill();
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+      return !pending.isEmpty();
+    }
+
+    public LayoutBBTiled.DataChunk next() throws IOException {
+      fill();
+      return pending.remove();
+    }
+  }
+
   private class DataChunk implements ucar.nc2.iosp.LayoutBBTiled.DataChunk {
     // Copied from ArrayList.
     private static final int MAX_ARRAY_LEN = Integer.MAX_VALUE - 8;
 
     DataBTree.DataChunk delegate;
+    FutureTask<byte[]> task; // not null if started on the executor
 
     DataChunk(DataBTree.DataChunk delegate) {
       this.delegate = delegate;
@@ -200,13 +266,64 @@ class H5tiledLayoutBB implements LayoutBB {
       return offset;
     }
 
+    // read the raw data now, and undo the filters on the executor
+    void start() throws IOException {
+      if (chunkCache != null) {
+        DecodedDataCache.Key key = makeKey();
+        if (chunkCache.contains(key)) { // dont bother with the executor
+          task = new FutureTask<>(() -> chunkCache.get(key, this::readAndFilter));
+          task.run();
+          return;
+        }
+        byte[] raw = readRaw();
+        task = new FutureTask<>(() -> chunkCache.get(key, () -> filter(raw)));
+      } else {
+        byte[] raw = readRaw();
+        task = new FutureTask<>(() -> filter(raw));
+      }
+
+      ExecutorHelper.execute(executor, task);
+    }
+
+    private DecodedDataCache.Key makeKey() {
+      return new DecodedDataCache.Key(raf.getLocation(), lastModified, delegate.filePos);
+    }
+
     public ByteBuffer getByteBuffer() throws IOException {
       try {
-        // read the data
-        byte[] data = new byte[delegate.size];
-        raf.seek(delegate.filePos);
-        raf.readFully(data);
+        byte[] data;
+        if (task != null)
+          data = ExecutorHelper.finish(task, "reading HDF5 chunk");
+        else if (chunkCache == null)
+          data = readAndFilter();
+        else
+          data = chunkCache.get(makeKey(), this::readAndFilter);
+
+        ByteBuffer result = ByteBuffer.wrap(data);
+        result.order(byteOrder);
+        return result;
+      } catch (OutOfMemoryError e) {
+        Error oom =  new OutOfMemoryError("Ran out of memory trying to read HDF5 filtered chunk. Either increase the " +
+                "JVM's heap size (use the -Xmx switch) or reduce the size of the dataset's chunks (use nccopy -c).");
+        oom.initCause(e);  // OutOfMemoryError lacks a constructor with a cause parameter.
+        throw oom;
+      }
+    }
+
+    // read the data and undo the filters
+    private byte[] readAndFilter() throws IOException {
+      return filter(readRaw());
+    }
+
+    private byte[] readRaw() throws IOException {
+      byte[] data = new byte[delegate.size];
+      raf.seek(delegate.filePos);
+      raf.readFully(data);
+      return data;
+    }
 
+    // does not touch the RandomAccessFile, so may be called from any thread
+    private byte[] filter(byte[] data) throws IOException {
       // apply filters backwards
       for (int i = filters.length - 1; i >= 0; i--) {
         H5header.Filter f = filters[i];
@@ -225,16 +342,7 @@ class H5tiledLayoutBB implements LayoutBB {
         } else
           throw new RuntimeException("Unknown filter type="+f.id);
       }
-
-        ByteBuffer result = ByteBuffer.wrap(data);
-        result.order(byteOrder);
-        return result;
-      } catch (OutOfMemoryError e) {
-        Error oom =  new OutOfMemoryError("Ran out of memory trying to read HDF5 filtered chunk. Either increase the " +
-                "JVM's heap size (use the -Xmx switch) or reduce the size of the dataset's chunks (use nccopy -c).");
-        oom.initCause(e);  // OutOfMemoryError lacks a constructor with a cause parameter.
-        throw oom;
-      }
+      return data;
     }
 
     /**
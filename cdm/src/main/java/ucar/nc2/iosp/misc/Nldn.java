@@ -40,6 +40,7 @@ import ucar.ma2.*;
 import ucar.nc2.*;
 import ucar.nc2.constants.AxisType;
 import ucar.nc2.constants.CDM;
+import ucar.nc2.iosp.IospSignature;
 import ucar.nc2.util.CancelTask;
 
 import ucar.unidata.io.RandomAccessFile;
@@ -47,6 +48,8 @@ import ucar.unidata.io.RandomAccessFile;
 import java.io.IOException;
 
 import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
 
 
 /**
@@ -146,6 +149,13 @@ The specifics for the binary NLDN data record contained in the IDD is:
     return test.equals(MAGIC);
   }
 
+  private static final List<IospSignature> signatures = Collections.singletonList(new IospSignature(0, MAGIC));
+
+  @Override
+  public List<IospSignature> getSignatures() {
+    return signatures;
+  }
+
   /**
    * Get a unique id for this file type.
    *
@@ -39,6 +39,7 @@ import ucar.nc2.constants._Coordinate;
 import ucar.unidata.io.RandomAccessFile;
 import ucar.nc2.units.DateFormatter;
 import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.iosp.IospSignature;
 import ucar.nc2.*;
 import ucar.nc2.util.CancelTask;
 import ucar.ma2.*;
@@ -102,6 +103,14 @@ public class NmcObsLegacy extends AbstractIOServiceProvider {
     return true;
   }
 
+  private static final List<IospSignature> signatures =
+          Collections.singletonList(new IospSignature(32, "XXXXXXXXXXXXXXXXXXXXXXXX")); // 32 - 56 are X's
+
+  @Override
+  public List<IospSignature> getSignatures() {
+    return signatures;
+  }
+
   public String getFileTypeId() {
     return "NMCon29";
   }
@@ -418,6 +418,7 @@ public abstract class N3iosp extends AbstractIOServiceProvider implements IOServ
 
   // properties
   protected boolean useRecordStructure;
+  protected volatile boolean offHeap; // numeric data into ArrayDirect, see NetcdfFile.IOSP_MESSAGE_OFF_HEAP_ARRAYS
 
   //////////////////////////////////////////////////////////////////////////////////////
   // read existing file
@@ -444,7 +445,12 @@ public abstract class N3iosp extends AbstractIOServiceProvider implements IOServ
     raf.order(RandomAccessFile.BIG_ENDIAN);
     header = new N3header();
 
-    header.read(raf, ncfile, null); // read header here
+    HeaderCache headerCache = HeaderCache.open(raf);
+    header.read((headerCache == null) ? raf : headerCache.getRandomAccessFile(), ncfile, null); // read header here
+    if (headerCache != null) {
+      headerCache.finish();
+      header.raf = raf;
+    }
     //numrecs = header.numrecs;
     //recsize = header.recsize;
     //recStart = header.recStart;
@@ -483,6 +489,9 @@ public abstract class N3iosp extends AbstractIOServiceProvider implements IOServ
       return Array.factory(dataType, section.getShape());
     }
 
+    if (offHeap && dataType.isNumeric())
+      return IospHelper.readDataDirect(getDataFile(), layout, dataType, section.getShape(), -1);
+
     Object data = readData(layout, dataType);
     return Array.factory(dataType, section.getShape(), data);
   }
@@ -523,16 +532,17 @@ public abstract class N3iosp extends AbstractIOServiceProvider implements IOServ
 
     // note dependency on raf; should probably defer to subclass
     // loop over records
+    RandomAccessFile dataFile = getDataFile();
     byte[] result = structureArray.getByteBuffer().array();
     int count = 0;
     for (int recnum : recordRange) {
       if (debugRecord) System.out.println(" read record " + recnum);
-      raf.seek(header.recStart + recnum * header.recsize); // where the record starts
+      dataFile.seek(header.recStart + recnum * header.recsize); // where the record starts
 
       if (recnum != header.numrecs - 1)
-        raf.readFully(result, (int) (count * header.recsize), (int) header.recsize);
+        dataFile.readFully(result, (int) (count * header.recsize), (int) header.recsize);
       else
-        raf.read(result, (int) (count * header.recsize), (int) header.recsize); // "wart" allows file to be one byte short. since its always padding, we allow
+        dataFile.read(result, (int) (count * header.recsize), (int) header.recsize); // "wart" allows file to be one byte short. since its always padding, we allow
       count++;
     }
 
@@ -650,10 +660,10 @@ public abstract class N3iosp extends AbstractIOServiceProvider implements IOServ
 
     } else {  */
 
+    RandomAccessFile dataFile = getDataFile();
     for (int recnum : recordRange) {
         if (debugRecord) System.out.println(" read record " + recnum);
-        raf.seek(header.recStart + recnum * header.recsize); // where the record starts
-        count += raf.readToByteChannel(out, header.recStart + recnum * header.recsize, header.recsize);
+        count += dataFile.readToByteChannel(out, header.recStart + recnum * header.recsize, header.recsize);
       }
     // }
 
@@ -972,12 +982,18 @@ public abstract class N3iosp extends AbstractIOServiceProvider implements IOServ
 
   @Override
   public Object sendIospMessage(Object message) {
+    if (message == NetcdfFile.IOSP_MESSAGE_OFF_HEAP_ARRAYS) {
+      offHeap = true;
+      return Boolean.TRUE;
+    }
     if (null == header)
       return null;
     if (message == NetcdfFile.IOSP_MESSAGE_ADD_RECORD_STRUCTURE)
       return header.makeRecordStructure();
     else if (message == NetcdfFile.IOSP_MESSAGE_REMOVE_RECORD_STRUCTURE)
       return header.removeRecordStructure();
+    else if (message == NetcdfFile.IOSP_MESSAGE_CONCURRENT_READS)
+      return enableConcurrentReads();
 
     return super.sendIospMessage(message);
   }
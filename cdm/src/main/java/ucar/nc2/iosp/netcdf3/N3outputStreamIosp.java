@@ -0,0 +1,192 @@
+/*
+ * Copyright 1998-2014 University Corporation for Atmospheric Research/Unidata
+ *
+ *   Portions of this software were developed by the Unidata Program at the
+ *   University Corporation for Atmospheric Research.
+ *
+ *   Access and use of this software shall impose the following obligations
+ *   and understandings on the user. The user is granted the right, without
+ *   any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *   this software, and any derivative works thereof, and its supporting
+ *   documentation for any purpose whatsoever, provided that this entire
+ *   notice appears in all copies of the software, derivative works and
+ *   supporting documentation.  Further, UCAR requests that the user credit
+ *   UCAR/Unidata in any publications that result from the use of this
+ *   software or in any product that includes this software. The names UCAR
+ *   and/or Unidata, however, may not be used in any advertising or publicity
+ *   to endorse or promote any products or commercial entity unless specific
+ *   written permission is obtained from UCAR/Unidata. The user also
+ *   understands that UCAR/Unidata is not obligated to provide the user with
+ *   any support, consulting, training or assistance of any kind with regard
+ *   to the use, operation and performance of this software nor to provide
+ *   the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *   THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *   IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *   WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *   DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *   INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *   FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *   NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *   WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.iosp.netcdf3;
+
+import ucar.ma2.*;
+import ucar.nc2.Attribute;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Structure;
+import ucar.nc2.Variable;
+import ucar.nc2.constants.CDM;
+import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.iosp.IOServiceProviderWriter;
+import ucar.nc2.util.CancelTask;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a netcdf-3 file sequentially to an OutputStream, so it can be sent while it is being made, eg as an HTTP response.
+ * The header is written by create(), so there can be no record variables, and the file must fit the classic format.
+ * Variables must be written whole. A variable written ahead of its place in the file is kept in memory until its turn,
+ * and variables that are never written get fill values on close(). The OutputStream is flushed but not closed.
+ *
+ * @see ucar.nc2.NetcdfFileWriter#createNewStream
+ * @since 10/18/2026
+ */
+public class N3outputStreamIosp extends AbstractIOServiceProvider implements IOServiceProviderWriter {
+  static private final int BUFFER_SIZE = 64 * 1000;
+
+  private final DataOutputStream stream;
+  private N3outputStreamWriter writer;
+  private List<N3streamWriter.Vinfo> vinfoList; // file order
+  private int next;                              // next variable to write, index into vinfoList
+  private final Map<Variable, Array> pending = new HashMap<>();
+  private boolean fill = true;
+
+  public N3outputStreamIosp(OutputStream out) {
+    this.stream = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+  }
+
+  @Override
+  public void create(String filename, NetcdfFile ncfile, int extra, long preallocateSize, boolean largeFile) throws IOException {
+    if (largeFile)
+      throw new IllegalArgumentException("cant stream a large (64-bit offset) netcdf-3 file");
+    if (ncfile.hasUnlimitedDimension())
+      throw new IllegalArgumentException("cant stream a netcdf-3 file with an unlimited dimension");
+
+    this.writer = new N3outputStreamWriter(ncfile);
+    writer.debugPos = false;
+    writer.writeHeader(stream, 0);
+    this.vinfoList = writer.vinfoList;
+  }
+
+  /**
+   * The size of the file in bytes, once create() has been called.
+   * @return file size
+   */
+  public long getFileLength() {
+    return (writer == null) ? -1 : writer.recStart;
+  }
+
+  @Override
+  public void writeData(Variable v2, Section section, Array values) throws IOException, InvalidRangeException {
+    if (writer == null)
+      throw new IllegalStateException("create() must be called first");
+    if (values.getSize() != v2.getSize() || !section.equivalent(v2.getShape()))
+      throw new UnsupportedOperationException("variable " + v2.getFullName() + " must be written all at once");
+    if (next >= vinfoList.size() || pending.containsKey(v2) || !writer.vinfoMap.containsKey(v2))
+      throw new IllegalStateException("variable " + v2.getFullName() + " was already written or is not in the file");
+
+    pending.put(v2, values);
+    writePending(false);
+  }
+
+  // write the variables in file order as far as we have their data, or fill values if fillMissing
+  private void writePending(boolean fillMissing) throws IOException {
+    while (next < vinfoList.size()) {
+      Variable v = vinfoList.get(next).v;
+      Array data = pending.remove(v);
+      if (data == null) {
+        if (!fillMissing) return;
+        data = makeFillArray(v);
+      }
+      writer.writeNonRecordData(v, stream, data);
+      next++;
+    }
+  }
+
+  private Array makeFillArray(Variable v) {
+    Array result = Array.factory(v.getDataType(), v.getShape());
+    if (!fill || v.getDataType() == DataType.CHAR)
+      return result;
+    Attribute att = v.findAttribute(CDM.FILL_VALUE);
+    Number fillValue = (att != null && !att.isString()) ? att.getNumericValue() : N3iosp.getFillValueDefault(v.getDataType());
+    if (fillValue != null)
+      MAMath.setDouble(result, fillValue.doubleValue());
+    return result;
+  }
+
+  @Override
+  public void setFill(boolean fill) {
+    this.fill = fill;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    stream.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (writer != null && next < vinfoList.size())
+      writePending(true);
+    stream.flush();
+  }
+
+  @Override
+  public void openForWriting(RandomAccessFile raf, NetcdfFile ncfile, CancelTask cancelTask) throws IOException {
+    throw new UnsupportedOperationException("N3outputStreamIosp can only create new files");
+  }
+
+  @Override
+  public int appendStructureData(Structure s, StructureData sdata) throws IOException, InvalidRangeException {
+    throw new UnsupportedOperationException("N3outputStreamIosp does not write record variables");
+  }
+
+  @Override
+  public boolean rewriteHeader(boolean largeFile) throws IOException {
+    return true; // the header was written by create(), and cannot change
+  }
+
+  @Override
+  public void updateAttribute(Variable v2, Attribute att) throws IOException {
+    throw new UnsupportedOperationException("N3outputStreamIosp cant change the header once it is written");
+  }
+
+  @Override
+  public boolean isValidFile(RandomAccessFile raf) throws IOException {
+    return false;
+  }
+
+  @Override
+  public Array readData(Variable v2, Section section) throws IOException, InvalidRangeException {
+    throw new UnsupportedOperationException("N3outputStreamIosp is write only");
+  }
+
+  @Override
+  public String getFileTypeId() {
+    return "netCDF";
+  }
+
+  @Override
+  public String getFileTypeDescription() {
+    return "NetCDF classic format, written to a stream";
+  }
+}
@@ -156,6 +156,9 @@ public class N3outputStreamWriter extends N3streamWriter {
 
   private long writeData(Variable v, DataOutputStream stream, Array values) throws java.io.IOException {
     DataType dataType = v.getDataType();
+    if (IospHelper.canWriteDirect(values, dataType))
+      return ((ArrayDirect) values).writeTo(stream, 0, values.getSize());
+
     IndexIterator ii = values.getIndexIterator();
 
     if (dataType == DataType.BYTE) {
@@ -194,6 +197,8 @@ public class N3outputStreamWriter extends N3streamWriter {
 
   private int writeDataFast(Variable v, DataOutputStream stream, Array values) throws java.io.IOException {
     DataType dataType = v.getDataType();
+    if (IospHelper.canWriteDirect(values, dataType))
+      return (int) ((ArrayDirect) values).writeTo(stream, 0, values.getSize());
 
     if (dataType == DataType.BYTE) {
       byte[] pa = (byte[]) values.get1DJavaArray(byte.class);
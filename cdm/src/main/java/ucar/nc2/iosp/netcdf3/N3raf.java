@@ -60,7 +60,7 @@ public class N3raf extends N3iosp  {
    * @return primitive array with data read in
    */
  protected Object readData( Layout index, DataType dataType) throws java.io.IOException {
-   return IospHelper.readDataFill(raf, index, dataType, null, -1);
+   return IospHelper.readDataFill(getDataFile(), index, dataType, null, -1);
  }
 
   /**
@@ -70,6 +70,7 @@ public class N3raf extends N3iosp  {
    * @param dataType dataType of the variable
    */
   protected long readData( Layout index, DataType dataType, WritableByteChannel out) throws java.io.IOException {
+    ucar.unidata.io.RandomAccessFile raf = getDataFile();
     long count = 0;
     if (dataType.getPrimitiveClassType() == byte.class || dataType == DataType.CHAR) {
       while (index.hasNext()) {
@@ -106,7 +107,16 @@ public class N3raf extends N3iosp  {
     * @param dataType dataType of the variable
     */
   protected void writeData( Array values, Layout index, DataType dataType) throws java.io.IOException {
-    if ((dataType == DataType.BYTE) || (dataType == DataType.CHAR)) {
+    if (IospHelper.canWriteDirect(values, dataType)) { // copy the bytes as they are
+      ArrayDirect direct = (ArrayDirect) values;
+      while (index.hasNext()) {
+        Layout.Chunk chunk = index.next();
+        raf.seek ( chunk.getSrcPos());
+        direct.writeTo(raf, chunk.getDestElem(), chunk.getNelems());
+      }
+      return;
+
+    } else if ((dataType == DataType.BYTE) || (dataType == DataType.CHAR)) {
       IndexIterator ii = values.getIndexIterator();
       while (index.hasNext()) {
         Layout.Chunk chunk = index.next();
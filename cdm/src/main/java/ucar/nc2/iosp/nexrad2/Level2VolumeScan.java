@@ -36,6 +36,7 @@ package ucar.nc2.iosp.nexrad2;
 import ucar.unidata.io.RandomAccessFile;
 import ucar.nc2.util.CancelTask;
 import ucar.nc2.util.DiskCache;
+import ucar.nc2.util.ExecutorHelper;
 import ucar.nc2.NetcdfFile;
 import static ucar.nc2.iosp.nexrad2.Level2Record.REFLECTIVITY_HIGH;
 import static ucar.nc2.iosp.nexrad2.Level2Record.VELOCITY_HIGH ;
@@ -43,6 +44,9 @@ import java.io.*;
 import java.util.*;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import ucar.unidata.io.bzip2.CBZip2InputStream;
 import ucar.unidata.io.bzip2.BZip2ReadException;
@@ -72,6 +76,35 @@ public class Level2VolumeScan {
   static public final String AR2V0007 = "AR2V0007";
 
   static private org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(Level2VolumeScan.class);
+
+  //////////////////////////////////////////////////////////////////////////////////
+  // parallel decompression of bzip2 blocks, shared by all Level2VolumeScans
+
+  static private Executor decompressExecutor = null;
+  static private int decompressReadAhead;
+
+  /**
+   * Decompress the bzip2 blocks of compressed files in parallel, using the given Executor.
+   * The compressed blocks are still read in order by the opening thread, which keeps at most readAhead blocks in flight,
+   * and the uncompressed blocks are written in order. The caller owns the Executor, eg a fixed thread pool,
+   * and is responsible for shutting it down.
+   *
+   * @param exec use this Executor; if null, blocks are decompressed serially by the opening thread (default).
+   * @param readAhead maximum number of blocks in flight for one file, typically twice the number of threads.
+   */
+  static public synchronized void setDecompressExecutor(Executor exec, int readAhead) {
+    decompressExecutor = exec;
+    decompressReadAhead = readAhead;
+  }
+
+  static public synchronized Executor getDecompressExecutor() {
+    return decompressExecutor;
+  }
+
+  static private synchronized int getDecompressReadAhead() {
+    return decompressReadAhead;
+  }
+
   ////////////////////////////////////////////////////////////////////////////////////
 
   // Data file
@@ -647,7 +680,7 @@ public class Level2VolumeScan {
    * @return raf of uncompressed file
    * @throws IOException on read error
    */
-  private RandomAccessFile uncompress(RandomAccessFile inputRaf, String ufilename) throws IOException {
+  static RandomAccessFile uncompress(RandomAccessFile inputRaf, String ufilename) throws IOException {
     RandomAccessFile outputRaf = new RandomAccessFile(ufilename, "rw");
     FileLock lock;
 
@@ -667,6 +700,11 @@ public class Level2VolumeScan {
       }
     }
 
+    Executor exec = getDecompressExecutor();
+    int readAhead = Math.max(1, getDecompressReadAhead());
+    Queue<BlockDecompressor> decompressors = new ConcurrentLinkedQueue<>(); // reused by the parallel reads
+    ArrayDeque<FutureTask<BlockDecompressor>> pending = new ArrayDeque<>();
+
     try {
         inputRaf.seek(0);
         byte[] header = new byte[Level2Record.FILE_HEADER_SIZE];
@@ -680,10 +718,8 @@ public class Level2VolumeScan {
 
         boolean eof = false;
         int numCompBytes;
-        byte[] ubuff = new byte[40000];
-        byte[] obuff = new byte[40000];
 
-        CBZip2InputStream cbzip2 = new CBZip2InputStream();
+        BlockDecompressor serial = (exec == null) ? new BlockDecompressor() : null; // reused by the serial reads
         while (!eof) {
             try {
                 numCompBytes = inputRaf.readInt();
@@ -715,38 +751,29 @@ public class Level2VolumeScan {
             }
             byte[] buf = new byte[numCompBytes];
             inputRaf.readFully(buf);
-            ByteArrayInputStream bis = new ByteArrayInputStream(buf, 2,
-                    numCompBytes - 2);
 
-            //CBZip2InputStream cbzip2 = new CBZip2InputStream(bis);
-            cbzip2.setStream(bis);
-            int total = 0;
-            int nread;
-          /*
-          while ((nread = cbzip2.read(ubuff)) != -1) {
-            dout2.write(ubuff, 0, nread);
-            total += nread;
-          }
-          */
-            try {
-                while ((nread = cbzip2.read(ubuff)) != -1) {
-                    if (total + nread > obuff.length) {
-                        byte[] temp = obuff;
-                        obuff = new byte[temp.length * 2];
-                        System.arraycopy(temp, 0, obuff, 0, temp.length);
-                    }
-                    System.arraycopy(ubuff, 0, obuff, total, nread);
-                    total += nread;
-                }
-                if (obuff.length >= 0) outputRaf.write(obuff, 0, total);
-            } catch (BZip2ReadException ioe) {
-                log.warn("Nexrad2IOSP.uncompress ", ioe);
+            if (exec == null) {
+                serial.decompress(buf).write(outputRaf);
+                continue;
             }
-            float nrecords = (float) (total / 2432.0);
-            if (log.isDebugEnabled())
-                log.debug("  unpacked " + total + " num bytes " + nrecords + " records; ouput ends at " + outputRaf.getFilePointer());
+
+            // write the oldest blocks when there are too many in flight
+            while (pending.size() >= readAhead)
+                writeBlock(outputRaf, finishBlock(pending.remove()), decompressors);
+
+            // the decompressor holds the block until it is written, then goes back to the queue
+            FutureTask<BlockDecompressor> task = new FutureTask<>(() -> {
+                BlockDecompressor decompressor = decompressors.poll();
+                if (decompressor == null) decompressor = new BlockDecompressor();
+                return decompressor.decompress(buf);
+            });
+            pending.add(task);
+            ExecutorHelper.execute(exec, task);
         }
 
+        while (!pending.isEmpty())
+            writeBlock(outputRaf, finishBlock(pending.remove()), decompressors);
+
         outputRaf.flush();
     } catch (IOException e) {
         if (outputRaf != null) outputRaf.close();
@@ -760,6 +787,8 @@ public class Level2VolumeScan {
 
         throw e;
     } finally {
+      for (FutureTask<BlockDecompressor> task : pending)
+          task.cancel(false);
       try {
           if (lock != null) lock.release();
       } catch (IOException e) {
@@ -771,6 +800,53 @@ public class Level2VolumeScan {
     return outputRaf;
   }
 
+  // decompresses one block at a time into buffers that are reused for the following blocks
+  private static class BlockDecompressor {
+    private final CBZip2InputStream cbzip2 = new CBZip2InputStream();
+    private final byte[] ubuff = new byte[40000];
+    private byte[] obuff = new byte[40000];
+    private int total; // -1 if the block couldnt be decompressed
+
+    // buf is a compressed block, starting with "BZ"
+    BlockDecompressor decompress(byte[] buf) throws IOException {
+      cbzip2.setStream(new ByteArrayInputStream(buf, 2, buf.length - 2));
+      total = 0;
+      int nread;
+      try {
+        while ((nread = cbzip2.read(ubuff)) != -1) {
+          if (total + nread > obuff.length) {
+            byte[] temp = obuff;
+            obuff = new byte[temp.length * 2];
+            System.arraycopy(temp, 0, obuff, 0, total);
+          }
+          System.arraycopy(ubuff, 0, obuff, total, nread);
+          total += nread;
+        }
+      } catch (BZip2ReadException ioe) {
+        log.warn("Nexrad2IOSP.uncompress ", ioe);
+        total = -1;
+        return this;
+      }
+      if (log.isDebugEnabled())
+        log.debug("  unpacked " + total + " num bytes " + (total / 2432.0f) + " records");
+      return this;
+    }
+
+    void write(RandomAccessFile outputRaf) throws IOException {
+      if (total >= 0) outputRaf.write(obuff, 0, total);
+    }
+  }
+
+  private static void writeBlock(RandomAccessFile outputRaf, BlockDecompressor block, Queue<BlockDecompressor> decompressors) throws IOException {
+    block.write(outputRaf);
+    decompressors.offer(block);
+  }
+
+  // wait for the executor, or decompress the block here if no thread has picked it up yet
+  private static BlockDecompressor finishBlock(FutureTask<BlockDecompressor> task) throws IOException {
+    return ExecutorHelper.finish(task, "uncompressing NEXRAD2 file");
+  }
+
   // check if compressed file seems ok
   static public long testValid(String ufilename) throws IOException {
     boolean lookForHeader = false;
@@ -37,6 +37,7 @@ import ucar.ma2.*;
 import ucar.nc2.*;
 import ucar.nc2.constants.*;
 import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.iosp.IospSignature;
 import static ucar.nc2.iosp.nexrad2.Level2Record.*;
 import ucar.nc2.units.DateFormatter;
 import ucar.nc2.util.CancelTask;
@@ -45,6 +46,7 @@ import ucar.unidata.io.RandomAccessFile;
 import java.io.IOException;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 
 /**
@@ -71,6 +73,14 @@ public class Nexrad2IOServiceProvider extends AbstractIOServiceProvider {
     }
   }
 
+  private static final List<IospSignature> signatures = Arrays.asList(
+          new IospSignature(0, Level2VolumeScan.ARCHIVE2), new IospSignature(0, "AR2V000"));
+
+  @Override
+  public List<IospSignature> getSignatures() {
+    return signatures;
+  }
+
  // private Dimension radialDim;
   private double radarRadius;
   private Variable v0, v1;
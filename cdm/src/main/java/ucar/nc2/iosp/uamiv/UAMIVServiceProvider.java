@@ -38,6 +38,7 @@ import ucar.ma2.*;
 import ucar.nc2.*;
 import ucar.nc2.constants.CDM;
 import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.iosp.IospSignature;
 import ucar.nc2.util.CancelTask;
 
 import ucar.unidata.io.RandomAccessFile;
@@ -46,6 +47,7 @@ import java.io.*;
 import java.io.File;
 import java.util.HashSet;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * Class for reading CAMx flavored uamiv files.
@@ -106,6 +108,14 @@ public class UAMIVServiceProvider extends AbstractIOServiceProvider {
     }
   }
 
+  private static final List<IospSignature> signatures = Arrays.asList(new IospSignature(4, EMISSIONS),
+          new IospSignature(4, AVERAGE), new IospSignature(4, AIRQUALITY), new IospSignature(4, INSTANT));
+
+  @Override
+  public List<IospSignature> getSignatures() {
+    return signatures;
+  }
+
   public String getFileTypeId() {
     return "UAMIV";
   }
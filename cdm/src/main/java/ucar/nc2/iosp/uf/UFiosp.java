@@ -34,6 +34,7 @@ package ucar.nc2.iosp.uf;
 
 import ucar.nc2.constants.*;
 import ucar.nc2.iosp.AbstractIOServiceProvider;
+import ucar.nc2.iosp.IospSignature;
 
 import ucar.nc2.Variable;
 import ucar.nc2.NetcdfFile;
@@ -62,6 +63,13 @@ public class UFiosp extends AbstractIOServiceProvider {
     return (localHeader.isValidFile(raf));
   }
 
+  private static final List<IospSignature> signatures = Collections.singletonList(new IospSignature(4, "UF"));
+
+  @Override
+  public List<IospSignature> getSignatures() {
+    return signatures;
+  }
+
   public String getFileTypeId() {
     return "UniversalRadarFormat";
   }
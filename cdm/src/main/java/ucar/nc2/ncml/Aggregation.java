@@ -105,8 +105,22 @@ public abstract class Aggregation {
 
   // experimental multithreading
   static protected Executor executor;
+  static protected int maxConcurrentReads;
   static public void setExecutor(Executor exec) {
+    setExecutor(exec, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Read the nested datasets of an outer dimension aggregation in parallel, using the given Executor.
+   * This is used for reads of the whole variable and of a section of it.
+   * The caller owns the Executor and is responsible for shutting it down.
+   *
+   * @param exec use this Executor; if null, nested datasets are read serially by the reading thread (default).
+   * @param maxReads maximum number of nested datasets being read, or waiting to be copied into the result, for one read.
+   */
+  static public void setExecutor(Executor exec, int maxReads) {
     executor = exec;
+    maxConcurrentReads = maxReads;
   }
 
   static public void setTypicalDatasetMode(String mode) {
@@ -11,13 +11,13 @@ import ucar.nc2.dataset.VariableDS;
 import ucar.nc2.units.DateFromString;
 import ucar.nc2.units.DateUnit;
 import ucar.nc2.util.CancelTask;
+import ucar.nc2.util.ExecutorHelper;
 
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.Callable;
-import java.util.concurrent.CompletionService;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  * Superclass for Aggregations on the outer dimension: joinNew, joinExisting, Fmrc, FmrcSingle
@@ -33,6 +33,7 @@ public abstract class AggregationOuterDimension extends Aggregation implements P
   protected List<String> aggVarNames = new ArrayList<String>(); // explicitly specified in the NcML
   protected List<VariableDS> aggVars = new ArrayList<VariableDS>(); // actual vars that will be aggregated
   private int totalCoords = 0;  // the aggregation dimension size
+  private volatile OuterDimensionIndex<Dataset> datasetIndex; // find the nested datasets for a range of the outer dimension
 
   protected List<CacheVar> cacheList = new ArrayList<CacheVar>(); // promote global attribute to variable
   protected boolean timeUnitsChange = false;
@@ -130,10 +131,30 @@ public abstract class AggregationOuterDimension extends Aggregation implements P
     }
 
     totalCoords = 0;
+    int[] starts = new int[nestedDatasets.size() + 1];
+    int count = 0;
     for (Dataset nested : nestedDatasets) {
       DatasetOuterDimension dod = (DatasetOuterDimension) nested;
+      starts[count++] = totalCoords;
       totalCoords += dod.setStartEnd(totalCoords, cancelTask);
     }
+    starts[count] = totalCoords;
+    datasetIndex = new OuterDimensionIndex<>(nestedDatasets, starts);
+  }
+
+  /**
+   * Get the nested datasets that may be needed to read joinRange of the outer dimension.
+   * Each one must still be checked with getNestedJoinRange(), which returns null for the ones a strided range skips.
+   *
+   * @param joinRange range of the outer dimension
+   * @return nested datasets, in order
+   */
+  protected List<Dataset> getDatasets(Range joinRange) {
+    List<Dataset> nestedDatasets = getDatasets();
+    OuterDimensionIndex<Dataset> index = datasetIndex;
+    if (index == null || !index.isIndexOf(nestedDatasets))
+      return nestedDatasets; // not built yet, or the datasets have changed since: check them all
+    return index.findNeeded(joinRange);
   }
 
   protected int getTotalCoords() {
@@ -247,13 +268,14 @@ public abstract class AggregationOuterDimension extends Aggregation implements P
 
     List<Range> ranges = section.getRanges();
     Range joinRange = section.getRange(0);
-    List<Range> nestedSection = new ArrayList<>(ranges); // get copy
     List<Range> innerSection = ranges.subList(1, ranges.size());
 
     if (debug) System.out.println("   agg wants range=" + mainv.getFullName() + "(" + joinRange + ")");
 
-    // LOOK: could multithread here
-    List<Dataset> nestedDatasets = getDatasets();
+    // the nested datasets that are needed, and the section to read from each
+    List<DatasetOuterDimension> wantDatasets = new ArrayList<>();
+    List<List<Range>> wantSections = new ArrayList<>();
+    List<Dataset> nestedDatasets = getDatasets(joinRange);
     for (Dataset nested : nestedDatasets) {
       DatasetOuterDimension dod = (DatasetOuterDimension) nested;
       Range nestedJoinRange = dod.getNestedJoinRange(joinRange);
@@ -262,13 +284,29 @@ public abstract class AggregationOuterDimension extends Aggregation implements P
       //if (debug)
       //  System.out.println("   agg use " + nested.aggStart + ":" + nested.aggEnd + " range= " + nestedJoinRange + " file " + nested.getLocation());
 
-      Array varData;
+      wantDatasets.add(dod);
       if ((type == Type.joinNew) || (type == Type.forecastModelRunCollection)) {
-        varData = dod.read(mainv, cancelTask, innerSection);
+        wantSections.add(innerSection);
       } else {
+        List<Range> nestedSection = new ArrayList<>(ranges); // get copy
         nestedSection.set(0, nestedJoinRange);
-        varData = dod.read(mainv, cancelTask, nestedSection);
+        wantSections.add(nestedSection);
+      }
+    }
+
+    Executor exec = executor;
+    if (exec != null && wantDatasets.size() > 1) {
+      List<Callable<Array>> reads = new ArrayList<>(wantDatasets.size());
+      for (int i = 0; i < wantDatasets.size(); i++) {
+        DatasetOuterDimension dod = wantDatasets.get(i);
+        List<Range> nestedSection = wantSections.get(i);
+        reads.add(() -> dod.read(mainv, cancelTask, nestedSection));
       }
+      return readConcurrently(exec, reads, sectionData, dtype, cancelTask);
+    }
+
+    for (int i = 0; i < wantDatasets.size(); i++) {
+      Array varData = wantDatasets.get(i).read(mainv, cancelTask, wantSections.get(i));
 
       if ((cancelTask != null) && cancelTask.isCancel())
         return null;
@@ -322,27 +360,15 @@ public abstract class AggregationOuterDimension extends Aggregation implements P
     int destPos = 0;
 
     List<Dataset> nestedDatasets = getDatasets();
-    if (executor != null) {
-      CompletionService<Result> completionService = new ExecutorCompletionService<>(executor);
-
-      int count = 0;
+    Executor exec = executor;
+    if (exec != null && nestedDatasets.size() > 1) {
+      List<Callable<Array>> reads = new ArrayList<>(nestedDatasets.size());
       for (Dataset vnested : nestedDatasets)
-        completionService.submit(new ReaderTask(vnested, mainv, cancelTask, count++));
-
+        reads.add(() -> vnested.read(mainv, cancelTask));
       try {
-        int n = nestedDatasets.size();
-        for (int i = 0; i < n; ++i) {
-          Result r = completionService.take().get();
-          if (r != null) {
-            r.data = MAMath.convert(r.data, dtype); // just in case it needs to be converted
-            int size = (int) r.data.getSize();
-            Array.arraycopy(r.data, 0, allData, size * r.index, size);
-          }
-        }
-      } catch (InterruptedException e) {
-        Thread.currentThread().interrupt();
-      } catch (ExecutionException e) {
-        throw new IOException(e.getMessage());
+        return readConcurrently(exec, reads, allData, dtype, cancelTask);
+      } catch (InvalidRangeException e) {
+        throw new IllegalStateException(e);
       }
 
     } else {
@@ -361,33 +387,65 @@ public abstract class AggregationOuterDimension extends Aggregation implements P
     return allData;
   }
 
-  private static class ReaderTask implements Callable<Result> {
-    Dataset ds;
-    Variable mainv;
-    CancelTask cancelTask;
-    int index;
-
-    ReaderTask(Dataset ds, Variable mainv, CancelTask cancelTask, int index) {
-      this.ds = ds;
-      this.mainv = mainv;
-      this.cancelTask = cancelTask;
-      this.index = index;
-    }
+  /*
+   * Read the nested datasets on the executor, keeping at most maxConcurrentReads of them in flight.
+   * The results are copied into result by this thread in dataset order, so a nested dataset that returns less data
+   * than expected (fmrc ragged time) is packed the same way as in the serial read.
+   * A read that no worker has started yet when its turn comes is run in this thread.
+   * Return null if cancelled, without waiting for reads still in progress.
+   */
+  private Array readConcurrently(Executor exec, List<Callable<Array>> reads, Array result, DataType dtype, CancelTask cancelTask)
+          throws IOException, InvalidRangeException {
+    int maxReads = Math.max(maxConcurrentReads, 1);
+    ArrayDeque<FutureTask<Array>> pending = new ArrayDeque<>();
+    int destPos = 0;
 
-    public Result call() throws Exception {
-      Array data = ds.read(mainv, cancelTask);
-      return new Result(data, index);
+    try {
+      for (Callable<Array> read : reads) {
+        while (pending.size() >= maxReads) {
+          Array varData = finishRead(pending.remove(), cancelTask);
+          if (varData == null)
+            return null;
+          destPos = copyResult(varData, result, destPos, dtype);
+        }
+        if ((cancelTask != null) && cancelTask.isCancel())
+          return null;
+
+        FutureTask<Array> task = new FutureTask<>(() -> {
+          if ((cancelTask != null) && cancelTask.isCancel())
+            return null;
+          return read.call();
+        });
+        ExecutorHelper.execute(exec, task);
+        pending.add(task);
+      }
+
+      while (!pending.isEmpty()) {
+        Array varData = finishRead(pending.remove(), cancelTask);
+        if (varData == null)
+          return null;
+        destPos = copyResult(varData, result, destPos, dtype);
+      }
+      return result;
+
+    } finally {
+      for (FutureTask<Array> task : pending) // only when cancelled or failed
+        task.cancel(false);
     }
   }
 
-  private static class Result {
-    Array data;
-    int index;
+  // wait for the read, or run it here if no thread has picked it up yet; null means cancelled
+  private Array finishRead(FutureTask<Array> task, CancelTask cancelTask) throws IOException, InvalidRangeException {
+    Array varData = ExecutorHelper.finish(task, InvalidRangeException.class, "reading aggregation " + getLocation());
+    if ((cancelTask != null) && cancelTask.isCancel())
+      return null;
+    return varData;
+  }
 
-    Result(Array data, int index) {
-      this.data = data;
-      this.index = index;
-    }
+  private int copyResult(Array varData, Array result, int destPos, DataType dtype) {
+    varData = MAMath.convert(varData, dtype); // just in case it need to be converted
+    Array.arraycopy(varData, 0, result, destPos, (int) varData.getSize());
+    return destPos + (int) varData.getSize();
   }
 
   /* protected Array readAggCoord(Variable aggCoord, Section section, CancelTask cancelTask) throws IOException, InvalidRangeException {
@@ -400,7 +458,7 @@ public abstract class AggregationOuterDimension extends Aggregation implements P
     List<Range> nestedSection = new ArrayList<Range>(ranges); // get copy
     List<Range> innerSection = ranges.subList(1, ranges.size());
 
-    List<Dataset> nestedDatasets = getDatasets();
+    List<Dataset> nestedDatasets = getDatasets(joinRange);
     for (Dataset vnested : nestedDatasets) {
       DatasetOuterDimension dod = (DatasetOuterDimension) vnested;
       Range nestedJoinRange = dod.getNestedJoinRange(joinRange);
@@ -659,38 +717,13 @@ public abstract class AggregationOuterDimension extends Aggregation implements P
      * @throws InvalidRangeException if invalid range request
      */
     protected Range getNestedJoinRange(Range totalRange) throws InvalidRangeException {
-      int wantStart = totalRange.first();
-      int wantStop = totalRange.last() + 1; // Range has last inclusive, we use last exclusive
-
-      // see if this dataset is needed
-      if (!isNeeded(wantStart, wantStop))
-        return null;
-
-      int firstInInterval = totalRange.getFirstInInterval(aggStart);
-      if ((firstInInterval < 0) || (firstInInterval >= aggEnd))
-        return null;
-
-      int start = Math.max(firstInInterval, wantStart) - aggStart;
-      int stop = Math.min(aggEnd, wantStop) - aggStart;
-
-      return new Range(start, stop - 1, totalRange.stride()); // Range has last inclusive
+      return OuterDimensionIndex.nestedJoinRange(totalRange, aggStart, aggEnd);
     }
 
     protected boolean isNeeded(Range totalRange) {
       int wantStart = totalRange.first();
       int wantStop = totalRange.last() + 1; // Range has last inclusive, we use last exclusive
-      return isNeeded(wantStart, wantStop);
-    }
-
-    // wantStart, wantStop are the indices in the aggregated dataset, wantStart <= i < wantEnd
-    // find out if this overlaps this nested Dataset indices
-    private boolean isNeeded(int wantStart, int wantStop) {
-      if (wantStart >= wantStop)
-        return false;
-      if ((wantStart >= aggEnd) || (wantStop <= aggStart))
-        return false;
-
-      return true;
+      return OuterDimensionIndex.isNeeded(wantStart, wantStop, aggStart, aggEnd);
     }
 
     /* @Override
@@ -805,7 +838,7 @@ public abstract class AggregationOuterDimension extends Aggregation implements P
 
       // LOOK could make concurrent
       int resultPos = 0;
-      List<Dataset> nestedDatasets = getDatasets();
+      List<Dataset> nestedDatasets = getDatasets(joinRange);
       for (Dataset vnested : nestedDatasets) {
         DatasetOuterDimension dod = (DatasetOuterDimension) vnested;
 
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 1998-2017 John Caron and University Corporation for Atmospheric Research/Unidata
+ */
+package ucar.nc2.ncml;
+
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the nested datasets of an outer dimension aggregation that a Range of the aggregation dimension touches,
+ * by binary search on where each one starts, instead of asking every nested dataset.
+ * The nested datasets are contiguous and in order: dataset i holds indices [start(i), start(i+1)) of the outer dimension.
+ * Immutable; rebuilt whenever the aggregation coordinates are.
+ *
+ * @since 10/18/2026
+ */
+class OuterDimensionIndex<T> {
+  private final List<T> datasets;
+  private final int[] starts; // starts[i] = aggStart of datasets[i]; starts[n] = total number of coordinates
+
+  /**
+   * Constructor.
+   *
+   * @param datasets the nested datasets, in order along the outer dimension
+   * @param starts   n+1 non-decreasing values: the starting index of each nested dataset, then the total length
+   */
+  OuterDimensionIndex(List<T> datasets, int[] starts) {
+    if (starts.length != datasets.size() + 1)
+      throw new IllegalArgumentException("need " + (datasets.size() + 1) + " starts, have " + starts.length);
+    this.datasets = datasets;
+    this.starts = starts;
+  }
+
+  /**
+   * Is this an index of the given list? The aggregation replaces the list when it rescans.
+   *
+   * @param datasets the current list of nested datasets
+   * @return true if this index was made from that list, and it hasnt changed size since
+   */
+  boolean isIndexOf(List<T> datasets) {
+    return (this.datasets == datasets) && (starts.length == datasets.size() + 1);
+  }
+
+  /**
+   * Find the nested datasets needed to read the given Range, that is, the ones holding at least one of its elements.
+   * An empty nested dataset is only returned when it lies inside a Range with stride 1; nestedJoinRange() returns null for it.
+   *
+   * @param want range of the outer dimension
+   * @return the needed nested datasets, in order
+   */
+  List<T> findNeeded(Range want) {
+    if (want.length() <= 0)
+      return Collections.emptyList();
+
+    int n = datasets.size();
+    if (want.stride() == 1) {
+      int first = upperBound(want.first(), 1, n + 1) - 1; // first dataset with end > want.first()
+      int end = upperBound(want.last(), first, n); // first dataset with start > want.last()
+      return (first < end) ? datasets.subList(first, end) : Collections.<T>emptyList();
+    }
+
+    // strided: skip from each wanted element to the dataset holding it
+    List<T> result = new ArrayList<>();
+    int total = starts[n];
+    int i = -1;
+    int pos = want.first();
+    while (pos >= 0 && pos < total) {
+      if (starts[i + 2] > pos)
+        i++; // usually the next one
+      else
+        i = upperBound(pos, i + 2, n + 1) - 1; // the last dataset starting at or before pos, so it holds pos
+      result.add(datasets.get(i));
+      pos = want.getFirstInInterval(starts[i + 1]);
+    }
+    return result;
+  }
+
+  // first index i in [from, to) with starts[i] > key, or to if none
+  private int upperBound(int key, int from, int to) {
+    int lo = from, hi = to;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (starts[mid] > key)
+        hi = mid;
+      else
+        lo = mid + 1;
+    }
+    return lo;
+  }
+
+  /**
+   * The part of totalRange held by the nested dataset covering [aggStart, aggEnd) of the aggregated dimension,
+   * relative to that nested dataset. Handles strides.
+   *
+   * @param totalRange desired range, relative to the aggregated dimension
+   * @param aggStart   first index of the nested dataset
+   * @param aggEnd     one past the last index of the nested dataset
+   * @return desired Range, or null if nothing is wanted from the nested dataset
+   * @throws InvalidRangeException if invalid range request
+   */
+  static Range nestedJoinRange(Range totalRange, int aggStart, int aggEnd) throws InvalidRangeException {
+    int wantStart = totalRange.first();
+    int wantStop = totalRange.last() + 1; // Range has last inclusive, we use last exclusive
+
+    // see if this dataset is needed
+    if (!isNeeded(wantStart, wantStop, aggStart, aggEnd))
+      return null;
+
+    int firstInInterval = totalRange.getFirstInInterval(aggStart);
+    if ((firstInInterval < 0) || (firstInInterval >= aggEnd))
+      return null;
+
+    int start = Math.max(firstInInterval, wantStart) - aggStart;
+    int stop = Math.min(aggEnd, wantStop) - aggStart;
+
+    return new Range(start, stop - 1, totalRange.stride()); // Range has last inclusive
+  }
+
+  // wantStart, wantStop are the indices in the aggregated dataset, wantStart <= i < wantEnd
+  // find out if this overlaps the nested dataset indices [aggStart, aggEnd)
+  static boolean isNeeded(int wantStart, int wantStop, int aggStart, int aggEnd) {
+    if (wantStart >= wantStop)
+      return false;
+    if ((wantStart >= aggEnd) || (wantStop <= aggStart))
+      return false;
+
+    return true;
+  }
+}
@@ -361,6 +361,10 @@ public class DiskCache2 {
     this.alwaysUseCache = alwaysUseCache;
   }
 
+  public boolean isAlwaysUseCache() {
+    return alwaysUseCache;
+  }
+
 
   /**
    * If true, never put the file in the cache. default false.
@@ -0,0 +1,110 @@
+/*
+ * Copyright 1998-2014 University Corporation for Atmospheric Research/Unidata
+ *
+ *   Portions of this software were developed by the Unidata Program at the
+ *   University Corporation for Atmospheric Research.
+ *
+ *   Access and use of this software shall impose the following obligations
+ *   and understandings on the user. The user is granted the right, without
+ *   any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *   this software, and any derivative works thereof, and its supporting
+ *   documentation for any purpose whatsoever, provided that this entire
+ *   notice appears in all copies of the software, derivative works and
+ *   supporting documentation.  Further, UCAR requests that the user credit
+ *   UCAR/Unidata in any publications that result from the use of this
+ *   software or in any product that includes this software. The names UCAR
+ *   and/or Unidata, however, may not be used in any advertising or publicity
+ *   to endorse or promote any products or commercial entity unless specific
+ *   written permission is obtained from UCAR/Unidata. The user also
+ *   understands that UCAR/Unidata is not obligated to provide the user with
+ *   any support, consulting, training or assistance of any kind with regard
+ *   to the use, operation and performance of this software nor to provide
+ *   the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *   THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *   IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *   WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *   DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *   INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *   FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *   NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *   WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Run tasks on an Executor, where the thread that wants the result runs the task itself if no thread
+ * has picked it up yet. So the caller never waits on a busy or shut down Executor.
+ * <pre>
+ *   FutureTask&lt;V&gt; task = new FutureTask&lt;&gt;(callable);
+ *   ExecutorHelper.execute(executor, task);
+ *   ...
+ *   V result = ExecutorHelper.finish(task, "reading something");
+ * </pre>
+ *
+ * @since 10/18/2026
+ */
+public class ExecutorHelper {
+
+  /**
+   * Hand the task to the Executor, or run it here if the Executor rejects it, eg because it has been shut down.
+   *
+   * @param exec run the task on this Executor
+   * @param task the task
+   */
+  static public void execute(Executor exec, FutureTask<?> task) {
+    try {
+      exec.execute(task);
+    } catch (RejectedExecutionException e) {
+      task.run();
+    }
+  }
+
+  /**
+   * Wait for the task, or run it here if no thread has picked it up yet.
+   *
+   * @param task from execute()
+   * @param what what the task does, for the InterruptedIOException message
+   * @return the result of the task
+   * @throws IOException the IOException thrown by the task, or InterruptedIOException if interrupted
+   */
+  static public <V> V finish(FutureTask<V> task, String what) throws IOException {
+    return finish(task, IOException.class, what);
+  }
+
+  /**
+   * Wait for the task, or run it here if no thread has picked it up yet.
+   * Same as finish(task, what), but also passes on a checked exception of the given class thrown by the task.
+   *
+   * @param task      from execute()
+   * @param checked   class of the other checked exception the task may throw
+   * @param what      what the task does, for the InterruptedIOException message
+   * @return the result of the task
+   * @throws IOException the IOException thrown by the task, or InterruptedIOException if interrupted
+   * @throws X           the checked exception thrown by the task
+   */
+  static public <V, X extends Exception> V finish(FutureTask<V> task, Class<X> checked, String what) throws IOException, X {
+    task.run(); // does nothing if its already been run
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted " + what);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (checked.isInstance(cause)) throw checked.cast(cause);
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      throw new IOException(cause);
+    }
+  }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.util.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.util.Formatter;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * A memory cache of data decoded from files, eg decompressed HDF5 chunks or unpacked GRIB records,
+ * keyed by the file and the position in the file of the encoded data.
+ * Shared by all open files of a kind, so that the same data requested again, even through different NetcdfFile objects,
+ * doesnt have to be read and decoded again.
+ * The cache is bounded by the total number of bytes of the decoded values; least recently used values are evicted.
+ * <p/>
+ * The cached values are shared, and must not be modified.
+ *
+ * @param <V> type of the decoded values, eg byte[]
+ * @since 10/18/2026
+ */
+@ThreadSafe
+public class DecodedDataCache<V> {
+  private final String name;
+  private final long maxBytes;
+  private final ToLongFunction<V> sizeOf;
+  private final AtomicLong nbytes = new AtomicLong();
+  private final Cache<Key, V> cache;
+
+  /**
+   * Constructor.
+   *
+   * @param name     name of the cache, for showStats
+   * @param maxBytes maximum total size in bytes of the decoded values to keep
+   * @param sizeOf   size in bytes of a decoded value
+   */
+  public DecodedDataCache(String name, long maxBytes, ToLongFunction<V> sizeOf) {
+    this.name = name;
+    this.maxBytes = maxBytes;
+    this.sizeOf = sizeOf;
+
+    RemovalListener<Key, V> listener = notification -> nbytes.addAndGet(-sizeOf.applyAsLong(notification.getValue()));
+    this.cache = CacheBuilder.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((Key key, V data) -> (int) Math.min(sizeOf.applyAsLong(data), Integer.MAX_VALUE))
+            .removalListener(listener)
+            .recordStats()
+            .build();
+  }
+
+  /**
+   * Get the decoded value from the cache, or else compute and add it.
+   * Concurrent requests for the same key only compute it once.
+   *
+   * @param key    identifies the encoded data
+   * @param loader reads and decodes the data
+   * @return the decoded value, must not be modified
+   * @throws IOException on read error
+   */
+  public V get(Key key, Callable<V> loader) throws IOException {
+    try {
+      return cache.get(key, () -> {
+        V data = loader.call();
+        nbytes.addAndGet(sizeOf.applyAsLong(data));
+        return data;
+      });
+
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      throw new IOException(cause);
+    }
+  }
+
+  /**
+   * See if the decoded value is in the cache, without affecting the statistics.
+   *
+   * @param key identifies the encoded data
+   * @return true if the decoded value is in the cache
+   */
+  public boolean contains(Key key) {
+    return cache.asMap().containsKey(key);
+  }
+
+  /**
+   * Remove all values.
+   */
+  public void clearCache() {
+    cache.invalidateAll();
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * @return current total size in bytes of the cached values
+   */
+  public long getCacheBytes() {
+    return nbytes.get();
+  }
+
+  public long getHits() {
+    return cache.stats().hitCount();
+  }
+
+  public long getMisses() {
+    return cache.stats().missCount();
+  }
+
+  public long getEvictions() {
+    return cache.stats().evictionCount();
+  }
+
+  public void showStats(Formatter f) {
+    CacheStats stats = cache.stats();
+    f.format("hits= %d misses= %d evictions= %d hitRate= %.3f nvalues= %d bytes= %d maxBytes= %d avgLoadMsecs= %.3f",
+            stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.hitRate(), cache.size(),
+            nbytes.get(), maxBytes, stats.averageLoadPenalty() / 1.0e6);
+  }
+
+  public void showCache(Formatter f) {
+    f.format("%n%s%n", name);
+    showStats(f);
+    f.format("%n");
+  }
+
+  /**
+   * Identifies the encoded data: the file, and the position of the data in the file.
+   * The file's last modified time is included so that a rewritten file does not see stale values.
+   */
+  @Immutable
+  static public class Key {
+    private final String location;
+    private final long lastModified;
+    private final long filePos;
+
+    public Key(String location, long lastModified, long filePos) {
+      this.location = location;
+      this.lastModified = lastModified;
+      this.filePos = filePos;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Key key = (Key) o;
+      return lastModified == key.lastModified && filePos == key.filePos && location.equals(key.location);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = location.hashCode();
+      result = 31 * result + (int) (lastModified ^ (lastModified >>> 32));
+      result = 31 * result + (int) (filePos ^ (filePos >>> 32));
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return location + "@" + filePos;
+    }
+  }
+}
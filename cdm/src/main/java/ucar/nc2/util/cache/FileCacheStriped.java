@@ -0,0 +1,631 @@
+/*
+ * Copyright 1998-2015 John Caron and University Corporation for Atmospheric Research/Unidata
+ *
+ *  Portions of this software were developed by the Unidata Program at the
+ *  University Corporation for Atmospheric Research.
+ *
+ *  Access and use of this software shall impose the following obligations
+ *  and understandings on the user. The user is granted the right, without
+ *  any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *  this software, and any derivative works thereof, and its supporting
+ *  documentation for any purpose whatsoever, provided that this entire
+ *  notice appears in all copies of the software, derivative works and
+ *  supporting documentation.  Further, UCAR requests that the user credit
+ *  UCAR/Unidata in any publications that result from the use of this
+ *  software or in any product that includes this software. The names UCAR
+ *  and/or Unidata, however, may not be used in any advertising or publicity
+ *  to endorse or promote any products or commercial entity unless specific
+ *  written permission is obtained from UCAR/Unidata. The user also
+ *  understands that UCAR/Unidata is not obligated to provide the user with
+ *  any support, consulting, training or assistance of any kind with regard
+ *  to the use, operation and performance of this software nor to provide
+ *  the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *  THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *  DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *  INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *  FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *  NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *  WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.util.cache;
+
+import ucar.nc2.dataset.DatasetUrl;
+import ucar.nc2.time.CalendarDate;
+import ucar.nc2.time.CalendarDateFormatter;
+import ucar.nc2.util.CancelTask;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keep cache of open FileCacheable objects, with the same contract and limits as FileCache, for heavily concurrent use.
+ * <ol>
+ * <li>Finding an unlocked file in the cache takes no locks: the copies of a file are kept in a lock-free queue,
+ *     and a copy is taken with a compare-and-set of its lock flag.
+ * <li>Adding and removing copies only locks the hash bin of that key, not the whole cache.
+ * <li>Cleanups, when over the soft or hard limit, and periodically, are always done in a background thread,
+ *     so acquire() never blocks on a cleanup. This means the hard limit is only approximate.
+ * </ol>
+ * Use instead of FileCache, eg RandomAccessFile.setGlobalFileCache() or NetcdfDataset.setNetcdfFileCache().
+ * Call shutdown() when exiting the program, in order to shut down the cleanup thread.
+ *
+ * @since 10/18/2026
+ */
+@ThreadSafe
+public class FileCacheStriped implements FileCacheIF {
+  static protected final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(FileCacheStriped.class);
+  static protected final org.slf4j.Logger cacheLog = org.slf4j.LoggerFactory.getLogger("cacheLogger");
+
+  // cleanups for all instances are done by one background thread
+  static private ScheduledExecutorService exec;
+
+  /**
+   * You must call shutdown() to shut down the background thread in order to get a clean process shutdown.
+   */
+  public static synchronized void shutdown() {
+    if (exec != null)
+      exec.shutdownNow();
+    exec = null;
+  }
+
+  private static synchronized ScheduledExecutorService getExecutor() {
+    if (exec == null) {
+      exec = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "FileCacheStriped");
+        t.setDaemon(true);
+        return t;
+      });
+    }
+    return exec;
+  }
+
+  // The periodic cleanup of one cache. It only holds the cache weakly, so that a cache that is dropped without
+  // being disabled, eg replaced in NetcdfDataset.setNetcdfFileCache(), can still be garbage collected.
+  // Once the cache is gone, the task cancels itself.
+  static private class PeriodicCleanup implements Runnable {
+    private final WeakReference<FileCacheStriped> cacheRef;
+    private final long period; // msecs
+    private ScheduledFuture<?> future; // null when not scheduled
+
+    PeriodicCleanup(FileCacheStriped cache, long period) {
+      this.cacheRef = new WeakReference<>(cache);
+      this.period = period;
+    }
+
+    synchronized void start() {
+      if (future != null) return;
+      try {
+        future = getExecutor().scheduleAtFixedRate(this, period, period, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        // shut down
+      }
+    }
+
+    synchronized void stop() {
+      if (future != null) future.cancel(false);
+      future = null;
+    }
+
+    @Override
+    public void run() {
+      FileCacheStriped cache = cacheRef.get();
+      if (cache == null)
+        stop();
+      else
+        cache.scheduledCleanup();
+    }
+  }
+
+  /////////////////////////////////////////////////////////////////////////////////////////
+
+  protected final String name;
+  protected final int softLimit, minElements, hardLimit;
+  protected final long period; // msecs
+
+  private final AtomicBoolean disabled = new AtomicBoolean(false);  // cache is disabled
+  private final AtomicBoolean hasScheduled = new AtomicBoolean(false); // a cleanup is scheduled
+  private final ReentrantLock cleanupLock = new ReentrantLock(); // only one cleanup or clearCache at a time
+  private final PeriodicCleanup periodicCleanup; // null if no periodic cleanups
+
+  private final ConcurrentHashMap<Object, CacheElement> cache; // unique files (by key, often = filename)
+  private final ConcurrentHashMap<FileCacheable, CacheFile> files; // all files in the cache
+
+  // debugging and stats
+  private final AtomicInteger cleanups = new AtomicInteger();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder miss = new LongAdder();
+  private volatile ConcurrentHashMap<Object, Tracker> track;
+
+  /**
+   * Constructor.
+   *
+   * @param name                of file cache
+   * @param minElementsInMemory keep this number in the cache
+   * @param softLimit           trigger a cleanup if it goes over this number.
+   * @param hardLimit           if > 0, trigger an immediate cleanup if it goes over this number.
+   * @param period              if > 0, do periodic cleanups every this number of seconds.
+   */
+  public FileCacheStriped(String name, int minElementsInMemory, int softLimit, int hardLimit, int period) {
+    this.name = name;
+    this.minElements = minElementsInMemory;
+    this.softLimit = softLimit;
+    this.hardLimit = hardLimit;
+    this.period = (long) 1000 * period;
+
+    cache = new ConcurrentHashMap<>(2 * Math.max(softLimit, 8));
+    files = new ConcurrentHashMap<>(4 * Math.max(softLimit, 8));
+
+    if (period > 0) {
+      periodicCleanup = new PeriodicCleanup(this, this.period);
+      periodicCleanup.start();
+      if (cacheLog.isDebugEnabled())
+        cacheLog.debug("FileCacheStriped " + name + " cleanup every " + period + " secs");
+    } else {
+      periodicCleanup = null;
+    }
+  }
+
+  /**
+   * Disable the cache, force release all files, and stop the periodic cleanups.
+   * You must still call shutdown() before exiting the application.
+   */
+  @Override
+  public void disable() {
+    this.disabled.set(true);
+    if (periodicCleanup != null) periodicCleanup.stop();
+    clearCache(true);
+  }
+
+  /**
+   * Enable the cache, with the current set of parameters.
+   */
+  @Override
+  public void enable() {
+    this.disabled.set(false);
+    if (periodicCleanup != null) periodicCleanup.start();
+  }
+
+  @Override
+  public FileCacheable acquire(FileFactory factory, DatasetUrl durl) throws IOException {
+    return acquire(factory, durl.trueurl, durl, -1, null, null);
+  }
+
+  /**
+   * Acquire a FileCacheable from the cache, and lock it so no one else can use it.
+   * If not already in cache, open it the FileFactory, and put in cache.
+   * App should call FileCacheable.close when done, and the file is then released instead of closed.
+   *
+   * @param factory     use this factory to open the file if not in the cache; may not be null
+   * @param hashKey     unique key for this file. If null, the location will be used
+   * @param location    file location, may also used as the cache name, will be passed to the NetcdfFileFactory
+   * @param buffer_size RandomAccessFile buffer size, if <= 0, use default size
+   * @param cancelTask  user can cancel, ok to be null.
+   * @param spiObject   passed to the factory if object needs to be recreated
+   * @return FileCacheable corresponding to location.
+   * @throws IOException on error
+   */
+  @Override
+  public FileCacheable acquire(FileFactory factory, Object hashKey, DatasetUrl location,
+                               int buffer_size, CancelTask cancelTask, Object spiObject) throws IOException {
+
+    if (null == hashKey) hashKey = location.trueurl;
+    if (null == hashKey) throw new IllegalArgumentException();
+
+    Tracker t = null;
+    ConcurrentHashMap<Object, Tracker> track = this.track;
+    if (track != null)
+      t = track.computeIfAbsent(hashKey, Tracker::new);
+
+    FileCacheable ncfile = acquireCacheOnly(hashKey);
+    if (ncfile != null) {
+      hits.increment();
+      if (t != null) t.hit.incrementAndGet();
+      return ncfile;
+    }
+    miss.increment();
+    if (t != null) t.miss.incrementAndGet();
+
+    // open the file
+    ncfile = factory.open(location, buffer_size, cancelTask, spiObject);
+    if (cacheLog.isDebugEnabled())
+      cacheLog.debug("FileCacheStriped " + name + " acquire " + hashKey + " " + ncfile.getLocation());
+
+    // user may have canceled
+    if ((cancelTask != null) && (cancelTask.isCancel())) {
+      ncfile.close();
+      return null;
+    }
+
+    if (disabled.get()) return ncfile;
+
+    // add the new copy, locked; only the hash bin of this key is locked
+    CacheFile file = new CacheFile(hashKey, ncfile);
+    cache.compute(hashKey, (key, elem) -> {
+      if (elem == null) elem = new CacheElement(key);
+      file.elem = elem;
+      elem.list.add(file);
+      return elem;
+    });
+    files.put(ncfile, file);
+
+    // do we need a cleanup ? never done in this thread
+    int count = files.size();
+    if ((hardLimit > 0) && (count > hardLimit))
+      scheduleCleanup(0);
+    else if ((softLimit > 0) && (count > softLimit))
+      scheduleCleanup(100);
+
+    return ncfile;
+  }
+
+  /**
+   * Try to find an unlocked file in the cache, without taking any locks.
+   *
+   * @param hashKey used as the key.
+   * @return file if its in the cache, null otherwise.
+   */
+  private FileCacheable acquireCacheOnly(Object hashKey) {
+    if (disabled.get()) return null;
+
+    CacheElement elem = cache.get(hashKey);
+    if (elem == null) return null;  // not found in cache
+
+    CacheFile want = null;
+    for (CacheFile file : elem.list) {
+      if (file.isLocked.compareAndSet(false, true)) {
+        want = file;
+        break;
+      }
+    }
+    if (want == null) return null; // no unlocked file in cache
+
+    FileCacheable ncfile = want.ncfile;
+    if (ncfile == null) return null; // removed
+
+    // check if modified, remove if so
+    if (ncfile.getLastModified() != want.lastModified) {
+      if (cacheLog.isDebugEnabled())
+        cacheLog.debug("FileCacheStriped " + name + ": acquire from cache " + hashKey + " " + ncfile.getLocation() + " was changed; discard");
+      remove(want);
+      return null;
+    }
+
+    try {
+      ncfile.reacquire(); // rehydrate
+    } catch (IOException ioe) {
+      if (cacheLog.isDebugEnabled())
+        cacheLog.debug("FileCacheStriped " + name + " acquire from cache " + hashKey + " " + ncfile.getLocation() +
+                " failed: " + ioe.getMessage());
+      remove(want);
+      return null;
+    }
+
+    return ncfile;
+  }
+
+  // file must be locked by the caller
+  private void remove(CacheFile file) {
+    unlink(file);
+    close(file);
+  }
+
+  // take a locked file out of the cache, and remove its element if thats now empty
+  private void unlink(CacheFile file) {
+    CacheElement elem = file.elem;
+    elem.list.remove(file);
+    cache.computeIfPresent(elem.hashKey, (key, e) -> (e == elem && e.list.isEmpty()) ? null : e);
+    files.remove(file.ncfile);
+  }
+
+  private void close(CacheFile file) {
+    FileCacheable ncfile = file.ncfile;
+    if (ncfile == null) return;
+    try {
+      ncfile.setFileCache(null); // unhook the caching
+      ncfile.close();
+    } catch (IOException e) {
+      log.error("FileCacheStriped " + name + " close failed on " + ncfile.getLocation(), e);
+    }
+    file.ncfile = null; // help the gc
+  }
+
+  /**
+   * Remove all instances of object from the cache
+   *
+   * @param hashKey the object
+   */
+  @Override
+  public void eject(Object hashKey) {
+    if (disabled.get()) return;
+
+    CacheElement elem = cache.remove(hashKey);
+    if (elem == null) return;
+
+    for (CacheFile file : elem.list) {
+      files.remove(file.ncfile);
+      close(file);
+      if (cacheLog.isDebugEnabled()) cacheLog.debug("FileCacheStriped " + name + " eject " + hashKey);
+    }
+    elem.list.clear();
+  }
+
+  /**
+   * Release the file. This unlocks it, updates its lastAccessed date.
+   * Normally applications need not call this, just close the file as usual.
+   *
+   * @param ncfile release this file.
+   * @return true if file was in cache, false if it was not
+   */
+  @Override
+  public boolean release(FileCacheable ncfile) throws IOException {
+    if (ncfile == null) return false;
+
+    if (disabled.get()) {
+      ncfile.setFileCache(null); // prevent infinite loops
+      ncfile.close();
+      return false;
+    }
+
+    CacheFile file = files.get(ncfile); // using hashCode of the FileCacheable
+    if (file == null) return false;
+
+    if (!file.isLocked.get())
+      cacheLog.warn("FileCacheStriped " + name + " release " + ncfile.getLocation() + " not locked; hash= " + ncfile.hashCode());
+    file.lastAccessed = System.currentTimeMillis();
+    file.countAccessed++;
+    ncfile.release();
+    file.isLocked.set(false); // now another thread may take it
+
+    if (cacheLog.isDebugEnabled())
+      cacheLog.debug("FileCacheStriped " + name + " release " + ncfile.getLocation() + "; hash= " + ncfile.hashCode());
+    return true;
+  }
+
+  /**
+   * Remove all cache entries.
+   *
+   * @param force if true, remove them even if they are currently locked.
+   */
+  @Override
+  public void clearCache(boolean force) {
+    List<CacheFile> deleteList = new ArrayList<>(files.size());
+    cleanupLock.lock();
+    try {
+      for (CacheFile file : files.values()) {
+        if (file.isLocked.compareAndSet(false, true)) {
+          unlink(file);
+          deleteList.add(file);
+        } else if (force) {
+          cacheLog.warn("FileCacheStriped " + name + " force close locked file= " + file);
+          unlink(file);
+          deleteList.add(file);
+        }
+      }
+    } finally {
+      cleanupLock.unlock();
+    }
+
+    for (CacheFile file : deleteList)
+      close(file);
+
+    if (cacheLog.isDebugEnabled())
+      cacheLog.debug("*FileCacheStriped " + name + " clearCache force= " + force + " deleted= " + deleteList.size() + " left=" + files.size());
+  }
+
+  private void scheduleCleanup(long delayMsecs) {
+    if (!hasScheduled.compareAndSet(false, true)) return; // tell other threads not to schedule another cleanup
+    try {
+      getExecutor().schedule(this::scheduledCleanup, delayMsecs, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      hasScheduled.set(false); // shut down
+    }
+  }
+
+  private void scheduledCleanup() {
+    try {
+      if (!disabled.get())
+        cleanup(softLimit);
+    } catch (Throwable t) {
+      log.error("FileCacheStriped " + name + " cleanup failed", t); // dont kill the periodic task
+    }
+  }
+
+  /**
+   * Cleanup the cache, bringing it down to minimum number.
+   * Will close the LRU (least recently used) ones first. Will not close locked files.
+   * Normally this is done in a background thread, you dont need to call.
+   */
+  void cleanup(int maxElements) {
+    List<CacheFile> deleteList;
+    int size;
+    cleanupLock.lock();
+    try {
+      size = files.size();
+      if (size <= minElements) return;
+      cleanups.incrementAndGet();
+      if (cacheLog.isDebugEnabled())
+        cacheLog.debug("FileCacheStriped {} cleanup started at {} for maxElements={}", name, CalendarDate.present(), maxElements);
+
+      // oldest unlocked files first; lastAccessed may change while sorting, so use a snapshot
+      List<CacheFile> allFiles = new ArrayList<>(size + 10);
+      for (CacheFile file : files.values()) {
+        if (!file.isLocked.get()) {
+          file.sortTime = file.lastAccessed;
+          allFiles.add(file);
+        }
+      }
+      allFiles.sort(Comparator.comparingLong(f -> f.sortTime));
+
+      int need2delete = size - minElements;
+      int minDelete = size - maxElements;
+      deleteList = new ArrayList<>(need2delete);
+      for (CacheFile file : allFiles) {
+        if (deleteList.size() >= need2delete) break;
+        if (file.isLocked.compareAndSet(false, true)) { // lock it so it isnt used anywhere else
+          unlink(file);
+          deleteList.add(file);
+        }
+      }
+      if (deleteList.size() < minDelete)
+        cacheLog.warn("FileCacheStriped " + name + " cleanup couldnt remove enough to keep under the maximum= " + maxElements +
+                " due to locked files; currently at = " + (size - deleteList.size()));
+
+    } finally {
+      cleanupLock.unlock();
+      hasScheduled.set(false); // allow scheduling again
+    }
+
+    // now actually close the files, nothing is locked
+    long start = System.currentTimeMillis();
+    for (CacheFile file : deleteList)
+      close(file);
+
+    if (cacheLog.isDebugEnabled())
+      cacheLog.debug(" FileCacheStriped {} cleanup had={} removed={} took={} msecs", name, size, deleteList.size(), System.currentTimeMillis() - start);
+  }
+
+  /////////////////////////////////////////////////////////////////////////////////
+  // debugging
+
+  // number of files in the cache, locked or not
+  int getNumberOfFiles() {
+    return files.size();
+  }
+
+  int getNumberOfCleanups() {
+    return cleanups.get();
+  }
+
+  @Override
+  public void showCache(Formatter format) {
+    List<CacheFile> allFiles = sortedFiles();
+    format.format("%nFileCacheStriped %s (min=%d softLimit=%d hardLimit=%d scour=%d secs):%n", name, minElements, softLimit, hardLimit, period / 1000);
+    format.format(" isLocked  accesses lastAccess                   location %n");
+    for (CacheFile file : allFiles) {
+      FileCacheable ncfile = file.ncfile;
+      String loc = ncfile != null ? ncfile.getLocation() : "null";
+      format.format("%8s %9d %s == %s %n", file.isLocked, file.countAccessed, CalendarDateFormatter.toDateTimeStringISO(file.sortTime), loc);
+    }
+    showStats(format);
+  }
+
+  @Override
+  public List<String> showCache() {
+    List<CacheFile> allFiles = sortedFiles();
+    List<String> result = new ArrayList<>(allFiles.size());
+    for (CacheFile file : allFiles)
+      result.add(file.toString());
+    return result;
+  }
+
+  // sort so oldest are on top
+  private List<CacheFile> sortedFiles() {
+    List<CacheFile> allFiles = new ArrayList<>(files.size());
+    cleanupLock.lock(); // sortTime is also used by cleanup
+    try {
+      for (CacheFile file : files.values()) {
+        file.sortTime = file.lastAccessed;
+        allFiles.add(file);
+      }
+    } finally {
+      cleanupLock.unlock();
+    }
+    allFiles.sort(Comparator.comparingLong(f -> f.sortTime));
+    return allFiles;
+  }
+
+  @Override
+  public void showStats(Formatter format) {
+    format.format("  hits= %d miss= %d nfiles= %d elems= %d cleanups= %d%n", hits.sum(), miss.sum(), files.size(), cache.size(), cleanups.get());
+  }
+
+  @Override
+  public void showTracking(Formatter format) {
+    ConcurrentHashMap<Object, Tracker> track = this.track;
+    if (track == null) return;
+    List<Tracker> all = new ArrayList<>(track.values());
+    all.sort(Comparator.comparingInt(Tracker::total));
+    int seq = 0;
+    int countAll = 0;
+    int countHits = 0;
+    int countMiss = 0;
+    format.format("%nTracking All files in cache %s%n", name);
+    format.format("    #    accum       hit    miss  file%n");
+    for (Tracker t : all) {
+      seq++;
+      countAll += t.total();
+      countHits += t.hit.get();
+      countMiss += t.miss.get();
+      format.format("%6d  %7d : %6d %6d %s%n", seq, countAll, t.hit.get(), t.miss.get(), t.key);
+    }
+    float r = (countAll == 0) ? 0 : ((float) countHits) / countAll;
+    format.format("  total=%7d : %6d %6d hit ratio=%f%n", countAll, countHits, countMiss, r);
+  }
+
+  @Override
+  public void resetTracking() {
+    track = new ConcurrentHashMap<>(5000);
+  }
+
+  private static class Tracker {
+    final Object key;
+    final AtomicInteger hit = new AtomicInteger();
+    final AtomicInteger miss = new AtomicInteger();
+
+    Tracker(Object key) {
+      this.key = key;
+    }
+
+    int total() {
+      return hit.get() + miss.get();
+    }
+  }
+
+  // all the copies of one file
+  private static class CacheElement {
+    final Object hashKey;
+    final ConcurrentLinkedQueue<CacheFile> list = new ConcurrentLinkedQueue<>(); // may have multiple copies of the same file opened
+
+    CacheElement(Object hashKey) {
+      this.hashKey = hashKey;
+    }
+
+    public String toString() {
+      return hashKey + " count=" + list.size();
+    }
+  }
+
+  private class CacheFile {
+    final AtomicBoolean isLocked = new AtomicBoolean(true);
+    final long lastModified;
+    volatile FileCacheable ncfile; // actually final, but we null it out for gc
+    volatile long lastAccessed;
+    volatile int countAccessed; // only changed by the thread that has it locked
+    volatile CacheElement elem; // set when added to the element
+    long sortTime;              // guarded by cleanupLock
+
+    CacheFile(Object hashKey, FileCacheable ncfile) {
+      this.ncfile = ncfile;
+      this.lastModified = ncfile.getLastModified();
+      this.lastAccessed = System.currentTimeMillis();
+      ncfile.setFileCache(FileCacheStriped.this);
+      if (cacheLog.isDebugEnabled()) cacheLog.debug("FileCacheStriped " + name + " add to cache " + hashKey);
+    }
+
+    public String toString() {
+      FileCacheable ncfile = this.ncfile;
+      String name = ncfile == null ? "ncfile is null" : ncfile.getLocation();
+      return isLocked + " " + countAccessed + " " + CalendarDateFormatter.toDateTimeStringISO(lastAccessed) + "   " + name;
+    }
+  }
+}
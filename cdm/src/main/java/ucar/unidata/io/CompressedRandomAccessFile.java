@@ -0,0 +1,548 @@
+/*
+ * Copyright 1998-2014 University Corporation for Atmospheric Research/Unidata
+ *
+ *   Portions of this software were developed by the Unidata Program at the
+ *   University Corporation for Atmospheric Research.
+ *
+ *   Access and use of this software shall impose the following obligations
+ *   and understandings on the user. The user is granted the right, without
+ *   any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *   this software, and any derivative works thereof, and its supporting
+ *   documentation for any purpose whatsoever, provided that this entire
+ *   notice appears in all copies of the software, derivative works and
+ *   supporting documentation.  Further, UCAR requests that the user credit
+ *   UCAR/Unidata in any publications that result from the use of this
+ *   software or in any product that includes this software. The names UCAR
+ *   and/or Unidata, however, may not be used in any advertising or publicity
+ *   to endorse or promote any products or commercial entity unless specific
+ *   written permission is obtained from UCAR/Unidata. The user also
+ *   understands that UCAR/Unidata is not obligated to provide the user with
+ *   any support, consulting, training or assistance of any kind with regard
+ *   to the use, operation and performance of this software nor to provide
+ *   the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *   THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *   IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *   WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *   DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *   INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *   FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *   NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *   WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.unidata.io;
+
+import ucar.unidata.io.bzip2.CBZip2InputStream;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Read a gzip or bzip2 compressed file as if it were uncompressed, without writing the uncompressed file to disk.
+ * The first time a file is opened, it is decompressed once to find its seek points: the start of a deflate block
+ * every so often (along with the 32K of data before it) for gzip, and the start of each block for bzip2.
+ * These are saved in an index file, and reused as long as the compressed file doesnt change.
+ * A read then decompresses from the nearest seek point before it, or continues on from the previous read
+ * if that is closer.
+ * <p>
+ * Read only. Same as RandomAccessFile, not thread safe.
+ *
+ * @since 10/18/2026
+ */
+public class CompressedRandomAccessFile extends RandomAccessFile {
+  static private org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(CompressedRandomAccessFile.class);
+  static private final int MAGIC = 0x43524149; // "CRAI"
+  static private final int VERSION = 1;
+  static private final byte GZIP = 1, BZIP2 = 2;
+  static private final int transferSize = 64 * 1024; // for readToByteChannel
+
+  static public final String INDEX_SUFFIX = ".crai";
+
+  static private long spacing = 1024 * 1024;
+  static private final LongAdder indexBuilds = new LongAdder();
+  static private final LongAdder indexReads = new LongAdder();
+  static private final LongAdder restarts = new LongAdder();
+  static private final LongAdder bytesDecompressed = new LongAdder();
+
+  /**
+   * Is this the name of a file that can be read by CompressedRandomAccessFile?
+   *
+   * @param filename file name
+   * @return true if it ends with .gz, .gzip or .bz2
+   */
+  static public boolean isCompressed(String filename) {
+    return format(filename) != 0;
+  }
+
+  static private byte format(String filename) {
+    String lower = filename.toLowerCase();
+    if (lower.endsWith(".gz") || lower.endsWith(".gzip")) return GZIP;
+    if (lower.endsWith(".bz2")) return BZIP2;
+    return 0;
+  }
+
+  /**
+   * Set the number of uncompressed bytes between gzip seek points, used when an index is made.
+   * Each seek point keeps 32K of data in the index file, so smaller spacing means faster reads and a bigger index.
+   * Does not apply to bzip2, which gets a seek point at each block.
+   *
+   * @param bytes spacing in bytes, default 1 Mbyte
+   */
+  static public synchronized void setSpacing(long bytes) {
+    spacing = bytes;
+  }
+
+  static public synchronized long getSpacing() {
+    return spacing;
+  }
+
+  /**
+   * Open a compressed file, making its index if needed.
+   *
+   * @param filename   a file ending with .gz, .gzip or .bz2
+   * @param indexFile  read the index from here, or write it here if it doesnt exist or is out of date
+   * @param bufferSize size of read buffer
+   * @return the opened file
+   * @throws IOException if the file cant be read or isnt in the format its suffix says
+   */
+  static public CompressedRandomAccessFile open(String filename, File indexFile, int bufferSize) throws IOException {
+    byte format = format(filename);
+    if (format == 0) throw new IOException("Not a .gz, .gzip or .bz2 file: " + filename);
+    File file = new File(filename);
+    if (!file.exists()) throw new FileNotFoundException(filename);
+
+    Index index = readIndex(indexFile, file);
+    if (index != null) {
+      indexReads.increment();
+    } else {
+      index = (format == GZIP) ? makeGzipIndex(file, getSpacing()) : makeBzip2Index(file);
+      writeIndex(index, indexFile, file);
+      indexBuilds.increment();
+    }
+    return new CompressedRandomAccessFile(filename, file, index, bufferSize);
+  }
+
+  static public long getIndexBuilds() {
+    return indexBuilds.sum();
+  }
+
+  static public long getIndexReads() {
+    return indexReads.sum();
+  }
+
+  static public long getRestarts() {
+    return restarts.sum();
+  }
+
+  static public void showStats(Formatter f) {
+    f.format("CompressedRandomAccessFile index builds= %d reads= %d; restarts= %d bytesDecompressed= %d%n",
+            getIndexBuilds(), getIndexReads(), getRestarts(), bytesDecompressed.sum());
+  }
+
+  ////////////////////////////////////////////////////////////////////////
+  // the index
+
+  static private class SeekPoint {
+    final long pos;          // uncompressed position
+    final long bitPosition;  // compressed position, in bits
+    byte[] window;           // gzip only: deflated 32K before pos, or null if its in the index file
+    int combinedCRC;         // bzip2 only: combined CRC of the blocks before this one
+    long windowOffset;       // position of the window in the index file
+    int windowLength;        // deflated size of the window
+
+    SeekPoint(long pos, long bitPosition, byte[] window) {
+      this.pos = pos;
+      this.bitPosition = bitPosition;
+      this.window = window;
+      this.windowLength = (window == null) ? 0 : window.length;
+    }
+  }
+
+  static private class Index {
+    final byte format;
+    final int bzip2Level;    // block size digit of a bzip2 stream
+    final long length;       // uncompressed length
+    final SeekPoint[] points;
+    File indexFile;          // windows are read from here, if set
+
+    Index(byte format, int bzip2Level, long length, List<SeekPoint> points) {
+      this.format = format;
+      this.bzip2Level = bzip2Level;
+      this.length = length;
+      this.points = points.toArray(new SeekPoint[points.size()]);
+    }
+
+    // the last seek point at or before pos
+    SeekPoint find(long pos) {
+      int low = 0, high = points.length - 1;
+      while (low < high) {
+        int mid = (low + high + 1) >>> 1;
+        if (points[mid].pos <= pos) low = mid;
+        else high = mid - 1;
+      }
+      return points[low];
+    }
+
+    byte[] readWindow(SeekPoint point) throws IOException {
+      byte[] deflated = point.window;
+      if (deflated == null) {
+        deflated = new byte[point.windowLength];
+        try (java.io.RandomAccessFile raf = new java.io.RandomAccessFile(indexFile, "r")) {
+          raf.seek(point.windowOffset);
+          raf.readFully(deflated);
+        }
+      }
+      return inflate(deflated);
+    }
+  }
+
+  static private Index makeGzipIndex(File file, long spacing) throws IOException {
+    List<SeekPoint> points = new ArrayList<>();
+    points.add(new SeekPoint(0, 0, null)); // the start of the file, before the gzip header
+
+    long total = 0, last = 0;
+    try (GzipInflater inflater = new GzipInflater(new FileInputStream(file))) {
+      byte[] buff = new byte[64 * 1024];
+      int n;
+      while ((n = inflater.read(buff, 0, buff.length)) >= 0) {
+        total += n;
+        if (total - last >= spacing && inflater.isAtBlockBoundary()) {
+          points.add(new SeekPoint(total, inflater.getBitPosition(), deflate(inflater.getWindow())));
+          last = total;
+        }
+      }
+    }
+    return new Index(GZIP, 0, total, points);
+  }
+
+  static private Index makeBzip2Index(File file) throws IOException {
+    List<SeekPoint> points = new ArrayList<>();
+    long total = 0;
+    try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+      byte[] header = new byte[4];
+      if (in.read(header) != 4 || header[0] != 'B' || header[1] != 'Z' || header[2] != 'h')
+        throw new IOException("Not in BZIP2 format");
+
+      // block positions are counted from the "h"
+      CBZip2InputStream bzip2 = new CBZip2InputStream(new SequenceInputStream(new ByteArrayInputStream(header, 2, 2), in));
+      int blocks = bzip2.getBlockCount();
+      if (blocks > 0)
+        points.add(new SeekPoint(0, 16 + bzip2.getBlockStart(), null));
+      while (bzip2.read() >= 0) {
+        total++;
+        if (bzip2.getBlockCount() != blocks) { // the next block has started
+          blocks = bzip2.getBlockCount();
+          SeekPoint point = new SeekPoint(total, 16 + bzip2.getBlockStart(), null);
+          point.combinedCRC = bzip2.getCombinedCRC();
+          points.add(point);
+        }
+      }
+      return new Index(BZIP2, header[3], total, points);
+    }
+  }
+
+  // return null if the index file doesnt exist, or is not for this version of the file
+  static private Index readIndex(File indexFile, File file) {
+    if (indexFile == null || !indexFile.exists()) return null;
+
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+      if (!in.readUTF().equals(file.getPath()) || in.readLong() != file.lastModified() || in.readLong() != file.length())
+        return null;
+
+      byte format = in.readByte();
+      int bzip2Level = in.readByte();
+      long length = in.readLong();
+      int n = in.readInt();
+      List<SeekPoint> points = new ArrayList<>(n);
+      for (int i = 0; i < n; i++) {
+        SeekPoint point = new SeekPoint(in.readLong(), in.readLong(), null);
+        point.windowOffset = in.readLong();
+        point.windowLength = in.readInt();
+        point.combinedCRC = in.readInt();
+        points.add(point);
+      }
+      Index index = new Index(format, bzip2Level, length, points);
+      index.indexFile = indexFile;
+      return index;
+
+    } catch (IOException ioe) {
+      logger.warn("CompressedRandomAccessFile: failed to read " + indexFile.getPath(), ioe);
+      return null;
+    }
+  }
+
+  // if the index file cant be written, the windows stay in memory
+  static private void writeIndex(Index index, File indexFile, File file) {
+    if (indexFile == null) return;
+
+    File tmp = null;
+    try {
+      tmp = File.createTempFile(indexFile.getName(), ".tmp", indexFile.getAbsoluteFile().getParentFile());
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(file.getPath());
+        out.writeLong(file.lastModified());
+        out.writeLong(file.length());
+        out.writeByte(index.format);
+        out.writeByte(index.bzip2Level);
+        out.writeLong(index.length);
+        out.writeInt(index.points.length);
+
+        long windowOffset = out.size() + 32L * index.points.length;
+        for (SeekPoint point : index.points) {
+          point.windowOffset = windowOffset;
+          out.writeLong(point.pos);
+          out.writeLong(point.bitPosition);
+          out.writeLong(point.windowOffset);
+          out.writeInt(point.windowLength);
+          out.writeInt(point.combinedCRC);
+          windowOffset += point.windowLength;
+        }
+        for (SeekPoint point : index.points) {
+          if (point.window != null)
+            out.write(point.window);
+        }
+      }
+
+      // readers in other threads see the old or the new file, never a partial one
+      try {
+        Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+
+      for (SeekPoint point : index.points)
+        point.window = null;
+      index.indexFile = indexFile;
+
+    } catch (IOException ioe) {
+      logger.warn("CompressedRandomAccessFile: failed to write " + indexFile.getPath(), ioe);
+      if (tmp != null && tmp.exists() && !tmp.delete())
+        logger.warn("CompressedRandomAccessFile: failed to delete " + tmp.getPath());
+    }
+  }
+
+  static private byte[] deflate(byte[] window) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(window);
+      deflater.finish();
+      ByteArrayOutputStream bout = new ByteArrayOutputStream(window.length / 2);
+      byte[] buff = new byte[8 * 1024];
+      while (!deflater.finished()) {
+        int n = deflater.deflate(buff);
+        bout.write(buff, 0, n);
+      }
+      return bout.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  static private byte[] inflate(byte[] deflated) throws IOException {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(deflated);
+      byte[] window = new byte[GzipInflater.WINDOW_SIZE];
+      int n = 0;
+      while (!inflater.finished() && n < window.length) {
+        int count = inflater.inflate(window, n, window.length - n);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+          throw new IOException("Corrupt seek point window");
+        n += count;
+      }
+      byte[] result = new byte[n];
+      System.arraycopy(window, 0, result, 0, n);
+      return result;
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt seek point window", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////////
+
+  private final File compressedFile;
+  private final Index index;
+  private FileInputStream fin;   // underneath stream
+  private InputStream stream;    // decompressing from a seek point, or null
+  private long streamPos;        // uncompressed position of stream
+  private byte[] skipBuffer;
+  private int nrestarts;
+
+  private CompressedRandomAccessFile(String location, File compressedFile, Index index, int bufferSize) {
+    super(bufferSize);
+    this.location = location;
+    this.compressedFile = compressedFile;
+    this.index = index;
+  }
+
+  /**
+   * The number of times a read had to start decompressing again from a seek point.
+   *
+   * @return number of restarts
+   */
+  public int getNumberOfRestarts() {
+    return nrestarts;
+  }
+
+  /**
+   * The number of seek points in the index.
+   *
+   * @return number of seek points
+   */
+  public int getNumberOfSeekPoints() {
+    return index.points.length;
+  }
+
+  @Override
+  public long length() {
+    return index.length;
+  }
+
+  @Override
+  public long getLastModified() {
+    return compressedFile.lastModified();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    closeStream();
+    super.close();
+  }
+
+  @Override
+  protected int read_(long pos, byte[] b, int offset, int len) throws IOException {
+    if (pos >= index.length)
+      return -1;
+
+    len = (int) Math.min(len, index.length - pos);
+    seekStream(pos);
+    int done = 0;
+    while (done < len) {
+      int n = stream.read(b, offset + done, len - done);
+      if (n < 0) throw new EOFException("Compressed file is shorter than its index: " + location);
+      done += n;
+    }
+    streamPos += done;
+    bytesDecompressed.add(done);
+    return done;
+  }
+
+  // position stream at pos, continuing on from where it is if thats closer than the seek point
+  private void seekStream(long pos) throws IOException {
+    SeekPoint point = index.find(pos);
+    if (stream == null || pos < streamPos || streamPos < point.pos) {
+      closeStream();
+      openStream(point);
+      nrestarts++;
+      restarts.increment();
+    }
+
+    if (skipBuffer == null && streamPos < pos)
+      skipBuffer = new byte[64 * 1024];
+    while (streamPos < pos) {
+      int n = stream.read(skipBuffer, 0, (int) Math.min(skipBuffer.length, pos - streamPos));
+      if (n < 0) throw new EOFException("Compressed file is shorter than its index: " + location);
+      streamPos += n;
+      bytesDecompressed.add(n);
+    }
+  }
+
+  private void openStream(SeekPoint point) throws IOException {
+    fin = new FileInputStream(compressedFile);
+    fin.getChannel().position(point.bitPosition / 8);
+    int shift = (int) (point.bitPosition % 8);
+
+    if (index.format == GZIP) {
+      stream = (point.pos == 0) ? new GzipInflater(fin) : new GzipInflater(fin, point.bitPosition, index.readWindow(point));
+
+    } else {
+      InputStream in = new BufferedInputStream(fin);
+      if (shift != 0) in = new BitShiftInputStream(in, shift);
+      byte[] header = {'h', (byte) index.bzip2Level};
+      CBZip2InputStream bzip2 = new CBZip2InputStream(new SequenceInputStream(new ByteArrayInputStream(header), in));
+      bzip2.setCombinedCRC(point.combinedCRC);
+      stream = bzip2;
+    }
+    streamPos = point.pos;
+  }
+
+  private void closeStream() throws IOException {
+    stream = null;
+    if (fin != null) {
+      fin.close();
+      fin = null;
+    }
+  }
+
+  // decompress and write a chunk at a time, stopping at the end of the file
+  @Override
+  public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
+    byte[] b = new byte[(int) Math.max(0, Math.min(nbytes, transferSize))];
+    long need = nbytes;
+    while (need > 0) {
+      int n = read_(offset, b, 0, (int) Math.min(need, b.length));
+      if (n <= 0) break;
+      ByteBuffer bb = ByteBuffer.wrap(b, 0, n);
+      while (bb.hasRemaining())
+        dest.write(bb);
+      need -= n;
+      offset += n;
+    }
+    return nbytes - need;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    throw new IOException("CompressedRandomAccessFile is read only");
+  }
+
+  @Override
+  public void writeBytes(byte b[], int off, int len) throws IOException {
+    throw new IOException("CompressedRandomAccessFile is read only");
+  }
+
+  // the bits of a stream, starting shift bits into its first byte. bzip2 blocks are not byte aligned.
+  static private class BitShiftInputStream extends InputStream {
+    private final InputStream in;
+    private final int shift;
+    private int current;
+
+    BitShiftInputStream(InputStream in, int shift) throws IOException {
+      this.in = in;
+      this.shift = shift;
+      this.current = in.read();
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (current < 0) return -1;
+      int next = in.read();
+      int result = ((current << shift) | ((next < 0 ? 0 : next) >>> (8 - shift))) & 0xff;
+      current = next;
+      return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
+}
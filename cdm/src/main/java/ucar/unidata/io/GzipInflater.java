@@ -0,0 +1,471 @@
+/*
+ * Copyright 1998-2014 University Corporation for Atmospheric Research/Unidata
+ *
+ *   Portions of this software were developed by the Unidata Program at the
+ *   University Corporation for Atmospheric Research.
+ *
+ *   Access and use of this software shall impose the following obligations
+ *   and understandings on the user. The user is granted the right, without
+ *   any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *   this software, and any derivative works thereof, and its supporting
+ *   documentation for any purpose whatsoever, provided that this entire
+ *   notice appears in all copies of the software, derivative works and
+ *   supporting documentation.  Further, UCAR requests that the user credit
+ *   UCAR/Unidata in any publications that result from the use of this
+ *   software or in any product that includes this software. The names UCAR
+ *   and/or Unidata, however, may not be used in any advertising or publicity
+ *   to endorse or promote any products or commercial entity unless specific
+ *   written permission is obtained from UCAR/Unidata. The user also
+ *   understands that UCAR/Unidata is not obligated to provide the user with
+ *   any support, consulting, training or assistance of any kind with regard
+ *   to the use, operation and performance of this software nor to provide
+ *   the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *   THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *   IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *   WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *   DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *   INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *   FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *   NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *   WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package ucar.unidata.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Decompress a gzip file, which may have several members. Unlike java.util.zip.GZIPInputStream, this can
+ * start in the middle of a member, at the start of a deflate block, given the bit position of the block
+ * and the 32K of uncompressed data before it. After each read, isAtBlockBoundary() tells if the next byte
+ * starts a new block; if so, getBitPosition() and getWindow() are what is needed to start there later.
+ * Used by CompressedRandomAccessFile to build and use its seek points.
+ * <p>
+ * See RFC 1951 (deflate) and RFC 1952 (gzip). Not thread safe.
+ *
+ * @since 10/18/2026
+ */
+class GzipInflater extends InputStream {
+  static final int WINDOW_SIZE = 32 * 1024;     // max deflate distance
+  static private final int RING_SIZE = 64 * 1024; // history plus undelivered output
+  static private final int RING_MASK = RING_SIZE - 1;
+
+  static private final int GZIP_HEADER = 0, BLOCK_HEADER = 1, STORED = 2, HUFFMAN = 3, TRAILER = 4, END = 5;
+
+  static private final int[] LENGTH_BASE = {3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31,
+          35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258};
+  static private final int[] LENGTH_EXTRA = {0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2,
+          3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0};
+  static private final int[] DIST_BASE = {1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193,
+          257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577};
+  static private final int[] DIST_EXTRA = {0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6,
+          7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13};
+  static private final int[] CODE_LENGTH_ORDER = {16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15};
+
+  static private final int[] fixedLiterals, fixedDistances;
+
+  static {
+    byte[] lens = new byte[288];
+    for (int i = 0; i < 144; i++) lens[i] = 8;
+    for (int i = 144; i < 256; i++) lens[i] = 9;
+    for (int i = 256; i < 280; i++) lens[i] = 7;
+    for (int i = 280; i < 288; i++) lens[i] = 8;
+    byte[] dlens = new byte[30];
+    for (int i = 0; i < 30; i++) dlens[i] = 5;
+    try {
+      fixedLiterals = makeTable(lens, 0, lens.length);
+      fixedDistances = makeTable(dlens, 0, dlens.length);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /*
+   * Make a lookup table for a canonical Huffman code, indexed by the next (max code length) bits of input,
+   * taken least significant bit first. Each entry is (symbol << 4 | code length), or 0 for an unused code.
+   */
+  static private int[] makeTable(byte[] lens, int start, int n) throws IOException {
+    int[] count = new int[16];
+    int maxLen = 1;
+    for (int i = start; i < start + n; i++) {
+      count[lens[i]]++;
+      maxLen = Math.max(maxLen, lens[i]);
+    }
+    count[0] = 0;
+
+    int left = 1;
+    for (int len = 1; len < 16; len++) {
+      left = (left << 1) - count[len];
+      if (left < 0) throw new IOException("Over-subscribed Huffman code");
+    }
+
+    int[] next = new int[16];
+    for (int len = 1; len < 16; len++)
+      next[len] = (next[len - 1] + count[len - 1]) << 1;
+
+    int[] table = new int[1 << maxLen];
+    for (int sym = 0; sym < n; sym++) {
+      int len = lens[start + sym];
+      if (len == 0) continue;
+      int code = Integer.reverse(next[len]++) >>> (32 - len);
+      for (int i = code; i < table.length; i += 1 << len)
+        table[i] = (sym << 4) | len;
+    }
+    return table;
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////
+
+  private final InputStream in;
+  private final byte[] inBuf = new byte[64 * 1024];
+  private int inPos, inLen;
+  private long inStart;          // file position of inBuf[0]
+  private long bitBuf;           // next input bits, least significant first
+  private int bitCount;
+
+  private final byte[] ring = new byte[RING_SIZE];
+  private long produced;         // bytes written into ring, not counting the initial window
+  private long delivered;        // bytes returned by read()
+  private int history;           // bytes of history available before produced = 0
+
+  private int state;
+  private boolean lastBlock;
+  private int storedLeft;
+  private int[] literals, distances;
+
+  private final CRC32 crc = new CRC32();
+  private boolean checkMember;   // started at the start of this member, so can check its CRC and size
+  private boolean started;       // past the first gzip header
+  private long memberStart;      // value of delivered at the start of the member
+
+  /**
+   * Start at the beginning of a gzip file.
+   *
+   * @param in the file, positioned at its start. Closed by close().
+   */
+  GzipInflater(InputStream in) {
+    this.in = in;
+    this.state = GZIP_HEADER;
+  }
+
+  /**
+   * Start at a deflate block in the middle of a gzip file.
+   *
+   * @param in          the file, positioned at byte bitPosition / 8. Closed by close().
+   * @param bitPosition bit position of the block in the file, from getBitPosition()
+   * @param window      the uncompressed data before the block, from getWindow()
+   * @throws IOException on read error
+   */
+  GzipInflater(InputStream in, long bitPosition, byte[] window) throws IOException {
+    this.in = in;
+    this.state = BLOCK_HEADER;
+    this.started = true;
+    this.inStart = bitPosition / 8;
+    history = window.length;
+    System.arraycopy(window, 0, ring, RING_SIZE - history, history);
+    getBits((int) (bitPosition % 8));
+  }
+
+  /**
+   * True if all bytes read so far are in finished blocks, and the next byte starts a new deflate block.
+   *
+   * @return if this is a place to start from later
+   */
+  boolean isAtBlockBoundary() {
+    return state == BLOCK_HEADER && delivered == produced;
+  }
+
+  /**
+   * The position in the compressed file of the next unread bit.
+   *
+   * @return bit position
+   */
+  long getBitPosition() {
+    return (inStart + inPos) * 8 - bitCount;
+  }
+
+  /**
+   * The last (up to) 32K bytes read.
+   *
+   * @return a copy of the window
+   */
+  byte[] getWindow() {
+    int n = (int) Math.min(WINDOW_SIZE, delivered + history);
+    byte[] result = new byte[n];
+    int start = (int) (delivered - n) & RING_MASK;
+    int first = Math.min(n, RING_SIZE - start);
+    System.arraycopy(ring, start, result, 0, first);
+    System.arraycopy(ring, 0, result, first, n - first);
+    return result;
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] b = new byte[1];
+    return (read(b, 0, 1) < 0) ? -1 : b[0] & 0xff;
+  }
+
+  /**
+   * Read uncompressed bytes. Returns early at the end of a deflate block,
+   * so the caller can check isAtBlockBoundary().
+   */
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int done = 0;
+    while (done < len) {
+      int avail = (int) (produced - delivered);
+      if (avail == 0) {
+        if (state == BLOCK_HEADER && done > 0) break;
+        if (state == END) break;
+        inflate();
+        continue;
+      }
+      int start = (int) delivered & RING_MASK;
+      int n = Math.min(Math.min(len - done, avail), RING_SIZE - start);
+      System.arraycopy(ring, start, b, off + done, n);
+      crc.update(b, off + done, n);
+      delivered += n;
+      done += n;
+    }
+    return (done == 0 && len > 0) ? -1 : done;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  // do the next step, leaving output in the ring. only called when all output has been delivered.
+  private void inflate() throws IOException {
+    switch (state) {
+      case GZIP_HEADER:
+        readGzipHeader();
+        break;
+      case BLOCK_HEADER:
+        readBlockHeader();
+        break;
+      case STORED:
+        inflateStored();
+        break;
+      case HUFFMAN:
+        inflateHuffman();
+        break;
+      case TRAILER:
+        readTrailer();
+        break;
+    }
+  }
+
+  private void readGzipHeader() throws IOException {
+    getBits(bitCount % 8);
+    // after the first member, ignore anything that is not another member, as GZIPInputStream does
+    if (!fill(2) || (bitBuf & 0xffff) != 0x8b1f) {
+      if (!started) throw new IOException("Not in GZIP format");
+      state = END;
+      return;
+    }
+    getBits(16);
+    if (getBits(8) != 8) throw new IOException("Unsupported compression method");
+    int flags = getBits(8);
+    getBits(32); // mtime
+    getBits(16); // xfl, os
+    if ((flags & 4) != 0) skipBytes(getBits(16));
+    if ((flags & 8) != 0) while (getBits(8) != 0) ;
+    if ((flags & 16) != 0) while (getBits(8) != 0) ;
+    if ((flags & 2) != 0) getBits(16);
+
+    crc.reset();
+    started = true;
+    checkMember = true;
+    memberStart = delivered;
+    state = BLOCK_HEADER;
+  }
+
+  private void readTrailer() throws IOException {
+    getBits(bitCount % 8);
+    long crcValue = getBits(16) | ((long) getBits(16) << 16);
+    long size = getBits(16) | ((long) getBits(16) << 16);
+    if (checkMember) {
+      if (crcValue != crc.getValue()) throw new IOException("Corrupt GZIP trailer: bad CRC");
+      if (size != ((delivered - memberStart) & 0xffffffffL)) throw new IOException("Corrupt GZIP trailer: bad size");
+    }
+    state = GZIP_HEADER;
+  }
+
+  private void readBlockHeader() throws IOException {
+    lastBlock = getBits(1) == 1;
+    int type = getBits(2);
+    switch (type) {
+      case 0:
+        getBits(bitCount % 8);
+        int len = getBits(16);
+        if ((len ^ 0xffff) != getBits(16)) throw new IOException("Invalid stored block length");
+        storedLeft = len;
+        state = STORED;
+        break;
+      case 1:
+        literals = fixedLiterals;
+        distances = fixedDistances;
+        state = HUFFMAN;
+        break;
+      case 2:
+        readDynamicTables();
+        state = HUFFMAN;
+        break;
+      default:
+        throw new IOException("Invalid block type");
+    }
+  }
+
+  private void endBlock() {
+    state = lastBlock ? TRAILER : BLOCK_HEADER;
+  }
+
+  private void readDynamicTables() throws IOException {
+    int nlen = getBits(5) + 257;
+    int ndist = getBits(5) + 1;
+    int ncode = getBits(4) + 4;
+    if (nlen > 286 || ndist > 30) throw new IOException("Invalid dynamic block header");
+
+    byte[] lens = new byte[nlen + ndist];
+    byte[] codeLens = new byte[19];
+    for (int i = 0; i < ncode; i++)
+      codeLens[CODE_LENGTH_ORDER[i]] = (byte) getBits(3);
+    int[] codeTable = makeTable(codeLens, 0, 19);
+
+    int i = 0;
+    while (i < nlen + ndist) {
+      int sym = decode(codeTable);
+      if (sym < 16) {
+        lens[i++] = (byte) sym;
+        continue;
+      }
+      int repeat;
+      byte value = 0;
+      if (sym == 16) {
+        if (i == 0) throw new IOException("Invalid code length repeat");
+        value = lens[i - 1];
+        repeat = 3 + getBits(2);
+      } else if (sym == 17) {
+        repeat = 3 + getBits(3);
+      } else {
+        repeat = 11 + getBits(7);
+      }
+      if (i + repeat > nlen + ndist) throw new IOException("Invalid code length repeat");
+      while (repeat-- > 0) lens[i++] = value;
+    }
+    if (lens[256] == 0) throw new IOException("Missing end of block code");
+
+    literals = makeTable(lens, 0, nlen);
+    distances = makeTable(lens, nlen, ndist);
+  }
+
+  private void inflateStored() throws IOException {
+    // leftover whole bytes in the bit buffer come first
+    int space = WINDOW_SIZE - (int) (produced - delivered);
+    while (storedLeft > 0 && space > 0 && bitCount >= 8) {
+      put(getBits(8));
+      storedLeft--;
+      space--;
+    }
+    while (storedLeft > 0 && space > 0) {
+      if (inPos == inLen && !refill()) throw new EOFException("Unexpected end of GZIP file");
+      int start = (int) produced & RING_MASK;
+      int n = Math.min(Math.min(storedLeft, space), Math.min(inLen - inPos, RING_SIZE - start));
+      System.arraycopy(inBuf, inPos, ring, start, n);
+      inPos += n;
+      produced += n;
+      storedLeft -= n;
+      space -= n;
+    }
+    if (storedLeft == 0) endBlock();
+  }
+
+  private void inflateHuffman() throws IOException {
+    while (produced - delivered < WINDOW_SIZE) {
+      int sym = decode(literals);
+      if (sym < 256) {
+        put(sym);
+
+      } else if (sym == 256) {
+        endBlock();
+        return;
+
+      } else {
+        sym -= 257;
+        if (sym >= 29) throw new IOException("Invalid length code");
+        int len = LENGTH_BASE[sym] + getBits(LENGTH_EXTRA[sym]);
+        int dcode = decode(distances);
+        if (dcode >= 30) throw new IOException("Invalid distance code");
+        int dist = DIST_BASE[dcode] + getBits(DIST_EXTRA[dcode]);
+        if (dist > produced + history) throw new IOException("Invalid distance too far back");
+
+        int from = (int) (produced - dist) & RING_MASK;
+        int to = (int) produced & RING_MASK;
+        for (int i = 0; i < len; i++) {
+          ring[to] = ring[from];
+          to = (to + 1) & RING_MASK;
+          from = (from + 1) & RING_MASK;
+        }
+        produced += len;
+      }
+    }
+  }
+
+  private void put(int b) {
+    ring[(int) produced & RING_MASK] = (byte) b;
+    produced++;
+  }
+
+  ////////////////////////////////////////////////////////////////////////////////
+  // bit input
+
+  private boolean refill() throws IOException {
+    inStart += inLen;
+    inPos = 0;
+    inLen = 0;
+    int n = in.read(inBuf, 0, inBuf.length);
+    if (n <= 0) return false;
+    inLen = n;
+    return true;
+  }
+
+  // try to have at least 57 bits in bitBuf; return true if there are at least nbytes bytes
+  private boolean fill(int nbytes) throws IOException {
+    while (bitCount <= 56) {
+      if (inPos == inLen && !refill()) break;
+      bitBuf |= (long) (inBuf[inPos++] & 0xff) << bitCount;
+      bitCount += 8;
+    }
+    return bitCount >= 8 * nbytes;
+  }
+
+  private int getBits(int n) throws IOException {
+    if (n == 0) return 0;
+    if (bitCount < n && !fill((n + 7) / 8) && bitCount < n) throw new EOFException("Unexpected end of GZIP file");
+    int result = (int) (bitBuf & ((1L << n) - 1));
+    bitBuf >>>= n;
+    bitCount -= n;
+    return result;
+  }
+
+  private void skipBytes(int n) throws IOException {
+    for (int i = 0; i < n; i++) getBits(8);
+  }
+
+  private int decode(int[] table) throws IOException {
+    if (bitCount < 15) fill(2);
+    int entry = table[(int) bitBuf & (table.length - 1)];
+    int len = entry & 15;
+    if (len == 0) throw new IOException("Invalid Huffman code");
+    if (len > bitCount) throw new EOFException("Unexpected end of GZIP file");
+    bitBuf >>>= len;
+    bitCount -= len;
+    return entry >>> 4;
+  }
+
+}
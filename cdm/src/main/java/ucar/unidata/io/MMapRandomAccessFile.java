@@ -37,89 +37,134 @@ import java.nio.channels.FileChannel;
 import java.nio.MappedByteBuffer;
 
 /**
- * Use NIO MappedByteBuffer to implement a RandomAccessFile.
- * Limited to 2G size. Not currently used - NOT UP TO DATE DO NOT USE
+ * Use NIO MappedByteBuffers to implement a read-only RandomAccessFile.
+ * The file is mapped in segments (default 1 GB each) as they are first needed, so files larger than 2 GB are handled,
+ * and only the parts of the file actually read use address space.
+ * Reads go to the mapped memory instead of the OS file, so there are no system calls for buffer refills,
+ * and large reads are copied straight from the mapping into the caller's array.
+ * <p/>
+ * Opt in with RandomAccessFile.acquireMapped(), or by prefixing a local file location with "mmap:" in NetcdfFile.open().
+ * <p/>
+ * Java has no way to unmap a MappedByteBuffer; the mappings are released when they are garbage collected after close.
+ * Until then the file cannot be deleted on Windows.
+ *
  * @author john
  */
 public class MMapRandomAccessFile extends RandomAccessFile {
+  static public final int defaultSegmentSize = 1 << 30;
 
-  private MappedByteBuffer source;
+  private final long segmentSize;
+  private FileChannel channel;
+  private MappedByteBuffer[] segments;
+  private long mappedLength; // the file length when the segments were last computed
 
   /**
-    * Constructor for in-memory "files"
-    * @param location used as a name
-    * @param mode the open mode
-    * @throws java.io.IOException on error
-    */
+   * Constructor, default buffer and segment size.
+   *
+   * @param location location of the file
+   * @param mode     must be "r"
+   * @throws java.io.IOException on open error
+   */
   public MMapRandomAccessFile(String location, String mode) throws IOException {
-    super(location, mode, 1);
-    FileChannel channel = file.getChannel();
-    source = channel.map( readonly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, (long) 0, channel.size());
-    //channel.close();
-
-    bufferStart = 0;
-	  dataSize = (int) channel.size();
-	  dataEnd = channel.size();
-    filePosition = 0;
-    buffer = null;
-    endOfFile = false;
+    this(location, mode, defaultBufferSize, defaultSegmentSize);
   }
 
+  /**
+   * Constructor.
+   *
+   * @param location    location of the file
+   * @param mode        must be "r"
+   * @param bufferSize  size of the read buffer used by the primitive reads
+   * @param segmentSize map the file in pieces of this many bytes
+   * @throws java.io.IOException on open error
+   */
+  public MMapRandomAccessFile(String location, String mode, int bufferSize, int segmentSize) throws IOException {
+    super(location, checkMode(mode), bufferSize);
+    if (segmentSize <= 0)
+      throw new IllegalArgumentException("segmentSize must be > 0");
+    this.segmentSize = segmentSize;
+    this.channel = file.getChannel();
+    this.mappedLength = channel.size();
+    this.segments = new MappedByteBuffer[nsegments(mappedLength)];
+  }
 
-  public void flush() throws IOException {
-    if (bufferModified) {
-      source.force();
-      bufferModified = false;
-    }
+  static private String checkMode(String mode) {
+    if (!mode.equals("r"))
+      throw new IllegalArgumentException("MMapRandomAccessFile is read only");
+    return mode;
   }
 
-  public long length( ) {
-    return dataEnd;
+  private int nsegments(long length) {
+    return (int) ((length + segmentSize - 1) / segmentSize);
   }
 
-  public void seek( long pos ) {
-    filePosition = pos;
-    if( filePosition < dataEnd )
-      source.position((int) filePosition);
-    else
-      endOfFile = true;
+  // the file may have been extended since we last looked; the last segment may then be partial and must be remapped
+  private void checkLength() throws IOException {
+    long length = channel.size();
+    if (length == mappedLength) return;
+
+    MappedByteBuffer[] old = segments;
+    segments = new MappedByteBuffer[nsegments(length)];
+    int nfull = (int) (Math.min(length, mappedLength) / segmentSize);
+    System.arraycopy(old, 0, segments, 0, Math.min(nfull, segments.length));
+    mappedLength = length;
   }
 
-   public void unread( ) {
-     seek( filePosition-1);
-   }
+  private MappedByteBuffer getSegment(int segno) throws IOException {
+    MappedByteBuffer seg = segments[segno];
+    if (seg == null) {
+      long start = segno * segmentSize;
+      long size = Math.min(segmentSize, mappedLength - start);
+      seg = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+      segments[segno] = seg;
+    }
+    return seg;
+  }
 
-  public int read() throws IOException {
-    // If the file position is within the data, return the byte...
-    if( filePosition < dataEnd ) {
-      filePosition++;
-      return source.get() & 0xff;
+  @Override
+  public synchronized void close() throws IOException {
+    super.close();
+    if (file == null) { // really closed, not just released to the cache
+      segments = null;
+      channel = null;
+    }
+  }
+
+  @Override
+  protected int read_(long pos, byte[] b, int offset, int len) throws IOException {
+    if (pos + len > mappedLength)
+      checkLength();
+
+    int want = len;
+    len = (int) Math.max(0, Math.min(len, mappedLength - pos));
+    if (extendMode && (len < want)) { // truncated file: pretend the missing bytes are there, as zeros
+      java.util.Arrays.fill(b, offset + len, offset + want, (byte) 0);
+    } else if (len < want && len == 0) {
+      return -1;
+    }
 
-    } else {
-       return -1;
+    int done = 0;
+    while (done < len) {
+      long p = pos + done;
+      int segno = (int) (p / segmentSize);
+      MappedByteBuffer seg = getSegment(segno);
+      int segpos = (int) (p - segno * segmentSize);
+      int n = Math.min(len - done, seg.limit() - segpos);
+      seg.position(segpos);
+      seg.get(b, offset + done, n);
+      done += n;
     }
+    return extendMode ? want : len;
   }
 
-   public int readBytes( byte dst[], int offset, int length ) throws IOException {
-     if( endOfFile ) return -1;
-
-     length = (int) Math.min( length, dataEnd - filePosition);
-     if (length > 0) {
-       source.get(dst, offset, length);
-       filePosition += length;
-     }
-     return length;
-   }
-
-  public void write( int b ) throws IOException {
-     source.put( (byte)b);
-     filePosition++;
-     bufferModified = true;
+  @Override
+  public void write(int b) throws IOException {
+    throw new IOException("MMapRandomAccessFile is read only");
   }
 
-  public void writeBytes( byte dst[], int offset, int length ) throws IOException {
-    source.put(dst, offset, length);
-    filePosition += length;
+  @Override
+  public void writeBytes(byte b[], int off, int len) throws IOException {
+    throw new IOException("MMapRandomAccessFile is read only");
   }
 
-}
\ No newline at end of file
+}
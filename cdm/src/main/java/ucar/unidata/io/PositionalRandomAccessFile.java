@@ -0,0 +1,169 @@
+/*
+ * Copyright 1998-2014 University Corporation for Atmospheric Research/Unidata
+ *
+ *   Portions of this software were developed by the Unidata Program at the
+ *   University Corporation for Atmospheric Research.
+ *
+ *   Access and use of this software shall impose the following obligations
+ *   and understandings on the user. The user is granted the right, without
+ *   any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *   this software, and any derivative works thereof, and its supporting
+ *   documentation for any purpose whatsoever, provided that this entire
+ *   notice appears in all copies of the software, derivative works and
+ *   supporting documentation.  Further, UCAR requests that the user credit
+ *   UCAR/Unidata in any publications that result from the use of this
+ *   software or in any product that includes this software. The names UCAR
+ *   and/or Unidata, however, may not be used in any advertising or publicity
+ *   to endorse or promote any products or commercial entity unless specific
+ *   written permission is obtained from UCAR/Unidata. The user also
+ *   understands that UCAR/Unidata is not obligated to provide the user with
+ *   any support, consulting, training or assistance of any kind with regard
+ *   to the use, operation and performance of this software nor to provide
+ *   the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *   THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *   IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *   WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *   DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *   INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *   FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *   NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *   WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.unidata.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A read-only view of a local RandomAccessFile, that reads with positional FileChannel reads.
+ * These dont use or move the file pointer of the underlying file, so several threads can read the same open file
+ * at the same time, each through its own view. A view is still thread confined, like any RandomAccessFile.
+ * Used by the IOSPs in concurrent read mode, see ucar.nc2.NetcdfFile.IOSP_MESSAGE_CONCURRENT_READS.
+ * <p/>
+ * The underlying file is not owned by this object: close() does not close it.
+ * As with readToByteChannel(), a thread that is interrupted during a read closes the FileChannel, and so the underlying file.
+ *
+ * @since 10/18/2026
+ */
+public class PositionalRandomAccessFile extends RandomAccessFile {
+  static private final LongAdder nreads = new LongAdder();
+
+  /**
+   * Can the given file be wrapped by a PositionalRandomAccessFile?
+   *
+   * @param raf the file
+   * @return true if raf is a local file, opened read-only.
+   */
+  static public boolean canWrap(RandomAccessFile raf) {
+    return raf != null && raf.readonly && raf.file != null && !(raf instanceof PositionalRandomAccessFile);
+  }
+
+  /**
+   * Make a new view on the same file, with the byte order of raf.
+   * If raf is itself a PositionalRandomAccessFile, the new view is on its underlying file.
+   *
+   * @param raf the file
+   * @return a new view, or null if the file cant be wrapped
+   */
+  static public PositionalRandomAccessFile makeView(RandomAccessFile raf) {
+    RandomAccessFile base = (raf instanceof PositionalRandomAccessFile) ? ((PositionalRandomAccessFile) raf).delegate : raf;
+    if (!canWrap(base)) return null;
+    PositionalRandomAccessFile view = new PositionalRandomAccessFile(base, raf.getBufferSize());
+    view.bigEndian = raf.bigEndian;
+    view.extendMode = raf.extendMode;
+    return view;
+  }
+
+  /**
+   * The FileChannel of a read-only local file, for positional reads that dont go through the file's buffer.
+   *
+   * @param raf the file, or a view on it
+   * @return the channel, or null if the file cant be wrapped
+   */
+  static public FileChannel getFileChannel(RandomAccessFile raf) {
+    if (raf instanceof PositionalRandomAccessFile) return ((PositionalRandomAccessFile) raf).channel;
+    return canWrap(raf) ? raf.file.getChannel() : null;
+  }
+
+  /**
+   * The number of positional reads made by all views, for debugging and tests.
+   *
+   * @return number of reads
+   */
+  static public long getNumberOfReads() {
+    return nreads.sum();
+  }
+
+  private final RandomAccessFile delegate;
+  private final FileChannel channel;
+
+  /**
+   * Constructor. The view starts with the byte order of the underlying file.
+   *
+   * @param delegate   the underlying file, must satisfy canWrap()
+   * @param bufferSize size of read buffer
+   */
+  public PositionalRandomAccessFile(RandomAccessFile delegate, int bufferSize) {
+    super(bufferSize);
+    if (!canWrap(delegate))
+      throw new IllegalArgumentException("Must be a read-only local file: " + (delegate == null ? null : delegate.getLocation()));
+    this.delegate = delegate;
+    this.channel = delegate.file.getChannel();
+    this.location = delegate.getLocation();
+    this.bigEndian = delegate.bigEndian;
+    this.extendMode = delegate.extendMode;
+  }
+
+  @Override
+  public long length() throws IOException {
+    return channel.size();
+  }
+
+  @Override
+  public long getLastModified() {
+    return delegate.getLastModified();
+  }
+
+  @Override
+  protected int read_(long pos, byte[] b, int offset, int len) throws IOException {
+    nreads.increment();
+    ByteBuffer bb = ByteBuffer.wrap(b, offset, len);
+    int total = 0;
+    while (bb.hasRemaining()) {
+      int n = channel.read(bb, pos + total);
+      if (n < 0) break;
+      total += n;
+    }
+
+    if (extendMode && (total < len))
+      return len;
+    return (total == 0 && len > 0) ? -1 : total;
+  }
+
+  @Override
+  public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
+    long need = nbytes;
+    while (need > 0) {
+      long count = channel.transferTo(offset, need, dest);
+      if (count <= 0) break;
+      need -= count;
+      offset += count;
+    }
+    return nbytes - need;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    throw new IOException("PositionalRandomAccessFile is read only");
+  }
+
+  @Override
+  public void writeBytes(byte b[], int off, int len) throws IOException {
+    throw new IOException("PositionalRandomAccessFile is read only");
+  }
+
+}
@@ -44,6 +44,7 @@ import ucar.unidata.util.StringUtil2;
 
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.WritableByteChannel;
 import java.util.*;
@@ -84,6 +85,7 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
   static public final int LITTLE_ENDIAN = 1;
 
   static protected final int defaultBufferSize = 8092;  // The default buffer size, in bytes.
+  static private final int maxBulkReadSize = 1024 * 1024; // bulk primitive reads bypass the buffer in pieces this big
 
   ///////////////////////////////////////////////////////////////////////
   // debug leaks - keep track of open files
@@ -197,6 +199,15 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
     }
   };
 
+  static private final ucar.nc2.util.cache.FileFactory mmapFactory = new FileFactory() {
+    public FileCacheable open(DatasetUrl durl, int buffer_size, CancelTask cancelTask, Object iospMessage) throws IOException {
+      String location = StringUtil2.replace(durl.trueurl, "\\", "/"); // canonicalize the name
+      RandomAccessFile result = new MMapRandomAccessFile(location, "r", buffer_size, MMapRandomAccessFile.defaultSegmentSize);
+      result.cacheState = 1;  // in use
+      return result;
+    }
+  };
+
   static private FileCacheIF cache = null;
 
   static public synchronized void enableDefaultGlobalFileCache() {
@@ -227,8 +238,31 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
       return (RandomAccessFile) cache.acquire(factory, location, new DatasetUrl(null, location), buffer_size, null, null);
   }
 
+  /**
+   * Get a read-only, memory mapped RandomAccessFile for a local file, from the global file cache if enabled.
+   * Mapped and regular files are cached separately.
+   *
+   * @param location location of the file
+   * @return MMapRandomAccessFile, opened for reading
+   * @throws IOException on open error
+   * @see MMapRandomAccessFile
+   */
+  static public RandomAccessFile acquireMapped(String location) throws IOException {
+    if (cache == null)
+      return new MMapRandomAccessFile(location, "r");
+    else
+      return (RandomAccessFile) cache.acquire(mmapFactory, mmapHashKey(location), new DatasetUrl(null, location), defaultBufferSize, null, null);
+  }
+
+  static private String mmapHashKey(String location) {
+    return "mmap:" + location;
+  }
+
   static public void eject(String location) {
-    if (cache != null) cache.eject(location);
+    if (cache != null) {
+      cache.eject(location);
+      cache.eject(mmapHashKey(location));
+    }
   }
 
   static public void shutdown() {
@@ -307,7 +341,7 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
   /**
    * STUPID extendMode for truncated, yet valid files. old netcdf C library code allowed NOFILL to do this
    */
-  private boolean extendMode = false;
+  protected boolean extendMode = false;
 
   /**
    * Constructor, for subclasses
@@ -586,6 +620,15 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
     this.bigEndian = bo.equals(ByteOrder.BIG_ENDIAN);
   }
 
+  /**
+   * Get the current endian mode.
+   *
+   * @return ByteOrder.BIG_ENDIAN or ByteOrder.LITTLE_ENDIAN
+   */
+  public ByteOrder getByteOrder() {
+    return bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+  }
+
   /**
    * Copy the contents of the buffer to the disk.
    *
@@ -1134,8 +1177,16 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readShort(short[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readShort();
+    int done = 0;
+    while (done < n) {
+      ByteBuffer bb = readBulk(2, n - done);
+      if (bb == null) {   // element straddles the end of the buffer
+        pa[start + done++] = readShort();
+        continue;
+      }
+      int count = bb.remaining() / 2;
+      bb.asShortBuffer().get(pa, start + done, count);
+      done += count;
     }
   }
 
@@ -1287,8 +1338,16 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readInt(int[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readInt();
+    int done = 0;
+    while (done < n) {
+      ByteBuffer bb = readBulk(4, n - done);
+      if (bb == null) {   // element straddles the end of the buffer
+        pa[start + done++] = readInt();
+        continue;
+      }
+      int count = bb.remaining() / 4;
+      bb.asIntBuffer().get(pa, start + done, count);
+      done += count;
     }
   }
 
@@ -1353,8 +1412,16 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readLong(long[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = readLong();
+    int done = 0;
+    while (done < n) {
+      ByteBuffer bb = readBulk(8, n - done);
+      if (bb == null) {   // element straddles the end of the buffer
+        pa[start + done++] = readLong();
+        continue;
+      }
+      int count = bb.remaining() / 8;
+      bb.asLongBuffer().get(pa, start + done, count);
+      done += count;
     }
   }
 
@@ -1390,8 +1457,16 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readFloat(float[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = Float.intBitsToFloat(readInt());
+    int done = 0;
+    while (done < n) {
+      ByteBuffer bb = readBulk(4, n - done);
+      if (bb == null) {   // element straddles the end of the buffer
+        pa[start + done++] = readFloat();
+        continue;
+      }
+      int count = bb.remaining() / 4;
+      bb.asFloatBuffer().get(pa, start + done, count);
+      done += count;
     }
   }
 
@@ -1427,11 +1502,64 @@ public class RandomAccessFile implements DataInput, DataOutput, FileCacheable, C
    * @throws IOException on read error
    */
   public final void readDouble(double[] pa, int start, int n) throws IOException {
-    for (int i = 0; i < n; i++) {
-      pa[start + i] = Double.longBitsToDouble(readLong());
+    int done = 0;
+    while (done < n) {
+      ByteBuffer bb = readBulk(8, n - done);
+      if (bb == null) {   // element straddles the end of the buffer
+        pa[start + done++] = readDouble();
+        continue;
+      }
+      int count = bb.remaining() / 8;
+      bb.asDoubleBuffer().get(pa, start + done, count);
+      done += count;
     }
   }
 
+  /**
+   * Get the next run of whole elements for one of the bulk array reads, and advance the file pointer past them.
+   * Elements already in the buffer are returned as a view on the buffer. If the buffer is used up and
+   * the remaining request is larger than the buffer, the data is read directly from the file, bypassing the buffer,
+   * in pieces of at most maxBulkReadSize bytes.
+   *
+   * @param elemSize size of one element in bytes
+   * @param nelems   number of elements still wanted
+   * @return ByteBuffer in the current byte order, with position and limit around a whole number of elements,
+   *         or null if the next element straddles the end of the buffer.
+   * @throws EOFException if the end of file is reached
+   * @throws IOException  on read error
+   */
+  private ByteBuffer readBulk(int elemSize, int nelems) throws IOException {
+    ByteOrder bo = bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+
+    if (filePosition >= dataEnd) {
+      long want = (long) elemSize * nelems;
+      if (want > buffer.length) {
+        int nbytes = (int) Math.min(want, (maxBulkReadSize / elemSize) * elemSize);
+        byte[] direct = new byte[nbytes];
+        int have = 0;
+        while (have < nbytes) {
+          int count = read_(filePosition + have, direct, have, nbytes - have);
+          if (count <= 0)
+            throw new EOFException("Reading " + location + " at " + (filePosition + have) + " file length = " + length());
+          have += count;
+        }
+        filePosition += nbytes;
+        return ByteBuffer.wrap(direct).order(bo);
+      }
+
+      seek(filePosition);
+      if (endOfFile)
+        throw new EOFException("Reading " + location + " at " + filePosition + " file length = " + length());
+    }
+
+    int avail = (int) (dataEnd - filePosition) / elemSize;
+    if (avail == 0) return null;
+    int count = Math.min(avail, nelems);
+    int offset = (int) (filePosition - bufferStart);
+    filePosition += count * elemSize;
+    return ByteBuffer.wrap(buffer, offset, count * elemSize).order(bo);
+  }
+
   /**
    * Reads the next line of text from this file.  This method successively
    * reads bytes from the file, starting at the current file pointer,
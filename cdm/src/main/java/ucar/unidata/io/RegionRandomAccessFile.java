@@ -0,0 +1,195 @@
+/*
+ * Copyright 1998-2014 University Corporation for Atmospheric Research/Unidata
+ *
+ *   Portions of this software were developed by the Unidata Program at the
+ *   University Corporation for Atmospheric Research.
+ *
+ *   Access and use of this software shall impose the following obligations
+ *   and understandings on the user. The user is granted the right, without
+ *   any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *   this software, and any derivative works thereof, and its supporting
+ *   documentation for any purpose whatsoever, provided that this entire
+ *   notice appears in all copies of the software, derivative works and
+ *   supporting documentation.  Further, UCAR requests that the user credit
+ *   UCAR/Unidata in any publications that result from the use of this
+ *   software or in any product that includes this software. The names UCAR
+ *   and/or Unidata, however, may not be used in any advertising or publicity
+ *   to endorse or promote any products or commercial entity unless specific
+ *   written permission is obtained from UCAR/Unidata. The user also
+ *   understands that UCAR/Unidata is not obligated to provide the user with
+ *   any support, consulting, training or assistance of any kind with regard
+ *   to the use, operation and performance of this software nor to provide
+ *   the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *   THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *   IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *   WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *   DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *   INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *   FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *   NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *   WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.unidata.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A read-only view of another RandomAccessFile, that reads from a set of saved byte regions when it can.
+ * Reads that are not in a saved region go to the underlying file, and are added to the regions.
+ * Used to replay the reads made while parsing a file header, see ucar.nc2.iosp.HeaderCache.
+ * <p/>
+ * The underlying file is not owned by this object: close() does not close it, but any later read that isnt
+ * already in the buffer throws IOException.
+ *
+ * @since 10/18/2026
+ */
+public class RegionRandomAccessFile extends RandomAccessFile {
+
+  /**
+   * Can the given file be wrapped by a RegionRandomAccessFile?
+   *
+   * @param raf the file
+   * @return true if raf is a local file, opened read-only.
+   */
+  static public boolean canWrap(RandomAccessFile raf) {
+    return raf.readonly && raf.file != null && !(raf instanceof RegionRandomAccessFile);
+  }
+
+  private final RandomAccessFile delegate;
+  private final NavigableMap<Long, byte[]> regions; // start position -> bytes
+  private final long fileLength;
+  private int nmiss;
+  private boolean closed;
+
+  /**
+   * Constructor.
+   *
+   * @param delegate   the underlying file, must satisfy canWrap()
+   * @param regions    saved regions, keyed by file position; may be empty. The map is used directly, not copied.
+   * @param bufferSize size of read buffer
+   * @throws IOException on read error
+   */
+  public RegionRandomAccessFile(RandomAccessFile delegate, NavigableMap<Long, byte[]> regions, int bufferSize) throws IOException {
+    super(bufferSize);
+    if (!canWrap(delegate))
+      throw new IllegalArgumentException("Must be a read-only local file: " + delegate.getLocation());
+    this.delegate = delegate;
+    this.regions = regions;
+    this.location = delegate.getLocation();
+    this.fileLength = delegate.length();
+  }
+
+  /**
+   * The number of reads that were not found in the saved regions.
+   *
+   * @return number of reads that went to the underlying file
+   */
+  public int getNumberOfMisses() {
+    return nmiss;
+  }
+
+  /**
+   * Get the regions, with overlapping and adjacent regions merged.
+   *
+   * @return sorted, disjoint regions, keyed by file position
+   */
+  public NavigableMap<Long, byte[]> getMergedRegions() {
+    NavigableMap<Long, byte[]> result = new TreeMap<>();
+    long start = -1, end = -1;
+    List<Map.Entry<Long, byte[]>> pieces = new ArrayList<>();
+    for (Map.Entry<Long, byte[]> entry : regions.entrySet()) {
+      long pos = entry.getKey();
+      if (pos > end) {
+        if (!pieces.isEmpty())
+          result.put(start, merge(start, end, pieces));
+        pieces.clear();
+        start = pos;
+      }
+      pieces.add(entry);
+      end = Math.max(end, pos + entry.getValue().length);
+    }
+    if (!pieces.isEmpty())
+      result.put(start, merge(start, end, pieces));
+    return result;
+  }
+
+  private byte[] merge(long start, long end, List<Map.Entry<Long, byte[]>> pieces) {
+    if (pieces.size() == 1) return pieces.get(0).getValue();
+    byte[] result = new byte[(int) (end - start)];
+    for (Map.Entry<Long, byte[]> piece : pieces) {
+      byte[] b = piece.getValue();
+      System.arraycopy(b, 0, result, (int) (piece.getKey() - start), b.length);
+    }
+    return result;
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+  }
+
+  @Override
+  public long length() {
+    return fileLength;
+  }
+
+  @Override
+  public long getLastModified() {
+    return delegate.getLastModified();
+  }
+
+  @Override
+  protected int read_(long pos, byte[] b, int offset, int len) throws IOException {
+    if (closed)
+      throw new IOException("RegionRandomAccessFile is closed: " + location);
+    if (pos >= fileLength)
+      return -1;
+
+    Map.Entry<Long, byte[]> entry = regions.floorEntry(pos);
+    if (entry != null) {
+      byte[] region = entry.getValue();
+      long end = entry.getKey() + region.length;
+      // a region that ends at the end of file satisfies a read past the end, same as the file would
+      if (pos + len <= end || (end == fileLength && pos < end)) {
+        int n = (int) Math.min(len, end - pos);
+        System.arraycopy(region, (int) (pos - entry.getKey()), b, offset, n);
+        return n;
+      }
+    }
+
+    nmiss++;
+    int n = delegate.read_(pos, b, offset, len);
+    if (n > 0) {
+      byte[] region = new byte[n];
+      System.arraycopy(b, offset, region, 0, n);
+      regions.put(pos, region);
+    }
+    return n;
+  }
+
+  @Override
+  public long readToByteChannel(WritableByteChannel dest, long offset, long nbytes) throws IOException {
+    byte[] b = new byte[(int) nbytes];
+    int n = read_(offset, b, 0, b.length);
+    return (n <= 0) ? 0 : dest.write(ByteBuffer.wrap(b, 0, n));
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    throw new IOException("RegionRandomAccessFile is read only");
+  }
+
+  @Override
+  public void writeBytes(byte b[], int off, int len) throws IOException {
+    throw new IOException("RegionRandomAccessFile is read only");
+  }
+
+}
@@ -107,6 +107,9 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
 
   private int bsBuff;
   private int bsLive;
+  private long bsBytesRead;
+  private long blockStart;
+  private int blockCount;
   private CRC mCrc = new CRC();
 
   private boolean[] inUse = new boolean[256];
@@ -201,6 +204,45 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
 
 
 
+  /**
+   * The number of blocks started since setStream(). When read() returns the last byte of a block,
+   * the next block has already been started.
+   *
+   * @return number of blocks
+   */
+  public int getBlockCount() {
+    return blockCount;
+  }
+
+  /**
+   * The position of the current block, in bits from the start of the stream given to setStream().
+   * Decompressing can start there, with the stream header "h" and block size digit put in front of it.
+   *
+   * @return bit position of the current block's magic number
+   */
+  public long getBlockStart() {
+    return blockStart;
+  }
+
+  /**
+   * The combined CRC of the blocks before the current one.
+   *
+   * @return combined CRC
+   */
+  public int getCombinedCRC() {
+    return computedCombinedCRC;
+  }
+
+  /**
+   * When starting in the middle of a stream, set the combined CRC of the blocks before the first one,
+   * from getCombinedCRC(), so the check at the end of the stream still works.
+   *
+   * @param crc combined CRC
+   */
+  public void setCombinedCRC(int crc) {
+    computedCombinedCRC = crc;
+  }
+
   /**
    * Reads the stream.
    * @throws BZip2ReadException if there is a problem.  InputStream does
@@ -254,6 +296,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
   private void initBlock() {
     char magic1, magic2, magic3, magic4;
     char magic5, magic6;
+    long start = bsBytesRead * 8 - bsLive;
     magic1 = bsGetUChar();
     magic2 = bsGetUChar();
     magic3 = bsGetUChar();
@@ -272,6 +315,8 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
       streamEnd = true;
       return;
     }
+    blockStart = start;
+    blockCount++;
 
     storedBlockCRC = bsGetInt32();
 
@@ -341,6 +386,8 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
     bsStream = f;
     bsLive = 0;
     bsBuff = 0;
+    bsBytesRead = 0;
+    blockCount = 0;
   }
 
   private int bsR(int n) {
@@ -357,6 +404,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
       }
       bsBuff = (bsBuff << 8) | (zzi & 0xff);
       bsLive += 8;
+      bsBytesRead++;
     }
 
     v = (bsBuff >> (bsLive - n)) & ((1 << n) - 1);
@@ -577,6 +625,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
               }
               bsBuff = (bsBuff << 8) | (zzi & 0xff);
               bsLive += 8;
+              bsBytesRead++;
             }
           }
           zj = (bsBuff >> (bsLive - 1)) & 1;
@@ -630,6 +679,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
                     }
                     bsBuff = (bsBuff << 8) | (zzi & 0xff);
                     bsLive += 8;
+                    bsBytesRead++;
                   }
                 }
                 zj = (bsBuff >> (bsLive - 1)) & 1;
@@ -710,6 +760,7 @@ public class CBZip2InputStream extends InputStream implements BZip2Constants {
                   zzi = thech;
                   bsBuff = (bsBuff << 8) | (zzi & 0xff);
                   bsLive += 8;
+                  bsBytesRead++;
                 }
               }
               zj = (bsBuff >> (bsLive - 1)) & 1;
@@ -0,0 +1,352 @@
+package ucar.ma2;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+
+import java.io.*;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.*;
+
+/**
+ * Check that ArrayDirect gives the same values as the heap Arrays, in both byte orders and across segments,
+ * that it can be read from and written to netCDF-3 files, that it works with code that uses getStorage(),
+ * and that close() frees its memory, but not while another thread is using it.
+ */
+public class TestArrayDirect {
+  private static final DataType[] types = {DataType.BYTE, DataType.UBYTE, DataType.SHORT, DataType.USHORT,
+          DataType.INT, DataType.UINT, DataType.LONG, DataType.FLOAT, DataType.DOUBLE};
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private int saveShift;
+
+  @Before
+  public void save() {
+    saveShift = ArrayDirect.segmentShift;
+  }
+
+  @After
+  public void restore() {
+    ArrayDirect.segmentShift = saveShift;
+  }
+
+  @Test
+  public void testValues() throws InvalidRangeException {
+    for (int shift : new int[]{30, 10}) { // 10: segments of 1 Kbyte, so values cross segments
+      ArrayDirect.segmentShift = shift;
+      for (DataType dataType : types) {
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+          Array heap = makeHeap(dataType, new int[]{37, 41});
+          try (ArrayDirect direct = ArrayDirect.factory(dataType, heap.getShape(), order)) {
+            Assert.assertEquals(dataType, direct.getDataType());
+            Assert.assertEquals(heap.getElementType(), direct.getElementType());
+            Assert.assertEquals(order, direct.getByteOrder());
+            MAMath.copy(direct, heap);
+            compare(heap, direct);
+
+            // views
+            compare(heap.section(new int[]{3, 5}, new int[]{10, 12}, new int[]{3, 2}), direct.section(new int[]{3, 5}, new int[]{10, 12}, new int[]{3, 2}));
+            compare(heap.slice(1, 7), direct.slice(1, 7));
+            compare(heap.flip(0).transpose(0, 1), direct.flip(0).transpose(0, 1));
+            Array slice = direct.slice(0, 11);
+            Assert.assertTrue(((ArrayDirect) slice).isContiguous());
+            compare(heap.slice(0, 11), slice);
+
+            // copies
+            Array copy = direct.copy();
+            Assert.assertTrue(copy instanceof ArrayDirect);
+            compare(heap, copy);
+            ((ArrayDirect) copy).close();
+            compare(heap.section(new int[]{3, 5}, new int[]{10, 12}, new int[]{3, 2}).copy(),
+                    direct.section(new int[]{3, 5}, new int[]{10, 12}, new int[]{3, 2}).copy());
+            Array onHeap = direct.copyToHeap();
+            Assert.assertFalse(onHeap instanceof ArrayDirect);
+            compare(heap, onHeap);
+            Assert.assertEquals(heap.getDataAsByteBuffer(), direct.getDataAsByteBuffer());
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testUnsigned() {
+    try (ArrayDirect direct = ArrayDirect.factory(DataType.UBYTE, new int[]{2})) {
+      direct.setInt(0, 200);
+      Assert.assertEquals(200, direct.getInt(0));
+      Assert.assertEquals(-56, direct.getByte(0));
+      Assert.assertEquals(200.0, direct.getDouble(0), 0.0);
+    }
+    try (ArrayDirect direct = ArrayDirect.factory(DataType.UINT, new int[]{2})) {
+      direct.setLong(0, 3000000000L);
+      Assert.assertEquals(3000000000L, direct.getLong(0));
+      Assert.assertEquals(3000000000.0, direct.getDouble(0), 0.0);
+    }
+  }
+
+  @Test
+  public void testClose() throws InvalidRangeException {
+    long allocated = ArrayDirect.getTotalAllocated();
+    long released = ArrayDirect.getTotalReleased();
+    ArrayDirect direct = ArrayDirect.factory(DataType.DOUBLE, new int[]{100, 10});
+    Array view = direct.section(new int[]{0, 0}, new int[]{10, 10});
+    Assert.assertEquals(allocated + 8000, ArrayDirect.getTotalAllocated());
+    direct.close();
+    direct.close(); // no-op
+    Assert.assertTrue(direct.isClosed());
+    Assert.assertEquals(released + 8000, ArrayDirect.getTotalReleased());
+
+    try {
+      direct.getDouble(0);
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    try {
+      view.getDouble(0); // views share the memory
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testCloseWhileInUse() throws Exception {
+    long released = ArrayDirect.getTotalReleased();
+    ArrayDirect direct = ArrayDirect.factory(DataType.DOUBLE, new int[]{1000});
+    CountDownLatch writing = new CountDownLatch(1);
+    CountDownLatch proceed = new CountDownLatch(1);
+    OutputStream slow = new OutputStream() {
+      public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+      }
+
+      public void write(byte[] b, int off, int len) throws IOException {
+        writing.countDown();
+        try {
+          proceed.await();
+        } catch (InterruptedException e) {
+          throw new InterruptedIOException();
+        }
+      }
+    };
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Long> count = executor.submit(() -> direct.writeTo(new DataOutputStream(slow), 0, 1000));
+      writing.await();
+      direct.close(); // while the other thread is in writeTo()
+      Assert.assertTrue(direct.isClosed());
+      Assert.assertEquals(released, ArrayDirect.getTotalReleased());
+      try {
+        direct.getDouble(0); // no new accesses
+        Assert.fail();
+      } catch (IllegalStateException e) {
+        // expected
+      }
+
+      proceed.countDown();
+      Assert.assertEquals(8000L, (long) count.get()); // the write finishes, then the memory is freed
+      Assert.assertEquals(released + 8000, ArrayDirect.getTotalReleased());
+    } finally {
+      proceed.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testStorage() {
+    ArrayDirect.segmentShift = 10;
+    Array heap = makeHeap(DataType.INT, new int[]{30, 20});
+    try (ArrayDirect direct = ArrayDirect.factory(DataType.INT, heap.getShape())) {
+      MAMath.copy(direct, heap);
+
+      // getStorage() is a copy
+      int[] storage = (int[]) direct.getStorage();
+      Assert.assertArrayEquals((int[]) heap.getStorage(), storage);
+      storage[0] = -1;
+      Assert.assertEquals(heap.getInt(0), direct.getInt(0));
+      compare(heap, Array.makeArrayRankPlusOne(direct).reduce(0));
+
+      // arraycopy writes into the ArrayDirect, across segments
+      Array.arraycopy(heap, 100, direct, 200, 400);
+      for (int i = 0; i < 600; i++)
+        Assert.assertEquals(heap.getInt(i < 200 ? i : i - 100), direct.getInt(i));
+
+      // reshapeNoCopy shares the memory
+      Array flat = direct.reshapeNoCopy(new int[]{600});
+      Assert.assertTrue(flat instanceof ArrayDirect);
+      flat.setInt(7, 12345);
+      Assert.assertEquals(12345, direct.getInt(7));
+      try {
+        direct.reshapeNoCopy(new int[]{601});
+        Assert.fail();
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testIndexLong() {
+    IndexLong index = new IndexLong(new int[]{3, 100000, 100000}); // 3e10 elements
+    Assert.assertEquals(30000000000L, index.getSize());
+    Assert.assertEquals(10000000000L, index.getStride(0));
+    Assert.assertEquals(29999999999L, index.element(2, 99999, 99999));
+    Assert.assertEquals(10000012345L, index.element(1, 0, 12345));
+    Assert.assertArrayEquals(new int[]{2, 12345, 6789}, index.counter(index.element(2, 12345, 6789)));
+    try {
+      index.element(3, 0, 0);
+      Assert.fail();
+    } catch (ArrayIndexOutOfBoundsException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testChannels() throws IOException, InvalidRangeException {
+    ArrayDirect.segmentShift = 10;
+    File file = tempFolder.newFile();
+    Array heap = makeHeap(DataType.FLOAT, new int[]{30, 40});
+    try (ArrayDirect direct = ArrayDirect.factory(DataType.FLOAT, heap.getShape())) {
+      MAMath.copy(direct, heap);
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+        Assert.assertEquals(4800, direct.writeTo(channel, 0, 1200));
+      }
+    }
+
+    // read back the rows 10 to 19, after the first 100 bytes
+    try (ArrayDirect direct = ArrayDirect.factory(DataType.FLOAT, new int[]{10, 40});
+         FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      direct.readFully(channel, 10 * 160, 0, 400);
+      compare(heap.section(new int[]{10, 0}, new int[]{10, 40}), direct);
+      try {
+        direct.readFully(channel, 4700, 0, 400);
+        Assert.fail();
+      } catch (EOFException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test
+  public void testNetcdf3() throws IOException, InvalidRangeException {
+    File file = makeFile();
+    try (NetcdfFile ncfile = NetcdfFile.open(file.getPath());
+         NetcdfFile direct = NetcdfFile.open(file.getPath(), -1, null, NetcdfFile.IOSP_MESSAGE_OFF_HEAP_ARRAYS)) {
+      Assert.assertEquals(Boolean.TRUE, direct.sendIospMessage(NetcdfFile.IOSP_MESSAGE_OFF_HEAP_ARRAYS));
+      for (Variable v : ncfile.getVariables()) {
+        Variable dv = direct.findVariable(v.getFullName());
+        dv.setCaching(false);
+        Array want = v.read();
+        Array got = dv.read();
+        Assert.assertEquals(v.getFullName(), v.getDataType() != DataType.CHAR, got instanceof ArrayDirect);
+        Assert.assertTrue(v.getFullName(), MAMath.equals(want, got));
+        Assert.assertTrue(v.getFullName(), MAMath.equals(want, Array.makeArrayRankPlusOne(got).reduce(0))); // uses getStorage()
+
+        Section section = new Section(v.getShape());
+        section.setRange(0, new Range(1, v.getShape(0) - 2, 2));
+        Assert.assertTrue(v.getFullName(), MAMath.equals(v.read(section), dv.read(section)));
+
+        // streamed bytes are the same
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ByteArrayOutputStream dbos = new ByteArrayOutputStream();
+        long n = v.readToStream(section, bos);
+        long dn = dv.readToStream(section, dbos);
+        Assert.assertEquals(n, dn);
+        Assert.assertArrayEquals(v.getFullName(), bos.toByteArray(), dbos.toByteArray());
+        dbos.reset();
+        Assert.assertEquals(n, ucar.nc2.iosp.IospHelper.copyToByteChannel(got.section(section.getRanges()).copy(), Channels.newChannel(dbos)));
+        Assert.assertArrayEquals(v.getFullName(), bos.toByteArray(), dbos.toByteArray());
+        if (got instanceof ArrayDirect) ((ArrayDirect) got).close();
+      }
+    }
+  }
+
+  @Test
+  public void testWrite() throws IOException, InvalidRangeException {
+    ArrayDirect.segmentShift = 10;
+    File file = makeFile();
+    File copy = tempFolder.newFile();
+    try (NetcdfFile direct = NetcdfFile.open(file.getPath(), -1, null, NetcdfFile.IOSP_MESSAGE_OFF_HEAP_ARRAYS)) {
+      try (NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, copy.getPath())) {
+        writer.addUnlimitedDimension("time");
+        writer.addDimension(null, "y", 23);
+        writer.addDimension(null, "x", 17);
+        writer.addDimension(null, "n", 5000);
+        for (Variable v : direct.getVariables())
+          writer.addVariable(null, v.getShortName(), v.getDataType(), v.getDimensionsString());
+        writer.create();
+        for (Variable v : direct.getVariables()) {
+          Array data = v.read();
+          writer.write(writer.findVariable(v.getShortName()), data);
+          if (data instanceof ArrayDirect) ((ArrayDirect) data).close();
+        }
+      }
+    }
+
+    try (NetcdfFile ncfile = NetcdfFile.open(file.getPath()); NetcdfFile ncopy = NetcdfFile.open(copy.getPath())) {
+      for (Variable v : ncfile.getVariables())
+        Assert.assertTrue(v.getFullName(), MAMath.equals(v.read(), ncopy.findVariable(v.getFullName()).read()));
+    }
+  }
+
+  private void compare(Array want, Array got) {
+    Assert.assertArrayEquals(want.getShape(), got.getShape());
+    IndexIterator iterWant = want.getIndexIterator();
+    IndexIterator iterGot = got.getIndexIterator();
+    while (iterWant.hasNext()) {
+      Assert.assertEquals(iterWant.getLongNext(), iterGot.getLongNext());
+    }
+    Index imaWant = want.getIndex();
+    Index imaGot = got.getIndex();
+    for (int k = 0; k < want.getSize(); k++) {
+      Assert.assertEquals(want.getDouble(imaWant), got.getDouble(imaGot), 0.0);
+      imaWant.incr();
+      imaGot.incr();
+    }
+  }
+
+  private Array makeHeap(DataType dataType, int[] shape) {
+    Array heap = Array.factory(dataType, shape);
+    for (int k = 0; k < heap.getSize(); k++)
+      heap.setLong(k, (k * 2654435761L) >> 3);
+    return heap;
+  }
+
+  // fixed and record variables of each numeric netCDF-3 type, and a char variable
+  private File makeFile() throws IOException, InvalidRangeException {
+    File file = tempFolder.newFile();
+    try (NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, file.getPath())) {
+      writer.addUnlimitedDimension("time");
+      writer.addDimension(null, "y", 23);
+      writer.addDimension(null, "x", 17);
+      writer.addDimension(null, "n", 5000);
+      writer.addVariable(null, "b", DataType.BYTE, "time y");
+      writer.addVariable(null, "s", DataType.SHORT, "time x");
+      writer.addVariable(null, "i", DataType.INT, "y x");
+      writer.addVariable(null, "f", DataType.FLOAT, "time y x");
+      writer.addVariable(null, "d", DataType.DOUBLE, "y x");
+      writer.addVariable(null, "c", DataType.CHAR, "y x");
+      writer.addVariable(null, "g", DataType.DOUBLE, "n"); // larger than the file buffer
+      writer.create();
+
+      for (Variable v : writer.getNetcdfFile().getVariables()) {
+        int[] shape = v.getShape();
+        if (v.isUnlimited()) shape[0] = 31;
+        Array data = Array.factory(v.getDataType(), shape);
+        for (int k = 0; k < data.getSize(); k++)
+          data.setDouble(k, (k * 7 + v.getShortName().charAt(0)) % 120);
+        writer.write(v, data);
+      }
+    }
+    return file;
+  }
+}
@@ -0,0 +1,201 @@
+package ucar.nc2;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.*;
+import ucar.nc2.constants.CDM;
+import ucar.unidata.io.PositionalRandomAccessFile;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Many threads read random sections from one NetcdfFile opened in concurrent read mode, and check the values against
+ * the same sections of the whole variables read serially.
+ * Also shows the throughput for 1, 2, 4 and 8 threads, which depends on the number of cores.
+ */
+public class TestConcurrentReads {
+  private static final int NREADS = 2000;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void testNetcdf3() throws Exception {
+    File file = makeNetcdf3();
+    stress(file.getPath());
+  }
+
+  @Test
+  public void testNetcdf3RecordStructure() throws Exception {
+    File file = makeNetcdf3();
+    Map<String, Array> expect = new HashMap<>();
+    try (NetcdfFile ncfile = NetcdfFile.open(file.getPath(), -1, null, NetcdfFile.IOSP_MESSAGE_ADD_RECORD_STRUCTURE)) {
+      expect.put("record", ncfile.findVariable("record").read());
+    }
+
+    try (NetcdfFile ncfile = NetcdfFile.open(file.getPath(), -1, null, NetcdfFile.IOSP_MESSAGE_CONCURRENT_READS)) {
+      ncfile.sendIospMessage(NetcdfFile.IOSP_MESSAGE_ADD_RECORD_STRUCTURE);
+      Assert.assertEquals(Boolean.TRUE, ncfile.sendIospMessage(NetcdfFile.IOSP_MESSAGE_CONCURRENT_READS));
+      Variable record = ncfile.findVariable("record");
+      runThreads(4, 200, random -> {
+        int first = random.nextInt(record.getShape(0));
+        int last = first + random.nextInt(record.getShape(0) - first);
+        ArrayStructure got = (ArrayStructure) record.read(new Section().appendRange(first, last));
+        ArrayStructure want = (ArrayStructure) expect.get("record");
+        for (StructureMembers.Member m : got.getStructureMembers().getMembers()) {
+          Array wantMember = want.extractMemberArray(want.findMember(m.getName()));
+          Array gotMember = got.extractMemberArray(m);
+          Section s = new Section(wantMember.getShape()).replaceRange(0, new Range(first, last));
+          Assert.assertTrue(m.getName(), MAMath.equals(wantMember.sectionNoReduce(s.getRanges()), gotMember));
+        }
+      });
+    }
+  }
+
+  @Test
+  public void testHdf5Chunked() throws Exception {
+    stress(TestDir.cdmLocalTestDataDir + "chunked.h5");
+  }
+
+  @Test
+  public void testHdf5Filtered() throws Exception {
+    stress(TestDir.cdmLocalTestDataDir + "chunkedFiltered.h5");
+  }
+
+  @Test
+  public void testNetcdf4() throws Exception {
+    stress(TestDir.cdmLocalTestDataDir + "testCFGridWriter.nc4");
+  }
+
+  @Test
+  public void testCompressedNotConcurrent() throws Exception {
+    File gz = tempFolder.newFile("concurrent.nc.gz");
+    try (OutputStream out = new GZIPOutputStream(new FileOutputStream(gz))) {
+      Files.copy(makeNetcdf3().toPath(), out);
+    }
+
+    boolean save = NetcdfFile.getCompressedRandomAccess();
+    NetcdfFile.setCompressedRandomAccess(true);
+    try (NetcdfFile ncfile = NetcdfFile.open(gz.getPath())) {
+      Assert.assertEquals(Boolean.FALSE, ncfile.sendIospMessage(NetcdfFile.IOSP_MESSAGE_CONCURRENT_READS));
+    } finally {
+      NetcdfFile.setCompressedRandomAccess(save);
+    }
+  }
+
+  private void stress(String filename) throws Exception {
+    Map<String, Array> expect = new HashMap<>();
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      for (Variable v : ncfile.getVariables()) {
+        if (v.getDataType() != DataType.STRUCTURE && !v.isVariableLength())
+          expect.put(v.getFullName(), v.read());
+      }
+    }
+    Assert.assertTrue(expect.size() > 0);
+
+    try (NetcdfFile ncfile = NetcdfFile.open(filename, -1, null, NetcdfFile.IOSP_MESSAGE_CONCURRENT_READS)) {
+      Assert.assertEquals(Boolean.TRUE, ncfile.sendIospMessage(NetcdfFile.IOSP_MESSAGE_CONCURRENT_READS));
+      List<Variable> vars = new ArrayList<>();
+      for (Variable v : ncfile.getVariables()) {
+        if (expect.containsKey(v.getFullName()) && v.getSize() > 0) {
+          v.setCaching(false);
+          vars.add(v);
+        }
+      }
+
+      long reads = PositionalRandomAccessFile.getNumberOfReads();
+      for (int nthreads = 1; nthreads <= 8; nthreads *= 2) {
+        long start = System.nanoTime();
+        runThreads(nthreads, NREADS / nthreads, random -> {
+          Variable v = vars.get(random.nextInt(vars.size()));
+          Section section = randomSection(v.getShape(), random);
+          Array got = v.read(section);
+          Array want = expect.get(v.getFullName()).sectionNoReduce(section.getRanges());
+          Assert.assertTrue(v.getFullName() + " " + section, MAMath.equals(want, got));
+        });
+        double secs = (System.nanoTime() - start) * 1.0e-9;
+        System.out.printf("%s: %d threads %8.0f reads/sec%n", new File(filename).getName(), nthreads, NREADS / secs);
+      }
+      Assert.assertTrue(PositionalRandomAccessFile.getNumberOfReads() > reads);
+    }
+  }
+
+  private Section randomSection(int[] shape, Random random) throws InvalidRangeException {
+    Section section = new Section();
+    for (int len : shape) {
+      int first = random.nextInt(len);
+      int last = first + random.nextInt(len - first);
+      int stride = 1 + random.nextInt(3);
+      section.appendRange(first, last, stride);
+    }
+    return section;
+  }
+
+  private interface Reader {
+    void read(Random random) throws Exception;
+  }
+
+  private void runThreads(int nthreads, int nreads, Reader reader) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(nthreads);
+    try {
+      List<Future<?>> results = new ArrayList<>();
+      for (int t = 0; t < nthreads; t++) {
+        final long seed = t;
+        results.add(pool.submit(() -> {
+          Random random = new Random(seed);
+          for (int i = 0; i < nreads; i++)
+            reader.read(random);
+          return null;
+        }));
+      }
+      for (Future<?> f : results) {
+        try {
+          f.get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof Error) throw (Error) e.getCause(); // assertion failures
+          throw e;
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  // fixed and record variables of each netCDF-3 type
+  private File makeNetcdf3() throws IOException, InvalidRangeException {
+    File file = tempFolder.newFile();
+    try (NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, file.getPath())) {
+      writer.addUnlimitedDimension("time");
+      writer.addDimension(null, "y", 23);
+      writer.addDimension(null, "x", 17);
+      writer.addDimension(null, "n", 11);
+      writer.addVariable(null, "time", DataType.DOUBLE, "time");
+      writer.addVariable(null, "b", DataType.BYTE, "time y");
+      writer.addVariable(null, "s", DataType.SHORT, "time x");
+      writer.addVariable(null, "i", DataType.INT, "time n");
+      writer.addVariable(null, "f", DataType.FLOAT, "time y x");
+      writer.addVariable(null, "grid", DataType.DOUBLE, "y x");
+      writer.addVariable(null, "c", DataType.CHAR, "y n");
+      Variable u = writer.addVariable(null, "u", DataType.SHORT, "n");
+      u.addAttribute(new Attribute(CDM.UNSIGNED, "true"));
+      writer.create();
+
+      for (Variable v : writer.getNetcdfFile().getVariables()) {
+        int[] shape = v.getShape();
+        if (v.isUnlimited()) shape[0] = 31;
+        Array data = Array.factory(v.getDataType(), shape);
+        for (int k = 0; k < data.getSize(); k++)
+          data.setDouble(k, (k * 7 + v.getShortName().charAt(0)) % 120);
+        writer.write(v, data);
+      }
+    }
+    return file;
+  }
+}
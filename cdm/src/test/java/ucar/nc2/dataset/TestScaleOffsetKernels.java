@@ -0,0 +1,145 @@
+package ucar.nc2.dataset;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.ma2.*;
+import ucar.nc2.Attribute;
+import ucar.nc2.Dimension;
+import ucar.nc2.constants.CDM;
+
+import java.util.Random;
+
+/**
+ * Check that the unpacking loops over java arrays give the same values as the IndexIterator loop,
+ * for signed and unsigned byte, short and int data, with and without missing values, and when split over threads.
+ */
+public class TestScaleOffsetKernels {
+  private static final int NY = 300, NX = 250;
+
+  @After
+  public void cleanup() {
+    NetcdfDataset.setParallelConvertSize(0);
+  }
+
+  @Test
+  public void testByte() throws InvalidRangeException {
+    check(DataType.BYTE, false, false);
+    check(DataType.BYTE, true, false);
+    check(DataType.BYTE, false, true);
+    check(DataType.BYTE, true, true);
+  }
+
+  @Test
+  public void testShort() throws InvalidRangeException {
+    check(DataType.SHORT, false, false);
+    check(DataType.SHORT, true, false);
+    check(DataType.SHORT, false, true);
+    check(DataType.SHORT, true, true);
+  }
+
+  @Test
+  public void testInt() throws InvalidRangeException {
+    check(DataType.INT, false, false);
+    check(DataType.INT, true, false);
+    check(DataType.INT, false, true);
+    check(DataType.INT, true, true);
+  }
+
+  @Test
+  public void testParallel() throws InvalidRangeException {
+    NetcdfDataset.setParallelConvertSize(1000);
+    check(DataType.SHORT, false, true);
+    check(DataType.BYTE, true, true);
+    check(DataType.INT, false, true);
+  }
+
+  private void check(DataType dataType, boolean unsigned, boolean doubleScale) throws InvalidRangeException {
+    // with missing values: valid_range, _FillValue and missing_value
+    EnhanceScaleMissingImpl missing = makeImpl(dataType, unsigned, doubleScale, true);
+    Assert.assertTrue(missing.getUseNaNs());
+    // without: no NaNs are set
+    EnhanceScaleMissingImpl none = makeImpl(dataType, unsigned, doubleScale, false);
+    Assert.assertFalse(none.getUseNaNs());
+
+    Array data = makeData(dataType, unsigned);
+    for (EnhanceScaleMissingImpl impl : new EnhanceScaleMissingImpl[]{missing, none}) {
+      DataType want = doubleScale ? DataType.DOUBLE : DataType.FLOAT;
+      Assert.assertEquals(want, impl.getConvertedDataType());
+      compare(impl, data, want);
+      compare(impl, data.section(new int[]{1, 2}, new int[]{(NY - 10) / 3, NX / 2 - 1}, new int[]{3, 2}), want); // not contiguous
+    }
+  }
+
+  private void compare(EnhanceScaleMissingImpl impl, Array data, DataType want) {
+    Array expect = Array.factory(want, data.getShape());
+    impl.convertScaleOffsetIterator(data, expect);
+
+    Array got = impl.convertScaleOffsetMissing(data);
+    Assert.assertEquals(want, got.getDataType());
+    Assert.assertArrayEquals(data.getShape(), got.getShape());
+
+    int nmissing = 0;
+    IndexIterator iterExpect = expect.getIndexIterator();
+    IndexIterator iterGot = got.getIndexIterator();
+    while (iterExpect.hasNext()) {
+      double e = iterExpect.getDoubleNext();
+      double g = iterGot.getDoubleNext();
+      if (Double.isNaN(e)) {
+        Assert.assertTrue(Double.isNaN(g));
+        nmissing++;
+      } else {
+        Assert.assertEquals(Double.doubleToLongBits(e), Double.doubleToLongBits(g));
+      }
+    }
+    if (impl.getUseNaNs())
+      Assert.assertTrue(nmissing > 0);
+    else
+      Assert.assertEquals(0, nmissing);
+  }
+
+  private Array makeData(DataType dataType, boolean unsigned) {
+    Array data = Array.factory(dataType.withSign(unsigned), new int[]{NY, NX});
+    Random random = new Random(dataType.ordinal());
+    IndexIterator ii = data.getIndexIterator();
+    while (ii.hasNext()) {
+      int k = random.nextInt(50);
+      if (k == 0) ii.setIntNext(7); // missing_value
+      else if (k == 1) ii.setIntNext(-1); // _FillValue
+      else ii.setIntNext(random.nextInt());
+    }
+    return data;
+  }
+
+  private EnhanceScaleMissingImpl makeImpl(DataType dataType, boolean unsigned, boolean doubleScale, boolean hasMissing) {
+    NetcdfDataset ncd = new NetcdfDataset();
+    ncd.addDimension(null, new Dimension("y", NY));
+    ncd.addDimension(null, new Dimension("x", NX));
+    VariableDS vds = new VariableDS(ncd, null, null, "packed", dataType, "y x", null, null);
+    ncd.addVariable(null, vds);
+
+    if (doubleScale) {
+      vds.addAttribute(new Attribute(CDM.SCALE_FACTOR, 0.01));
+      vds.addAttribute(new Attribute(CDM.ADD_OFFSET, -3.5));
+    } else {
+      vds.addAttribute(new Attribute(CDM.SCALE_FACTOR, 0.01f));
+      vds.addAttribute(new Attribute(CDM.ADD_OFFSET, -3.5f));
+    }
+    if (unsigned)
+      vds.addAttribute(new Attribute(CDM.UNSIGNED, "true"));
+    if (hasMissing) {
+      vds.addAttribute(new Attribute(CDM.MISSING_VALUE, Array.factory(dataType, new int[]{1}, makeValue(dataType, 7))));
+      vds.addAttribute(new Attribute(CDM.FILL_VALUE, Array.factory(dataType, new int[]{1}, makeValue(dataType, -1))));
+      vds.addAttribute(new Attribute("valid_min", Array.factory(dataType, new int[]{1}, makeValue(dataType, -100))));
+    }
+    return new EnhanceScaleMissingImpl(vds, true, hasMissing, hasMissing, hasMissing);
+  }
+
+  private Object makeValue(DataType dataType, int value) {
+    switch (dataType) {
+      case BYTE: return new byte[]{(byte) value};
+      case SHORT: return new short[]{(short) value};
+      default: return new int[]{value};
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package ucar.nc2.ft.point;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.unidata.geoloc.LatLonPointImpl;
+import ucar.unidata.geoloc.LatLonRect;
+import ucar.unidata.geoloc.Station;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Check the StationHelper bounding box, closest and k closest station queries against a scan of all the stations,
+ * for boxes and points across the date line and near the poles, and longitudes outside [-180, 180).
+ * Also shows the time for each kind of query, with and without the index.
+ */
+public class TestStationHelper {
+  private static final int NSTATIONS = 20000;
+
+  @Test
+  public void testBoundingBox() throws IOException {
+    List<StationFeature> stations = makeStations(NSTATIONS, new Random(1));
+    StationHelper helper = new StationHelper();
+    helper.setStations(stations);
+
+    Random random = new Random(2);
+    List<LatLonRect> boxes = new ArrayList<>();
+    boxes.add(new LatLonRect(new LatLonPointImpl(-10, 170), 20, 20)); // across the date line
+    boxes.add(new LatLonRect(new LatLonPointImpl(80, -180), 10, 360)); // all longitudes
+    boxes.add(new LatLonRect(new LatLonPointImpl(-90, -180), 180, 360));
+    boxes.add(new LatLonRect(new LatLonPointImpl(12.5, 100), 0, 0)); // a point
+    for (int i = 0; i < 200; i++)
+      boxes.add(new LatLonRect(new LatLonPointImpl(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180),
+              random.nextDouble() * 30, random.nextDouble() * 60));
+
+    for (LatLonRect box : boxes) {
+      List<StationFeature> want = new ArrayList<>();
+      for (StationFeature s : stations)
+        if (box.contains(new LatLonPointImpl(s.getLatitude(), s.getLongitude())))
+          want.add(s);
+      Assert.assertEquals(box.toString2(), want, helper.getStationFeatures(box));
+      Assert.assertEquals(box.toString2(), new ArrayList<Station>(want), helper.getStations(box));
+    }
+  }
+
+  @Test
+  public void testClosest() {
+    List<StationFeature> stations = makeStations(NSTATIONS, new Random(3));
+    StationHelper helper = new StationHelper();
+    helper.setStations(stations);
+
+    Random random = new Random(4);
+    List<LatLonPointImpl> points = new ArrayList<>();
+    points.add(new LatLonPointImpl(0, 179.99));
+    points.add(new LatLonPointImpl(0, -179.99));
+    points.add(new LatLonPointImpl(89.9, 0));
+    points.add(new LatLonPointImpl(-89.9, 45));
+    for (int i = 0; i < 500; i++)
+      points.add(new LatLonPointImpl(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180));
+
+    for (LatLonPointImpl pt : points) {
+      List<StationFeature> want = scanClosest(stations, pt);
+      Assert.assertSame(pt.toString(), want.get(0), helper.findClosestStation(pt));
+      for (int k : new int[]{1, 5, 37}) {
+        Assert.assertEquals(pt.toString(), want.subList(0, k), helper.findClosestStations(pt, k));
+        Assert.assertEquals(pt.toString(), want.subList(0, k), StationHelper.findClosestStations(stations, pt, k));
+      }
+    }
+  }
+
+  @Test
+  public void testFewStations() throws IOException {
+    StationHelper helper = new StationHelper();
+    LatLonPointImpl pt = new LatLonPointImpl(10, 10);
+    Assert.assertNull(helper.findClosestStation(pt));
+
+    helper.addStation(new StationFeatureImpl("missing", null, null, Double.NaN, Double.NaN, 0, 0, null));
+    Assert.assertNull(helper.findClosestStation(pt));
+
+    // the index is rebuilt after a station is added
+    StationFeature east = new StationFeatureImpl("east", null, null, 10, 179, 0, 0, null);
+    helper.addStation(east);
+    Assert.assertSame(east, helper.findClosestStation(pt));
+    StationFeature west = new StationFeatureImpl("west", null, null, 10, -179, 0, 0, null);
+    helper.addStation(west);
+    Assert.assertSame(west, helper.findClosestStation(new LatLonPointImpl(11, -170)));
+    Assert.assertEquals(Arrays.asList(east, west), helper.findClosestStations(new LatLonPointImpl(10, 179.5), 10));
+
+    // equally close: the first one added
+    StationFeature twin = new StationFeatureImpl("twin", null, null, 10, 179, 0, 0, null);
+    helper.addStation(twin);
+    Assert.assertSame(east, helper.findClosestStation(new LatLonPointImpl(10, 178)));
+
+    // and after the stations are replaced, even by none
+    helper.setStations(Collections.singletonList(west));
+    Assert.assertSame(west, helper.findClosestStation(pt));
+    helper.setStations(Collections.emptyList());
+    Assert.assertNull(helper.findClosestStation(pt));
+    Assert.assertEquals(0, helper.getStationFeatures(new LatLonRect(new LatLonPointImpl(0, 170), 20, 20)).size());
+  }
+
+  @Test
+  public void testTiming() throws IOException {
+    List<StationFeature> stations = makeStations(NSTATIONS, new Random(5));
+    StationHelper helper = new StationHelper();
+    helper.setStations(stations);
+    helper.findClosestStation(new LatLonPointImpl(0, 0)); // build the index
+
+    Random random = new Random(6);
+    int nqueries = 1000;
+    long scan = 0, indexed = 0;
+    for (int i = 0; i < nqueries; i++) {
+      LatLonPointImpl pt = new LatLonPointImpl(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+      long start = System.nanoTime();
+      StationFeature want = null;
+      double min = Double.MAX_VALUE;
+      for (StationFeature s : stations) {
+        double dist = haversine(s, pt);
+        if (dist < min) {
+          min = dist;
+          want = s;
+        }
+      }
+      long mid = System.nanoTime();
+      StationFeature got = helper.findClosestStation(pt);
+      indexed += System.nanoTime() - mid;
+      scan += mid - start;
+      Assert.assertSame(want, got);
+    }
+    System.out.printf("closest station of %d: scan %.3f msecs, index %.3f msecs%n", NSTATIONS,
+            scan * 1.0e-6 / nqueries, indexed * 1.0e-6 / nqueries);
+
+    scan = 0;
+    indexed = 0;
+    for (int i = 0; i < nqueries; i++) {
+      LatLonRect box = new LatLonRect(new LatLonPointImpl(random.nextDouble() * 160 - 80, random.nextDouble() * 360 - 180), 5, 5);
+      long start = System.nanoTime();
+      int count = 0;
+      for (StationFeature s : stations)
+        if (box.contains(new LatLonPointImpl(s.getLatitude(), s.getLongitude()))) count++;
+      long mid = System.nanoTime();
+      List<StationFeature> got = helper.getStationFeatures(box);
+      indexed += System.nanoTime() - mid;
+      scan += mid - start;
+      Assert.assertEquals(count, got.size());
+    }
+    System.out.printf("5x5 degree box of %d: scan %.3f msecs, index %.3f msecs%n", NSTATIONS,
+            scan * 1.0e-6 / nqueries, indexed * 1.0e-6 / nqueries);
+  }
+
+  // all the stations with a location, closest first, then in list order
+  private List<StationFeature> scanClosest(List<StationFeature> stations, LatLonPointImpl pt) {
+    Map<StationFeature, Double> dist = new HashMap<>();
+    List<StationFeature> result = new ArrayList<>();
+    for (StationFeature s : stations) {
+      if (Double.isNaN(s.getLatitude()) || Double.isNaN(s.getLongitude())) continue;
+      dist.put(s, haversine(s, pt));
+      result.add(s);
+    }
+    result.sort(Comparator.comparing(dist::get)); // stable, so ties stay in list order
+    return result;
+  }
+
+  private double haversine(StationFeature s, LatLonPointImpl pt) {
+    LatLonPointImpl loc = new LatLonPointImpl(s.getLatitude(), s.getLongitude());
+    double sinLat = Math.sin(Math.toRadians(loc.getLatitude() - pt.getLatitude()) / 2);
+    double sinLon = Math.sin(Math.toRadians(loc.getLongitude() - pt.getLongitude()) / 2);
+    double cosLat = Math.cos(Math.toRadians(pt.getLatitude())) * Math.cos(Math.toRadians(loc.getLatitude()));
+    return sinLat * sinLat + cosLat * sinLon * sinLon;
+  }
+
+  // clustered stations, a few with 360 added to the longitude, a few with no location
+  private List<StationFeature> makeStations(int n, Random random) {
+    List<StationFeature> result = new ArrayList<>(n);
+    double clat = 0, clon = 0;
+    for (int i = 0; i < n; i++) {
+      if (i % 100 == 0) {
+        clat = random.nextDouble() * 180 - 90;
+        clon = random.nextDouble() * 360 - 180;
+      }
+      double lat = Math.max(-90, Math.min(90, clat + random.nextGaussian() * 3));
+      double lon = LatLonPointImpl.lonNormal(clon + random.nextGaussian() * 3);
+      if (i % 97 == 0) lon += 360;
+      if (i % 501 == 0) lat = Double.NaN;
+      if (i % 1000 == 1) lat = Math.rint(lat); // some equal latitudes and longitudes
+      if (i % 1000 == 2) lon = Math.rint(lon);
+      result.add(new StationFeatureImpl("stn" + i, null, null, lat, lon, 0, 0, null));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,157 @@
+package ucar.nc2.iosp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.nc2.NCdumpW;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.nc2.iosp.hdf5.H5header;
+import ucar.nc2.util.DiskCache2;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Formatter;
+
+/**
+ * Open netCDF-3 and HDF5 files with the header cache, and check we get the same objects and data as without.
+ * testCFGridWriter.nc4 and testRename.nc4 have fractal heaps and version 2 btrees.
+ */
+public class TestHeaderCache {
+  private static final String[] filenames = {"example1.nc", "longOffset.nc", "chunkedFiltered.h5", "ncml/nc/ubyte_1.nc4",
+          "testCFGridWriter.nc4", "dataset/testRename.nc4"};
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+  private File dataDir;
+  private DiskCache2 diskCache;
+
+  @Before
+  public void setup() throws IOException {
+    File cacheDir = tempFolder.newFolder("cache");
+    dataDir = tempFolder.newFolder("data");
+    diskCache = new DiskCache2(cacheDir.getPath(), false, 0, 0);
+    diskCache.setAlwaysUseCache(true);
+    HeaderCache.setDiskCache2(diskCache);
+  }
+
+  @After
+  public void cleanup() {
+    HeaderCache.setDiskCache2(null);
+  }
+
+  @Test
+  public void testSameAsUncached() throws IOException {
+    for (String name : filenames) {
+      File copy = copy(name);
+      String expected = dump(copy, null);
+
+      long hits = HeaderCache.getHits();
+      long misses = HeaderCache.getMisses();
+      long writes = HeaderCache.getWrites();
+
+      Assert.assertEquals(name, expected, dump(copy, diskCache)); // writes the cache file
+      Assert.assertEquals(name, misses + 1, HeaderCache.getMisses());
+      Assert.assertEquals(name, writes + 1, HeaderCache.getWrites());
+
+      Assert.assertEquals(name, expected, dump(copy, diskCache)); // reads it
+      Assert.assertEquals(name, hits + 1, HeaderCache.getHits());
+      Assert.assertEquals(name, writes + 1, HeaderCache.getWrites());
+    }
+  }
+
+  // the fractal heaps and btrees are read from the file after the header is parsed from the cache
+  @Test
+  public void testFractalHeapAfterHit() throws IOException {
+    File copy = copy("dataset/testRename.nc4");
+    String expected = showFractalHeaps(copy, null);
+    Assert.assertTrue(expected.contains("FractalHeap"));
+
+    long hits = HeaderCache.getHits();
+    showFractalHeaps(copy, diskCache); // writes the cache file
+    Assert.assertEquals(expected, showFractalHeaps(copy, diskCache));
+    Assert.assertEquals(hits + 1, HeaderCache.getHits());
+  }
+
+  @Test
+  public void testDiskCacheMustAlwaysUseCache() {
+    DiskCache2 dc = new DiskCache2(diskCache.getRootDirectory(), false, 0, 0);
+    try {
+      HeaderCache.setDiskCache2(dc);
+      Assert.fail();
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    Assert.assertFalse(dc.isAlwaysUseCache()); // not changed
+    Assert.assertSame(diskCache, HeaderCache.getDiskCache2());
+  }
+
+  @Test
+  public void testModifiedFileIsReparsed() throws IOException {
+    File copy = copy("example1.nc");
+    try (NetcdfFile ncfile = NetcdfFile.open(copy.getPath())) {
+      Assert.assertNotNull(ncfile.findVariable("rh"));
+    }
+    long misses = HeaderCache.getMisses();
+    long writes = HeaderCache.getWrites();
+
+    Assert.assertTrue(copy.setLastModified(copy.lastModified() - 60 * 1000));
+    try (NetcdfFile ncfile = NetcdfFile.open(copy.getPath())) {
+      Assert.assertNotNull(ncfile.findVariable("rh"));
+    }
+    Assert.assertEquals(misses + 1, HeaderCache.getMisses());
+    Assert.assertEquals(writes + 1, HeaderCache.getWrites());
+  }
+
+  @Test
+  public void testCorruptCacheFileIsIgnored() throws IOException {
+    File copy = copy("chunkedFiltered.h5");
+    String expected = dump(copy, diskCache);
+    File cacheFile = diskCache.getCacheFile(copy.getPath() + ".hdrc");
+    Assert.assertTrue(cacheFile.exists());
+    Files.write(cacheFile.toPath(), new byte[]{1, 2, 3});
+
+    long misses = HeaderCache.getMisses();
+    Assert.assertEquals(expected, dump(copy, diskCache));
+    Assert.assertEquals(misses + 1, HeaderCache.getMisses());
+  }
+
+  private File copy(String name) throws IOException {
+    File src = new File(TestDir.cdmLocalTestDataDir + name);
+    File dest = new File(dataDir, src.getName());
+    Files.copy(src.toPath(), dest.toPath());
+    return dest;
+  }
+
+  private String showFractalHeaps(File file, DiskCache2 dc) throws IOException {
+    HeaderCache.setDiskCache2(dc);
+    Formatter f = new Formatter();
+    try (NetcdfFile ncfile = NetcdfFile.open(file.getPath())) {
+      H5header header = (H5header) ncfile.sendIospMessage("header");
+      for (H5header.DataObject dobj : header.getDataObjects()) {
+        for (H5header.HeaderMessage m : dobj.getMessages()) {
+          if (m.getMtype() == H5header.MessageType.AttributeInfo)
+            m.showFractalHeap(f);
+        }
+      }
+    }
+    return f.toString();
+  }
+
+  // CDL and all the data
+  private String dump(File file, DiskCache2 dc) throws IOException {
+    HeaderCache.setDiskCache2(dc);
+    StringBuilder sb = new StringBuilder();
+    try (NetcdfFile ncfile = NetcdfFile.open(file.getPath())) {
+      sb.append(ncfile.toString());
+      for (Variable v : ncfile.getVariables())
+        sb.append(NCdumpW.printVariableData(v, null));
+    }
+    return sb.toString();
+  }
+}
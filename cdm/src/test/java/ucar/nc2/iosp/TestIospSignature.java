@@ -0,0 +1,128 @@
+package ucar.nc2.iosp;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Check that NetcdfFile only calls isValidFile() on IOSPs whose signatures match the start of the file.
+ */
+public class TestIospSignature {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Before
+  public void setup() throws IllegalAccessException, InstantiationException {
+    ZzzzIosp.validFileCalls.set(0);
+    NetcdfFile.registerIOProvider(ZzzzIosp.class);
+  }
+
+  @After
+  public void cleanup() {
+    NetcdfFile.iospDeRegister(ZzzzIosp.class);
+  }
+
+  @Test
+  public void testMatches() {
+    byte[] header = "abcdefgh".getBytes(StandardCharsets.UTF_8);
+    Assert.assertTrue(new IospSignature(0, "abc").matches(header));
+    Assert.assertTrue(new IospSignature(5, "fgh").matches(header));
+    Assert.assertFalse(new IospSignature(5, "fghi").matches(header)); // file too short
+    Assert.assertFalse(new IospSignature(1, "abc").matches(header));
+    Assert.assertTrue(new IospSignature(2, new byte[]{'c', 'd'}).matches(header));
+    Assert.assertEquals("0:\\x0e\\x03\\x13\\x01", new IospSignature(0, NCheader.H4HEAD).toString());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOutsideHeader() {
+    new IospSignature(IospSignature.HEADER_SIZE - 2, "abc");
+  }
+
+  @Test
+  public void testSkipped() throws IOException {
+    long skips = NetcdfFile.getSignatureSkips();
+    long count = NetcdfFile.getIospDetectCount();
+    try (NetcdfFile ncfile = NetcdfFile.open(TestDir.cdmLocalTestDataDir + "chunked.h5")) {
+      Assert.assertEquals("HDF5", ncfile.getFileTypeId());
+    }
+    Assert.assertEquals(0, ZzzzIosp.validFileCalls.get());
+    Assert.assertTrue(NetcdfFile.getSignatureSkips() > skips);
+    Assert.assertEquals(count + 1, NetcdfFile.getIospDetectCount());
+  }
+
+  @Test
+  public void testMatched() throws IOException {
+    File file = tempFolder.newFile("test.zzzz");
+    Files.write(file.toPath(), "ZZZZ is not a real format".getBytes(StandardCharsets.UTF_8));
+    try (NetcdfFile ncfile = NetcdfFile.open(file.getPath())) {
+      Assert.assertEquals("ZZZZ", ncfile.getFileTypeId());
+    }
+    Assert.assertEquals(1, ZzzzIosp.validFileCalls.get());
+    Assert.assertTrue(NetcdfFile.canOpen(file.getPath()));
+  }
+
+  @Test
+  public void testUnknown() throws IOException {
+    File file = tempFolder.newFile("test.txt");
+    Files.write(file.toPath(), "not a file of any kind".getBytes(StandardCharsets.UTF_8));
+    long calls = NetcdfFile.getIsValidFileCalls();
+    Assert.assertFalse(NetcdfFile.canOpen(file.getPath()));
+    Assert.assertEquals(0, ZzzzIosp.validFileCalls.get());
+    Assert.assertTrue(NetcdfFile.getIsValidFileCalls() > calls); // the IOSPs without signatures are still tried
+  }
+
+  public static class ZzzzIosp extends AbstractIOServiceProvider {
+    static final AtomicInteger validFileCalls = new AtomicInteger();
+    private static final List<IospSignature> signatures = Collections.singletonList(new IospSignature(0, "ZZZZ"));
+
+    @Override
+    public boolean isValidFile(RandomAccessFile raf) throws IOException {
+      validFileCalls.incrementAndGet();
+      return true;
+    }
+
+    @Override
+    public List<IospSignature> getSignatures() {
+      return signatures;
+    }
+
+    @Override
+    public void open(RandomAccessFile raf, NetcdfFile ncfile, ucar.nc2.util.CancelTask cancelTask) throws IOException {
+      super.open(raf, ncfile, cancelTask);
+      ncfile.finish();
+    }
+
+    @Override
+    public Array readData(Variable v2, Section section) {
+      return null;
+    }
+
+    @Override
+    public String getFileTypeId() {
+      return "ZZZZ";
+    }
+
+    @Override
+    public String getFileTypeDescription() {
+      return "test format";
+    }
+  }
+}
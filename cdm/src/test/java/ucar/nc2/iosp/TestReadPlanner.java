@@ -0,0 +1,169 @@
+package ucar.nc2.iosp;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.*;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFileWriter;
+import ucar.nc2.Variable;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Check that reading through the ReadPlanner gives the same values as reading each chunk, with and without
+ * merging, in parallel, for netCDF-3 fixed and record variables and HDF5 chunked variables.
+ */
+public class TestReadPlanner {
+  private static final String[] sections = {null, "0:99:2,:", "3:97:3,5:40", "10:20,7", ":,0:199:50", "42,:", "0:999:2,:"};
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private int saveGap, saveReadSize;
+
+  @Before
+  public void save() {
+    saveGap = ReadPlanner.getMaxGap();
+    saveReadSize = ReadPlanner.getMaxReadSize();
+  }
+
+  @After
+  public void restore() {
+    ReadPlanner.setMaxGap(saveGap);
+    ReadPlanner.setMaxReadSize(saveReadSize);
+    ReadPlanner.setExecutor(null);
+  }
+
+  @Test
+  public void testNetcdf3() throws IOException, InvalidRangeException {
+    File file = makeFile();
+    compare(file.getPath(), 16 * 1024, 4 * 1000 * 1000);
+    compare(file.getPath(), 0, 4 * 1000 * 1000);
+    compare(file.getPath(), 100, 1000);
+  }
+
+  @Test
+  public void testHdf5() throws IOException, InvalidRangeException {
+    compare(TestDir.cdmLocalTestDataDir + "chunked.h5", 16 * 1024, 4 * 1000 * 1000);
+    compare(TestDir.cdmLocalTestDataDir + "chunked.h5", 0, 100);
+  }
+
+  @Test
+  public void testMerged() throws IOException, InvalidRangeException {
+    // 100 rows of 200 floats, after a 100 byte header
+    File file = tempFolder.newFile("rows.dat");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.write(new byte[100]);
+      for (int k = 0; k < 100 * 200; k++)
+        out.writeFloat(k);
+    }
+
+    // every other row: each chunk of 800 bytes is followed by a gap of 800 bytes
+    Section section = new Section("0:99:2,0:199");
+    try (RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r")) {
+      ReadPlanner.setMaxGap(800);
+      ReadPlanner planner = new ReadPlanner(raf, DataType.FLOAT, 4);
+      float[] pa = new float[(int) section.computeSize()];
+      planner.read(new LayoutRegular(100, 4, new int[]{100, 200}, section), pa, RandomAccessFile.BIG_ENDIAN);
+      Assert.assertEquals(50, planner.getNumberOfChunks());
+      Assert.assertEquals(1, planner.getNumberOfReads());
+      Assert.assertEquals(50 * 800, planner.getBytesWanted());
+      Assert.assertEquals(99 * 800, planner.getBytesRead());
+      check(pa);
+
+      // gaps too large to merge
+      ReadPlanner.setMaxGap(799);
+      planner = new ReadPlanner(raf, DataType.FLOAT, 4);
+      pa = new float[(int) section.computeSize()];
+      planner.read(new LayoutRegular(100, 4, new int[]{100, 200}, section), pa, RandomAccessFile.BIG_ENDIAN);
+      Assert.assertEquals(50, planner.getNumberOfReads());
+      Assert.assertEquals(50 * 800, planner.getBytesRead());
+      check(pa);
+
+      // reads no larger than maxReadSize
+      ReadPlanner.setMaxGap(800);
+      ReadPlanner.setMaxReadSize(10 * 1000);
+      planner = new ReadPlanner(raf, DataType.FLOAT, 4);
+      pa = new float[(int) section.computeSize()];
+      planner.read(new LayoutRegular(100, 4, new int[]{100, 200}, section), pa, RandomAccessFile.BIG_ENDIAN);
+      Assert.assertEquals(9, planner.getNumberOfReads()); // 6 rows in each read of 8800 bytes
+      check(pa);
+    }
+  }
+
+  private void check(float[] pa) {
+    for (int row = 0; row < 50; row++)
+      for (int col = 0; col < 200; col++)
+        Assert.assertEquals(2 * row * 200 + col, pa[row * 200 + col], 0.0);
+  }
+
+  @Test
+  public void testParallel() throws IOException, InvalidRangeException {
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    AtomicInteger ntasks = new AtomicInteger();
+    ReadPlanner.setExecutor(r -> { ntasks.incrementAndGet(); pool.execute(r); });
+    try {
+      File file = makeFile();
+      compare(file.getPath(), 16 * 1024, 50 * 1000);
+      Assert.assertTrue(ntasks.get() > 0);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  // compare against reading each chunk separately
+  private void compare(String filename, int maxGap, int maxReadSize) throws IOException, InvalidRangeException {
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      for (Variable v : ncfile.getVariables()) {
+        if (v.getRank() != 2) continue;
+        v.setCaching(false);
+        for (String spec : sections) {
+          Section section = (spec == null) ? v.getShapeAsSection() : new Section(spec);
+          if (section.checkInRange(v.getShape()) != null) continue;
+
+          ReadPlanner.setMaxGap(-1);
+          Array expect = v.read(section);
+          ReadPlanner.setMaxGap(maxGap);
+          ReadPlanner.setMaxReadSize(maxReadSize);
+          long reads = ReadPlanner.getTotalReads();
+          Array got = v.read(section);
+          Assert.assertTrue(v.getFullName() + " " + section, ReadPlanner.getTotalReads() > reads);
+          Assert.assertTrue(v.getFullName() + " " + section, MAMath.equals(expect, got));
+        }
+      }
+    }
+  }
+
+  // fixed variables, one of 4 MB, and 100 records of 3 variables
+  private File makeFile() throws IOException, InvalidRangeException {
+    File file = tempFolder.newFile("planner.nc");
+    try (NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, file.getPath())) {
+      writer.addUnlimitedDimension("time");
+      writer.addDimension(null, "y", 200);
+      writer.addDimension(null, "x", 200);
+      writer.addDimension(null, "n", 1000);
+      writer.addVariable(null, "fixed", DataType.FLOAT, "y x");
+      writer.addVariable(null, "dfixed", DataType.DOUBLE, "y x");
+      writer.addVariable(null, "big", DataType.FLOAT, "n n");
+      writer.addVariable(null, "rec", DataType.FLOAT, "time x");
+      writer.addVariable(null, "srec", DataType.SHORT, "time x");
+      writer.addVariable(null, "irec", DataType.INT, "time x");
+      writer.create();
+
+      for (Variable v : writer.getNetcdfFile().getVariables()) {
+        int[] shape = v.getShape();
+        if (v.isUnlimited()) shape[0] = 100;
+        Array data = Array.factory(v.getDataType(), shape);
+        for (int k = 0; k < data.getSize(); k++)
+          data.setDouble(k, k % 30000 + v.getShortName().length());
+        writer.write(v, data);
+      }
+    }
+    return file;
+  }
+}
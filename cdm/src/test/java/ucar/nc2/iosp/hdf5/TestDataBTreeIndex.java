@@ -0,0 +1,114 @@
+package ucar.nc2.iosp.hdf5;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.MAMath;
+import ucar.ma2.Range;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compare reading chunked variables through the in-memory chunk index with reading the btree each time.
+ */
+public class TestDataBTreeIndex {
+  private static final String[] filenames = {"chunkedFiltered.h5", "chunked.h5", "ncml/nc/ubyte_1.nc4"};
+
+  @After
+  public void cleanup() {
+    DataBTree.useChunkIndex = true;
+  }
+
+  @Test
+  public void testSameData() throws IOException, InvalidRangeException {
+    Random random = new Random(4397);
+    for (String name : filenames) {
+      String filename = TestDir.cdmLocalTestDataDir + name;
+
+      // full variable and random sections of each chunked variable
+      List<String> varNames = new ArrayList<>();
+      List<Section> sections = new ArrayList<>();
+      try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+        for (Variable v : ncfile.getVariables()) {
+          if (getBtree(ncfile, v.getFullNameEscaped()) == null || v.isVariableLength() || v.getSize() == 0) continue;
+          varNames.add(v.getFullNameEscaped());
+          sections.add(new Section(v.getShape()));
+          for (int k = 0; k < 20; k++) {
+            varNames.add(v.getFullNameEscaped());
+            sections.add(randomSection(v.getShape(), random));
+          }
+        }
+      }
+      Assert.assertTrue(name, varNames.size() > 0);
+
+      List<Array> withIndex = read(filename, true, varNames, sections);
+      List<Array> withoutIndex = read(filename, false, varNames, sections);
+      for (int i = 0; i < withIndex.size(); i++)
+        Assert.assertTrue(name + " " + varNames.get(i) + " " + sections.get(i), MAMath.equals(withIndex.get(i), withoutIndex.get(i)));
+    }
+  }
+
+  @Test
+  public void testOnlyIntersectingChunks() throws IOException, InvalidRangeException {
+    try (NetcdfFile ncfile = NetcdfFile.open(TestDir.cdmLocalTestDataDir + "chunkedFiltered.h5")) {
+      DataBTree btree = getBtree(ncfile, "cube"); // (12, 30, 40) chunks (1, 16, 16)
+      Assert.assertEquals(72, count(btree, null));
+      Assert.assertEquals(1, count(btree, new Section("5,17:29,16:20,0:1")));
+      Assert.assertEquals(2 * 2 * 3, count(btree, new Section("3:4,:,:,0:1")));
+      Assert.assertEquals(4 * 2, count(btree, new Section("1:11:3,:,31,0:1")));
+      Assert.assertEquals(12 * 2, count(btree, new Section(":,15:16,0,0:1")));
+
+      btree = getBtree(ncfile, "data"); // (60, 50) chunks (7, 8)
+      Assert.assertEquals(63, count(btree, null));
+      // rows 0,9,18,..,54 are in chunk rows 0,1,2,3,5,6,7; cols 3,8,..,48 touch every chunk column
+      Assert.assertEquals(7 * 7, count(btree, new Section("0:59:9,3:49:5,0:3")));
+      Assert.assertEquals(7, count(btree, new Section("0:59:9,48:49,0:3")));
+    }
+  }
+
+  private DataBTree getBtree(NetcdfFile ncfile, String varName) {
+    Variable v = ncfile.findVariable(varName);
+    if (!(v.getSPobject() instanceof H5header.Vinfo)) return null;
+    return ((H5header.Vinfo) v.getSPobject()).btree;
+  }
+
+  private int count(DataBTree btree, Section want) throws IOException, InvalidRangeException {
+    int count = 0;
+    DataBTree.DataChunkIterator iter = btree.getDataChunkIteratorFilter(want);
+    while (iter.hasNext()) {
+      iter.next();
+      count++;
+    }
+    return count;
+  }
+
+  private List<Array> read(String filename, boolean useIndex, List<String> varNames, List<Section> sections) throws IOException, InvalidRangeException {
+    DataBTree.useChunkIndex = useIndex;
+    List<Array> result = new ArrayList<>();
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      for (int i = 0; i < varNames.size(); i++)
+        result.add(ncfile.findVariable(varNames.get(i)).read(sections.get(i)));
+    }
+    return result;
+  }
+
+  private Section randomSection(int[] shape, Random random) throws InvalidRangeException {
+    List<Range> ranges = new ArrayList<>();
+    for (int len : shape) {
+      int first = random.nextInt(len);
+      int last = first + random.nextInt(len - first);
+      int stride = 1 + random.nextInt(Math.max(1, (last - first + 1) / 2));
+      ranges.add(new Range(first, last, stride));
+    }
+    return new Section(ranges);
+  }
+}
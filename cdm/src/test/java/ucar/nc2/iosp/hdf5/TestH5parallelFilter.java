@@ -0,0 +1,118 @@
+package ucar.nc2.iosp.hdf5;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.ma2.Index;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read filtered chunks in parallel and check the values.
+ * chunkedFiltered.h5 has
+ * <pre>
+ *   int data(60, 50) = 1000 * i + j, chunks (7, 8), shuffle + deflate, one chunk has deflate skipped by the filter mask
+ *   short cube(12, 30, 40) = 1000 * i + 31 * j + k, chunks (1, 16, 16), deflate, 2 level btree
+ * </pre>
+ */
+public class TestH5parallelFilter {
+  private static final String filename = TestDir.cdmLocalTestDataDir + "chunkedFiltered.h5";
+  private ExecutorService pool;
+  private AtomicInteger ntasks = new AtomicInteger();
+
+  @Before
+  public void setup() {
+    pool = Executors.newFixedThreadPool(4);
+    H5iosp.setChunkExecutor(r -> { ntasks.incrementAndGet(); pool.execute(r); }, 8);
+  }
+
+  @After
+  public void cleanup() {
+    H5iosp.setChunkExecutor(null, 0);
+    H5iosp.disableChunkCache();
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void testReadAll() throws IOException, InvalidRangeException {
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      check(ncfile, "data", null);
+      check(ncfile, "cube", null);
+    }
+    Assert.assertEquals(63 + 12 * 2 * 3, ntasks.get());
+  }
+
+  @Test
+  public void testReadSection() throws IOException, InvalidRangeException {
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      check(ncfile, "data", "13:40,9:30");
+      check(ncfile, "data", "59,:");
+      check(ncfile, "data", "0:59:9,3:49:5");
+      check(ncfile, "cube", "5,17:29,0:39");
+      check(ncfile, "cube", "1:11:3,:,31");
+    }
+    Assert.assertTrue(ntasks.get() > 0);
+  }
+
+  @Test
+  public void testWithChunkCache() throws IOException, InvalidRangeException {
+    H5iosp.initChunkCache(10 * 1000 * 1000);
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      check(ncfile, "data", "13:40,9:30");
+      long misses = H5iosp.getChunkCache().getMisses();
+      check(ncfile, "data", null);
+      check(ncfile, "data", "13:40,9:30");
+      Assert.assertEquals(63, H5iosp.getChunkCache().getMisses());
+      Assert.assertTrue(H5iosp.getChunkCache().getHits() >= misses);
+    }
+  }
+
+  @Test
+  public void testSerialAndParallelAgree() throws IOException, InvalidRangeException {
+    H5iosp.setChunkExecutor(null, 0);
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      check(ncfile, "data", "0:59:9,3:49:5");
+      check(ncfile, "cube", "1:11:3,:,31");
+    }
+    Assert.assertEquals(0, ntasks.get());
+  }
+
+  private void check(NetcdfFile ncfile, String varName, String spec) throws IOException, InvalidRangeException {
+    Variable v = ncfile.findVariable(varName);
+    Assert.assertNotNull(varName, v);
+    Section section = (spec == null) ? new Section(v.getShape()) : Section.fill(new Section(spec), v.getShape());
+    Array data = v.read(section);
+    Assert.assertArrayEquals(section.getShape(), data.getShape());
+
+    Index ima = data.getIndex();
+    int[] counter = new int[section.getRank()];
+    for (int n = 0; n < data.getSize(); n++) {
+      ima.set(counter);
+      int[] g = new int[counter.length];
+      for (int d = 0; d < counter.length; d++)
+        g[d] = section.getRange(d).element(counter[d]);
+      int want = (g.length == 2) ? 1000 * g[0] + g[1] : 1000 * g[0] + 31 * g[1] + g[2];
+      Assert.assertEquals(varName + " " + section, want, data.getInt(ima));
+      incr(counter, section);
+    }
+  }
+
+  private void incr(int[] counter, Section section) {
+    for (int d = counter.length - 1; d >= 0; d--) {
+      Range r = section.getRange(d);
+      if (++counter[d] < r.length()) return;
+      counter[d] = 0;
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package ucar.nc2.iosp.netcdf3;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.*;
+import ucar.nc2.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Write the same netcdf-3 file to disk and to a stream, writing the variables out of order and leaving one unwritten,
+ * and check that they read back the same.
+ */
+public class TestN3outputStreamIosp {
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private void define(NetcdfFileWriter writer) {
+    writer.addGroupAttribute(null, new Attribute("title", "stream test"));
+    writer.addDimension(null, "y", 3);
+    writer.addDimension(null, "x", 5);
+    writer.addDimension(null, "strlen", 7);
+    Variable v = writer.addVariable(null, "data", DataType.FLOAT, "y x");
+    v.addAttribute(new Attribute("units", "K"));
+    writer.addVariable(null, "x", DataType.DOUBLE, "x");
+    writer.addVariable(null, "y", DataType.SHORT, "y");
+    writer.addVariable(null, "name", DataType.CHAR, "strlen");
+    writer.addVariable(null, "transform", DataType.INT, ""); // never written
+    writer.addVariable(null, "odd", DataType.BYTE, "x");     // needs padding
+  }
+
+  private void write(NetcdfFileWriter writer) throws IOException, InvalidRangeException {
+    define(writer);
+    writer.create();
+    writer.write(writer.findVariable("y"), Array.makeArray(DataType.SHORT, 3, 10, 10));
+    writer.write(writer.findVariable("odd"), Array.makeArray(DataType.BYTE, 5, 1, 2));
+    writer.write(writer.findVariable("name"), ArrayChar.makeFromString("abc", 7));
+    writer.write(writer.findVariable("data"), Array.makeArray(DataType.FLOAT, 15, 0.5, 0.25).reshape(new int[]{3, 5}));
+    writer.write(writer.findVariable("x"), Array.makeArray(DataType.DOUBLE, 5, -180, 1.5));
+    writer.close();
+  }
+
+  @Test
+  public void testSameAsFile() throws IOException, InvalidRangeException {
+    String filename = tempFolder.newFile("test.nc").getPath();
+    write(NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, filename, null));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    write(NetcdfFileWriter.createNewStream(out, "stream.nc"));
+
+    try (NetcdfFile expect = NetcdfFile.open(filename);
+         NetcdfFile got = NetcdfFile.openInMemory("stream.nc", out.toByteArray())) {
+      Assert.assertEquals(new java.io.File(filename).length(), out.size());
+      Assert.assertEquals("stream test", got.findGlobalAttribute("title").getStringValue());
+      Assert.assertEquals("K", got.findVariable("data").findAttribute("units").getStringValue());
+      for (Variable v : expect.getVariables()) {
+        Variable gv = got.findVariable(v.getFullNameEscaped());
+        Assert.assertNotNull(v.getFullName(), gv);
+        Assert.assertArrayEquals(v.getFullName(), v.getShape(), gv.getShape());
+        Assert.assertTrue(v.getFullName(), MAMath.equals(v.read(), gv.read()));
+      }
+      Assert.assertEquals(N3iosp.NC_FILL_INT, got.findVariable("transform").readScalarInt());
+    }
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testPartialWrite() throws IOException, InvalidRangeException {
+    NetcdfFileWriter writer = NetcdfFileWriter.createNewStream(new ByteArrayOutputStream(), "stream.nc");
+    define(writer);
+    writer.create();
+    writer.write(writer.findVariable("x"), new int[]{1}, Array.makeArray(DataType.DOUBLE, 2, 0, 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnlimited() throws IOException {
+    NetcdfFileWriter writer = NetcdfFileWriter.createNewStream(new ByteArrayOutputStream(), "stream.nc");
+    writer.addUnlimitedDimension("time");
+    writer.addVariable(null, "time", DataType.INT, "time");
+    writer.create();
+  }
+}
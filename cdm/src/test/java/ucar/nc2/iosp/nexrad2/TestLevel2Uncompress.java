@@ -0,0 +1,87 @@
+package ucar.nc2.iosp.nexrad2;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.unidata.io.RandomAccessFile;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uncompress a NEXRAD level 2 file with and without an executor.
+ * compressedBlocks.ar2v has a 24 byte volume header and 12 bzip2 blocks of 20 messages each,
+ * where byte k of block b is (b * 131 + k / 16).
+ */
+public class TestLevel2Uncompress {
+  private static final String filename = TestDir.cdmLocalTestDataDir + "nexrad2/compressedBlocks.ar2v";
+  private static final int NBLOCKS = 12;
+  private static final int BLOCK_SIZE = 20 * 2432;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void cleanup() {
+    Level2VolumeScan.setDecompressExecutor(null, 0);
+  }
+
+  @Test
+  public void testSerial() throws IOException {
+    check(uncompress("serial"));
+  }
+
+  @Test
+  public void testParallel() throws IOException {
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    AtomicInteger ntasks = new AtomicInteger();
+    try {
+      Level2VolumeScan.setDecompressExecutor(r -> {
+        ntasks.incrementAndGet();
+        pool.execute(r);
+      }, 3);
+      check(uncompress("parallel"));
+    } finally {
+      pool.shutdownNow();
+    }
+    Assert.assertEquals(NBLOCKS, ntasks.get());
+  }
+
+  @Test
+  public void testRejected() throws IOException {
+    Level2VolumeScan.setDecompressExecutor(r -> {
+      throw new RejectedExecutionException();
+    }, 3);
+    check(uncompress("rejected"));
+  }
+
+  private File uncompress(String name) throws IOException {
+    File ufile = new File(tempFolder.getRoot(), name + ".uncompress");
+    try (RandomAccessFile raf = RandomAccessFile.acquire(filename)) {
+      raf.order(RandomAccessFile.BIG_ENDIAN);
+      Level2VolumeScan.uncompress(raf, ufile.getPath()).close();
+    }
+    return ufile;
+  }
+
+  private void check(File ufile) throws IOException {
+    byte[] bytes = Files.readAllBytes(ufile.toPath());
+    Assert.assertEquals(Level2Record.FILE_HEADER_SIZE + NBLOCKS * BLOCK_SIZE, bytes.length);
+    Assert.assertEquals(Level2VolumeScan.AR2V0006, new String(bytes, 0, 8, "US-ASCII"));
+    for (int b = 0; b < NBLOCKS; b++) {
+      int start = Level2Record.FILE_HEADER_SIZE + b * BLOCK_SIZE;
+      for (int k = 0; k < BLOCK_SIZE; k++) {
+        if (bytes[start + k] != (byte) (b * 131 + k / 16))
+          Assert.fail("block " + b + " byte " + k);
+      }
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package ucar.nc2.ncml;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import ucar.ma2.*;
+import ucar.nc2.Variable;
+import ucar.nc2.dataset.NetcdfDataset;
+import ucar.nc2.util.CancelTask;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read an outer dimension aggregation with the nested datasets read in parallel.
+ * jan.nc and feb.nc (31 and 28 times) are joined 5 times, so T(t, lat, lon) = 100 * (t % 59) + 10 * lat + lon.
+ */
+public class TestAggConcurrentRead {
+  private static final int NREPEAT = 5;
+  private static final int MAX_READS = 3;
+
+  private ExecutorService pool;
+  private final AtomicInteger ntasks = new AtomicInteger();
+  private final AtomicInteger running = new AtomicInteger();
+  private final AtomicInteger maxRunning = new AtomicInteger();
+
+  @Before
+  public void setup() {
+    pool = Executors.newFixedThreadPool(4);
+    Aggregation.setExecutor(r -> {
+      ntasks.incrementAndGet();
+      pool.execute(() -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+          r.run();
+        } finally {
+          running.decrementAndGet();
+        }
+      });
+    }, MAX_READS);
+  }
+
+  @After
+  public void cleanup() {
+    Aggregation.setExecutor(null);
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void testReadSections() throws IOException, InvalidRangeException {
+    try (NetcdfDataset ncd = open()) {
+      Variable v = ncd.findVariable("T");
+      Assert.assertArrayEquals(new int[]{NREPEAT * 59, 3, 4}, v.getShape());
+      v.setCaching(false);
+
+      check(v, ":,:,:");
+      check(v, "25:200:7,1:2,0:3:3");
+      check(v, "40:100,:,2");
+      check(v, "58:59,:,:"); // last of feb and first of jan
+    }
+    Assert.assertTrue(ntasks.get() > 0);
+    Assert.assertTrue("in flight = " + maxRunning.get(), maxRunning.get() <= MAX_READS);
+  }
+
+  @Test
+  public void testSerialRead() throws IOException, InvalidRangeException {
+    Aggregation.setExecutor(null);
+    try (NetcdfDataset ncd = open()) {
+      Variable v = ncd.findVariable("T");
+      v.setCaching(false);
+      check(v, ":,:,:");
+      check(v, "25:200:7,1:2,0:3:3");
+    }
+    Assert.assertEquals(0, ntasks.get());
+  }
+
+  @Test
+  public void testRejectedReadsRunInline() throws IOException, InvalidRangeException {
+    Aggregation.setExecutor(r -> {
+      ntasks.incrementAndGet();
+      throw new RejectedExecutionException();
+    }, MAX_READS);
+    try (NetcdfDataset ncd = open()) {
+      Variable v = ncd.findVariable("T");
+      v.setCaching(false);
+      check(v, "10:280:3,:,1:3");
+    }
+    Assert.assertTrue(ntasks.get() > 0);
+  }
+
+  @Test
+  public void testCancel() throws IOException, InvalidRangeException {
+    AtomicBoolean cancel = new AtomicBoolean();
+    Aggregation.setExecutor(r -> {
+      if (ntasks.incrementAndGet() == 2) cancel.set(true);
+      pool.execute(r);
+    }, MAX_READS);
+    CancelTask cancelTask = new CancelTask() {
+      public boolean isCancel() {
+        return cancel.get();
+      }
+
+      public void setError(String msg) {
+      }
+
+      public void setProgress(String msg, int progress) {
+      }
+    };
+
+    try (NetcdfDataset ncd = open()) {
+      Variable v = ncd.findVariable("T");
+      AggregationOuterDimension agg = (AggregationOuterDimension) ncd.getAggregation();
+      Assert.assertNull(agg.reallyRead(v, Section.fill(new Section("10:280,:,:"), v.getShape()), cancelTask));
+    }
+    Assert.assertEquals(2, ntasks.get());
+  }
+
+  private NetcdfDataset open() throws IOException {
+    StringBuilder ncml = new StringBuilder();
+    ncml.append("<?xml version='1.0' encoding='UTF-8'?>\n");
+    ncml.append("<netcdf xmlns='http://www.unidata.ucar.edu/namespaces/netcdf/ncml-2.2'>\n");
+    ncml.append("  <aggregation dimName='time' type='joinExisting'>\n");
+    for (int i = 0; i < NREPEAT; i++) {
+      ncml.append("    <netcdf location='nc/jan.nc'/>\n");
+      ncml.append("    <netcdf location='nc/feb.nc'/>\n");
+    }
+    ncml.append("  </aggregation>\n");
+    ncml.append("</netcdf>\n");
+
+    String filename = "file:./" + TestNcML.topDir + "aggConcurrent.xml";
+    return NcMLReader.readNcML(new StringReader(ncml.toString()), filename, null);
+  }
+
+  private void check(Variable v, String spec) throws IOException, InvalidRangeException {
+    Section section = Section.fill(new Section(spec), v.getShape());
+    Array data = v.read(section);
+    Assert.assertArrayEquals(section.getShape(), data.getShape());
+
+    Index ima = data.getIndex();
+    for (int i = 0; i < section.getShape(0); i++) {
+      for (int j = 0; j < section.getShape(1); j++) {
+        for (int k = 0; k < section.getShape(2); k++) {
+          int t = section.getRange(0).element(i) % 59;
+          int lat = section.getRange(1).element(j);
+          int lon = section.getRange(2).element(k);
+          Assert.assertEquals(spec, 100 * t + 10 * lat + lon, data.getDouble(ima.set(i, j, k)), 1.0e-6);
+        }
+      }
+    }
+  }
+}
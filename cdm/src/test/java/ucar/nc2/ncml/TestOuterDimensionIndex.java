@@ -0,0 +1,94 @@
+package ucar.nc2.ncml;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Check that OuterDimensionIndex finds the same nested datasets as asking each one, including empty datasets and strides.
+ */
+public class TestOuterDimensionIndex {
+
+  @Test
+  public void testAgainstScan() throws InvalidRangeException {
+    Random random = new Random(17);
+    for (int trial = 0; trial < 200; trial++) {
+      int n = 1 + random.nextInt(50);
+      List<Integer> datasets = new ArrayList<>();
+      int[] starts = new int[n + 1];
+      for (int i = 0; i < n; i++) {
+        datasets.add(i);
+        starts[i + 1] = starts[i] + random.nextInt(4); // some are empty
+      }
+      OuterDimensionIndex<Integer> index = new OuterDimensionIndex<>(datasets, starts);
+      int total = starts[n];
+      if (total == 0) continue;
+
+      for (int r = 0; r < 50; r++) {
+        int first = random.nextInt(total);
+        int last = first + random.nextInt(total - first);
+        int stride = 1 + random.nextInt(5);
+        Range want = new Range(first, last, stride);
+        List<String> expect = scan(want, starts);
+        Assert.assertEquals(want.toString(), expect, find(index, want, starts));
+        if (stride > 1)
+          Assert.assertEquals(want.toString(), expect.size(), index.findNeeded(want).size());
+      }
+    }
+  }
+
+  @Test
+  public void testEdges() throws InvalidRangeException {
+    List<String> datasets = new ArrayList<>();
+    Collections.addAll(datasets, "a", "b", "c", "d");
+    int[] starts = {0, 10, 10, 20, 30}; // b is empty
+    OuterDimensionIndex<String> index = new OuterDimensionIndex<>(datasets, starts);
+
+    Assert.assertEquals(Collections.singletonList("a"), index.findNeeded(new Range(0, 9)));
+    Assert.assertEquals(Collections.singletonList("c"), index.findNeeded(new Range(10, 10)));
+    Assert.assertEquals(Collections.singletonList("d"), index.findNeeded(new Range(29, 29)));
+    Assert.assertEquals(datasets, index.findNeeded(new Range(0, 29)));
+    Assert.assertEquals(datasets.subList(0, 3), index.findNeeded(new Range(9, 10)));
+    Assert.assertTrue(index.findNeeded(Range.EMPTY).isEmpty());
+
+    // strided ranges only return datasets holding a wanted index
+    Assert.assertEquals(Arrays.asList("a", "c", "d"), index.findNeeded(new Range(5, 25, 10)));
+    Assert.assertEquals(Arrays.asList("a", "c"), index.findNeeded(new Range(0, 29, 15)));
+    Assert.assertEquals(Collections.singletonList("d"), index.findNeeded(new Range(25, 29, 2)));
+
+    Assert.assertTrue(index.isIndexOf(datasets));
+    Assert.assertFalse(index.isIndexOf(new ArrayList<>(datasets)));
+    datasets.add("e");
+    Assert.assertFalse(index.isIndexOf(datasets));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadStarts() {
+    new OuterDimensionIndex<>(Collections.singletonList("a"), new int[]{0});
+  }
+
+  private List<String> find(OuterDimensionIndex<Integer> index, Range want, int[] starts) throws InvalidRangeException {
+    List<String> result = new ArrayList<>();
+    for (int i : index.findNeeded(want)) {
+      Range nested = OuterDimensionIndex.nestedJoinRange(want, starts[i], starts[i + 1]);
+      if (nested != null) result.add(i + ":" + nested);
+    }
+    return result;
+  }
+
+  private List<String> scan(Range want, int[] starts) throws InvalidRangeException {
+    List<String> result = new ArrayList<>();
+    for (int i = 0; i < starts.length - 1; i++) {
+      Range nested = OuterDimensionIndex.nestedJoinRange(want, starts[i], starts[i + 1]);
+      if (nested != null) result.add(i + ":" + nested);
+    }
+    return result;
+  }
+}
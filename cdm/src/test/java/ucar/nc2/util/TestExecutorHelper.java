@@ -0,0 +1,80 @@
+package ucar.nc2.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.ma2.InvalidRangeException;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Check that ExecutorHelper runs tasks that no thread has picked up in the calling thread,
+ * and passes on the exceptions of the task.
+ */
+public class TestExecutorHelper {
+
+  @Test
+  public void testRunsHereIfNotStarted() throws IOException {
+    FutureTask<Thread> task = new FutureTask<>(Thread::currentThread);
+    Executor never = r -> { }; // accepts the task but never runs it
+    ExecutorHelper.execute(never, task);
+    Assert.assertSame(Thread.currentThread(), ExecutorHelper.finish(task, "test"));
+  }
+
+  @Test
+  public void testRunsHereIfRejected() throws IOException {
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    pool.shutdown();
+    FutureTask<Thread> task = new FutureTask<>(Thread::currentThread);
+    ExecutorHelper.execute(pool, task);
+    Assert.assertTrue(task.isDone());
+    Assert.assertSame(Thread.currentThread(), ExecutorHelper.finish(task, "test"));
+  }
+
+  @Test
+  public void testRunsOnExecutor() throws IOException {
+    ExecutorService pool = Executors.newSingleThreadExecutor();
+    try {
+      FutureTask<Thread> task = new FutureTask<>(Thread::currentThread);
+      ExecutorHelper.execute(pool, task);
+      while (!task.isDone()) Thread.yield();
+      Assert.assertNotSame(Thread.currentThread(), ExecutorHelper.finish(task, "test"));
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testExceptions() throws IOException {
+    try {
+      ExecutorHelper.finish(new FutureTask<>(() -> { throw new IOException("io"); }), "test");
+      Assert.fail();
+    } catch (IOException e) {
+      Assert.assertEquals("io", e.getMessage());
+    }
+
+    try {
+      ExecutorHelper.finish(new FutureTask<>(() -> { throw new IllegalStateException("ise"); }), "test");
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      Assert.assertEquals("ise", e.getMessage());
+    }
+
+    try {
+      ExecutorHelper.finish(new FutureTask<>(() -> { throw new InvalidRangeException("range"); }), InvalidRangeException.class, "test");
+      Assert.fail();
+    } catch (InvalidRangeException e) {
+      Assert.assertEquals("range", e.getMessage());
+    }
+
+    try {
+      ExecutorHelper.finish(new FutureTask<>(() -> { throw new InvalidRangeException("range"); }), "test");
+      Assert.fail();
+    } catch (IOException e) {
+      Assert.assertTrue(e.getCause() instanceof InvalidRangeException);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package ucar.nc2.util.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test DecodedDataCache hits, misses, evictions and byte accounting.
+ */
+public class TestDecodedDataCache {
+
+  @Test
+  public void testHitsAndMisses() throws IOException {
+    DecodedDataCache<byte[]> cache = new DecodedDataCache<>("test", 10 * 1000, data -> data.length);
+    AtomicInteger nloads = new AtomicInteger();
+
+    DecodedDataCache.Key key1 = new DecodedDataCache.Key("file", 1, 100);
+    DecodedDataCache.Key key2 = new DecodedDataCache.Key("file", 1, 200);
+
+    byte[] data1 = cache.get(key1, () -> { nloads.incrementAndGet(); return new byte[1000]; });
+    byte[] again = cache.get(new DecodedDataCache.Key("file", 1, 100), () -> { nloads.incrementAndGet(); return new byte[1000]; });
+    Assert.assertSame(data1, again);
+    cache.get(key2, () -> { nloads.incrementAndGet(); return new byte[500]; });
+
+    Assert.assertEquals(2, nloads.get());
+    Assert.assertEquals(1, cache.getHits());
+    Assert.assertEquals(2, cache.getMisses());
+    Assert.assertEquals(1500, cache.getCacheBytes());
+
+    // file was rewritten: different key
+    cache.get(new DecodedDataCache.Key("file", 2, 100), () -> { nloads.incrementAndGet(); return new byte[1000]; });
+    Assert.assertEquals(3, nloads.get());
+
+    cache.clearCache();
+    Assert.assertEquals(0, cache.getCacheBytes());
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    DecodedDataCache<byte[]> cache = new DecodedDataCache<>("test", 10 * 1000, data -> data.length);
+    for (int i = 0; i < 100; i++)
+      cache.get(new DecodedDataCache.Key("file", 1, i), () -> new byte[1000]);
+
+    Assert.assertTrue(cache.getEvictions() > 0);
+    Assert.assertTrue(cache.getCacheBytes() <= cache.getMaxBytes());
+  }
+
+  @Test(expected = IOException.class)
+  public void testLoadFails() throws IOException {
+    DecodedDataCache<byte[]> cache = new DecodedDataCache<>("test", 10 * 1000, data -> data.length);
+    cache.get(new DecodedDataCache.Key("file", 1, 0), () -> { throw new IOException("bad chunk"); });
+  }
+}
@@ -0,0 +1,219 @@
+package ucar.nc2.util.cache;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.nc2.dataset.DatasetUrl;
+import ucar.nc2.util.CancelTask;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Formatter;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test FileCacheStriped with in-memory FileCacheable objects.
+ */
+public class TestFileCacheStriped {
+  private final AtomicInteger nopened = new AtomicInteger();
+  private final AtomicInteger nclosed = new AtomicInteger();
+  private final AtomicInteger conflicts = new AtomicInteger();
+  private final FileFactory factory = new MockFactory();
+  private FileCacheStriped cache;
+
+  @After
+  public void cleanup() {
+    if (cache != null) cache.disable();
+  }
+
+  @Test
+  public void testHitsAndMisses() throws IOException {
+    cache = new FileCacheStriped("test", 5, 10, 20, 0);
+
+    FileCacheable f1 = cache.acquire(factory, url("A"));
+    FileCacheable f2 = cache.acquire(factory, url("A")); // f1 is locked, so open another copy
+    Assert.assertNotSame(f1, f2);
+    Assert.assertEquals(2, nopened.get());
+    f1.close();
+    f2.close();
+    Assert.assertEquals(0, nclosed.get());
+
+    FileCacheable f3 = cache.acquire(factory, url("A"));
+    Assert.assertTrue(f3 == f1 || f3 == f2);
+    Assert.assertEquals(2, nopened.get());
+    Assert.assertTrue(((MockFile) f3).isReacquired);
+    f3.close();
+
+    Formatter f = new Formatter();
+    cache.showStats(f);
+    Assert.assertTrue(f.toString(), f.toString().contains("hits= 1 miss= 2"));
+    Assert.assertEquals(2, cache.showCache().size());
+  }
+
+  @Test
+  public void testModifiedFileIsDiscarded() throws IOException {
+    cache = new FileCacheStriped("test", 5, 10, 20, 0);
+    MockFile f1 = (MockFile) cache.acquire(factory, url("A"));
+    f1.close();
+    f1.lastModified++;
+
+    FileCacheable f2 = cache.acquire(factory, url("A"));
+    Assert.assertNotSame(f1, f2);
+    Assert.assertTrue(f1.isClosed);
+    Assert.assertEquals(1, cache.getNumberOfFiles());
+    f2.close();
+  }
+
+  @Test
+  public void testEjectAndClear() throws IOException {
+    cache = new FileCacheStriped("test", 5, 10, 20, 0);
+    cache.acquire(factory, url("A")).close();
+    cache.acquire(factory, url("B")).close();
+    FileCacheable locked = cache.acquire(factory, url("C"));
+
+    cache.eject("A");
+    Assert.assertEquals(1, nclosed.get());
+    Assert.assertEquals(2, cache.getNumberOfFiles());
+
+    cache.clearCache(false); // locked file stays
+    Assert.assertEquals(2, nclosed.get());
+    Assert.assertEquals(1, cache.getNumberOfFiles());
+
+    cache.clearCache(true);
+    Assert.assertEquals(3, nclosed.get());
+    Assert.assertEquals(0, cache.getNumberOfFiles());
+    Assert.assertTrue(((MockFile) locked).isClosed);
+  }
+
+  @Test
+  public void testCleanupInBackground() throws IOException, InterruptedException {
+    cache = new FileCacheStriped("test", 5, 10, 20, 0);
+    List<FileCacheable> all = new ArrayList<>();
+    for (int i = 0; i < 25; i++)
+      all.add(cache.acquire(factory, url("file" + i)));
+    // all locked: cleanup cant remove any
+    Assert.assertEquals(25, cache.getNumberOfFiles());
+    for (FileCacheable fc : all) fc.close();
+    Thread.sleep(5); // so that "another" is the most recently used
+
+    cache.acquire(factory, url("another")).close(); // over the hard limit, schedules a cleanup
+    long wait = System.currentTimeMillis() + 10 * 1000;
+    while (cache.getNumberOfFiles() > 5 && System.currentTimeMillis() < wait)
+      Thread.sleep(10);
+    Assert.assertEquals(5, cache.getNumberOfFiles());
+    Assert.assertEquals(21, nclosed.get());
+    Assert.assertTrue(cache.getNumberOfCleanups() > 0);
+
+    // the most recently used are kept
+    FileCacheable last = cache.acquire(factory, url("another"));
+    Assert.assertEquals(26, nopened.get());
+    last.close();
+  }
+
+  @Test
+  public void testDroppedCacheIsCollected() throws IOException, InterruptedException {
+    // the periodic cleanup must not keep a cache that is no longer used from being garbage collected
+    FileCacheStriped dropped = new FileCacheStriped("dropped", 5, 10, 20, 1);
+    dropped.acquire(factory, url("A")).close();
+    WeakReference<FileCacheStriped> ref = new WeakReference<>(dropped);
+    dropped = null;
+
+    long wait = System.currentTimeMillis() + 10 * 1000;
+    while (ref.get() != null && System.currentTimeMillis() < wait) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    Assert.assertNull(ref.get());
+  }
+
+  @Test
+  public void testConcurrentAcquire() throws Exception {
+    cache = new FileCacheStriped("test", 20, 40, 60, 0);
+    int nthreads = 8;
+    ExecutorService pool = Executors.newFixedThreadPool(nthreads);
+    List<Future<?>> results = new ArrayList<>();
+    try {
+      for (int t = 0; t < nthreads; t++) {
+        results.add(pool.submit(() -> {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          for (int i = 0; i < 5000; i++) {
+            MockFile mf = (MockFile) cache.acquire(factory, url("file" + random.nextInt(50)));
+            if (!mf.inUse.compareAndSet(false, true)) conflicts.incrementAndGet();
+            Assert.assertFalse(mf.isClosed);
+            mf.inUse.set(false);
+            mf.close();
+          }
+          return null;
+        }));
+      }
+      for (Future<?> f : results)
+        f.get();
+    } finally {
+      pool.shutdownNow();
+    }
+
+    Assert.assertEquals("same file given to two threads", 0, conflicts.get());
+    Formatter f = new Formatter();
+    cache.showStats(f);
+    Assert.assertEquals(f.toString(), nopened.get() - nclosed.get(), cache.getNumberOfFiles());
+  }
+
+  private DatasetUrl url(String location) {
+    return new DatasetUrl(null, location);
+  }
+
+  private class MockFactory implements FileFactory {
+    @Override
+    public FileCacheable open(DatasetUrl location, int buffer_size, CancelTask cancelTask, Object iospMessage) throws IOException {
+      nopened.incrementAndGet();
+      return new MockFile(location.trueurl);
+    }
+  }
+
+  private class MockFile implements FileCacheable {
+    final String location;
+    final AtomicBoolean inUse = new AtomicBoolean();
+    volatile long lastModified = 1;
+    volatile boolean isClosed, isReacquired;
+    FileCacheIF fileCache;
+
+    MockFile(String location) {
+      this.location = location;
+    }
+
+    @Override
+    public String getLocation() {
+      return location;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+      if (fileCache != null && fileCache.release(this)) return;
+      isClosed = true;
+      nclosed.incrementAndGet();
+    }
+
+    @Override
+    public long getLastModified() {
+      return lastModified;
+    }
+
+    @Override
+    public synchronized void setFileCache(FileCacheIF fileCache) {
+      this.fileCache = fileCache;
+    }
+
+    @Override
+    public void release() throws IOException {
+    }
+
+    @Override
+    public void reacquire() throws IOException {
+      isReacquired = true;
+    }
+  }
+}
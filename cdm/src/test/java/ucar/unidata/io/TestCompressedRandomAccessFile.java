@@ -0,0 +1,261 @@
+package ucar.unidata.io;
+
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.ma2.MAMath;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compare reads from a CompressedRandomAccessFile against the uncompressed data, for gzip files with
+ * stored, fixed and dynamic blocks and several members, and for a bzip2 file with several blocks.
+ */
+public class TestCompressedRandomAccessFile {
+  private static long saveSpacing;
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @BeforeClass
+  public static void setSpacing() {
+    saveSpacing = CompressedRandomAccessFile.getSpacing();
+    CompressedRandomAccessFile.setSpacing(50 * 1000);
+  }
+
+  @AfterClass
+  public static void resetSpacing() {
+    CompressedRandomAccessFile.setSpacing(saveSpacing);
+  }
+
+  // partly random, partly repeated, so deflate uses long distances and all block types
+  private static byte[] makeData(int n, long seed) {
+    Random random = new Random(seed);
+    byte[] data = new byte[n];
+    int pos = 0;
+    while (pos < n) {
+      int len = Math.min(n - pos, 1 + random.nextInt(2000));
+      if (pos > 40000 && random.nextBoolean()) {
+        int from = pos - 1 - random.nextInt(40000);
+        for (int i = 0; i < len; i++) data[pos + i] = data[from + i];
+      } else {
+        for (int i = 0; i < len; i++) data[pos + i] = (byte) (random.nextInt(16) + 'a');
+      }
+      pos += len;
+    }
+    return data;
+  }
+
+  private static void writeMember(OutputStream out, byte[] data, int off, int len, final int level) throws IOException {
+    GZIPOutputStream gout = new GZIPOutputStream(new FilterOutputStream(out) {
+      @Override
+      public void close() throws IOException {
+        flush(); // leave out open for the next member
+      }
+    }) {
+      {
+        def.setLevel(level);
+      }
+    };
+    gout.write(data, off, len);
+    gout.close();
+  }
+
+  private File makeGzip(String name, byte[] data) throws IOException {
+    File file = tempFolder.newFile(name);
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+      int third = data.length / 3;
+      writeMember(out, data, 0, third, Deflater.NO_COMPRESSION);
+      writeMember(out, data, third, third, Deflater.DEFAULT_COMPRESSION);
+      writeMember(out, data, 2 * third, data.length - 2 * third, Deflater.BEST_SPEED);
+    }
+    return file;
+  }
+
+  private File indexFile(File file) {
+    return new File(file.getPath() + CompressedRandomAccessFile.INDEX_SUFFIX);
+  }
+
+  @Test
+  public void testGzip() throws IOException {
+    byte[] data = makeData(1000 * 1000, 17);
+    File file = makeGzip("test.gz", data);
+
+    long builds = CompressedRandomAccessFile.getIndexBuilds();
+    try (CompressedRandomAccessFile raf = CompressedRandomAccessFile.open(file.getPath(), indexFile(file), 8000)) {
+      Assert.assertEquals(data.length, raf.length());
+      Assert.assertTrue(raf.getNumberOfSeekPoints() > 10);
+      checkSequential(raf, data);
+      Assert.assertEquals(1, raf.getNumberOfRestarts());
+      checkRandom(raf, data);
+    }
+    Assert.assertEquals(builds + 1, CompressedRandomAccessFile.getIndexBuilds());
+    Assert.assertTrue(indexFile(file).exists());
+
+    // second time the index is read, and the windows come from the index file
+    long reads = CompressedRandomAccessFile.getIndexReads();
+    try (CompressedRandomAccessFile raf = CompressedRandomAccessFile.open(file.getPath(), indexFile(file), 8000)) {
+      checkRandom(raf, data);
+      Assert.assertTrue(raf.getNumberOfRestarts() < 100);
+    }
+    Assert.assertEquals(builds + 1, CompressedRandomAccessFile.getIndexBuilds());
+    Assert.assertEquals(reads + 1, CompressedRandomAccessFile.getIndexReads());
+  }
+
+  @Test
+  public void testReadToByteChannel() throws IOException {
+    byte[] data = makeData(300 * 1000, 19);
+    File file = makeGzip("channel.gz", data);
+
+    try (CompressedRandomAccessFile raf = CompressedRandomAccessFile.open(file.getPath(), indexFile(file), 8000)) {
+      // a channel that takes at most 1000 bytes per write
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      WritableByteChannel dest = new WritableByteChannel() {
+        public int write(ByteBuffer src) {
+          int n = Math.min(src.remaining(), 1000);
+          for (int i = 0; i < n; i++) bos.write(src.get());
+          return n;
+        }
+        public boolean isOpen() {
+          return true;
+        }
+        public void close() {
+        }
+      };
+
+      // more than asked for, stops at the end of the file
+      Assert.assertEquals(data.length - 1000, raf.readToByteChannel(dest, 1000, data.length));
+      Assert.assertArrayEquals(Arrays.copyOfRange(data, 1000, data.length), bos.toByteArray());
+      Assert.assertEquals(0, raf.readToByteChannel(dest, data.length, 10));
+    }
+  }
+
+  @Test
+  public void testFixedHuffman() throws IOException {
+    byte[] data = "abcabcabcabc fixed huffman codes are used for short inputs".getBytes(StandardCharsets.UTF_8);
+    File file = tempFolder.newFile("short.gz");
+    try (OutputStream out = new FileOutputStream(file)) {
+      writeMember(out, data, 0, data.length, Deflater.BEST_COMPRESSION);
+    }
+    try (CompressedRandomAccessFile raf = CompressedRandomAccessFile.open(file.getPath(), indexFile(file), 8000)) {
+      checkSequential(raf, data);
+    }
+  }
+
+  @Test
+  public void testChangedFile() throws IOException {
+    byte[] data = makeData(200 * 1000, 3);
+    File file = makeGzip("changed.gz", data);
+    try (CompressedRandomAccessFile raf = CompressedRandomAccessFile.open(file.getPath(), indexFile(file), 8000)) {
+      checkRandom(raf, data);
+    }
+
+    data = makeData(300 * 1000, 4);
+    file = makeGzip("changed2.gz", data);
+    Files.copy(file.toPath(), new File(tempFolder.getRoot(), "changed.gz").toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+    file = new File(tempFolder.getRoot(), "changed.gz");
+    Assert.assertTrue(file.setLastModified(file.lastModified() + 10000));
+
+    long builds = CompressedRandomAccessFile.getIndexBuilds();
+    try (CompressedRandomAccessFile raf = CompressedRandomAccessFile.open(file.getPath(), indexFile(file), 8000)) {
+      Assert.assertEquals(data.length, raf.length());
+      checkRandom(raf, data);
+    }
+    Assert.assertEquals(builds + 1, CompressedRandomAccessFile.getIndexBuilds());
+  }
+
+  @Test
+  public void testCorrupt() throws IOException {
+    File file = makeGzip("corrupt.gz", makeData(100 * 1000, 5));
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    bytes[bytes.length - 6] ^= 1; // the crc of the last member
+    Files.write(file.toPath(), bytes);
+    try {
+      CompressedRandomAccessFile.open(file.getPath(), indexFile(file), 8000);
+      Assert.fail("should fail on bad CRC");
+    } catch (IOException ioe) {
+      Assert.assertTrue(ioe.getMessage(), ioe.getMessage().contains("CRC"));
+    }
+    Assert.assertFalse(indexFile(file).exists());
+  }
+
+  @Test
+  public void testBzip2() throws IOException {
+    byte[] data = new byte[30000 * 9]; // made by python: b''.join(b'%08d\n' % i for i in range(30000))
+    for (int i = 0; i < 30000; i++)
+      System.arraycopy(String.format("%08d\n", i).getBytes(StandardCharsets.US_ASCII), 0, data, 9 * i, 9);
+
+    File file = tempFolder.newFile("lines.txt.bz2");
+    Files.copy(new File(TestDir.cdmLocalTestDataDir + "lines.txt.bz2").toPath(), file.toPath(), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+    try (CompressedRandomAccessFile raf = CompressedRandomAccessFile.open(file.getPath(), indexFile(file), 8000)) {
+      Assert.assertEquals(data.length, raf.length());
+      Assert.assertEquals(3, raf.getNumberOfSeekPoints());
+      checkSequential(raf, data);
+      checkRandom(raf, data);
+    }
+    try (CompressedRandomAccessFile raf = CompressedRandomAccessFile.open(file.getPath(), indexFile(file), 8000)) {
+      raf.seek(data.length - 9);
+      Assert.assertEquals("00029999", raf.readString(8));
+      Assert.assertEquals(1, raf.getNumberOfRestarts());
+    }
+  }
+
+  @Test
+  public void testNetcdfFile() throws IOException {
+    File nc = new File(TestDir.cdmLocalTestDataDir + "testWrite.nc");
+    File gz = tempFolder.newFile("testWrite.nc.gz");
+    try (OutputStream out = new FileOutputStream(gz)) {
+      byte[] bytes = Files.readAllBytes(nc.toPath());
+      writeMember(out, bytes, 0, bytes.length, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    boolean save = NetcdfFile.getCompressedRandomAccess();
+    NetcdfFile.setCompressedRandomAccess(true);
+    try (NetcdfFile expect = NetcdfFile.open(nc.getPath());
+         NetcdfFile ncfile = NetcdfFile.open(gz.getPath())) {
+      Assert.assertTrue(indexFile(gz).exists());
+      Assert.assertFalse(new File(tempFolder.getRoot(), "testWrite.nc").exists());
+      for (Variable v : expect.getVariables()) {
+        Array want = v.read();
+        Array got = ncfile.findVariable(v.getFullNameEscaped()).read();
+        Assert.assertTrue(v.getFullName(), MAMath.equals(want, got));
+      }
+    } finally {
+      NetcdfFile.setCompressedRandomAccess(save);
+    }
+  }
+
+  private void checkSequential(RandomAccessFile raf, byte[] data) throws IOException {
+    raf.seek(0);
+    byte[] got = new byte[data.length];
+    raf.readFully(got);
+    Assert.assertArrayEquals(data, got);
+    Assert.assertEquals(-1, raf.read());
+  }
+
+  private void checkRandom(RandomAccessFile raf, byte[] data) throws IOException {
+    Random random = new Random(42);
+    for (int i = 0; i < 100; i++) {
+      int pos = random.nextInt(data.length);
+      int len = Math.min(data.length - pos, random.nextInt(20000));
+      byte[] got = new byte[len];
+      raf.seek(pos);
+      raf.readFully(got);
+      for (int k = 0; k < len; k++) {
+        if (got[k] != data[pos + k])
+          Assert.fail("byte " + (pos + k));
+      }
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package ucar.unidata.io;
+
+import org.junit.*;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.util.CompareNetcdf2;
+import ucar.nc2.util.cache.FileCache;
+import ucar.unidata.util.test.TestDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Formatter;
+
+/**
+ * Test MMapRandomAccessFile against RandomAccessFile, using small segments so reads cross segment boundaries.
+ */
+public class TestMMapRandomAccessFile {
+  private static File tempFile;
+  private static byte[] data;
+
+  @BeforeClass
+  public static void beforeClass() throws IOException {
+    data = new byte[100 * 1000 + 17];
+    for (int i = 0; i < data.length; i++)
+      data[i] = (byte) (i * 7 + i / 256);
+    tempFile = Files.createTempFile("TestMMapRandomAccessFile", ".bin").toFile();
+    Files.write(tempFile.toPath(), data);
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    tempFile.delete();
+  }
+
+  @Test
+  public void testReadAcrossSegments() throws IOException {
+    try (RandomAccessFile mmap = new MMapRandomAccessFile(tempFile.getPath(), "r", 100, 999);
+         RandomAccessFile raf = new RandomAccessFile(tempFile.getPath(), "r")) {
+      Assert.assertEquals(raf.length(), mmap.length());
+
+      for (long pos : new long[]{0, 1, 998, 999, 5000, data.length - 9}) {
+        mmap.seek(pos);
+        raf.seek(pos);
+        Assert.assertEquals(raf.readLong(), mmap.readLong());
+        Assert.assertEquals(raf.getFilePointer(), mmap.getFilePointer());
+      }
+
+      // bigger than the buffer and several segments
+      byte[] want = new byte[5555];
+      byte[] got = new byte[5555];
+      raf.seek(123);
+      raf.readFully(want);
+      mmap.seek(123);
+      mmap.readFully(got);
+      Assert.assertArrayEquals(want, got);
+
+      int n = (data.length - 3) / 4;
+      float[] wantf = new float[n];
+      float[] gotf = new float[n];
+      raf.seek(3);
+      raf.readFloat(wantf, 0, n);
+      mmap.seek(3);
+      mmap.readFloat(gotf, 0, n);
+      Assert.assertArrayEquals(wantf, gotf, 0.0f);
+
+      mmap.seek(data.length - 1);
+      Assert.assertEquals(data[data.length - 1] & 0xff, mmap.read());
+      Assert.assertEquals(-1, mmap.read());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testReadOnly() throws IOException {
+    new MMapRandomAccessFile(tempFile.getPath(), "rw");
+  }
+
+  @Test
+  public void testAcquireMapped() throws IOException {
+    RandomAccessFile.setGlobalFileCache(new FileCache("TestMMapRandomAccessFile", 0, 10, 20, 0));
+    try {
+      RandomAccessFile raf = RandomAccessFile.acquire(tempFile.getPath());
+      RandomAccessFile mmap = RandomAccessFile.acquireMapped(tempFile.getPath());
+      Assert.assertFalse(raf instanceof MMapRandomAccessFile);
+      Assert.assertTrue(mmap instanceof MMapRandomAccessFile);
+      raf.close();
+      mmap.close();
+
+      // comes back out of the cache
+      RandomAccessFile mmap2 = RandomAccessFile.acquireMapped(tempFile.getPath());
+      Assert.assertSame(mmap, mmap2);
+      mmap2.seek(10);
+      Assert.assertEquals(data[10], mmap2.readByte());
+      mmap2.close();
+
+    } finally {
+      RandomAccessFile.setGlobalFileCache(null);
+    }
+  }
+
+  @Test
+  public void testOpenNetcdf() throws IOException {
+    String filename = TestDir.cdmLocalTestDataDir + "testWrite.nc";
+    try (NetcdfFile org = NetcdfFile.open(filename);
+         NetcdfFile mapped = NetcdfFile.open("mmap:" + filename)) {
+      Formatter f = new Formatter();
+      boolean ok = CompareNetcdf2.compareFiles(org, mapped, f, true, false, false);
+      Assert.assertTrue(f.toString(), ok);
+    }
+  }
+}
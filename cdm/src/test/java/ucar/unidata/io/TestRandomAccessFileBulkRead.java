@@ -0,0 +1,150 @@
+package ucar.unidata.io;
+
+import org.junit.*;
+
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+/**
+ * Compare the bulk array reads in RandomAccessFile against the single element reads,
+ * in both byte orders, for runs that straddle buffer boundaries and runs larger than the buffer.
+ */
+public class TestRandomAccessFileBulkRead {
+  private static final int N = 100 * 1000;  // longs, so 800 KB
+  private static File tempFile;
+
+  @BeforeClass
+  public static void beforeClass() throws IOException {
+    tempFile = Files.createTempFile("TestRandomAccessFileBulkRead", ".bin").toFile();
+    try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tempFile))) {
+      for (int i = 0; i < N; i++)
+        out.writeLong(i * 0x0102030405060708L + i);
+    }
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    tempFile.delete();
+  }
+
+  @Test
+  public void testBigEndian() throws IOException {
+    checkAll(RandomAccessFile.BIG_ENDIAN);
+  }
+
+  @Test
+  public void testLittleEndian() throws IOException {
+    checkAll(RandomAccessFile.LITTLE_ENDIAN);
+  }
+
+  @Test(expected = EOFException.class)
+  public void testEOF() throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(tempFile.getPath(), "r", 100)) {
+      raf.seek(raf.length() - 12);
+      raf.readFloat(new float[4], 0, 4);
+    }
+  }
+
+  @Test
+  public void testFilePointer() throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(tempFile.getPath(), "r", 1000)) {
+      raf.seek(3);
+      raf.readInt(new int[10000], 0, 10000);   // bigger than the buffer
+      Assert.assertEquals(3 + 4 * 10000, raf.getFilePointer());
+      raf.readShort(new short[10], 0, 10);     // from the buffer
+      Assert.assertEquals(3 + 4 * 10000 + 20, raf.getFilePointer());
+
+      // single reads afterwards must see the right bytes
+      long pos = raf.getFilePointer();
+      int want = raf.readIntUnbuffered(pos);
+      Assert.assertEquals(want, raf.readInt());
+    }
+  }
+
+  private void checkAll(int endian) throws IOException {
+    // odd buffer sizes and start positions so elements straddle the buffer ends
+    for (int bufferSize : new int[]{37, 1000, 8092}) {
+      for (int start : new int[]{0, 1, 5}) {
+        for (int n : new int[]{1, 17, 5000, 60 * 1000}) {
+          checkShort(endian, bufferSize, start, n);
+          checkInt(endian, bufferSize, start, n);
+          checkLong(endian, bufferSize, start, n / 2);
+          checkFloat(endian, bufferSize, start, n);
+          checkDouble(endian, bufferSize, start, n / 2);
+        }
+      }
+    }
+  }
+
+  private ByteBuffer expected(int endian, long start, int nbytes) throws IOException {
+    byte[] b = new byte[nbytes];
+    try (java.io.RandomAccessFile raf = new java.io.RandomAccessFile(tempFile, "r")) {
+      raf.seek(start);
+      raf.readFully(b);
+    }
+    return ByteBuffer.wrap(b).order(endian == RandomAccessFile.BIG_ENDIAN ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+  }
+
+  private RandomAccessFile open(int endian, int bufferSize, int start) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(tempFile.getPath(), "r", bufferSize);
+    raf.order(endian);
+    raf.seek(start);
+    return raf;
+  }
+
+  private void checkShort(int endian, int bufferSize, int start, int n) throws IOException {
+    short[] result = new short[n + 2];
+    try (RandomAccessFile raf = open(endian, bufferSize, start)) {
+      raf.readShort(result, 1, n);
+    }
+    ByteBuffer want = expected(endian, start, 2 * n);
+    for (int i = 0; i < n; i++)
+      Assert.assertEquals(want.getShort(), result[i + 1]);
+  }
+
+  private void checkInt(int endian, int bufferSize, int start, int n) throws IOException {
+    int[] result = new int[n + 2];
+    try (RandomAccessFile raf = open(endian, bufferSize, start)) {
+      raf.readInt(result, 1, n);
+    }
+    ByteBuffer want = expected(endian, start, 4 * n);
+    for (int i = 0; i < n; i++)
+      Assert.assertEquals(want.getInt(), result[i + 1]);
+  }
+
+  private void checkLong(int endian, int bufferSize, int start, int n) throws IOException {
+    long[] result = new long[n + 2];
+    try (RandomAccessFile raf = open(endian, bufferSize, start)) {
+      raf.readLong(result, 1, n);
+    }
+    ByteBuffer want = expected(endian, start, 8 * n);
+    for (int i = 0; i < n; i++)
+      Assert.assertEquals(want.getLong(), result[i + 1]);
+  }
+
+  private void checkFloat(int endian, int bufferSize, int start, int n) throws IOException {
+    float[] result = new float[n + 2];
+    try (RandomAccessFile raf = open(endian, bufferSize, start)) {
+      raf.readFloat(result, 1, n);
+    }
+    ByteBuffer want = expected(endian, start, 4 * n);
+    for (int i = 0; i < n; i++)
+      Assert.assertEquals(Float.floatToRawIntBits(want.getFloat()), Float.floatToRawIntBits(result[i + 1]));
+  }
+
+  private void checkDouble(int endian, int bufferSize, int start, int n) throws IOException {
+    double[] result = new double[n + 2];
+    try (RandomAccessFile raf = open(endian, bufferSize, start)) {
+      raf.readDouble(result, 1, n);
+    }
+    ByteBuffer want = expected(endian, start, 8 * n);
+    for (int i = 0; i < n; i++)
+      Assert.assertEquals(Double.doubleToRawLongBits(want.getDouble()), Double.doubleToRawLongBits(result[i + 1]));
+  }
+}
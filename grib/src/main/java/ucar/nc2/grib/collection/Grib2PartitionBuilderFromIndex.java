@@ -122,10 +122,11 @@ public class Grib2PartitionBuilderFromIndex extends Grib2CollectionBuilderFromIn
    */
 
   @Override
-  protected GribCollectionMutable.VariableIndex readVariableExtensions(GribCollectionMutable.GroupGC group, GribCollectionProto.Variable proto, GribCollectionMutable.VariableIndex vi) {
-    List<GribCollectionProto.PartitionVariable> pvList = proto.getPartVariableList();
-    PartitionCollectionMutable.VariableIndexPartitioned vip = pc.makeVariableIndexPartitioned(group, vi, pvList.size());
-    vip.setPartitions(pvList);
+  protected GribCollectionMutable.VariableIndex readVariableExtensions(GribCollectionMutable.GroupGC group, GribCollectionProto.Variable proto,
+                                                                       byte[] partVariables, GribCollectionMutable.VariableIndex vi) throws IOException {
+    int nparts = GribIndexBuffer.countFields(partVariables, GribCollectionProto.Variable.PARTVARIABLE_FIELD_NUMBER);
+    PartitionCollectionMutable.VariableIndexPartitioned vip = pc.makeVariableIndexPartitioned(group, vi, nparts);
+    vip.setPartitions(partVariables); // decoded when first used
 
     // cant put this in the constructor
     vip.ndups = vi.ndups;
@@ -100,6 +100,15 @@ public class GribCdmIndex implements IndexReader {
     gribCollectionCache = cache;
   }
 
+  /**
+   * Memory map the large messages of ncx files when reading them. Default is true.
+   * Some OS cant delete or replace a mapped file until the mapping is garbage collected.
+   * @param b use memory mapping
+   */
+  static public void setUseMmap(boolean b) {
+    GribIndexBuffer.setUseMmap(b);
+  }
+
   // open GribCollectionImmutable from an existing index file. return null on failure
   static public GribCollectionImmutable acquireGribCollection(FileFactory factory, Object hashKey, String location, int buffer_size, CancelTask cancelTask, Object spiObject) throws IOException {
     FileCacheable result;
@@ -58,6 +58,12 @@ abstract class GribCollectionBuilderFromIndex {
   static protected final boolean debug = false;
   static protected final boolean stackTrace = true;
 
+  // the repeated messages that are walked rather than parsed
+  static private final int GC_DATASET = GribCollectionProto.GribCollection.DATASET_FIELD_NUMBER;
+  static private final int DATASET_GROUPS = GribCollectionProto.Dataset.GROUPS_FIELD_NUMBER;
+  static private final int GROUP_VARIABLES = GribCollectionProto.Group.VARIABLES_FIELD_NUMBER;
+  static private final int VARIABLE_PARTVARIABLE = GribCollectionProto.Variable.PARTVARIABLE_FIELD_NUMBER;
+
   protected GribCollectionMutable gc;
   protected final org.slf4j.Logger logger;
   protected final FeatureCollectionConfig config;
@@ -113,8 +119,8 @@ abstract class GribCollectionBuilderFromIndex {
       }
       if (debug) System.out.printf("GribCollectionBuilderFromIndex proto len = %d%n", size);
 
-      byte[] m = new byte[size];
-      raf.readFully(m);
+      // the message is walked in place, and decoded one dataset, group and variable at a time
+      GribIndexBuffer m = GribIndexBuffer.read(raf, size);
 
       /*
       message GribCollection {
@@ -143,7 +149,7 @@ abstract class GribCollectionBuilderFromIndex {
       }
        */
 
-      GribCollectionProto.GribCollection proto = GribCollectionProto.GribCollection.parseFrom(m);
+      GribCollectionProto.GribCollection proto = GribCollectionProto.GribCollection.parseFrom(m.copyFieldsExcept(GC_DATASET));
 
       // need to read this first to get this.tables initialized
       gc.center = proto.getCenter();
@@ -180,9 +186,10 @@ abstract class GribCollectionBuilderFromIndex {
 
       gc.masterRuntime = (CoordinateRuntime) readCoord(proto.getMasterRuntime());
 
-      gc.datasets = new ArrayList<>(proto.getDatasetCount());
-      for (int i = 0; i < proto.getDatasetCount(); i++)
-        readDataset(proto.getDataset(i));
+      List<GribIndexBuffer> datasets = m.getMessages(GC_DATASET);
+      gc.datasets = new ArrayList<>(datasets.size());
+      for (GribIndexBuffer dm : datasets)
+        readDataset(dm);
 
       return readExtensions(proto);
 
@@ -197,7 +204,11 @@ abstract class GribCollectionBuilderFromIndex {
     return true;
   }
 
-  protected GribCollectionMutable.VariableIndex readVariableExtensions(GribCollectionMutable.GroupGC group, GribCollectionProto.Variable pv, GribCollectionMutable.VariableIndex vi) {
+  /**
+   * @param partVariables the encoded partVariable fields of the Variable message, which are not in pv
+   */
+  protected GribCollectionMutable.VariableIndex readVariableExtensions(GribCollectionMutable.GroupGC group, GribCollectionProto.Variable pv,
+                                                                       byte[] partVariables, GribCollectionMutable.VariableIndex vi) throws IOException {
     group.addVariable(vi);
     return vi;
   }
@@ -214,13 +225,15 @@ message Dataset {
   repeated Group groups = 2;      // separate group for each GDS
 }
  */
-  private PartitionCollectionMutable.Dataset readDataset(GribCollectionProto.Dataset p) {
+  private PartitionCollectionMutable.Dataset readDataset(GribIndexBuffer m) throws IOException {
+    GribCollectionProto.Dataset p = GribCollectionProto.Dataset.parseFrom(m.copyFieldsExcept(DATASET_GROUPS));
     GribCollectionImmutable.Type type = GribCollectionImmutable.Type.valueOf(p.getType().toString());
     GribCollectionMutable.Dataset ds = gc.makeDataset(type);
 
-    List<GribCollectionMutable.GroupGC> groups = new ArrayList<>(p.getGroupsCount());
-    for (int i = 0; i < p.getGroupsCount(); i++)
-      groups.add(readGroup(p.getGroups(i)));
+    List<GribIndexBuffer> groupMessages = m.getMessages(DATASET_GROUPS);
+    List<GribCollectionMutable.GroupGC> groups = new ArrayList<>(groupMessages.size());
+    for (GribIndexBuffer gm : groupMessages)
+      groups.add(readGroup(gm));
     ds.groups = Collections.unmodifiableList(groups);
 
     return ds;
@@ -237,7 +250,8 @@ message Group {
   extensions 100 to 199;
 }
  */
-  protected GribCollectionMutable.GroupGC readGroup(GribCollectionProto.Group p) {
+  protected GribCollectionMutable.GroupGC readGroup(GribIndexBuffer m) throws IOException {
+    GribCollectionProto.Group p = GribCollectionProto.Group.parseFrom(m.copyFieldsExcept(GROUP_VARIABLES));
     GribCollectionMutable.GroupGC group = gc.makeGroup();
 
     group.horizCoordSys = readGds( p.getGds());
@@ -251,8 +265,8 @@ message Group {
     for (int i = 0; i < p.getFilenoCount(); i++)
       group.filenose[i] = p.getFileno(i);
 
-    for (int i = 0; i < p.getVariablesCount(); i++)
-      readVariable(group, p.getVariables(i));
+    for (GribIndexBuffer vm : m.getMessages(GROUP_VARIABLES))
+      readVariable(group, vm);
 
     // assign names, units to coordinates
     // CalendarDate firstRef = null;
@@ -442,7 +456,9 @@ message Coord {
     return null;
   }
 
-  protected GribCollectionMutable.VariableIndex readVariable(GribCollectionMutable.GroupGC group, GribCollectionProto.Variable pv) {
+  // the partVariable fields are kept encoded, they are most of a partition index
+  protected GribCollectionMutable.VariableIndex readVariable(GribCollectionMutable.GroupGC group, GribIndexBuffer m) throws IOException {
+    GribCollectionProto.Variable pv = GribCollectionProto.Variable.parseFrom(m.copyFieldsExcept(VARIABLE_PARTVARIABLE));
     int discipline = pv.getDiscipline();
 
     byte[] rawPds = pv.getPds().toByteArray();
@@ -461,7 +477,7 @@ message Coord {
     result.nrecords = pv.getNrecords();
     result.nmissing = pv.getMissing();
 
-    return readVariableExtensions(group, pv, result);
+    return readVariableExtensions(group, pv, m.copyFields(VARIABLE_PARTVARIABLE), result);
   }
 
   static public Coordinate.Type convertAxisType(GribCollectionProto.GribAxisType type) {
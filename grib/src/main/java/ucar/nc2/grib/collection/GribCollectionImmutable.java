@@ -481,7 +481,7 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
     final int ndups, nrecords, nmissing;
 
     // read in on demand
-    private SparseArray<Record> sa;   // for GC only; lazily read; same array shape as variable, minus x and y
+    private volatile SparseArray<Record> sa;   // for GC only; lazily read; same array shape as variable, minus x and y. immutable once set
 
     protected VariableIndex(GroupGC g, GribCollectionMutable.VariableIndex gcVar) {
       this.group = g;
@@ -497,64 +497,41 @@ public abstract class GribCollectionImmutable implements Closeable, FileCacheabl
       this.nmissing = gcVar.nmissing;
     }
 
-    public synchronized void readRecords() throws IOException {
+    // readers dont lock once the records are in
+    public void readRecords() throws IOException {
       if (this.sa != null) return;
 
-      if (recordsLen == 0)
-        return;
-      byte[] b = new byte[recordsLen];
+      synchronized (this) {
+        if (this.sa != null) return;
+        if (recordsLen == 0)
+          return;
+        byte[] b = new byte[recordsLen];
 
-      try (RandomAccessFile indexRaf = RandomAccessFile.acquire(indexFilename)) {
-
-        indexRaf.seek(recordsPos);
-        indexRaf.readFully(b);
-
-        /*
-        message SparseArray {
-          repeated uint32 size = 2 [packed=true];     // multidim sizes = shape[]
-          repeated uint32 track = 3 [packed=true];    // 1-based index into record list, 0 == missing
-          repeated Record records = 4;                // List<Record>
-          uint32 ndups = 5;                           // duplicates found when creating
+        try (RandomAccessFile indexRaf = RandomAccessFile.acquire(indexFilename)) {
+          indexRaf.seek(recordsPos);
+          indexRaf.readFully(b);
         }
-       */
-        GribCollectionProto.SparseArray proto = GribCollectionProto.SparseArray.parseFrom(b);
-
-        int nsizes = proto.getSizeCount();
-        int[] size = new int[nsizes];
-        for (int i = 0; i < nsizes; i++)
-          size[i] = proto.getSize(i);
-
-        int ntrack = proto.getTrackCount();
-        int[] track = new int[ntrack];
-        for (int i = 0; i < ntrack; i++)
-          track[i] = proto.getTrack(i);
-
-        int n = proto.getRecordsCount();
-        List<Record> records = new ArrayList<>(n);
-        for (int i = 0; i < n; i++) {
-          GribCollectionProto.Record pr = proto.getRecords(i);
-          records.add(new Record(pr.getFileno(), pr.getStartPos(), pr.getBmsOffset(), pr.getDrsOffset()));
-        }
-        int ndups = proto.getNdups();
-        this.sa = new SparseArray<>(size, track, records, ndups);
 
-      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
-        logger.error(" file={} recordsLen={} recordPos={}", indexFilename, recordsLen, recordsPos);
-        throw e;
+        try {
+          this.sa = RecordArray.readSparseArray(b);  // SparseArray message, decoded straight to primitive arrays
+        } catch (IOException e) {
+          logger.error(" file={} recordsLen={} recordPos={}", indexFilename, recordsLen, recordsPos);
+          throw e;
+        }
       }
     }
 
-    public synchronized Record getRecordAt(int sourceIndex) {
+    public Record getRecordAt(int sourceIndex) {
       return sa.getContent(sourceIndex);
     }
 
-    public synchronized Record getRecordAt(int[] sourceIndex) {
+    public Record getRecordAt(int[] sourceIndex) {
       return sa.getContent(sourceIndex);
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     // coord based record finding. note only one record at a time
-    public synchronized Record getRecordAt(SubsetParams coords) {
+    public Record getRecordAt(SubsetParams coords) {
       int[] want = new int[getRank()];
       int count = 0;
       int runIdx = -1;
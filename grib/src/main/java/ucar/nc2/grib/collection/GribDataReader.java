@@ -49,13 +49,21 @@ import ucar.nc2.grib.grib1.Grib1SectionProductDefinition;
 import ucar.nc2.grib.grib1.tables.Grib1Customizer;
 import ucar.nc2.grib.grib2.Grib2Record;
 import ucar.nc2.grib.grib2.Grib2RecordScanner;
+import ucar.nc2.grib.grib2.Grib2SectionBitMap;
+import ucar.nc2.grib.grib2.Grib2SectionData;
+import ucar.nc2.grib.grib2.Grib2SectionDataRepresentation;
 import ucar.nc2.grib.grib2.table.Grib2Customizer;
+import ucar.nc2.util.ExecutorHelper;
 import ucar.nc2.util.Misc;
+import ucar.nc2.util.cache.DecodedDataCache;
+import ucar.unidata.io.InMemoryRandomAccessFile;
 import ucar.unidata.io.RandomAccessFile;
 
 import javax.annotation.concurrent.Immutable;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 /**
  * Grib Data Reader.
@@ -79,6 +87,67 @@ public abstract class GribDataReader {
   protected abstract float[] readData(RandomAccessFile rafData, DataRecord dr) throws IOException;
   protected abstract void show(RandomAccessFile rafData, long dataPos) throws IOException;
 
+  // the file positions [start, end) of the bytes that readData() needs
+  protected abstract long[] getRecordExtent(RandomAccessFile rafData, DataRecord dr) throws IOException;
+
+  /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  // parallel decoding of records, shared by all GribDataReaders
+
+  static private Executor decodeExecutor = null;
+  static private int decodeReadAhead;
+
+  /**
+   * Decode the GRIB records of a read in parallel, using the given Executor.
+   * The records are still read from disk in file order by the reading thread, which keeps at most readAhead
+   * records in flight. Each record is decoded from an in-memory copy, and put into the result by the worker.
+   * The caller owns the Executor, eg a fixed thread pool, and is responsible for shutting it down.
+   *
+   * @param exec use this Executor; if null, records are decoded serially by the reading thread (default).
+   * @param readAhead maximum number of records in flight for one read, typically twice the number of threads.
+   */
+  static public synchronized void setDecodeExecutor(Executor exec, int readAhead) {
+    decodeExecutor = exec;
+    decodeReadAhead = readAhead;
+  }
+
+  static public synchronized Executor getDecodeExecutor() {
+    return decodeExecutor;
+  }
+
+  static private synchronized int getDecodeReadAhead() {
+    return decodeReadAhead;
+  }
+
+  /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+  // cache of decoded records, shared by all GribDataReaders
+
+  static private DecodedDataCache<float[]> recordCache = null;
+
+  /**
+   * Enable caching of decoded records, shared by all GRIB collections.
+   *
+   * @param maxBytes maximum total size of the decoded records in the cache; if <= 0, disable the cache.
+   */
+  static public synchronized void initRecordCache(long maxBytes) {
+    disableRecordCache();
+    if (maxBytes > 0)
+      recordCache = new DecodedDataCache<>("GribRecordCache", maxBytes, data -> 4L * data.length);
+  }
+
+  static public synchronized void disableRecordCache() {
+    if (null != recordCache) recordCache.clearCache();
+    recordCache = null;
+  }
+
+  /**
+   * Get the cache of decoded records.
+   *
+   * @return the cache, or null if not enabled
+   */
+  static public synchronized DecodedDataCache<float[]> getRecordCache() {
+    return recordCache;
+  }
+
   /////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
   static public GribCollectionImmutable.Record currentDataRecord;
   static public GribDataValidator validator;
@@ -271,6 +340,7 @@ public abstract class GribDataReader {
 
     int currFile = -1;
     RandomAccessFile rafData = null;
+    RecordDecoder decoder = new RecordDecoder(dataReceiver);
     try {
       for (DataRecord dr : records) {
         if (Grib.debugIndexOnly || Grib.debugGbxIndexOnly) {
@@ -298,10 +368,10 @@ public abstract class GribDataReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
         GdsHorizCoordSys hcs = vindex.group.getGdsHorizCoordSys();
-        dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        decoder.decode(rafData, dr, hcs.nx);
       }
+      decoder.finish();
 
     } finally {
       if (rafData != null) rafData.close();  // make sure its closed even on exception
@@ -318,6 +388,7 @@ public abstract class GribDataReader {
 
     PartitionCollectionImmutable.DataRecord lastRecord = null;
     RandomAccessFile rafData = null;
+    RecordDecoder decoder = new RecordDecoder(dataReceiver);
     try {
 
       for (DataRecord dr : records) {
@@ -344,16 +415,103 @@ public abstract class GribDataReader {
           show(rafData, dr.record.pos + dr.record.drsOffset);
         }
 
-        float[] data = readData(rafData, dr);
         GdsHorizCoordSys hcs = dr.hcs;
-        dataReceiver.addData(data, dr.resultIndex, hcs.nx);
+        decoder.decode(rafData, dr, hcs.nx);
       }
+      decoder.finish();
 
     } finally {
       if (rafData != null) rafData.close();  // make sure its closed even on exception
     }
   }
 
+  /*
+   * Decodes the records and sends them to the DataReceiver, either directly, or if there is a decodeExecutor,
+   * by reading the record's bytes here and decoding them on the executor.
+   * DataReceiver.addData() may then be called from several threads, but always for different resultIndex.
+   * If there is a recordCache, records found there are not read again, and decoded records are added to it.
+   */
+  private class RecordDecoder {
+    private final DataReceiverIF dataReceiver;
+    private final Executor executor;
+    private final int readAhead;
+    private final DecodedDataCache<float[]> cache;
+    private final ArrayDeque<FutureTask<Void>> pending = new ArrayDeque<>();
+    private RandomAccessFile lastRaf;
+    private long lastModified;
+
+    RecordDecoder(DataReceiverIF dataReceiver) {
+      this.dataReceiver = dataReceiver;
+      boolean debugging = Grib.debugIndexOnly || Grib.debugGbxIndexOnly || show || GribDataReader.validator != null;
+      this.executor = debugging ? null : getDecodeExecutor();
+      this.readAhead = Math.max(getDecodeReadAhead(), 1);
+      this.cache = debugging ? null : getRecordCache();
+    }
+
+    void decode(RandomAccessFile rafData, DataRecord dr, int nx) throws IOException {
+      DecodedDataCache.Key key = (cache == null) ? null : makeKey(rafData, dr);
+      if (executor == null || (key != null && cache.contains(key))) {
+        float[] data = readData(rafData, dr, key);
+        dataReceiver.addData(data, dr.resultIndex, nx);
+        return;
+      }
+
+      // read the bytes of the record here, decode them on the executor
+      long[] extent = getRecordExtent(rafData, dr);
+      long start = extent[0];
+      long end = Math.min(extent[1], rafData.length());
+      if (end - start > Integer.MAX_VALUE - 8) {
+        float[] data = readData(rafData, dr, key);
+        dataReceiver.addData(data, dr.resultIndex, nx);
+        return;
+      }
+      byte[] raw = new byte[(int) (end - start)];
+      rafData.seek(start);
+      rafData.readFully(raw);
+
+      String location = rafData.getLocation();
+      GribCollectionImmutable.Record r = dr.record;
+      DataRecord local = new DataRecord(dr.resultIndex, new GribCollectionImmutable.Record(r.fileno, r.pos - start, r.bmsOffset, r.drsOffset), dr.hcs);
+      FutureTask<Void> task = new FutureTask<>(() -> {
+        RandomAccessFile mem = new InMemoryRandomAccessFile(location, raw);
+        mem.order(RandomAccessFile.BIG_ENDIAN); // GRIB is big endian, InMemoryRandomAccessFile defaults to little
+        float[] data = readData(mem, local, key);
+        dataReceiver.addData(data, local.resultIndex, nx);
+        return null;
+      });
+
+      ExecutorHelper.execute(executor, task);
+      pending.add(task);
+      while (pending.size() > readAhead)
+        finishOne();
+    }
+
+    void finish() throws IOException {
+      while (!pending.isEmpty())
+        finishOne();
+    }
+
+    private float[] readData(RandomAccessFile raf, DataRecord dr, DecodedDataCache.Key key) throws IOException {
+      if (key == null) return GribDataReader.this.readData(raf, dr);
+      return cache.get(key, () -> GribDataReader.this.readData(raf, dr));
+    }
+
+    // the data file and the position of the data representation section; the data file is used rather than the
+    // collection's file index, so that collections and partitions sharing a file share its records
+    private DecodedDataCache.Key makeKey(RandomAccessFile rafData, DataRecord dr) {
+      if (rafData != lastRaf) {
+        lastRaf = rafData;
+        lastModified = rafData.getLastModified();
+      }
+      return new DecodedDataCache.Key(rafData.getLocation(), lastModified, dr.record.pos + dr.record.drsOffset);
+    }
+
+    // wait for the oldest task, or run it here if no thread has picked it up yet
+    private void finishOne() throws IOException {
+      ExecutorHelper.finish(pending.remove(), "decoding GRIB record");
+    }
+  }
+
   static public class DataRecord implements Comparable<DataRecord> {
     int resultIndex; // index into the result array
     GribCollectionImmutable.Record record;
@@ -489,6 +647,18 @@ public abstract class GribDataReader {
               hcs.nxRaw, hcs.nyRaw, hcs.nptsInLine);
     }
 
+    @Override
+    protected long[] getRecordExtent(RandomAccessFile rafData, GribDataReader.DataRecord dr) throws IOException {
+      long dataPos = dr.record.pos + dr.record.drsOffset;
+      rafData.seek(dataPos);
+      new Grib2SectionDataRepresentation(rafData);
+      new Grib2SectionBitMap(rafData);
+      Grib2SectionData dataSection = new Grib2SectionData(rafData);
+      // a bms defined previously in the message: start at the message, so the bms offset stays non-zero
+      long start = (dr.record.bmsOffset > 0) ? dr.record.pos : dataPos;
+      return new long[]{start, dataSection.getEndingPosition()};
+    }
+
     @Override
     protected void show(RandomAccessFile rafData, long pos) throws IOException {
       Grib2Record gr = Grib2RecordScanner.findRecordByDrspos(rafData, pos);
@@ -520,6 +690,14 @@ public abstract class GribDataReader {
       return Grib1Record.readData(rafData, dr.record.pos);
     }
 
+    @Override
+    protected long[] getRecordExtent(RandomAccessFile rafData, DataRecord dr) throws IOException {
+      rafData.seek(dr.record.pos);
+      Grib1Record gr = new Grib1Record(rafData);
+      long dataEnd = gr.getDataSection().getStartingPosition() + gr.getDataSection().getLength();
+      return new long[]{dr.record.pos, Math.max(gr.getIs().getEndPos(), dataEnd)};
+    }
+
     @Override
     protected void show(RandomAccessFile rafData, long dataPos) throws IOException {
       rafData.seek(dataPos);
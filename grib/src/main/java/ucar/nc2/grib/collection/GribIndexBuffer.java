@@ -0,0 +1,236 @@
+/*
+ * Copyright 1998-2014 University Corporation for Atmospheric Research/Unidata
+ *
+ *   Portions of this software were developed by the Unidata Program at the
+ *   University Corporation for Atmospheric Research.
+ *
+ *   Access and use of this software shall impose the following obligations
+ *   and understandings on the user. The user is granted the right, without
+ *   any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *   this software, and any derivative works thereof, and its supporting
+ *   documentation for any purpose whatsoever, provided that this entire
+ *   notice appears in all copies of the software, derivative works and
+ *   supporting documentation.  Further, UCAR requests that the user credit
+ *   UCAR/Unidata in any publications that result from the use of this
+ *   software or in any product that includes this software. The names UCAR
+ *   and/or Unidata, however, may not be used in any advertising or publicity
+ *   to endorse or promote any products or commercial entity unless specific
+ *   written permission is obtained from UCAR/Unidata. The user also
+ *   understands that UCAR/Unidata is not obligated to provide the user with
+ *   any support, consulting, training or assistance of any kind with regard
+ *   to the use, operation and performance of this software nor to provide
+ *   the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *   THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *   IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *   WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *   DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *   INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *   FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *   NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *   WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.grib.collection;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A protobuf message in an ncx index, walked with a CodedInputStream one field at a time, without decoding the
+ * whole message. Used to decode the GribCollection message one dataset, group and variable at a time, and to keep
+ * the partVariable fields of partitioned variables encoded until they are used. Everything else is decoded at open.
+ * Large messages are memory mapped; nothing refers to the mapping once the index has been read.
+ *
+ * @since 10/18/2026
+ */
+class GribIndexBuffer {
+  static private final int MMAP_MIN = 1024 * 1024; // smaller messages are just read in
+
+  static private boolean useMmap = true;
+
+  // see GribCdmIndex.setUseMmap()
+  static synchronized void setUseMmap(boolean b) {
+    useMmap = b;
+  }
+
+  /**
+   * Read the message of the given size at the current position of raf, and leave raf positioned after it.
+   */
+  static GribIndexBuffer read(RandomAccessFile raf, int size) throws IOException {
+    long pos = raf.getFilePointer();
+    java.io.RandomAccessFile file = raf.getRandomAccessFile();
+    ByteBuffer bb;
+    if (useMmap && size >= MMAP_MIN && file != null) {
+      bb = file.getChannel().map(FileChannel.MapMode.READ_ONLY, pos, size);
+      raf.seek(pos + size);
+    } else {
+      byte[] m = new byte[size];
+      raf.readFully(m);
+      bb = ByteBuffer.wrap(m);
+    }
+    return new GribIndexBuffer(bb, 0, size);
+  }
+
+  /**
+   * Count the fields with this number in an encoded message.
+   */
+  static int countFields(byte[] encoded, int fieldNumber) throws IOException {
+    CodedInputStream input = CodedInputStream.newInstance(encoded);
+    int count = 0;
+    int tag;
+    while ((tag = input.readTag()) != 0) {
+      skipField(input, tag);
+      if (WireFormat.getTagFieldNumber(tag) == fieldNumber) count++;
+    }
+    return count;
+  }
+
+  ////////////////////////////////////////////////////////////////
+
+  private final ByteBuffer bb;
+  private final int start, end;
+
+  private GribIndexBuffer(ByteBuffer bb, int start, int end) {
+    this.bb = bb;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * The encoded fields of this message except those with the given numbers, in a form the generated parsers can decode.
+   */
+  byte[] copyFieldsExcept(int... fieldNumbers) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(end - start, 1000));
+    CodedInputStream input = newInput();
+    int fieldStart = 0;
+    int tag;
+    while ((tag = input.readTag()) != 0) {
+      skipField(input, tag);
+      int fieldEnd = input.getTotalBytesRead();
+      if (!contains(fieldNumbers, WireFormat.getTagFieldNumber(tag)))
+        copy(out, start + fieldStart, start + fieldEnd);
+      fieldStart = fieldEnd;
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * The encoded fields of this message with the given number, tags included.
+   */
+  byte[] copyFields(int fieldNumber) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(0);
+    CodedInputStream input = newInput();
+    int fieldStart = 0;
+    int tag;
+    while ((tag = input.readTag()) != 0) {
+      skipField(input, tag);
+      int fieldEnd = input.getTotalBytesRead();
+      if (WireFormat.getTagFieldNumber(tag) == fieldNumber)
+        copy(out, start + fieldStart, start + fieldEnd);
+      fieldStart = fieldEnd;
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * The embedded messages in the fields with the given number, in order.
+   */
+  List<GribIndexBuffer> getMessages(int fieldNumber) throws IOException {
+    List<GribIndexBuffer> result = new ArrayList<>();
+    CodedInputStream input = newInput();
+    int tag;
+    while ((tag = input.readTag()) != 0) {
+      if (WireFormat.getTagFieldNumber(tag) == fieldNumber && WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+        int limit = input.pushLimit(input.readRawVarint32()); // checks the length against the end of this message
+        int messageStart = start + input.getTotalBytesRead();
+        int len = input.getBytesUntilLimit();
+        result.add(new GribIndexBuffer(bb, messageStart, messageStart + len));
+        input.skipRawBytes(len);
+        input.popLimit(limit);
+      } else {
+        skipField(input, tag);
+      }
+    }
+    return result;
+  }
+
+  // the mapped buffer is read through a stream, since CodedInputStream.newInstance(ByteBuffer) copies a direct buffer
+  private CodedInputStream newInput() {
+    CodedInputStream input;
+    if (bb.hasArray()) {
+      input = CodedInputStream.newInstance(bb.array(), bb.arrayOffset() + start, end - start);
+    } else {
+      ByteBuffer dup = bb.duplicate();
+      dup.limit(end).position(start);
+      input = CodedInputStream.newInstance(new ByteBufferInputStream(dup));
+    }
+    input.setSizeLimit(Integer.MAX_VALUE); // default is 64 MB
+    return input;
+  }
+
+  private void copy(ByteArrayOutputStream out, int from, int to) {
+    if (bb.hasArray()) {
+      out.write(bb.array(), bb.arrayOffset() + from, to - from);
+    } else {
+      ByteBuffer dup = bb.duplicate();
+      dup.limit(to).position(from);
+      byte[] b = new byte[to - from];
+      dup.get(b);
+      out.write(b, 0, b.length);
+    }
+  }
+
+  static private void skipField(CodedInputStream input, int tag) throws IOException {
+    if (!input.skipField(tag)) // an end group tag
+      throw new IOException("Unexpected end group tag " + tag + " in index message");
+  }
+
+  static private boolean contains(int[] fieldNumbers, int fieldNumber) {
+    for (int f : fieldNumbers)
+      if (f == fieldNumber) return true;
+    return false;
+  }
+
+  static private class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer bb;
+
+    ByteBufferInputStream(ByteBuffer bb) {
+      this.bb = bb;
+    }
+
+    @Override
+    public int read() {
+      return bb.hasRemaining() ? bb.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) return 0;
+      if (!bb.hasRemaining()) return -1;
+      int n = Math.min(len, bb.remaining());
+      bb.get(b, off, n);
+      return n;
+    }
+
+    @Override
+    public long skip(long n) {
+      int k = (int) Math.min(n, bb.remaining());
+      bb.position(bb.position() + k);
+      return k;
+    }
+
+    @Override
+    public int available() {
+      return bb.remaining();
+    }
+  }
+}
@@ -702,9 +702,10 @@ abstract class GribPartitionBuilder {
     } */
 
     // extensions
-    if (vp.nparts > 0 && vp.partnoSA != null) {
+    if (vp.nparts > 0 && vp.partVariables != null) {
+      PartitionCollectionMutable.PartitionVariables pv = vp.partVariables;
       for (int i = 0; i < vp.nparts; i++) // PartitionCollection.PartitionForVariable2D pvar : vp.getPartitionForVariable2D())
-        b.addPartVariable(writePartitionVariableProto(vp.partnoSA.get(i), vp.groupnoSA.get(i), vp.varnoSA.get(i), vp.nrecords, vp.ndups, vp.nmissing));  // LOOK was it finished ??
+        b.addPartVariable(writePartitionVariableProto(pv.getPartno().get(i), pv.getGroupno().get(i), pv.getVarno().get(i), vp.nrecords, vp.ndups, vp.nmissing));  // LOOK was it finished ??
     }
 
     return b.build();
@@ -50,7 +50,6 @@ import ucar.nc2.util.CancelTask;
 import ucar.nc2.util.Misc;
 import ucar.nc2.util.cache.FileCacheable;
 import ucar.nc2.util.cache.FileFactory;
-import ucar.nc2.util.cache.SmartArrayInt;
 import ucar.unidata.io.RandomAccessFile;
 
 import javax.annotation.concurrent.Immutable;
@@ -295,9 +294,7 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
   @Immutable
   public class VariableIndexPartitioned extends GribCollectionImmutable.VariableIndex {
     final int nparts;
-    final SmartArrayInt partnoSA;  // conceptually int[nparts] : index into PartitionCollectionImmutable.partitions[] -> Partition
-    final SmartArrayInt groupnoSA; // once you have the partition, which group in that partition's dataset? Partition.Dataset.Group[] -> Group
-    final SmartArrayInt varnoSA;   // once you have the group, which variable? Group[] -> Variable
+    final PartitionCollectionMutable.PartitionVariables partVariables; // conceptually (partno, groupno, varno)[nparts]
 
     // partition only
     // final SmartArrayInt time2runtime; // oneD only: for each timeIndex, which runtime coordinate does it use? 1-based so 0 = missing;
@@ -310,9 +307,7 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
       this.nparts = pother.nparts;
       // this.time2runtime =  pother.time2runtime;
 
-      this.partnoSA = pother.partnoSA;
-      this.groupnoSA = pother.groupnoSA;
-      this.varnoSA = pother.varnoSA;
+      this.partVariables = pother.partVariables;
     }
 
     public int getNparts() {
@@ -326,11 +321,11 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
     public void show(Formatter sb) {
       sb.format("VariableIndexPartitioned%n");
       sb.format(" partno=");
-      this.partnoSA.show(sb);
+      this.partVariables.getPartno().show(sb);
       sb.format("%n groupno=");
-      this.groupnoSA.show(sb);
+      this.partVariables.getGroupno().show(sb);
       sb.format("%n varno=");
-      this.varnoSA.show(sb);
+      this.partVariables.getVarno().show(sb);
       //sb.format("%n flags=");
       //for (PartitionForVariable2D partVar : partList)
       //  sb.format("%d,", partVar.flag);
@@ -339,7 +334,7 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
       sb.format("     %7s %3s %3s %6s %3s%n", "N", "dups", "Miss", "density", "partition");
       // int totalN = 0, totalDups = 0, totalMiss = 0;
       for (int i = 0; i < nparts; i++) {
-        int partWant = this.partnoSA.get(i);
+        int partWant = this.partVariables.getPartno().get(i);
         Partition part = partitions.get(partWant);
         sb.format("   %2d: %7d %s%n", count++, partWant, part.getFilename());
         //sb.format("   %2d: %7d %3d %3d   %6.2f   %d %s%n", count++, partVar.nrecords, partVar.ndups, partVar.missing, partVar.density, partVar.partno, part.getFilename());
@@ -492,7 +487,7 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
       if (vip == null)
         throw new IllegalStateException();
 
-      int partWant = vip.partnoSA.findIdx(partno); // which partition ? index into PartitionCollectionImmutable.partitions[]. variable doesnt have to exist in all partitions
+      int partWant = vip.partVariables.getPartno().findIdx(partno); // which partition ? index into PartitionCollectionImmutable.partitions[]. variable doesnt have to exist in all partitions
       if (partWant < 0 || partWant >= vip.nparts) {
         if (Grib.debugRead) System.out.printf("  cant find partition=%d in vip=%s%n", partno, vip);
         return null;
@@ -506,8 +501,8 @@ public abstract class PartitionCollectionImmutable extends GribCollectionImmutab
       try (GribCollectionImmutable gc = p.getGribCollection()) { // ensure that its read in try-with
         GribCollectionImmutable.Dataset ds = gc.getDatasetCanonical(); // always references the twoD or GC dataset
         // the group and variable index may vary across partitions
-        GribCollectionImmutable.GroupGC g = ds.groups.get(vip.groupnoSA.get(partWant));         // LOOK partWant vs partno ??
-        GribCollectionImmutable.VariableIndex vindex = g.variList.get(vip.varnoSA.get(partWant));
+        GribCollectionImmutable.GroupGC g = ds.groups.get(vip.partVariables.getGroupno().get(partWant));         // LOOK partWant vs partno ??
+        GribCollectionImmutable.VariableIndex vindex = g.variList.get(vip.partVariables.getVarno().get(partWant));
         vindex.readRecords();
         return vindex;
       }  // LOOK opening the file here, and then again to read the data. partition cache helps i guess but we could do better i think.
@@ -33,6 +33,8 @@
 
 package ucar.nc2.grib.collection;
 
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
 import thredds.featurecollection.FeatureCollectionConfig;
 import thredds.inventory.DateExtractor;
 import thredds.inventory.MCollection;
@@ -68,11 +70,104 @@ public class PartitionCollectionMutable extends GribCollectionMutable {
     }
   }
 
+  /**
+   * For each partition of a VariableIndexPartitioned, the partition and the group and variable in it.
+   * When read from an index, the PartitionVariable messages are kept encoded until first used, since there is one
+   * for every variable in every partition, and most are never looked at.
+   */
+  static class PartitionVariables {
+    private byte[] encoded; // the partVariable fields of a Variable message; null when decoded
+    private final int nparts;
+    private SmartArrayInt partnoSA;  // index into PartitionCollectionImmutable.partitions[] -> Partition
+    private SmartArrayInt groupnoSA; // once you have the partition, which group in that partition's dataset?
+    private SmartArrayInt varnoSA;   // once you have the group, which variable?
+
+    PartitionVariables(int[] partno, int[] groupno, int[] varno) {
+      this.nparts = partno.length;
+      this.partnoSA = new SmartArrayInt(partno);
+      this.groupnoSA = new SmartArrayInt(groupno);
+      this.varnoSA = new SmartArrayInt(varno);
+    }
+
+    PartitionVariables(byte[] encoded, int nparts) {
+      this.encoded = encoded;
+      this.nparts = nparts;
+    }
+
+    SmartArrayInt getPartno() {
+      decode();
+      return partnoSA;
+    }
+
+    SmartArrayInt getGroupno() {
+      decode();
+      return groupnoSA;
+    }
+
+    SmartArrayInt getVarno() {
+      decode();
+      return varnoSA;
+    }
+
+    synchronized boolean isDecoded() {
+      return encoded == null;
+    }
+
+    /*
+    message PartitionVariable {
+      uint32 groupno = 1;
+      uint32 varno = 2;
+      uint32 partno = 4;
+      ...
+    }
+     */
+    private synchronized void decode() {
+      if (encoded == null) return;
+      int[] partno = new int[nparts];
+      int[] groupno = new int[nparts];
+      int[] varno = new int[nparts];
+      try {
+        CodedInputStream in = CodedInputStream.newInstance(encoded);
+        int count = 0;
+        while (!in.isAtEnd()) {
+          int tag = in.readTag();
+          if (WireFormat.getTagFieldNumber(tag) != GribCollectionProto.Variable.PARTVARIABLE_FIELD_NUMBER) {
+            in.skipField(tag);
+            continue;
+          }
+          int limit = in.pushLimit(in.readRawVarint32());
+          while (!in.isAtEnd()) {
+            int ptag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(ptag)) {
+              case GribCollectionProto.PartitionVariable.GROUPNO_FIELD_NUMBER:
+                groupno[count] = in.readUInt32();
+                break;
+              case GribCollectionProto.PartitionVariable.VARNO_FIELD_NUMBER:
+                varno[count] = in.readUInt32();
+                break;
+              case GribCollectionProto.PartitionVariable.PARTNO_FIELD_NUMBER:
+                partno[count] = in.readUInt32();
+                break;
+              default:
+                in.skipField(ptag);
+            }
+          }
+          in.popLimit(limit);
+          count++;
+        }
+      } catch (IOException e) {
+        throw new IllegalStateException("Bad PartitionVariable in index", e);
+      }
+      this.partnoSA = new SmartArrayInt(partno);
+      this.groupnoSA = new SmartArrayInt(groupno);
+      this.varnoSA = new SmartArrayInt(varno);
+      this.encoded = null; // GC
+    }
+  }
+
   public class VariableIndexPartitioned extends GribCollectionMutable.VariableIndex {
     int nparts;
-    SmartArrayInt partnoSA;
-    SmartArrayInt groupnoSA;
-    SmartArrayInt varnoSA;
+    PartitionVariables partVariables;
 
     List<PartitionForVariable2D> partList; // used only when creating, then discarded in finish
 
@@ -81,21 +176,9 @@ public class PartitionCollectionMutable extends GribCollectionMutable {
       this.nparts = nparts;
     }
 
-    public void setPartitions(List<GribCollectionProto.PartitionVariable> pvList) {
-      int[] partno = new int[nparts];
-      int[] groupno = new int[nparts];
-      int[] varno = new int[nparts];
-      int count = 0;
-      for (GribCollectionProto.PartitionVariable part : pvList) {
-        partno[count] = part.getPartno();
-        groupno[count] = part.getGroupno();
-        varno[count] = part.getVarno();
-        count++;
-      }
-      this.partnoSA =  new SmartArrayInt(partno);
-      this.groupnoSA =  new SmartArrayInt(groupno);
-      this.varnoSA =  new SmartArrayInt(varno);
-
+    // the encoded partVariable fields from the index, nparts of them
+    public void setPartitions(byte[] encoded) {
+      this.partVariables = new PartitionVariables(encoded, nparts);
       partList = null; // GC
     }
 
@@ -114,9 +197,7 @@ public class PartitionCollectionMutable extends GribCollectionMutable {
         varno[count] = part.varno;
         count++;
       }
-      this.partnoSA =  new SmartArrayInt(partno);
-      this.groupnoSA =  new SmartArrayInt(groupno);
-      this.varnoSA =  new SmartArrayInt(varno);
+      this.partVariables = new PartitionVariables(partno, groupno, varno);
 
       partList = null; // GC
     }
@@ -135,11 +216,11 @@ public class PartitionCollectionMutable extends GribCollectionMutable {
       Formatter sb = new Formatter();
       sb.format("VariableIndexPartitioned%n");
       sb.format(" partno=");
-      this.partnoSA.show(sb);
+      this.partVariables.getPartno().show(sb);
       sb.format("%n groupno=");
-      this.groupnoSA.show(sb);
+      this.partVariables.getGroupno().show(sb);
       sb.format("%n varno=");
-      this.varnoSA.show(sb);
+      this.partVariables.getVarno().show(sb);
       //sb.format("%n flags=");
       //for (PartitionForVariable2D partVar : partList)
       //  sb.format("%d,", partVar.flag);
@@ -148,7 +229,7 @@ public class PartitionCollectionMutable extends GribCollectionMutable {
       sb.format("     %7s %3s %3s %6s %3s%n", "N", "dups", "Miss", "density", "partition");
       // int totalN = 0, totalDups = 0, totalMiss = 0;
       for (int i=0; i<nparts; i++) {
-        int partWant = this.partnoSA.get(i);
+        int partWant = this.partVariables.getPartno().get(i);
         Partition part = partitions.get(partWant);
         sb.format("   %2d: %7d %s%n", count++, partWant, part.getFilename());
         //sb.format("   %2d: %7d %3d %3d   %6.2f   %d %s%n", count++, partVar.nrecords, partVar.ndups, partVar.missing, partVar.density, partVar.partno, part.getFilename());
@@ -432,8 +513,9 @@ public class PartitionCollectionMutable extends GribCollectionMutable {
     if (from instanceof VariableIndexPartitioned && !isPartitionOfPartitions) {    // LOOK dont really understand this
       VariableIndexPartitioned vipFrom = (VariableIndexPartitioned) from;
       assert vipFrom.partList == null; // // check if vipFrom has been finished
+      PartitionVariables pvFrom = vipFrom.partVariables;
       for (int i=0; i<vipFrom.nparts; i++)
-        vip.addPartition(vipFrom.partnoSA.get(i), vipFrom.groupnoSA.get(i), vipFrom.varnoSA.get(i), 0, 0, 0, vipFrom);
+        vip.addPartition(pvFrom.getPartno().get(i), pvFrom.getGroupno().get(i), pvFrom.getVarno().get(i), 0, 0, 0, vipFrom);
     }
 
     return vip;
@@ -0,0 +1,211 @@
+/*
+ * Copyright 1998-2014 University Corporation for Atmospheric Research/Unidata
+ *
+ *   Portions of this software were developed by the Unidata Program at the
+ *   University Corporation for Atmospheric Research.
+ *
+ *   Access and use of this software shall impose the following obligations
+ *   and understandings on the user. The user is granted the right, without
+ *   any fee or cost, to use, copy, modify, alter, enhance and distribute
+ *   this software, and any derivative works thereof, and its supporting
+ *   documentation for any purpose whatsoever, provided that this entire
+ *   notice appears in all copies of the software, derivative works and
+ *   supporting documentation.  Further, UCAR requests that the user credit
+ *   UCAR/Unidata in any publications that result from the use of this
+ *   software or in any product that includes this software. The names UCAR
+ *   and/or Unidata, however, may not be used in any advertising or publicity
+ *   to endorse or promote any products or commercial entity unless specific
+ *   written permission is obtained from UCAR/Unidata. The user also
+ *   understands that UCAR/Unidata is not obligated to provide the user with
+ *   any support, consulting, training or assistance of any kind with regard
+ *   to the use, operation and performance of this software nor to provide
+ *   the user with any updates, revisions, new versions or "bug fixes."
+ *
+ *   THIS SOFTWARE IS PROVIDED BY UCAR/UNIDATA "AS IS" AND ANY EXPRESS OR
+ *   IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ *   WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ *   DISCLAIMED. IN NO EVENT SHALL UCAR/UNIDATA BE LIABLE FOR ANY SPECIAL,
+ *   INDIRECT OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING
+ *   FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT,
+ *   NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION
+ *   WITH THE ACCESS, USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package ucar.nc2.grib.collection;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import ucar.coord.SparseArray;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The records of a VariableIndex, stored as one primitive array per field rather than a List of Record objects.
+ * A large partition has millions of records, so this saves most of the heap the records used, and the
+ * garbage of decoding them. get() makes a Record each time it is called.
+ *
+ * @since 10/18/2026
+ */
+@Immutable
+public class RecordArray extends AbstractList<GribCollectionImmutable.Record> implements RandomAccess {
+  static private final int RECORD_BYTES = 4 + 8 + 4 + 4;  // fileno, pos, bmsOffset, drsOffset
+
+  /*
+  message SparseArray {
+    repeated uint32 size = 2 [packed=true];     // multidim sizes = shape[]
+    repeated uint32 track = 3 [packed=true];    // 1-based index into record list, 0 == missing
+    repeated Record records = 4;                // List<Record>
+    uint32 ndups = 5;                           // duplicates found when creating
+  }
+  message Record {
+    uint32 fileno = 1;               // which GRIB file ? key into GC.fileMap
+    uint64 startPos = 2;             // offset in GRIB file of the start of entire message
+    uint32 bmsOffset = 3;            // use alternate bms if non-zero (grib2 only). offset from start
+    uint32 drsOffset = 4;            // offset of drs from start (grib2 only)
+  }
+   */
+
+  /**
+   * Decode an encoded SparseArray message straight into a SparseArray of a RecordArray.
+   * @param b encoded SparseArray message
+   * @return the SparseArray
+   * @throws IOException on bad message
+   */
+  static SparseArray<GribCollectionImmutable.Record> readSparseArray(byte[] b) throws IOException {
+    int n = GribIndexBuffer.countFields(b, GribCollectionProto.SparseArray.RECORDS_FIELD_NUMBER);
+    int[] fileno = new int[n];
+    long[] pos = new long[n];
+    int[] bmsOffset = new int[n];
+    int[] drsOffset = new int[n];
+    IntList size = new IntList(4);
+    IntList track = new IntList(n);
+    int ndups = 0;
+
+    CodedInputStream in = CodedInputStream.newInstance(b);
+    in.setSizeLimit(Integer.MAX_VALUE);
+    int count = 0;
+    while (!in.isAtEnd()) {
+      int tag = in.readTag();
+      switch (WireFormat.getTagFieldNumber(tag)) {
+        case GribCollectionProto.SparseArray.SIZE_FIELD_NUMBER:
+          readUInt32s(in, tag, size);
+          break;
+        case GribCollectionProto.SparseArray.TRACK_FIELD_NUMBER:
+          readUInt32s(in, tag, track);
+          break;
+        case GribCollectionProto.SparseArray.RECORDS_FIELD_NUMBER:
+          int limit = in.pushLimit(in.readRawVarint32());
+          while (!in.isAtEnd()) {
+            int rtag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(rtag)) {
+              case GribCollectionProto.Record.FILENO_FIELD_NUMBER:
+                fileno[count] = in.readUInt32();
+                break;
+              case GribCollectionProto.Record.STARTPOS_FIELD_NUMBER:
+                pos[count] = in.readUInt64();
+                break;
+              case GribCollectionProto.Record.BMSOFFSET_FIELD_NUMBER:
+                bmsOffset[count] = in.readUInt32();
+                break;
+              case GribCollectionProto.Record.DRSOFFSET_FIELD_NUMBER:
+                drsOffset[count] = in.readUInt32();
+                break;
+              default:
+                in.skipField(rtag);
+            }
+          }
+          in.popLimit(limit);
+          count++;
+          break;
+        case GribCollectionProto.SparseArray.NDUPS_FIELD_NUMBER:
+          ndups = in.readUInt32();
+          break;
+        default:
+          in.skipField(tag);
+      }
+    }
+
+    RecordArray records = new RecordArray(fileno, pos, bmsOffset, drsOffset);
+    return new SparseArray<>(size.toArray(), track.toArray(), records, ndups);
+  }
+
+  // packed or not, parsers must accept both
+  static private void readUInt32s(CodedInputStream in, int tag, IntList result) throws IOException {
+    if (WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+      int limit = in.pushLimit(in.readRawVarint32());
+      while (!in.isAtEnd())
+        result.add(in.readUInt32());
+      in.popLimit(limit);
+    } else {
+      result.add(in.readUInt32());
+    }
+  }
+
+  static private class IntList {
+    int[] values;
+    int n;
+
+    IntList(int capacity) {
+      values = new int[Math.max(capacity, 1)];
+    }
+
+    void add(int v) {
+      if (n == values.length) values = Arrays.copyOf(values, 2 * n);
+      values[n++] = v;
+    }
+
+    int[] toArray() {
+      return (n == values.length) ? values : Arrays.copyOf(values, n);
+    }
+  }
+
+  ////////////////////////////////////////////////////////////////////
+
+  private final int[] fileno;
+  private final long[] pos;
+  private final int[] bmsOffset;
+  private final int[] drsOffset;
+
+  public RecordArray(int[] fileno, long[] pos, int[] bmsOffset, int[] drsOffset) {
+    if (pos.length != fileno.length || bmsOffset.length != fileno.length || drsOffset.length != fileno.length)
+      throw new IllegalArgumentException("record arrays must be the same length");
+    this.fileno = fileno;
+    this.pos = pos;
+    this.bmsOffset = bmsOffset;
+    this.drsOffset = drsOffset;
+  }
+
+  @Override
+  public GribCollectionImmutable.Record get(int index) {
+    return new GribCollectionImmutable.Record(fileno[index], pos[index], bmsOffset[index], drsOffset[index]);
+  }
+
+  @Override
+  public int size() {
+    return fileno.length;
+  }
+
+  public int getFileno(int index) {
+    return fileno[index];
+  }
+
+  public long getPos(int index) {
+    return pos[index];
+  }
+
+  public int getBmsOffset(int index) {
+    return bmsOffset[index];
+  }
+
+  public int getDrsOffset(int index) {
+    return drsOffset[index];
+  }
+
+  // estimated memory size in bytes (debugging)
+  public long estMemorySize() {
+    return 64 + (long) size() * RECORD_BYTES;
+  }
+}
@@ -0,0 +1,148 @@
+package ucar.nc2.grib.collection;
+
+import com.google.protobuf.ByteString;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import ucar.unidata.io.RandomAccessFile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Walk a GribCollection message with GribIndexBuffer, mapped and not, and check that the pieces decode to the same
+ * messages as parsing the whole thing, and that the partition variables decode lazily to the same values.
+ */
+public class TestGribIndexBuffer {
+  private static final int NDATASETS = 2, NGROUPS = 3, NVARS = 20, NPARTS = 1500;
+  private static final int OFFSET = 17; // the message doesnt start at the beginning of the file
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @After
+  public void cleanup() {
+    GribCdmIndex.setUseMmap(true);
+  }
+
+  @Test
+  public void testMapped() throws IOException {
+    check();
+  }
+
+  @Test
+  public void testNotMapped() throws IOException {
+    GribCdmIndex.setUseMmap(false);
+    check();
+  }
+
+  private static int partno(int d, int g, int v, int p) {
+    return (v % 2 == 0) ? p : (d + g + v) * p % 1001; // some sequential, some not
+  }
+
+  private GribCollectionProto.GribCollection makeCollection() {
+    GribCollectionProto.GribCollection.Builder gcb = GribCollectionProto.GribCollection.newBuilder()
+            .setName("test").setTopDir("/data").setCenter(7).setVersion(3)
+            .addMfiles(GribCollectionProto.MFile.newBuilder().setFilename("a.grib2").setIndex(0).setLength(99))
+            .addPartitions(GribCollectionProto.Partition.newBuilder().setName("p0").setFilename("p0.ncx4"))
+            .setIsPartitionOfPartitions(true)
+            .addRun2Part(1).addRun2Part(2);
+    for (int d = 0; d < NDATASETS; d++) {
+      GribCollectionProto.Dataset.Builder db = GribCollectionProto.Dataset.newBuilder()
+              .setType(d == 0 ? GribCollectionProto.Dataset.Type.TwoD : GribCollectionProto.Dataset.Type.Best);
+      for (int g = 0; g < NGROUPS; g++) {
+        GribCollectionProto.Group.Builder gb = GribCollectionProto.Group.newBuilder()
+                .setGds(GribCollectionProto.Gds.newBuilder().setGds(ByteString.copyFrom(new byte[]{1, 2, (byte) g})))
+                .addCoords(GribCollectionProto.Coord.newBuilder().setCode(g).setUnit("hours").addValues(1.5f))
+                .addFileno(g);
+        for (int v = 0; v < NVARS; v++) {
+          GribCollectionProto.Variable.Builder vb = GribCollectionProto.Variable.newBuilder()
+                  .setDiscipline(v).setPds(ByteString.copyFrom(new byte[]{(byte) v, 9})).setRecordsPos(1000L * v + g)
+                  .setRecordsLen(v).addCoordIdx(0).setNrecords(v * 3);
+          for (int p = 0; p < NPARTS; p++)
+            vb.addPartVariable(GribCollectionProto.PartitionVariable.newBuilder()
+                    .setPartno(partno(d, g, v, p)).setGroupno(g).setVarno(v + p % 3).setNrecords(p));
+          gb.addVariables(vb);
+        }
+        db.addGroups(gb);
+      }
+      gcb.addDataset(db);
+    }
+    return gcb.build();
+  }
+
+  private void check() throws IOException {
+    GribCollectionProto.GribCollection gc = makeCollection();
+    byte[] bytes = gc.toByteArray();
+    Assert.assertTrue(bytes.length > 1024 * 1024); // big enough to be mapped
+
+    File file = tempFolder.newFile("test.ncx4");
+    try (OutputStream out = new FileOutputStream(file)) {
+      out.write(new byte[OFFSET]);
+      out.write(bytes);
+    }
+
+    try (RandomAccessFile raf = new RandomAccessFile(file.getPath(), "r")) {
+      raf.seek(OFFSET);
+      GribIndexBuffer m = GribIndexBuffer.read(raf, bytes.length);
+      Assert.assertEquals(OFFSET + bytes.length, raf.getFilePointer());
+
+      int datasetField = GribCollectionProto.GribCollection.DATASET_FIELD_NUMBER;
+      Assert.assertEquals(gc.toBuilder().clearDataset().build(), GribCollectionProto.GribCollection.parseFrom(m.copyFieldsExcept(datasetField)));
+
+      List<GribIndexBuffer> datasets = m.getMessages(datasetField);
+      Assert.assertEquals(NDATASETS, datasets.size());
+      for (int d = 0; d < NDATASETS; d++) {
+        GribCollectionProto.Dataset ds = gc.getDataset(d);
+        GribIndexBuffer dm = datasets.get(d);
+        Assert.assertEquals(ds.getType(), GribCollectionProto.Dataset.parseFrom(dm.copyFieldsExcept(GribCollectionProto.Dataset.GROUPS_FIELD_NUMBER)).getType());
+
+        List<GribIndexBuffer> groups = dm.getMessages(GribCollectionProto.Dataset.GROUPS_FIELD_NUMBER);
+        Assert.assertEquals(NGROUPS, groups.size());
+        for (int g = 0; g < NGROUPS; g++) {
+          GribCollectionProto.Group group = ds.getGroups(g);
+          GribIndexBuffer gm = groups.get(g);
+          Assert.assertEquals(group.toBuilder().clearVariables().build(),
+                  GribCollectionProto.Group.parseFrom(gm.copyFieldsExcept(GribCollectionProto.Group.VARIABLES_FIELD_NUMBER)));
+
+          List<GribIndexBuffer> vars = gm.getMessages(GribCollectionProto.Group.VARIABLES_FIELD_NUMBER);
+          Assert.assertEquals(NVARS, vars.size());
+          for (int v = 0; v < NVARS; v++)
+            checkVariable(group.getVariables(v), vars.get(v), d, g, v);
+        }
+      }
+    }
+  }
+
+  private void checkVariable(GribCollectionProto.Variable var, GribIndexBuffer vm, int d, int g, int v) throws IOException {
+    int partField = GribCollectionProto.Variable.PARTVARIABLE_FIELD_NUMBER;
+    Assert.assertEquals(var.toBuilder().clearPartVariable().build(), GribCollectionProto.Variable.parseFrom(vm.copyFieldsExcept(partField)));
+
+    byte[] encoded = vm.copyFields(partField);
+    Assert.assertEquals(NPARTS, GribIndexBuffer.countFields(encoded, partField));
+    Assert.assertEquals(var.getPartVariableList(), GribCollectionProto.Variable.parseFrom(encoded).getPartVariableList());
+
+    PartitionCollectionMutable.PartitionVariables pv = new PartitionCollectionMutable.PartitionVariables(encoded, NPARTS);
+    Assert.assertFalse(pv.isDecoded());
+    for (int p = 0; p < NPARTS; p++) {
+      Assert.assertEquals(partno(d, g, v, p), pv.getPartno().get(p));
+      Assert.assertEquals(g, pv.getGroupno().get(p));
+      Assert.assertEquals(v + p % 3, pv.getVarno().get(p));
+    }
+    Assert.assertTrue(pv.isDecoded());
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncated() throws IOException {
+    byte[] encoded = GribCollectionProto.Variable.newBuilder()
+            .addPartVariable(GribCollectionProto.PartitionVariable.newBuilder().setPartno(3).setVarno(300)).build().toByteArray();
+    byte[] truncated = new byte[encoded.length - 1];
+    System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+    GribIndexBuffer.countFields(truncated, GribCollectionProto.Variable.PARTVARIABLE_FIELD_NUMBER);
+  }
+}
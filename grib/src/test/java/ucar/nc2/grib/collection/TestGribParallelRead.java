@@ -0,0 +1,96 @@
+package ucar.nc2.grib.collection;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.ma2.Index;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Section;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decode GRIB records in parallel and check the values.
+ * multiRecord.grib2 has 12 messages on a 5 x 7 grid, one per forecast hour t, each with two fields:
+ * <pre>
+ *   Temperature_surface(t, y, x) = 100 * t + 7 * y + x, with its own bitmap
+ *   Potential_temperature_surface(t, y, x) = 1000 + 100 * t + 7 * y + x, using the previous bitmap (indicator 254)
+ * </pre>
+ * where the point is missing when (7 * y + x + t) % 7 == 0.
+ */
+public class TestGribParallelRead {
+  private static final String filename = "../grib/src/test/data/multiRecord.grib2";
+  private ExecutorService pool;
+  private AtomicInteger ntasks = new AtomicInteger();
+
+  @Before
+  public void setup() {
+    pool = Executors.newFixedThreadPool(4);
+    GribDataReader.setDecodeExecutor(r -> { ntasks.incrementAndGet(); pool.execute(r); }, 3);
+  }
+
+  @After
+  public void cleanup() {
+    GribDataReader.setDecodeExecutor(null, 0);
+    pool.shutdownNow();
+  }
+
+  @Test
+  public void testReadAll() throws IOException, InvalidRangeException {
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      check(ncfile, "Temperature_surface", null, 0);
+      check(ncfile, "Potential_temperature_surface", null, 1000);
+    }
+    Assert.assertEquals(2 * 12, ntasks.get());
+  }
+
+  @Test
+  public void testReadSection() throws IOException, InvalidRangeException {
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      check(ncfile, "Temperature_surface", "1:10:3,1:3,2:6:2", 0);
+      check(ncfile, "Potential_temperature_surface", "5,:,4", 1000);
+    }
+    Assert.assertEquals(4 + 1, ntasks.get());
+  }
+
+  @Test
+  public void testSerialAndParallelAgree() throws IOException, InvalidRangeException {
+    GribDataReader.setDecodeExecutor(null, 0);
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      check(ncfile, "Temperature_surface", null, 0);
+      check(ncfile, "Potential_temperature_surface", "0:11:2,:,:", 1000);
+    }
+    Assert.assertEquals(0, ntasks.get());
+  }
+
+  private void check(NetcdfFile ncfile, String varName, String spec, int offset) throws IOException, InvalidRangeException {
+    Variable v = ncfile.findVariable(varName);
+    Assert.assertNotNull(varName, v);
+    v.setCaching(false); // small enough to be cached, which would read all the records
+    Section section = (spec == null) ? new Section(v.getShape()) : Section.fill(new Section(spec), v.getShape());
+    Array data = v.read(section);
+    Assert.assertArrayEquals(section.getShape(), data.getShape());
+
+    Index ima = data.getIndex();
+    for (int i = 0; i < section.getShape(0); i++) {
+      for (int j = 0; j < section.getShape(1); j++) {
+        for (int k = 0; k < section.getShape(2); k++) {
+          int t = section.getRange(0).element(i);
+          int pt = 7 * section.getRange(1).element(j) + section.getRange(2).element(k);
+          float val = data.getFloat(ima.set(i, j, k));
+          if ((pt + t) % 7 == 0)
+            Assert.assertTrue(varName + " " + t + " " + pt, Float.isNaN(val));
+          else
+            Assert.assertEquals(varName + " " + t + " " + pt, offset + 100 * t + pt, val, 0.0f);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package ucar.nc2.grib.collection;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.Variable;
+import ucar.nc2.util.cache.DecodedDataCache;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test the cache of decoded GRIB records, with serial and parallel decoding.
+ * multiRecord.grib2 has 12 records for each of its 2 variables, see TestGribParallelRead.
+ */
+public class TestGribRecordCache {
+  private static final String filename = "../grib/src/test/data/multiRecord.grib2";
+
+  @Before
+  public void setup() {
+    GribDataReader.initRecordCache(10 * 1000 * 1000);
+  }
+
+  @After
+  public void cleanup() {
+    GribDataReader.disableRecordCache();
+    GribDataReader.setDecodeExecutor(null, 0);
+  }
+
+  @Test
+  public void testHitsAndMisses() throws IOException {
+    DecodedDataCache<float[]> cache = GribDataReader.getRecordCache();
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      Array first = read(ncfile, "Temperature_surface");
+      Assert.assertEquals(12, cache.getMisses());
+      Assert.assertEquals(0, cache.getHits());
+      Assert.assertEquals(12 * 35 * 4, cache.getCacheBytes());
+
+      Array again = read(ncfile, "Temperature_surface");
+      Assert.assertEquals(12, cache.getMisses());
+      Assert.assertEquals(12, cache.getHits());
+      Assert.assertArrayEquals((float[]) first.getStorage(), (float[]) again.getStorage(), 0.0f);
+
+      read(ncfile, "Potential_temperature_surface");
+      Assert.assertEquals(24, cache.getMisses());
+    }
+
+    // reopening the file sees the same records
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      read(ncfile, "Potential_temperature_surface");
+      Assert.assertEquals(24, cache.getMisses());
+      Assert.assertEquals(24, cache.getHits());
+    }
+
+    cache.clearCache();
+    Assert.assertEquals(0, cache.getCacheBytes());
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    GribDataReader.initRecordCache(5 * 35 * 4);
+    DecodedDataCache<float[]> cache = GribDataReader.getRecordCache();
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      read(ncfile, "Temperature_surface");
+    }
+    Assert.assertTrue(cache.getEvictions() > 0);
+    Assert.assertTrue(cache.getCacheBytes() <= cache.getMaxBytes());
+  }
+
+  @Test
+  public void testWithParallelDecode() throws IOException {
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    AtomicInteger ntasks = new AtomicInteger();
+    GribDataReader.setDecodeExecutor(r -> { ntasks.incrementAndGet(); pool.execute(r); }, 4);
+    DecodedDataCache<float[]> cache = GribDataReader.getRecordCache();
+
+    try (NetcdfFile ncfile = NetcdfFile.open(filename)) {
+      Array first = read(ncfile, "Temperature_surface");
+      Assert.assertEquals(12, ntasks.get());
+      Assert.assertEquals(12, cache.getMisses());
+
+      // all in the cache, so nothing to decode
+      Array again = read(ncfile, "Temperature_surface");
+      Assert.assertEquals(12, ntasks.get());
+      Assert.assertEquals(12, cache.getHits());
+      Assert.assertArrayEquals((float[]) first.getStorage(), (float[]) again.getStorage(), 0.0f);
+
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private Array read(NetcdfFile ncfile, String varName) throws IOException {
+    Variable v = ncfile.findVariable(varName);
+    Assert.assertNotNull(varName, v);
+    v.setCaching(false);
+    return v.read();
+  }
+}
@@ -0,0 +1,117 @@
+package ucar.nc2.grib.collection;
+
+import com.google.protobuf.CodedOutputStream;
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.coord.SparseArray;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decode SparseArray messages into a RecordArray, and check against the generated parser.
+ */
+public class TestRecordArray {
+
+  private GribCollectionProto.SparseArray makeProto(int nx, int ny) {
+    GribCollectionProto.SparseArray.Builder b = GribCollectionProto.SparseArray.newBuilder().addSize(nx).addSize(ny).setNdups(3);
+    int nrecords = 0;
+    for (int i = 0; i < nx * ny; i++) {
+      if (i % 5 == 3) {
+        b.addTrack(0); // missing
+        continue;
+      }
+      b.addTrack(++nrecords);
+      b.addRecords(GribCollectionProto.Record.newBuilder().setFileno(i % 7).setStartPos(10L * Integer.MAX_VALUE + i)
+              .setBmsOffset(i % 2 == 0 ? 0 : 100 + i).setDrsOffset(i % 300));
+    }
+    return b.build();
+  }
+
+  private void check(GribCollectionProto.SparseArray proto, SparseArray<GribCollectionImmutable.Record> sa) {
+    Assert.assertArrayEquals(new int[]{proto.getSize(0), proto.getSize(1)}, sa.getShape());
+    Assert.assertEquals(proto.getNdups(), sa.getNdups());
+    Assert.assertEquals(proto.getTrackCount(), sa.getTotalSize());
+    Assert.assertEquals(proto.getRecordsCount(), sa.getContent().size());
+    for (int i = 0; i < proto.getTrackCount(); i++) {
+      Assert.assertEquals(proto.getTrack(i), sa.getTrack(i));
+      GribCollectionImmutable.Record r = sa.getContent(i);
+      if (proto.getTrack(i) == 0) {
+        Assert.assertNull(r);
+        continue;
+      }
+      GribCollectionProto.Record pr = proto.getRecords(proto.getTrack(i) - 1);
+      Assert.assertEquals(pr.getFileno(), r.fileno);
+      Assert.assertEquals(pr.getStartPos(), r.pos);
+      Assert.assertEquals(pr.getBmsOffset(), r.bmsOffset);
+      Assert.assertEquals(pr.getDrsOffset(), r.drsOffset);
+    }
+  }
+
+  @Test
+  public void testDecode() throws IOException {
+    GribCollectionProto.SparseArray proto = makeProto(37, 41);
+    SparseArray<GribCollectionImmutable.Record> sa = RecordArray.readSparseArray(proto.toByteArray());
+    Assert.assertTrue(sa.getContent() instanceof java.util.RandomAccess);
+    check(proto, sa);
+  }
+
+  @Test
+  public void testUnpacked() throws IOException {
+    GribCollectionProto.SparseArray proto = makeProto(3, 4);
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    CodedOutputStream out = CodedOutputStream.newInstance(bout);
+    for (int size : proto.getSizeList())
+      out.writeUInt32(GribCollectionProto.SparseArray.SIZE_FIELD_NUMBER, size);
+    for (GribCollectionProto.Record r : proto.getRecordsList())
+      out.writeMessage(GribCollectionProto.SparseArray.RECORDS_FIELD_NUMBER, r);
+    for (int track : proto.getTrackList())
+      out.writeUInt32(GribCollectionProto.SparseArray.TRACK_FIELD_NUMBER, track);
+    out.writeUInt32(GribCollectionProto.SparseArray.NDUPS_FIELD_NUMBER, proto.getNdups());
+    out.flush();
+    check(proto, RecordArray.readSparseArray(bout.toByteArray()));
+  }
+
+  @Test
+  public void testEmpty() throws IOException {
+    GribCollectionProto.SparseArray proto = GribCollectionProto.SparseArray.newBuilder().addSize(2).addTrack(0).addTrack(0).build();
+    SparseArray<GribCollectionImmutable.Record> sa = RecordArray.readSparseArray(proto.toByteArray());
+    Assert.assertEquals(0, sa.getContent().size());
+    Assert.assertNull(sa.getContent(1));
+  }
+
+  // a million records, read concurrently
+  @Test
+  public void testMillion() throws Exception {
+    GribCollectionProto.SparseArray proto = makeProto(1000, 1250);
+    SparseArray<GribCollectionImmutable.Record> sa = RecordArray.readSparseArray(proto.toByteArray());
+    Assert.assertEquals(1000 * 1000, sa.getContent().size());
+
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Long>> results = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        results.add(pool.submit(() -> {
+          long sum = 0;
+          for (int i = 0; i < sa.getTotalSize(); i++) {
+            GribCollectionImmutable.Record r = sa.getContent(i);
+            if (r != null) sum += r.pos - 10L * Integer.MAX_VALUE;
+          }
+          return sum;
+        }));
+      }
+      long want = 0;
+      for (int i = 0; i < 1000 * 1250; i++)
+        if (i % 5 != 3) want += i;
+      for (Future<Long> f : results)
+        Assert.assertEquals(want, f.get().longValue());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+}
@@ -3,6 +3,8 @@
  */
 package ucar.nc2.dods;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import opendap.dap.*;
 import opendap.dap.parsers.ParseException;
 import ucar.nc2.constants.CF;
@@ -23,6 +25,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.channels.WritableByteChannel;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Access to DODS datasets through the Netcdf API.
@@ -136,6 +139,31 @@ public class DODSNetcdfFile extends ucar.nc2.NetcdfFile implements Closeable
     preloadCoordVarSize = size;
   }
 
+  static private int maxConstraintLength = 4000;
+  static private long defaultResponseCacheSize = 0;
+
+  /**
+   * Set the maximum length of the constraint expression sent in one request, when combining several
+   * variable reads. Reads are split over as many requests as needed, since servers limit the URL length.
+   *
+   * @param length maximum number of characters in the constraint expression (default 4000)
+   */
+  static public void setMaxConstraintLength(int length)
+  {
+    maxConstraintLength = length;
+  }
+
+  /**
+   * Set the size of the response cache of DODSNetcdfFiles opened after this call.
+   *
+   * @param maxBytes maximum total size of the cached data; 0 means no cache (default)
+   * @see #setResponseCacheSize(long)
+   */
+  static public void setDefaultResponseCacheSize(long maxBytes)
+  {
+    defaultResponseCacheSize = maxBytes;
+  }
+
   /**
    * Create the canonical form of the URL.
    * If the urlName starts with "http:" or "https:", change it to start with "dods:", otherwise
@@ -158,6 +186,9 @@ public class DODSNetcdfFile extends ucar.nc2.NetcdfFile implements Closeable
   //////////////////////////////////////////////////////////////////////////////////
   private ConvertD2N convertD2N = new ConvertD2N();
   private DConnect2 dodsConnection = null;
+  private Cache<String, Array> responseCache = makeResponseCache(defaultResponseCacheSize);
+  private final AtomicInteger serverCalls = new AtomicInteger();
+  private final AtomicInteger cacheHits = new AtomicInteger(); // reads dont lock the file
   private DDS dds;
   private DAS das;
 
@@ -1411,6 +1442,62 @@ public class DODSNetcdfFile extends ucar.nc2.NetcdfFile implements Closeable
 
   /////////////////////////////////////////////////////////////////////////////////////
 
+  /**
+   * Keep the data of variable reads in memory, keyed by the constraint expression of each variable,
+   * so that reading the same section again does not go to the server. Use only when the dataset does not change.
+   * A read found in the cache returns a copy of the cached data; the read that puts it in the cache returns the cached
+   * Array itself, which must then not be modified. Structures and sequences are not cached, since they cant be copied.
+   *
+   * @param maxBytes maximum total size of the cached data; 0 removes the cache
+   */
+  public void setResponseCacheSize(long maxBytes)
+  {
+    responseCache = makeResponseCache(maxBytes);
+  }
+
+  private static Cache<String, Array> makeResponseCache(long maxBytes)
+  {
+    if (maxBytes <= 0) return null;
+    return CacheBuilder.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((String key, Array data) -> (int) Math.min(data.getSizeBytes(), Integer.MAX_VALUE))
+            .build();
+  }
+
+  /**
+   * @return number of data requests sent to the server
+   */
+  public int getServerCalls()
+  {
+    return serverCalls.get();
+  }
+
+  /**
+   * @return number of variable reads found in the response cache
+   */
+  public int getCacheHits()
+  {
+    return cacheHits.get();
+  }
+
+  private Array getCachedData(String ce)
+  {
+    if (responseCache == null) return null;
+    Array data = responseCache.getIfPresent(ce);
+    if (data == null) return null;
+    cacheHits.incrementAndGet();
+    return data.copy(); // caller may modify it
+  }
+
+  private Array putCachedData(String ce, Array data)
+  {
+    if (responseCache == null || data == null) return data;
+    if (data.getDataType() == DataType.STRUCTURE || data.getDataType() == DataType.SEQUENCE)
+      return data; // ArrayStructure.copy() isnt supported
+    responseCache.put(ce, data);
+    return data;
+  }
+
   /**
    * This does the actual connection to the opendap server and reading of the data.
    * All data calls go through here so we can add debugging.
@@ -1433,6 +1520,7 @@ public class DODSNetcdfFile extends ucar.nc2.NetcdfFile implements Closeable
       CE = "?" + CE;
     DataDDS data;
     synchronized (this) {
+      serverCalls.incrementAndGet();
       data = dodsConnection.getData(CE, null);
     }
     if (debugTime)
@@ -1474,20 +1562,22 @@ public class DODSNetcdfFile extends ucar.nc2.NetcdfFile implements Closeable
     }
     Collections.sort(reqDodsVlist); // "depth first" order
 
-    // read the data
+    // read the data, in as few requests as the constraint length allows
     DataDDS dataDDS;
     Map<DodsV, DodsV> map = new HashMap<DodsV, DodsV>(2 * reqDodsVlist.size() + 1);
-    if (reqDodsVlist.size() > 0) {
+    int next = 0;
+    while (next < reqDodsVlist.size()) {
 
       // Create the request
       StringBuilder requestString = new StringBuilder();
-      for (int i = 0; i < reqDodsVlist.size(); i++) {
-        DodsV dodsV = reqDodsVlist.get(i);
-        requestString.append(i == 0 ? "?" : ",");
-        // requestString.append(makeDODSname(dodsV));
-        requestString.append(dodsV.getEncodedName());
+      int first = next;
+      while (next < reqDodsVlist.size()) {
+        String name = reqDodsVlist.get(next).getEncodedName();
+        if (next > first && requestString.length() + name.length() >= maxConstraintLength) break;
+        requestString.append(next == first ? "?" : ",");
+        requestString.append(name);
+        next++;
       }
-      String s = requestString.toString();
 
       try {
         dataDDS = readDataDDSfromServer(requestString.toString());
@@ -1499,7 +1589,7 @@ public class DODSNetcdfFile extends ucar.nc2.NetcdfFile implements Closeable
       }
 
       // gotta find the corresponding data in "depth first" order
-      for (DodsV ddsV : reqDodsVlist) {
+      for (DodsV ddsV : reqDodsVlist.subList(first, next)) {
         DodsV dataV = root.findDataV(ddsV);
         if (dataV != null) {
           if (debugConvertData) System.out.println("readArray found dataV= " + makeDODSname(ddsV));
@@ -1584,8 +1674,36 @@ public class DODSNetcdfFile extends ucar.nc2.NetcdfFile implements Closeable
 
     // LOOK: what if theres already a CE !!!!
     // create the constraint expression
+    String ce = makeConstraint(v, section);
+    Array dataArray = getCachedData(ce);
+    if (dataArray != null)
+      return dataArray;
+
+    try {
+      // DodsV root = DodsV.parseDDS( readDataDDSfromServer(buff.toString()));
+      // data = convertD2N( (DodsV) root.children.get(0), v, section, false); // can only be one
+
+      DataDDS dataDDS = readDataDDSfromServer(ce);
+      DodsV root = DodsV.parseDataDDS(dataDDS);
+      DodsV want = root.children.get(0); // can only be one
+      dataArray = convertD2N.convertTopVariable(v, section.getRanges(), want);
+
+    } catch (DAP2Exception ex) {
+      ex.printStackTrace();
+      throw new IOException(ex.getMessage() + "; " + v.getShortName() + " -- " + section);
+
+    } catch (ParseException ex) {
+      ex.printStackTrace();
+      throw new IOException(ex.getMessage());
+    }
+
+    return putCachedData(ce, dataArray);
+  }
+
+  // the constraint expression for a section of a top level variable
+  private String makeConstraint(Variable v, Section section)
+  {
     StringBuilder buff = new StringBuilder(100);
-    buff.setLength(0);
     buff.append(getDODSConstraintName(v));
 
     // add the selector if not a Sequence
@@ -1598,27 +1716,97 @@ public class DODSNetcdfFile extends ucar.nc2.NetcdfFile implements Closeable
       }
       makeSelector(buff, dodsSection);
     }
+    return buff.toString();
+  }
 
-    Array dataArray;
-    try {
-      // DodsV root = DodsV.parseDDS( readDataDDSfromServer(buff.toString()));
-      // data = convertD2N( (DodsV) root.children.get(0), v, section, false); // can only be one
+  /**
+   * Read several sections in as few client/server roundtrips as possible, by combining them into one
+   * constraint expression. A variable can only appear once in a request, so several sections of the same
+   * variable take several requests. Sections of structure members are read one at a time.
+   *
+   * @param variableSections section specifications, as in readSection()
+   * @return the data for each section, in the same order
+   * @throws IOException on read error
+   * @throws InvalidRangeException if a section spec is invalid
+   * @see ucar.nc2.NetcdfFile#readSection(String)
+   */
+  public List<Array> readSections(List<String> variableSections) throws IOException, InvalidRangeException
+  {
+    int n = variableSections.size();
+    Array[] result = new Array[n];
+    ParsedSectionSpec[] cers = new ParsedSectionSpec[n];
+    String[] ces = new String[n];
+
+    // find what has to be read
+    List<Integer> todo = new ArrayList<Integer>();
+    for (int i = 0; i < n; i++) {
+      ParsedSectionSpec cer = ParsedSectionSpec.parseVariableSection(this, variableSections.get(i));
+      cers[i] = cer;
+      if (cer.child != null || cer.v.isMemberOfStructure()) {
+        result[i] = readSection(variableSections.get(i));
+        continue;
+      }
+      ces[i] = makeConstraint(cer.v, cer.section);
+      result[i] = getCachedData(ces[i]);
+      if (result[i] == null)
+        todo.add(i);
+    }
+
+    while (!todo.isEmpty()) {
+      // each variable once, and not too long
+      List<Integer> batch = new ArrayList<Integer>();
+      List<Integer> later = new ArrayList<Integer>();
+      Set<Variable> vars = new HashSet<Variable>();
+      int length = 0;
+      for (int i : todo) {
+        boolean fits = batch.isEmpty() || length + ces[i].length() < maxConstraintLength;
+        if (fits && vars.add(cers[i].v)) {
+          batch.add(i);
+          length += ces[i].length() + 1;
+        } else {
+          later.add(i);
+        }
+      }
 
-      DataDDS dataDDS = readDataDDSfromServer(buff.toString());
-      DodsV root = DodsV.parseDataDDS(dataDDS);
-      DodsV want = root.children.get(0); // can only be one
-      dataArray = convertD2N.convertTopVariable(v, section.getRanges(), want);
+      if (batch.size() == 1) {
+        int i = batch.get(0);
+        result[i] = readData(cers[i].v, cers[i].section);
 
-    } catch (DAP2Exception ex) {
-      ex.printStackTrace();
-      throw new IOException(ex.getMessage() + "; " + v.getShortName() + " -- " + section);
+      } else {
+        StringBuilder requestString = new StringBuilder();
+        for (int i : batch) {
+          requestString.append(requestString.length() == 0 ? "?" : ",");
+          requestString.append(ces[i]);
+        }
 
-    } catch (ParseException ex) {
-      ex.printStackTrace();
-      throw new IOException(ex.getMessage());
+        DodsV root;
+        try {
+          root = DodsV.parseDataDDS(readDataDDSfromServer(requestString.toString()));
+        } catch (DAP2Exception | ParseException exc) {
+          logger.error("ERROR readDataDDSfromServer on " + requestString, exc);
+          throw new IOException(exc.getMessage());
+        }
+
+        for (int i : batch) {
+          Variable v = cers[i].v;
+          Object spObject = v.getSPobject();
+          DodsV dataV = (spObject instanceof DodsV) ? root.findDataV((DodsV) spObject) : null;
+          if (dataV == null) { // not where we expect it, so ask for it alone
+            result[i] = readData(v, cers[i].section);
+            continue;
+          }
+          try {
+            result[i] = putCachedData(ces[i], convertD2N.convertTopVariable(v, cers[i].section.getRanges(), dataV));
+          } catch (DAP2Exception de) {
+            logger.error("ERROR convertVariable on " + v.getFullName(), de);
+            throw new IOException(de.getMessage());
+          }
+        }
+      }
+      todo = later;
     }
 
-    return dataArray;
+    return Arrays.asList(result);
   }
 
   @Override
@@ -0,0 +1,97 @@
+package ucar.nc2.dods;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import ucar.ma2.Array;
+import ucar.ma2.InvalidRangeException;
+import ucar.ma2.MAMath;
+import ucar.nc2.Variable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read several sections of the dts server test.03 in one request, and from the response cache.
+ */
+public class TestDODSReadSections {
+  private static final List<String> specs = Arrays.asList("b", "i16(0,:,:)", "i32(1,:,0:1)", "f32", "f64(:,1,:)", "i32(0,:,:)", "ui16");
+
+  @After
+  public void cleanup() {
+    DODSNetcdfFile.setMaxConstraintLength(4000);
+  }
+
+  @Test
+  public void testReadSections() throws IOException, InvalidRangeException {
+    try (DODSNetcdfFile dodsfile = TestDODSRead.open("test.03")) {
+      int calls = dodsfile.getServerCalls();
+      List<Array> result = dodsfile.readSections(specs);
+      Assert.assertEquals(2, dodsfile.getServerCalls() - calls); // i32 is asked for twice
+      check(dodsfile, result);
+    }
+  }
+
+  @Test
+  public void testMaxConstraintLength() throws IOException, InvalidRangeException {
+    DODSNetcdfFile.setMaxConstraintLength(20);
+    try (DODSNetcdfFile dodsfile = TestDODSRead.open("test.03")) {
+      int calls = dodsfile.getServerCalls();
+      List<Array> result = dodsfile.readSections(specs);
+      Assert.assertTrue(dodsfile.getServerCalls() - calls > 2);
+      check(dodsfile, result);
+    }
+  }
+
+  @Test
+  public void testResponseCache() throws IOException, InvalidRangeException {
+    try (DODSNetcdfFile dodsfile = TestDODSRead.open("test.03")) {
+      dodsfile.setResponseCacheSize(1000 * 1000);
+      List<Array> first = dodsfile.readSections(specs);
+
+      int calls = dodsfile.getServerCalls();
+      int hits = dodsfile.getCacheHits();
+      List<Array> second = dodsfile.readSections(specs);
+      Assert.assertEquals(calls, dodsfile.getServerCalls());
+      Assert.assertEquals(hits + specs.size(), dodsfile.getCacheHits());
+      for (int i = 0; i < specs.size(); i++)
+        Assert.assertTrue(specs.get(i), MAMath.equals(first.get(i), second.get(i)));
+
+      // the cache hands out copies
+      second.get(0).setDouble(0, 99);
+      Assert.assertTrue(MAMath.equals(first.get(0), dodsfile.readSection(specs.get(0))));
+    }
+  }
+
+  @Test
+  public void testResponseCacheStructures() throws IOException, InvalidRangeException {
+    // ArrayStructure cant be copied, so structures and sequences are not cached
+    try (DODSNetcdfFile dodsfile = TestDODSRead.open("test.21")) {
+      dodsfile.setResponseCacheSize(1000 * 1000);
+      Variable v = dodsfile.findVariable("exp");
+      Array first = v.read();
+      int calls = dodsfile.getServerCalls();
+      Array second = v.read();
+      Assert.assertEquals(calls + 1, dodsfile.getServerCalls());
+      Assert.assertEquals(first.getSize(), second.getSize());
+      Assert.assertEquals(0, dodsfile.getCacheHits());
+    }
+    try (DODSNetcdfFile dodsfile = TestDODSRead.open("test.07")) {
+      dodsfile.setResponseCacheSize(1000 * 1000);
+      List<Array> result = dodsfile.readSections(Arrays.asList("person", "types"));
+      Assert.assertEquals(2, result.size());
+      Assert.assertNotNull(dodsfile.findVariable("person").read());
+    }
+  }
+
+  private void check(DODSNetcdfFile dodsfile, List<Array> result) throws IOException, InvalidRangeException {
+    Assert.assertEquals(specs.size(), result.size());
+    List<Array> expect = new ArrayList<>();
+    for (String spec : specs)
+      expect.add(dodsfile.readSection(spec));
+    for (int i = 0; i < specs.size(); i++)
+      Assert.assertTrue(specs.get(i), MAMath.equals(expect.get(i), result.get(i)));
+  }
+}
@@ -37,7 +37,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import thredds.server.config.TdsContext;
+import thredds.server.opendap.NcSDArray;
 import thredds.servlet.ServletUtil;
+import ucar.nc2.NetcdfFile;
 import ucar.nc2.dataset.NetcdfDataset;
 
 import java.io.ByteArrayOutputStream;
@@ -48,7 +50,13 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import ucar.nc2.grib.collection.GribCdmIndex;
+import ucar.nc2.grib.collection.GribDataReader;
+import ucar.nc2.iosp.HeaderCache;
+import ucar.nc2.iosp.ReadPlanner;
+import ucar.nc2.iosp.hdf5.H5iosp;
+import ucar.nc2.util.cache.DecodedDataCache;
 import ucar.nc2.util.cache.FileCacheIF;
+import ucar.unidata.io.CompressedRandomAccessFile;
 import ucar.unidata.io.RandomAccessFile;
 
 /**
@@ -163,6 +171,41 @@ public class DebugCommands {
           fc.showCache(f);
         }
 
+        DecodedDataCache<byte[]> h5cache = H5iosp.getChunkCache();
+        if (h5cache == null) f.format("%nH5ChunkCache : turned off%n");
+        else {
+          f.format("%n%n");
+          h5cache.showCache(f);
+        }
+
+        DecodedDataCache<float[]> gribRecordCache = GribDataReader.getRecordCache();
+        if (gribRecordCache == null) f.format("%nGribRecordCache : turned off%n");
+        else {
+          f.format("%n%n");
+          gribRecordCache.showCache(f);
+        }
+
+        if (HeaderCache.getDiskCache2() == null) f.format("%nHeaderCache : turned off%n");
+        else {
+          f.format("%n%n");
+          HeaderCache.showStats(f);
+        }
+
+        if (!NetcdfFile.getCompressedRandomAccess()) f.format("%nCompressedRandomAccessFile : turned off%n");
+        else {
+          f.format("%n%n");
+          CompressedRandomAccessFile.showStats(f);
+        }
+
+        if (ReadPlanner.getMaxGap() < 0) f.format("%nReadPlanner : turned off%n");
+        else {
+          f.format("%n%n");
+          ReadPlanner.showStats(f);
+        }
+
+        f.format("%n%n");
+        NcSDArray.showStats(f);
+
         e.pw.flush();
       }
     };
@@ -174,6 +217,10 @@ public class DebugCommands {
          RandomAccessFile.getGlobalFileCache().clearCache(false);
          FileCacheIF fc = GribCdmIndex.gribCollectionCache;
          if (fc != null) fc.clearCache(false);
+         DecodedDataCache<byte[]> h5cache = H5iosp.getChunkCache();
+         if (h5cache != null) h5cache.clearCache();
+         DecodedDataCache<float[]> gribRecordCache = GribDataReader.getRecordCache();
+         if (gribRecordCache != null) gribRecordCache.clearCache();
          e.pw.println("  ClearCache ok");
        }
      };
@@ -261,6 +308,15 @@ public class DebugCommands {
       }
     };
     debugHandler.addAction(act);
+
+    act = new Action("showIospDetection", "Show time spent finding the IOSP for opened files") {
+      public void doAction(Event e) {
+        Formatter f = new Formatter(e.pw);
+        NetcdfFile.showIospDetectStats(f);
+        f.flush();
+      }
+    };
+    debugHandler.addAction(act);
   }
 
 
@@ -58,6 +58,11 @@ import ucar.nc2.NetcdfFile;
 import ucar.nc2.dataset.NetcdfDataset;
 import ucar.nc2.grib.GribIndexCache;
 import ucar.nc2.grib.collection.GribCdmIndex;
+import ucar.nc2.grib.collection.GribDataReader;
+import ucar.nc2.iosp.HeaderCache;
+import ucar.nc2.iosp.ReadPlanner;
+import ucar.nc2.iosp.hdf5.H5iosp;
+import ucar.nc2.iosp.nexrad2.Level2VolumeScan;
 import ucar.nc2.jni.netcdf.Nc4Iosp;
 import ucar.nc2.ncml.Aggregation;
 import ucar.nc2.stream.CdmRemote;
@@ -66,17 +71,22 @@ import ucar.nc2.util.DebugFlagsImpl;
 import ucar.nc2.util.DiskCache;
 import ucar.nc2.util.DiskCache2;
 import ucar.nc2.util.cache.FileCache;
+import ucar.nc2.util.cache.FileCacheStriped;
 import ucar.unidata.io.RandomAccessFile;
 import ucar.util.prefs.PreferencesExt;
 import ucar.util.prefs.XMLStore;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
 
 /**
  * A Singleton class to initialize and shutdown the CDM/TDS
@@ -116,6 +126,8 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
   @Qualifier("fcTriggerExecutor")
   private ExecutorService executor;  // need this so we can shut it down
 
+  private final List<Runnable> poolShutdowns = new ArrayList<>();  // thread pools made by startPool()
+
   @Autowired
   private AllowedServices allowedServices;
 
@@ -304,6 +316,9 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
     Aggregation.setTypicalDatasetMode(typicalDataset);
     startupLog.info("TdsInit: Aggregation.setTypicalDatasetMode= " + typicalDataset);
 
+    // read the nested datasets of an aggregation in parallel: default is off
+    startPool("Aggregation", (exec, nthreads) -> Aggregation.setExecutor(exec, 2 * nthreads));
+
     ////////////////////////////////////////////////////////////////
     // Disk Caching
     String dir;
@@ -317,6 +332,10 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
     DiskCache.setRootDirectory(dir);
     DiskCache.setCachePolicy(alwaysUse);
     startupLog.info("TdsInit: CdmCache= " + dir + " scour = " + scourSecs + " maxSize = " + maxSize);
+    if (ThreddsConfig.getBoolean("DiskCache.compressedRandomAccess", false)) {
+      NetcdfFile.setCompressedRandomAccess(true);
+      startupLog.info("TdsInit: NetcdfFile.setCompressedRandomAccess= true");
+    }
     if (scourSecs > 0) {
       Calendar c = Calendar.getInstance(); // contains current startup time
       c.add(Calendar.SECOND, scourSecs / 2); // starting in half the scour time
@@ -394,18 +413,26 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
     min = ThreddsConfig.getInt("RandomAccessFile.minFiles", 400);
     max = ThreddsConfig.getInt("RandomAccessFile.maxFiles", 500);
     secs = ThreddsConfig.getSeconds("RandomAccessFile.scour", 11 * 60);
+    boolean striped = ThreddsConfig.getBoolean("RandomAccessFile.striped", false);
     if (max > 0) {
-      RandomAccessFile.setGlobalFileCache(new FileCache("RandomAccessFile", min, max, -1, secs));
-      startupLog.info("TdsInit: RandomAccessFile.initPartitionCache= [" + min + "," + max + "] scour = " + secs);
+      if (striped)
+        RandomAccessFile.setGlobalFileCache(new FileCacheStriped("RandomAccessFile", min, max, -1, secs));
+      else
+        RandomAccessFile.setGlobalFileCache(new FileCache("RandomAccessFile", min, max, -1, secs));
+      startupLog.info("TdsInit: RandomAccessFile.initPartitionCache= [" + min + "," + max + "] scour = " + secs + " striped = " + striped);
     }
 
     // NetcdfFileCache : default is allow 100 - 150 open files, cleanup every 12 minutes
     min = ThreddsConfig.getInt("NetcdfFileCache.minFiles", 100);
     max = ThreddsConfig.getInt("NetcdfFileCache.maxFiles", 150);
     secs = ThreddsConfig.getSeconds("NetcdfFileCache.scour", 12 * 60);
+    striped = ThreddsConfig.getBoolean("NetcdfFileCache.striped", false);
     if (max > 0) {
-      NetcdfDataset.initNetcdfFileCache(min, max, secs);
-      startupLog.info("TdsInit: NetcdfDataset.initNetcdfFileCache= [" + min + "," + max + "] scour = " + secs);
+      if (striped)
+        NetcdfDataset.setNetcdfFileCache(new FileCacheStriped("NetcdfFileCache", min, max, -1, secs));
+      else
+        NetcdfDataset.initNetcdfFileCache(min, max, secs);
+      startupLog.info("TdsInit: NetcdfDataset.initNetcdfFileCache= [" + min + "," + max + "] scour = " + secs + " striped = " + striped);
     }
 
     // GribCollection partitions: default is allow 100 - 150 objects, cleanup every 13 minutes
@@ -417,6 +444,49 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
       startupLog.info("TdsInit: GribCdmIndex.initDefaultCollectionCache= [" + min + "," + max + "] scour = " + secs);
     }
 
+    // HDF5 / netCDF-4 decompressed chunks: default is off
+    long maxBytes = ThreddsConfig.getBytes("HDF5ChunkCache.maxSize", 0);
+    if (maxBytes > 0) {
+      H5iosp.initChunkCache(maxBytes);
+      startupLog.info("TdsInit: H5iosp.initChunkCache= " + maxBytes + " bytes");
+    }
+
+    // HDF5 / netCDF-4 parallel decompression of chunks: default is off
+    startPool("HDF5Decompress", (exec, nthreads) -> H5iosp.setChunkExecutor(exec, 2 * nthreads));
+
+    // GRIB decoded records: default is off
+    maxBytes = ThreddsConfig.getBytes("GribRecordCache.maxSize", 0);
+    if (maxBytes > 0) {
+      GribDataReader.initRecordCache(maxBytes);
+      startupLog.info("TdsInit: GribDataReader.initRecordCache= " + maxBytes + " bytes");
+    }
+
+    // GRIB parallel decoding of records: default is off
+    startPool("GribDecode", (exec, nthreads) -> GribDataReader.setDecodeExecutor(exec, 2 * nthreads));
+
+    // NEXRAD level 2 parallel decompression of bzip2 blocks: default is off
+    startPool("Nexrad2Decompress", (exec, nthreads) -> Level2VolumeScan.setDecompressExecutor(exec, 2 * nthreads));
+
+    // netCDF-3 / HDF5 merging of nearby chunks into one read: default is off; a maxGap >= 0 turns it on
+    ReadPlanner.setMaxGap((int) ThreddsConfig.getBytes("ReadPlanner.maxGap", ReadPlanner.getMaxGap()));
+    ReadPlanner.setMaxReadSize((int) ThreddsConfig.getBytes("ReadPlanner.maxReadSize", ReadPlanner.getMaxReadSize()));
+    startupLog.info("TdsInit: ReadPlanner maxGap= " + ReadPlanner.getMaxGap() + " maxReadSize= " + ReadPlanner.getMaxReadSize());
+
+    // netCDF-3 / HDF5 parallel reads of large requests: default is off
+    startPool("ReadPlanner", (exec, nthreads) -> ReadPlanner.setExecutor(exec));
+
+    // netCDF-3 / HDF5 parsed headers on disk: default is off
+    if (ThreddsConfig.getBoolean("HeaderCache.enabled", false)) {
+      dir = ThreddsConfig.get("HeaderCache.dir", new File(tdsContext.getThreddsDirectory().getPath(), "/cache/header/").getPath());
+      scourSecs = ThreddsConfig.getSeconds("HeaderCache.scour", 24 * 60 * 60);
+      maxAgeSecs = ThreddsConfig.getSeconds("HeaderCache.maxAge", 30 * 24 * 60 * 60);
+      DiskCache2 headerCache = new DiskCache2(dir, false, maxAgeSecs / 60, scourSecs / 60);
+      headerCache.setPolicy(ThreddsConfig.get("HeaderCache.cachePathPolicy", null));
+      headerCache.setAlwaysUseCache(true);
+      HeaderCache.setDiskCache2(headerCache);
+      startupLog.info("TdsInit: HeaderCache= " + dir + " scour = " + scourSecs + " maxAgeSecs = " + maxAgeSecs);
+    }
+
     //RandomAccessFile.enableDefaultGlobalFileCache();
     //RandomAccessFile.setDebugLeaks(true);
 
@@ -437,6 +507,26 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
     configCatalogInitializer.setMaxDatasetToTrack(trackerMax);
   }
 
+  /**
+   * If threddsConfig.xml has name.threads > 0, make a thread pool of that many threads and pass it to setExecutor,
+   * with the number of threads. At shutdown setExecutor is called with null and 0, then the pool is shut down.
+   *
+   * @param name        threddsConfig.xml element with the threads element, eg "GribDecode"
+   * @param setExecutor give the pool to the library
+   */
+  private void startPool(String name, BiConsumer<ExecutorService, Integer> setExecutor) {
+    int nthreads = ThreddsConfig.getInt(name + ".threads", 0);
+    if (nthreads <= 0) return;
+
+    ExecutorService pool = Executors.newFixedThreadPool(nthreads);
+    setExecutor.accept(pool, nthreads);
+    poolShutdowns.add(() -> {
+      setExecutor.accept(null, 0);
+      pool.shutdownNow();
+    });
+    startupLog.info("TdsInit: " + name + " threads= " + nthreads);
+  }
+
   static private class CacheScourTask extends TimerTask {
     long maxBytes;
 
@@ -472,9 +562,13 @@ public class TdsInit implements ApplicationListener<ContextRefreshedEvent>, Disp
     if (cdmDiskCacheTimer != null)
       cdmDiskCacheTimer.cancel();
     FileCache.shutdown();              // this handles background threads for all instances of FileCache
+    FileCacheStriped.shutdown();       // and for all instances of FileCacheStriped
     DiskCache2.exit();                // this handles background threads for all instances of DiskCache2
     thredds.inventory.bdb.MetadataManager.closeAll();
     executor.shutdownNow();
+    for (Runnable shutdown : poolShutdowns)
+      shutdown.run();
+    poolShutdowns.clear();
 
     /* try {
       catalogWatcher.close();
@@ -110,9 +110,6 @@ public class NcssGridController extends AbstractNcssController {
                 " have different vertical levels. Grid requests with vertCoord must have variables with same vertical levels.");
       }
 
-    String responseFile = getResponseFileName(datasetPath, version);
-    File netcdfResult = makeCFNetcdfFile(gcd, responseFile, params, version);
-
     // filename download attachment
     String suffix = version.getSuffix();
     int pos = datasetPath.lastIndexOf("/");
@@ -126,6 +123,24 @@ public class NcssGridController extends AbstractNcssController {
     httpHeaders.set(ContentType.HEADER, sf.getMimeType());
     httpHeaders.set(Constants.Content_Disposition, Constants.setContentDispositionValue(filename));
 
+    SubsetParams subset = params.makeSubset(gcd);
+
+    // netcdf3 is written in order, so it may be sent as its made, without content length (chunked); default is off
+    boolean streamable = (version == NetcdfFileWriter.Version.netcdf3) &&
+            ThreddsConfig.getBoolean("NetcdfSubsetService.streamNetcdf3", false);
+    long estimatedSize = checkSize(gcd, params, subset, version, streamable);
+
+    if (streamable && estimatedSize <= Integer.MAX_VALUE) {
+      setResponseHeaders(res, httpHeaders);
+      NetcdfFileWriter writer = NetcdfFileWriter.createNewStream(res.getOutputStream(), filename);
+      writeCFNetcdfFile(gcd, params, subset, writer);
+      res.flushBuffer();
+      return;
+    }
+
+    String responseFile = getResponseFileName(datasetPath, version);
+    File netcdfResult = makeCFNetcdfFile(gcd, responseFile, params, subset, version);
+
     // set content length
     httpHeaders.set(Constants.Content_Length, Constants.getContentLengthValue(netcdfResult));
 
@@ -137,33 +152,49 @@ public class NcssGridController extends AbstractNcssController {
     res.setStatus(HttpServletResponse.SC_OK);
   }
 
-  File makeCFNetcdfFile(CoverageCollection gcd, String responseFilename, NcssGridParamsBean params, NetcdfFileWriter.Version version)
-          throws NcssException, InvalidRangeException, ParseException, IOException {
+  /**
+   * Find the size of the response before anything is written, if maxFileDownloadSize is set or the response may be streamed,
+   * and test it against maxFileDownloadSize.
+   * @return estimated size in bytes, before any compression, or -1 if not needed
+   */
+  private long checkSize(CoverageCollection gcd, NcssGridParamsBean params, SubsetParams subset, NetcdfFileWriter.Version version,
+                         boolean streamable) throws InvalidRangeException, IOException {
 
-    NetcdfFileWriter writer = NetcdfFileWriter.createNew(version, responseFilename, null); // default chunking - let user control at some point
-    SubsetParams subset = params.makeSubset(gcd);
+    long maxFileDownloadSize = ThreddsConfig.getBytes("NetcdfSubsetService.maxFileDownloadSize", -1L);
+    if (maxFileDownloadSize <= 0 && !streamable)
+      return -1;
+
+    Optional<Long> estimatedSizeo = CFGridCoverageWriter2.writeOrTestSize(gcd, params.getVar(), subset, params.isAddLatLon(), true, null);
+    if (!estimatedSizeo.isPresent())
+      throw new InvalidRangeException("Request contains no data: " + estimatedSizeo.getErrorMessage());
+    long estimatedSize = estimatedSizeo.get();
 
     // Test maxFileDownloadSize
-    long maxFileDownloadSize = ThreddsConfig.getBytes("NetcdfSubsetService.maxFileDownloadSize", -1L);
     if (maxFileDownloadSize > 0) {
-      Optional<Long> estimatedSizeo = CFGridCoverageWriter2.writeOrTestSize(gcd, params.getVar(), subset, params.isAddLatLon(), true, writer);
-      if (!estimatedSizeo.isPresent())
-        throw new InvalidRangeException("Request contains no data: " + estimatedSizeo.getErrorMessage());
-
-      long estimatedSize = estimatedSizeo.get();
+      long downloadSize = estimatedSize;
       if (version == NetcdfFileWriter.Version.netcdf4)
-        estimatedSize /= ESTIMATED_COMPRESION_RATE;
+        downloadSize /= ESTIMATED_COMPRESION_RATE;
 
-      if (estimatedSize > maxFileDownloadSize)
-        throw new RequestTooLargeException("NCSS response too large = " + estimatedSize + " max = " + maxFileDownloadSize);
+      if (downloadSize > maxFileDownloadSize)
+        throw new RequestTooLargeException("NCSS response too large = " + downloadSize + " max = " + maxFileDownloadSize);
     }
+    return estimatedSize;
+  }
+
+  File makeCFNetcdfFile(CoverageCollection gcd, String responseFilename, NcssGridParamsBean params, SubsetParams subset, NetcdfFileWriter.Version version)
+          throws InvalidRangeException, IOException {
+
+    NetcdfFileWriter writer = NetcdfFileWriter.createNew(version, responseFilename, null); // default chunking - let user control at some point
+    writeCFNetcdfFile(gcd, params, subset, writer);
+    return new File(responseFilename);
+  }
+
+  private void writeCFNetcdfFile(CoverageCollection gcd, NcssGridParamsBean params, SubsetParams subset, NetcdfFileWriter writer)
+          throws InvalidRangeException, IOException {
 
-    // write the file
     Optional<Long> estimatedSizeo = CFGridCoverageWriter2.writeOrTestSize(gcd, params.getVar(), subset, params.isAddLatLon(), false, writer);
     if (!estimatedSizeo.isPresent())
       throw new InvalidRangeException("Request contains no data: " + estimatedSizeo.getErrorMessage());
-
-    return new File(responseFilename);
   }
 
   private String getResponseFileName(String requestPathInfo, NetcdfFileWriter.Version version) {
@@ -39,14 +39,20 @@ import ucar.nc2.*;
 
 import opendap.servers.*;
 import opendap.dap.BaseType;
+import opendap.dap.BaseTypePrimitiveVector;
+import opendap.dap.BytePrimitiveVector;
 import opendap.dap.DArrayDimension;
+import opendap.dap.NoSuchVariableException;
 import opendap.dap.PrimitiveVector;
 
 import java.io.IOException;
 import java.io.EOFException;
 import java.io.DataOutputStream;
 import java.util.ArrayList;
+import java.util.Formatter;
 import java.util.List;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Wraps a netcdf variable with rank > 0 as an SDArray.
@@ -59,6 +65,37 @@ public class NcSDArray extends SDArray implements HasNetcdfVariable {
   static private org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(NcSDArray.class);
 
   private static final boolean debug = false, debugRead = false;
+
+  // arrays larger than this are read and sent one slab along the outer dimension at a time
+  static private long slabSize = 10 * 1000 * 1000;
+
+  static private final LongAdder wholeReads = new LongAdder();
+  static private final LongAdder slabbedArrays = new LongAdder();
+  static private final LongAdder slabReads = new LongAdder();
+  static private final LongAccumulator maxReadBytes = new LongAccumulator(Math::max, 0); // over all requests since startup
+
+  /**
+   * Set the largest number of bytes that is read into memory at once when sending a numeric array.
+   * Larger arrays are sent in slabs along their outer dimension; a single outer index is never split.
+   * @param bytes slab size in bytes; 0 or less reads every array whole.
+   */
+  static public synchronized void setSlabSize(long bytes) {
+    slabSize = bytes;
+  }
+
+  static public long getSlabSize() {
+    return slabSize;
+  }
+
+  static public long getSlabReads() {
+    return slabReads.sum();
+  }
+
+  static public void showStats(Formatter f) {
+    f.format("NcSDArray slabSize= %d; whole reads= %d; slabbed arrays= %d slab reads= %d; max bytes in one read since startup= %d%n",
+            slabSize, wholeReads.sum(), slabbedArrays.sum(), slabReads.sum(), maxReadBytes.get());
+  }
+
   private Variable ncVar = null;
   //ignore protected BaseType elemType;
 
@@ -105,20 +142,8 @@ public class NcSDArray extends SDArray implements HasNetcdfVariable {
       if (log.isDebugEnabled())
         log.debug(getRequestedRange());
 
-      // set up the netcdf read
-      int n = numDimensions();
-      List<Range> ranges = new ArrayList<>(n);
-      for (int i = 0; i < n; i++)
-        ranges.add(new Range(getStart(i), getStop(i), getStride(i)));
-
-      try {
-        a = ncVar.read(ranges);
-
-      } catch (java.lang.ArrayIndexOutOfBoundsException t) {
-        log.error(getRequestedRange(), t);
-        throw new RuntimeException("NcSDArray java.lang.ArrayIndexOutOfBoundsException=" + t.getMessage()+
-            " for request= "+ getRequestedRange()+" dataset= "+ datasetName, t);
-      }
+      a = readSection(makeRanges(), datasetName);
+      wholeReads.increment();
 
       if (debug)
         System.out.println("  NcSDArray Read " + getEncodedName() + " " + a.getSize() + " elems of type = " + a.getElementType());
@@ -144,6 +169,113 @@ public class NcSDArray extends SDArray implements HasNetcdfVariable {
     return (false);
   }
 
+  private Array readSection(List<Range> ranges, String datasetName) throws IOException, InvalidRangeException {
+    Array a;
+    try {
+      a = ncVar.read(ranges);
+
+    } catch (java.lang.ArrayIndexOutOfBoundsException t) {
+      log.error(getRequestedRange(), t);
+      throw new RuntimeException("NcSDArray java.lang.ArrayIndexOutOfBoundsException=" + t.getMessage()+
+          " for request= "+ getRequestedRange()+" dataset= "+ datasetName, t);
+    }
+
+    maxReadBytes.accumulate(a.getSizeBytes());
+    return a;
+  }
+
+  // the requested section, typically set by the constraint evaluator
+  private List<Range> makeRanges() throws InvalidDimensionException, InvalidRangeException {
+    int n = numDimensions();
+    List<Range> ranges = new ArrayList<>(n);
+    for (int i = 0; i < n; i++)
+      ranges.add(new Range(getStart(i), getStop(i), getStride(i)));
+    return ranges;
+  }
+
+  /**
+   * Write the requested section to the sink. Numeric arrays larger than the slab size are read and written
+   * a slab at a time, so the whole array is never in memory. The bytes written are the same as SDArray.serialize().
+   */
+  @Override
+  public void serialize(String dataset, DataOutputStream sink, CEEvaluator ce, Object specialO)
+          throws NoSuchVariableException, DAP2ServerSideException, IOException {
+
+    PrimitiveVector pv = getPrimitiveVector();
+    long slabBytes = slabSize;
+    if (isRead() || slabBytes <= 0 || pv instanceof BaseTypePrimitiveVector || numDimensions() == 0) {
+      super.serialize(dataset, sink, ce, specialO);
+      return;
+    }
+
+    List<Range> ranges;
+    try {
+      ranges = makeRanges();
+    } catch (InvalidDimensionException | InvalidRangeException e) {
+      log.error(getRequestedRange(), e);
+      throw new IllegalStateException("NcSDArray " + e.getMessage());
+    }
+
+    long size = new Section(ranges).computeSize();
+    long elemSize = ncVar.getElementSize();
+    if (size * elemSize <= slabBytes) {
+      super.serialize(dataset, sink, ce, specialO);
+      return;
+    }
+
+    if (!ce.evalClauses(specialO))
+      return;
+
+    long tstart = System.currentTimeMillis();
+    Range outer = ranges.get(0);
+    long outerBytes = size / outer.length() * elemSize;
+    int slabLength = (int) Math.max(1, Math.min(outer.length(), slabBytes / outerBytes));
+
+    // the length is written twice, as in SDArray.serialize()
+    sink.writeInt((int) size);
+    sink.writeInt((int) size);
+
+    int nslabs = 0;
+    long slabMax = 0;
+    try {
+      for (int k = 0; k < outer.length(); k += slabLength) {
+        int last = Math.min(k + slabLength, outer.length()) - 1;
+        ranges.set(0, new Range(outer.element(k), outer.element(last), outer.stride()));
+        Array a = readSection(ranges, dataset);
+        slabMax = Math.max(slabMax, a.getSizeBytes());
+
+        Object pa = a.get1DJavaArray(a.getElementType());
+        if (pv instanceof BytePrimitiveVector)
+          sink.write((byte[]) pa); // BytePrimitiveVector.externalize() pads each call, so pad once at the end
+        else {
+          pv.setInternalStorage(pa);
+          pv.externalize(sink);
+        }
+        nslabs++;
+      }
+
+    } catch (InvalidRangeException e) {
+      log.error(getRequestedRange(), e);
+      throw new IllegalStateException("NcSDArray InvalidRangeException=" + e.getMessage());
+
+    } finally {
+      pv.setInternalStorage(null);
+    }
+
+    if (pv instanceof BytePrimitiveVector) {
+      int pad = (int) ((4 - size % 4) % 4);
+      for (int i = 0; i < pad; i++)
+        sink.writeByte(0);
+    }
+
+    slabbedArrays.increment();
+    slabReads.add(nslabs);
+    if (log.isDebugEnabled()) {
+      long tookTime = System.currentTimeMillis() - tstart;
+      log.debug("NcSDArray serialize " + getEncodedName() + " in " + nslabs + " slabs of at most " + slabMax + " bytes: " + tookTime * .001 + " seconds");
+    }
+  }
+
   private String getRequestedRange() {
     try {
       StringBuilder sbuff = new StringBuilder();
@@ -104,6 +104,7 @@ public class OpendapServlet extends AbstractServlet {
 
     this.ascLimit = ThreddsConfig.getInt("Opendap.ascLimit", ascLimit);  // LOOK how the hell can OpendapServlet call something in the tds module ??
     this.binLimit = ThreddsConfig.getInt("Opendap.binLimit", binLimit);
+    NcSDArray.setSlabSize(ThreddsConfig.getBytes("Opendap.slabSize", NcSDArray.getSlabSize()));
 
     this.odapVersionString = ThreddsConfig.get("Opendap.serverVersion", odapVersionString);
     logServerStartup.info(getClass().getName() + " version= " + odapVersionString + " ascLimit = " + ascLimit + " binLimit = " + binLimit);
@@ -0,0 +1,103 @@
+package thredds.server.opendap;
+
+import opendap.servers.CEEvaluator;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import ucar.ma2.Array;
+import ucar.ma2.DataType;
+import ucar.ma2.InvalidRangeException;
+import ucar.nc2.*;
+import ucar.nc2.constants.CDM;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Check that sending arrays in slabs writes the same bytes as reading them whole,
+ * for each DAP2 primitive type, for grids, and for strided constraints.
+ */
+public class TestNcSDArraySlabs {
+  private static final String[] constraints = {
+          "",
+          "f[1:2:6][0:4][1:2]",
+          "b[0:6][1][0:2],s[2:5][0:2:4][2]",
+          "g[0:3:6][1:4][0:2]",
+          "u,i[6][4][0:1],d",
+  };
+
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private long saveSlabSize;
+
+  @Before
+  public void saveSlabSize() {
+    saveSlabSize = NcSDArray.getSlabSize();
+  }
+
+  @After
+  public void resetSlabSize() {
+    NcSDArray.setSlabSize(saveSlabSize);
+  }
+
+  @Test
+  public void testSameAsWhole() throws Exception {
+    File file = makeFile();
+    try (NetcdfFile ncfile = NetcdfFile.open(file.getPath())) {
+      for (String constraint : constraints) {
+        byte[] whole = send(ncfile, constraint, 0);
+        Assert.assertTrue(constraint, whole.length > 0);
+        long slabReads = NcSDArray.getSlabReads();
+        Assert.assertArrayEquals(constraint, whole, send(ncfile, constraint, 1));
+        Assert.assertTrue(constraint, NcSDArray.getSlabReads() > slabReads);
+        Assert.assertArrayEquals(constraint, whole, send(ncfile, constraint, 50));
+        Assert.assertArrayEquals(constraint, whole, send(ncfile, constraint, 1000 * 1000));
+      }
+    }
+  }
+
+  private byte[] send(NetcdfFile ncfile, String constraint, long slabSize) throws Exception {
+    NcSDArray.setSlabSize(slabSize);
+    NcDDS dds = new NcDDS("test", ncfile);
+    CEEvaluator ce = new CEEvaluator(dds);
+    ce.parseConstraint(constraint, null);
+
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    DataOutputStream sink = new DataOutputStream(bout);
+    ce.send("test", sink, null);
+    sink.flush();
+    return bout.toByteArray();
+  }
+
+  private File makeFile() throws IOException, InvalidRangeException {
+    File file = tempFolder.newFile("slabs.nc");
+    try (NetcdfFileWriter writer = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, file.getPath())) {
+      writer.addDimension(null, "time", 7);
+      writer.addDimension(null, "y", 5);
+      writer.addDimension(null, "x", 3);
+      writer.addDimension(null, "n", 3); // no coordinate variable, so these arent grids
+      writer.addVariable(null, "time", DataType.DOUBLE, "time");
+      writer.addVariable(null, "y", DataType.FLOAT, "y");
+      writer.addVariable(null, "x", DataType.INT, "x");
+      writer.addVariable(null, "b", DataType.BYTE, "time y n");
+      writer.addVariable(null, "s", DataType.SHORT, "time y n");
+      Variable u = writer.addVariable(null, "u", DataType.SHORT, "time y n");
+      u.addAttribute(new Attribute(CDM.UNSIGNED, "true"));
+      writer.addVariable(null, "i", DataType.INT, "time y n");
+      writer.addVariable(null, "f", DataType.FLOAT, "time y n");
+      writer.addVariable(null, "d", DataType.DOUBLE, "time y n");
+      writer.addVariable(null, "g", DataType.FLOAT, "time y x"); // a grid
+      writer.create();
+
+      for (Variable v : writer.getNetcdfFile().getVariables()) {
+        Array data = Array.factory(v.getDataType(), v.getShape());
+        for (int k = 0; k < data.getSize(); k++)
+          data.setDouble(k, k * 3 - 50 + v.getShortName().charAt(0));
+        writer.write(v, data);
+      }
+    }
+    return file;
+  }
+}